@@ -3,6 +3,7 @@
 #include <EGL/egl.h>
 #include <chrono>
 #include <atomic>
+#include <algorithm>
 
 #include "pl/Gloss.h"
 
@@ -17,6 +18,20 @@ static std::chrono::steady_clock::time_point g_lastFpsTime;
 static EGLContext g_targetContext = EGL_NO_CONTEXT;
 static EGLSurface g_targetSurface = EGL_NO_SURFACE;
 
+// Swap timestamps of the target surface, written by the render thread and read by the
+// overlay's stats thread. Single producer, single consumer, no locks on the swap path.
+static constexpr uint64_t kFrameRingSize = 4096;
+static constexpr uint64_t kFrameRingMask = kFrameRingSize - 1;
+static std::atomic<int64_t> g_frameRing[kFrameRingSize];
+static std::atomic<uint64_t> g_frameSeq{0};
+
+static void recordFrame(std::chrono::steady_clock::time_point now) {
+    uint64_t seq = g_frameSeq.load(std::memory_order_relaxed);
+    int64_t nanos = std::chrono::duration_cast<std::chrono::nanoseconds>(now.time_since_epoch()).count();
+    g_frameRing[seq & kFrameRingMask].store(nanos, std::memory_order_relaxed);
+    g_frameSeq.store(seq + 1, std::memory_order_release);
+}
+
 static EGLBoolean (*g_orig_eglSwapBuffers)(EGLDisplay, EGLSurface) = nullptr;
 
 static EGLBoolean hook_eglSwapBuffers(EGLDisplay dpy, EGLSurface surf) {
@@ -44,6 +59,7 @@ static EGLBoolean hook_eglSwapBuffers(EGLDisplay dpy, EGLSurface surf) {
         g_frameCount++;
 
         auto now = std::chrono::steady_clock::now();
+        recordFrame(now);
         auto elapsed = std::chrono::duration_cast<std::chrono::milliseconds>(now - g_lastFpsTime).count();
 
         if (elapsed >= 1000) {
@@ -107,6 +123,32 @@ Java_org_levimc_launcher_core_mods_inbuilt_nativemod_FpsMod_nativeGetFps(JNIEnv*
     return g_currentFps.load();
 }
 
+// Copies the timestamps of frames [fromSeq, end) into out, keeping the newest ones when
+// more are pending than out holds (at most half the ring, so the writer cannot lap the
+// copy). Returns end, or -1 when the writer overtook the copy and the reader must resync.
+JNIEXPORT jlong JNICALL
+Java_org_levimc_launcher_core_mods_inbuilt_nativemod_FpsMod_nativeReadFrameTimes(JNIEnv* env, jclass clazz,
+                                                                              jlong fromSeq, jlongArray out) {
+    uint64_t end = g_frameSeq.load(std::memory_order_acquire);
+    uint64_t from = fromSeq < 0 ? end : static_cast<uint64_t>(fromSeq);
+    if (from > end) from = end;
+    uint64_t limit = std::min<uint64_t>(env->GetArrayLength(out), kFrameRingSize / 2);
+    uint64_t count = std::min<uint64_t>(end - from, limit);
+    if (count == 0) return static_cast<jlong>(end);
+
+    jlong* dst = env->GetLongArrayElements(out, nullptr);
+    if (!dst) return -1;
+    uint64_t start = end - count;
+    for (uint64_t i = 0; i < count; i++) {
+        dst[i] = g_frameRing[(start + i) & kFrameRingMask].load(std::memory_order_relaxed);
+    }
+    env->ReleaseLongArrayElements(out, dst, 0);
+
+    std::atomic_thread_fence(std::memory_order_acquire);
+    if (g_frameSeq.load(std::memory_order_relaxed) - start > kFrameRingSize) return -1;
+    return static_cast<jlong>(end);
+}
+
 JNIEXPORT jboolean JNICALL
 Java_org_levimc_launcher_core_mods_inbuilt_nativemod_FpsMod_nativeIsInitialized(JNIEnv* env, jclass clazz) {
     return g_initialized ? JNI_TRUE : JNI_FALSE;
@@ -276,6 +276,99 @@ namespace elf_util {
         return result;
     }
 
+    static bool virtualToFileOffset(const ElfW(Phdr) *phdr, size_t phnum, ElfW(Addr) vaddr,
+                                    size_t *offset) {
+        for (size_t i = 0; i < phnum; i++) {
+            if (phdr[i].p_type != PT_LOAD)
+                continue;
+            if (vaddr >= phdr[i].p_vaddr && vaddr < phdr[i].p_vaddr + phdr[i].p_filesz) {
+                *offset = vaddr - phdr[i].p_vaddr + phdr[i].p_offset;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    bool readNeededLibraries(const char *path, std::vector<std::string> &needed) {
+        int fd = open(path, O_RDONLY | O_CLOEXEC);
+        if (fd < 0) {
+            return false;
+        }
+
+        struct stat s;
+        if (fstat(fd, &s) != 0 || (size_t) s.st_size < sizeof(ElfW(Ehdr))) {
+            close(fd);
+            return false;
+        }
+        size_t file_size = s.st_size;
+
+        auto base = (const uint8_t *) mmap(0, file_size, PROT_READ, MAP_PRIVATE, fd, 0);
+        close(fd);
+        if (base == MAP_FAILED) {
+            return false;
+        }
+
+        bool ok = false;
+        auto *ehdr = (const ElfW(Ehdr) *) base;
+        do {
+            if (memcmp(ehdr->e_ident, ELFMAG, SELFMAG) != 0)
+                break;
+#ifdef __LP64__
+            if (ehdr->e_ident[EI_CLASS] != ELFCLASS64)
+                break;
+#else
+            if (ehdr->e_ident[EI_CLASS] != ELFCLASS32)
+                break;
+#endif
+            if (ehdr->e_phoff + (size_t) ehdr->e_phnum * sizeof(ElfW(Phdr)) > file_size)
+                break;
+
+            auto *phdr = (const ElfW(Phdr) *) (base + ehdr->e_phoff);
+            const ElfW(Dyn) *dyn = NULL;
+            size_t dyn_count = 0;
+            for (size_t i = 0; i < ehdr->e_phnum; i++) {
+                if (phdr[i].p_type == PT_DYNAMIC &&
+                    phdr[i].p_offset + phdr[i].p_filesz <= file_size) {
+                    dyn = (const ElfW(Dyn) *) (base + phdr[i].p_offset);
+                    dyn_count = phdr[i].p_filesz / sizeof(ElfW(Dyn));
+                    break;
+                }
+            }
+            if (dyn == NULL)
+                break;
+
+            ElfW(Addr) strtab_vaddr = 0;
+            size_t strtab_size = 0;
+            std::vector<size_t> name_offsets;
+            for (size_t i = 0; i < dyn_count && dyn[i].d_tag != DT_NULL; i++) {
+                if (dyn[i].d_tag == DT_NEEDED) {
+                    name_offsets.push_back(dyn[i].d_un.d_val);
+                } else if (dyn[i].d_tag == DT_STRTAB) {
+                    strtab_vaddr = dyn[i].d_un.d_ptr;
+                } else if (dyn[i].d_tag == DT_STRSZ) {
+                    strtab_size = dyn[i].d_un.d_val;
+                }
+            }
+
+            size_t strtab_offset = 0;
+            if (!virtualToFileOffset(phdr, ehdr->e_phnum, strtab_vaddr, &strtab_offset) ||
+                strtab_offset + strtab_size > file_size)
+                break;
+
+            const char *strtab = (const char *) (base + strtab_offset);
+            for (size_t name_offset: name_offsets) {
+                if (name_offset >= strtab_size)
+                    continue;
+                needed.emplace_back(strtab + name_offset,
+                                    strnlen(strtab + name_offset, strtab_size - name_offset));
+            }
+            ok = true;
+        } while (false);
+
+        munmap((void *) base, file_size);
+        return ok;
+    }
+
     int getAndroidSystemVersion() {
         char os_version_str[100];
         __system_property_get("ro.build.version.sdk", os_version_str);
@@ -1,7 +1,11 @@
 #pragma once
 
+#include <string>
+#include <vector>
+
 namespace elf_util {
     void* resolveElfSymbol(const char *libraryName, const char *symbolName);
+    bool readNeededLibraries(const char *path, std::vector<std::string> &needed);
     const char *getAndroidLinkerPath();
     int getAndroidSystemVersion();
-}
\ No newline at end of file
+}
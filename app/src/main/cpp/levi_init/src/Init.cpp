@@ -2,6 +2,8 @@
 #include <string>
 #include <dlfcn.h>
 #include "Runtime.h"
+#include "ElfUtils.h"
+#include "Preload.h"
 
 std::string getCurrentSharedObjectPath() {
     Dl_info info{};
@@ -27,4 +29,40 @@ Java_org_levimc_launcher_core_minecraft_LauncherApplication_nativeSetupRuntime(
     env->ReleaseStringUTFChars(modsPath, path);
 }
 
+JNIEXPORT jobjectArray JNICALL
+Java_org_levimc_launcher_core_minecraft_NativeLibraryPreloader_nativeReadNeeded(
+        JNIEnv* env,
+        jclass /*clazz*/,
+        jstring libraryPath
+) {
+    const char* path = env->GetStringUTFChars(libraryPath, nullptr);
+    std::vector<std::string> needed;
+    bool ok = elf_util::readNeededLibraries(path, needed);
+    env->ReleaseStringUTFChars(libraryPath, path);
+    if (!ok) {
+        return nullptr;
+    }
+
+    jclass stringClass = env->FindClass("java/lang/String");
+    jobjectArray result = env->NewObjectArray(static_cast<jsize>(needed.size()), stringClass, nullptr);
+    for (size_t i = 0; i < needed.size(); i++) {
+        jstring name = env->NewStringUTF(needed[i].c_str());
+        env->SetObjectArrayElement(result, static_cast<jsize>(i), name);
+        env->DeleteLocalRef(name);
+    }
+    return result;
+}
+
+JNIEXPORT jboolean JNICALL
+Java_org_levimc_launcher_core_minecraft_NativeLibraryPreloader_nativeWarmFile(
+        JNIEnv* env,
+        jclass /*clazz*/,
+        jstring filePath
+) {
+    const char* path = env->GetStringUTFChars(filePath, nullptr);
+    bool ok = preload::warmFile(path);
+    env->ReleaseStringUTFChars(filePath, path);
+    return ok ? JNI_TRUE : JNI_FALSE;
+}
+
 } // extern "C"
\ No newline at end of file
@@ -0,0 +1,35 @@
+#include "Preload.h"
+
+#include <fcntl.h>
+#include <sys/stat.h>
+#include <unistd.h>
+#include <android/log.h>
+
+#define LOG_TAG "LeviPreload"
+#define LOGD(...) __android_log_print(ANDROID_LOG_DEBUG, LOG_TAG, __VA_ARGS__)
+
+namespace preload {
+
+    bool warmFile(const char *path) {
+        int fd = open(path, O_RDONLY | O_CLOEXEC);
+        if (fd < 0) {
+            LOGD("Failed to open %s for readahead", path);
+            return false;
+        }
+
+        struct stat s{};
+        if (fstat(fd, &s) != 0 || s.st_size <= 0) {
+            close(fd);
+            return false;
+        }
+
+        // Hint the kernel first, then queue the reads with readahead(). This only
+        // starts the I/O; pages that are not in yet when the linker maps the file
+        // are faulted in as usual.
+        posix_fadvise(fd, 0, s.st_size, POSIX_FADV_WILLNEED);
+        bool ok = readahead(fd, 0, static_cast<size_t>(s.st_size)) == 0;
+        close(fd);
+        return ok;
+    }
+
+} // namespace preload
@@ -0,0 +1,5 @@
+#pragma once
+
+namespace preload {
+    bool warmFile(const char *path);
+}
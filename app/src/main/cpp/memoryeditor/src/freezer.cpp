@@ -0,0 +1,139 @@
+#include "freezer.h"
+
+#include <algorithm>
+#include <atomic>
+#include <chrono>
+#include <condition_variable>
+#include <memory>
+#include <mutex>
+#include <thread>
+#include <unistd.h>
+#include <sys/resource.h>
+#include <sys/syscall.h>
+#include <sys/uio.h>
+
+#include "memory_common.h"
+
+namespace freezer {
+
+    namespace {
+
+        using Clock = std::chrono::steady_clock;
+
+        constexpr size_t kBatch = 1024;
+        // THREAD_PRIORITY_URGENT_DISPLAY; falls back to the default when not permitted.
+        constexpr int kThreadNice = -8;
+
+        std::mutex g_lock;
+        std::condition_variable g_wake;
+        std::shared_ptr<const std::vector<Entry>> g_entries = std::make_shared<std::vector<Entry>>();
+        std::thread g_thread;
+        bool g_running = false;
+        std::atomic<int64_t> g_intervalNanos{50 * 1000 * 1000};
+        std::atomic<int64_t> g_averageNanos{0};
+        std::atomic<int64_t> g_lastNanos{0};
+
+        void writeAll(const std::vector<Entry>& entries) {
+            struct iovec local[kBatch];
+            struct iovec remote[kBatch];
+            size_t start = 0;
+            while (start < entries.size()) {
+                size_t n = std::min(entries.size() - start, kBatch);
+                for (size_t i = 0; i < n; i++) {
+                    const Entry& entry = entries[start + i];
+                    local[i].iov_base = const_cast<uint8_t*>(entry.bytes);
+                    local[i].iov_len = entry.size;
+                    remote[i].iov_base = reinterpret_cast<void*>(entry.addr);
+                    remote[i].iov_len = entry.size;
+                }
+                ssize_t written = process_vm_writev(g_pid, local, n, remote, n, 0);
+                size_t done = 0;
+                size_t covered = 0;
+                while (written > 0 && done < n && covered + remote[done].iov_len <= static_cast<size_t>(written)) {
+                    covered += remote[done].iov_len;
+                    done++;
+                }
+                if (done == n) {
+                    start += n;
+                    continue;
+                }
+                // The batch stopped at this entry; write it directly and carry on after it.
+                const Entry& failed = entries[start + done];
+                writeMemoryDirect(failed.addr, failed.bytes, failed.size);
+                start += done + 1;
+            }
+        }
+
+        void run() {
+            setpriority(PRIO_PROCESS, static_cast<id_t>(syscall(SYS_gettid)), kThreadNice);
+            Clock::time_point next = Clock::now();
+            std::unique_lock<std::mutex> lock(g_lock);
+            while (g_running) {
+                if (g_entries->empty()) {
+                    g_wake.wait(lock, [] { return !g_running || !g_entries->empty(); });
+                    next = Clock::now();
+                    continue;
+                }
+                std::shared_ptr<const std::vector<Entry>> entries = g_entries;
+                lock.unlock();
+
+                Clock::time_point begin = Clock::now();
+                writeAll(*entries);
+                int64_t cost = std::chrono::duration_cast<std::chrono::nanoseconds>(Clock::now() - begin).count();
+                g_lastNanos.store(cost);
+                int64_t average = g_averageNanos.load();
+                g_averageNanos.store(average == 0 ? cost : average + (cost - average) / 8);
+
+                // Fixed-rate schedule; if a tick overran, start the next one right away.
+                next += std::chrono::nanoseconds(g_intervalNanos.load());
+                Clock::time_point now = Clock::now();
+                if (next < now) next = now;
+
+                lock.lock();
+                g_wake.wait_until(lock, next, [] { return !g_running; });
+            }
+        }
+
+    }
+
+    void setEntries(std::vector<Entry> entries) {
+        auto shared = std::make_shared<const std::vector<Entry>>(std::move(entries));
+        {
+            std::lock_guard<std::mutex> guard(g_lock);
+            g_entries = std::move(shared);
+        }
+        g_wake.notify_all();
+    }
+
+    void setInterval(int64_t nanos) {
+        g_intervalNanos.store(std::max<int64_t>(nanos, 1000 * 1000));
+        g_wake.notify_all();
+    }
+
+    void start() {
+        std::lock_guard<std::mutex> guard(g_lock);
+        if (g_running) return;
+        if (g_thread.joinable()) g_thread.join();
+        g_running = true;
+        g_thread = std::thread(run);
+    }
+
+    void stop() {
+        {
+            std::lock_guard<std::mutex> guard(g_lock);
+            if (!g_running) return;
+            g_running = false;
+        }
+        g_wake.notify_all();
+        if (g_thread.joinable()) g_thread.join();
+    }
+
+    int64_t averageTickNanos() {
+        return g_averageNanos.load();
+    }
+
+    int64_t lastTickNanos() {
+        return g_lastNanos.load();
+    }
+
+}
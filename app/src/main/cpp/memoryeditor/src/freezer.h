@@ -0,0 +1,28 @@
+#pragma once
+
+#include <cstddef>
+#include <cstdint>
+#include <vector>
+
+// Keeps frozen addresses pinned from a dedicated native thread. Every tick writes
+// the whole list with one vectored process_vm_writev (per IOV_MAX entries).
+namespace freezer {
+
+    struct Entry {
+        uintptr_t addr;
+        uint8_t size;
+        uint8_t bytes[8];
+    };
+
+    // Replaces the write list; the thread picks it up on its next tick.
+    void setEntries(std::vector<Entry> entries);
+    void setInterval(int64_t nanos);
+
+    void start();
+    void stop();
+
+    // Smoothed and last wall time of one tick's writes, in nanoseconds.
+    int64_t averageTickNanos();
+    int64_t lastTickNanos();
+
+}
@@ -0,0 +1,37 @@
+#pragma once
+
+#include <cstddef>
+#include <cstdint>
+#include <string>
+#include <sys/types.h>
+
+// Coarse kind of a mapping, decided once when the region is first parsed.
+// The values double as bit positions in the user's region-class mask.
+enum class RegionClass : uint8_t {
+    GameImage = 0,
+    Heap = 1,
+    Scudo = 2,
+    Anon = 3,
+    Other = 4,
+};
+
+constexpr uint32_t regionClassBit(RegionClass kind) {
+    return 1u << static_cast<uint32_t>(kind);
+}
+
+struct MemoryRegion {
+    uintptr_t start;
+    uintptr_t end;
+    bool readable;
+    bool writable;
+    RegionClass kind;
+    std::string name;
+};
+
+extern pid_t g_pid;
+
+bool readMemoryPvm(uintptr_t addr, void* buffer, size_t size);
+bool readMemoryDirect(uintptr_t addr, void* buffer, size_t size);
+bool writeMemoryPvm(uintptr_t addr, const void* buffer, size_t size);
+bool writeMemoryDirect(uintptr_t addr, const void* buffer, size_t size);
+bool shouldSearchRegion(const MemoryRegion& region);
@@ -5,9 +5,9 @@
 #include <cstdio>
 #include <vector>
 #include <string>
-#include <fstream>
-#include <sstream>
 #include <algorithm>
+#include <atomic>
+#include <type_traits>
 #include <unistd.h>
 #include <sys/mman.h>
 #include <sys/uio.h>
@@ -16,18 +16,24 @@
 #include <signal.h>
 #include <setjmp.h>
 
-struct MemoryRegion {
-    uintptr_t start;
-    uintptr_t end;
-    bool readable;
-    bool writable;
-    std::string name;
-};
+#include "freezer.h"
+#include "memory_common.h"
+#include "region_map.h"
+#include "result_store.h"
+#include "scan_engine.h"
+#include "snapshot.h"
 
 static std::vector<MemoryRegion> g_regions;
-static std::vector<uintptr_t> g_results;
+static ResultStore g_results;
+static Snapshot g_snapshot;
+// After an unknown-value search every aligned address in g_snapshot is a result;
+// they are only written out to g_results by the first filter.
+static bool g_implicitResults = false;
 static int g_searchType = 0;
-static pid_t g_pid = 0;
+static std::atomic<uint32_t> g_regionMask{
+    regionClassBit(RegionClass::GameImage) | regionClassBit(RegionClass::Heap) |
+    regionClassBit(RegionClass::Scudo) | regionClassBit(RegionClass::Anon)};
+pid_t g_pid = 0;
 
 static thread_local sigjmp_buf g_jumpBuf;
 static thread_local volatile sig_atomic_t g_inSafeAccess = 0;
@@ -47,33 +53,7 @@ static void setupSignalHandler() {
     sigaction(SIGBUS, &sa, nullptr);
 }
 
-static void parseMemoryMaps() {
-    g_regions.clear();
-    std::ifstream maps("/proc/self/maps");
-    if (!maps.is_open()) return;
-    std::string line;
-    while (std::getline(maps, line)) {
-        unsigned long long start, end;
-        char perms[5] = {0};
-        char name[256] = {0};
-        int parsed = sscanf(line.c_str(), "%llx-%llx %4s %*s %*s %*s %255[^\n]", &start, &end, perms, name);
-        if (parsed >= 3) {
-            MemoryRegion region;
-            region.start = static_cast<uintptr_t>(start);
-            region.end = static_cast<uintptr_t>(end);
-            region.readable = (perms[0] == 'r');
-            region.writable = (perms[1] == 'w');
-            char* n = name;
-            while (*n == ' ' || *n == '\t') n++;
-            region.name = n;
-            if (region.readable) {
-                g_regions.push_back(region);
-            }
-        }
-    }
-}
-
-static bool readMemoryPvm(uintptr_t addr, void* buffer, size_t size) {
+bool readMemoryPvm(uintptr_t addr, void* buffer, size_t size) {
     struct iovec local[1];
     struct iovec remote[1];
     local[0].iov_base = buffer;
@@ -84,7 +64,7 @@ static bool readMemoryPvm(uintptr_t addr, void* buffer, size_t size) {
     return nread == static_cast<ssize_t>(size);
 }
 
-static bool writeMemoryPvm(uintptr_t addr, const void* buffer, size_t size) {
+bool writeMemoryPvm(uintptr_t addr, const void* buffer, size_t size) {
     struct iovec local[1];
     struct iovec remote[1];
     local[0].iov_base = const_cast<void*>(buffer);
@@ -95,7 +75,7 @@ static bool writeMemoryPvm(uintptr_t addr, const void* buffer, size_t size) {
     return nwritten == static_cast<ssize_t>(size);
 }
 
-static bool readMemoryDirect(uintptr_t addr, void* buffer, size_t size) {
+bool readMemoryDirect(uintptr_t addr, void* buffer, size_t size) {
     g_inSafeAccess = 1;
     if (sigsetjmp(g_jumpBuf, 1) == 0) {
         memcpy(buffer, reinterpret_cast<void*>(addr), size);
@@ -106,7 +86,7 @@ static bool readMemoryDirect(uintptr_t addr, void* buffer, size_t size) {
     return false;
 }
 
-static bool writeMemoryDirect(uintptr_t addr, const void* buffer, size_t size) {
+bool writeMemoryDirect(uintptr_t addr, const void* buffer, size_t size) {
     g_inSafeAccess = 1;
     if (sigsetjmp(g_jumpBuf, 1) == 0) {
         memcpy(reinterpret_cast<void*>(addr), buffer, size);
@@ -129,69 +109,284 @@ static bool writeMemory(uintptr_t addr, T value) {
     return writeMemoryDirect(addr, &value, sizeof(T));
 }
 
-static bool shouldSearchRegion(const MemoryRegion& region) {
-    if (!region.readable || !region.writable) return false;
-    if (region.name.find("libminecraftpe") != std::string::npos) return true;
-    if (region.name.find("[heap]") != std::string::npos) return true;
-    if (region.name.find("[anon:libc_malloc]") != std::string::npos) return true;
-    if (region.name.find("[anon:scudo:") != std::string::npos) return true;
-    if (region.name.empty() || region.name.find("[anon:") == 0) {
-        size_t size = region.end - region.start;
-        if (size > 4096 && size < 256 * 1024 * 1024) return true;
-    }
-    return false;
+bool shouldSearchRegion(const MemoryRegion& region) {
+    return region.readable && region.writable && (g_regionMask.load(std::memory_order_relaxed) & regionClassBit(region.kind)) != 0;
 }
 
-#define CHUNK_SIZE 4096
-static uint8_t g_chunk[CHUNK_SIZE];
-
-static bool readChunk(uintptr_t addr, size_t size) {
-    if (readMemoryPvm(addr, g_chunk, size)) return true;
-    return readMemoryDirect(addr, g_chunk, size);
+static void resetSnapshot() {
+    g_snapshot.clear();
+    g_implicitResults = false;
 }
 
 template<typename T>
 static void searchValue(T targetValue, bool isXor, uint64_t xorKey) {
-    g_results.clear();
-    for (const auto& region : g_regions) {
-        if (!shouldSearchRegion(region)) continue;
-        for (uintptr_t chunkAddr = region.start; chunkAddr < region.end; chunkAddr += CHUNK_SIZE) {
-            size_t chunkSize = std::min((size_t)(region.end - chunkAddr), (size_t)CHUNK_SIZE);
-            if (!readChunk(chunkAddr, chunkSize)) continue;
-            for (size_t offset = 0; offset + sizeof(T) <= chunkSize; offset += sizeof(T)) {
-                T value = *reinterpret_cast<T*>(g_chunk + offset);
-                T compareValue = isXor ? (value ^ static_cast<T>(xorKey)) : value;
-                if (compareValue == targetValue) {
-                    g_results.push_back(chunkAddr + offset);
-                    if (g_results.size() >= 50000) return;
+    resetSnapshot();
+    // (value ^ key) == target is the same test as value == (target ^ key), so XOR
+    // searches reuse the plain equality matcher.
+    T needle = isXor ? static_cast<T>(targetValue ^ static_cast<T>(xorKey)) : targetValue;
+    scan::scanRegions(g_regions,
+        [needle](const uint8_t* data, size_t size, uintptr_t base, ResultStore& out) {
+            scan::matchEqual<T>(data, size, base, needle, out);
+        },
+        g_results);
+}
+
+template<typename T>
+static void searchNear(T targetValue, T tolerance) {
+    resetSnapshot();
+    scan::scanRegions(g_regions,
+        [targetValue, tolerance](const uint8_t* data, size_t size, uintptr_t base, ResultStore& out) {
+            scan::matchNear(data, size, base, targetValue, tolerance, out);
+        },
+        g_results);
+}
+
+static size_t valueSize(int searchType) {
+    switch (searchType) {
+        case 0: return 1;
+        case 1: return 2;
+        case 3: return 8;
+        case 5: return 8;
+        default: return 4;
+    }
+}
+
+static uint64_t implicitResultCount() {
+    return static_cast<uint64_t>(g_snapshot.pages().size()) * (Snapshot::kPageSize / valueSize(g_searchType));
+}
+
+static size_t readImplicitResults(uint64_t offset, size_t count, uintptr_t* out) {
+    size_t step = valueSize(g_searchType);
+    size_t perPage = Snapshot::kPageSize / step;
+    const auto& pages = g_snapshot.pages();
+    size_t copied = 0;
+    for (uint64_t index = offset; copied < count && index / perPage < pages.size(); index++) {
+        out[copied++] = pages[index / perPage].addr + (index % perPage) * step;
+    }
+    return copied;
+}
+
+// Reads `count` values of the given ValueType ids into 8-byte slots of `out`, followed by
+// one status byte per value (1 = read). Uses one vectored process_vm_readv per
+// IOV_MAX entries; an unreadable entry only costs a direct-read retry for itself.
+static void readMany(const jlong* addrs, const jint* types, size_t count, uint8_t* out) {
+    constexpr size_t kSlot = 8;
+    constexpr size_t kBatch = 1024;
+    uint8_t* status = out + count * kSlot;
+    memset(out, 0, count * (kSlot + 1));
+
+    struct iovec local[kBatch];
+    struct iovec remote[kBatch];
+    size_t start = 0;
+    while (start < count) {
+        size_t end = std::min(count, start + kBatch);
+        size_t n = end - start;
+        for (size_t i = 0; i < n; i++) {
+            size_t size = valueSize(types[start + i]);
+            local[i].iov_base = out + (start + i) * kSlot;
+            local[i].iov_len = size;
+            remote[i].iov_base = reinterpret_cast<void*>(static_cast<uintptr_t>(addrs[start + i]));
+            remote[i].iov_len = size;
+        }
+        ssize_t nread = process_vm_readv(g_pid, local, n, remote, n, 0);
+        size_t done = 0;
+        size_t covered = 0;
+        while (nread > 0 && done < n && covered + remote[done].iov_len <= static_cast<size_t>(nread)) {
+            covered += remote[done].iov_len;
+            status[start + done] = 1;
+            done++;
+        }
+        if (done == n) {
+            start = end;
+            continue;
+        }
+        // The batch stopped at entry `done`; retry just that one and go on after it.
+        size_t failed = start + done;
+        if (readMemoryDirect(static_cast<uintptr_t>(addrs[failed]), out + failed * kSlot, remote[done].iov_len)) {
+            status[failed] = 1;
+        }
+        start = failed + 1;
+    }
+}
+
+enum SameValueVerdict {
+    SAME_EVALUATE,
+    SAME_KEEP,
+    SAME_DROP
+};
+
+// Filters the results by comparing each value with its copy in the snapshot, then
+// re-baselines the snapshot on what it just read. Pages whose hash did not change
+// are settled by `sameVerdict` without touching their values, and pages that no
+// longer hold any result are dropped from the snapshot. Without `needsBaseline`,
+// `match` only looks at the current value, so untracked pages are evaluated too.
+template<typename T, typename Match>
+static void filterAgainstSnapshot(Match match, SameValueVerdict sameVerdict, bool needsBaseline = true) {
+    constexpr size_t kPageSize = Snapshot::kPageSize;
+    constexpr size_t kPagesPerUnit = 256;
+    struct Update {
+        ptrdiff_t oldIndex;
+        Snapshot::Page page;
+    };
+
+    g_snapshot.prepare(g_regions);
+    const std::vector<Snapshot::Page>& oldPages = g_snapshot.pages();
+    bool implicit = g_implicitResults;
+    size_t units = implicit ? (oldPages.size() + kPagesPerUnit - 1) / kPagesPerUnit : g_results.blockCount();
+    unsigned workers = scan::workerCount();
+    std::vector<std::vector<Update>> updates(units);
+    std::vector<std::vector<uint8_t>> pageBuffers(workers);
+    std::vector<std::vector<uintptr_t>> candidates(workers);
+
+    auto processPage = [&](uintptr_t pageAddr, ptrdiff_t oldIndex, const uintptr_t* addrs, size_t count,
+                           uint8_t* current, ResultStore& out, std::vector<Update>& unitUpdates) {
+        if (!readMemoryPvm(pageAddr, current, kPageSize) && !readMemoryDirect(pageAddr, current, kPageSize)) {
+            return;
+        }
+        uint64_t hash = Snapshot::hashPage(current);
+        bool same = oldIndex >= 0 && oldPages[oldIndex].hash == hash;
+        size_t kept = 0;
+        if ((oldIndex < 0 && needsBaseline) || (same && sameVerdict == SAME_KEEP)) {
+            // Without a baseline nothing can be ruled out yet; keep the candidates and start tracking the page.
+            for (size_t i = 0; i < count; i++) out.append(addrs[i]);
+            kept = count;
+        } else if (!same || sameVerdict == SAME_EVALUATE) {
+            const uint8_t* old = oldIndex >= 0 ? g_snapshot.data(oldPages[oldIndex]) : current;
+            for (size_t i = 0; i < count; i++) {
+                size_t offset = addrs[i] - pageAddr;
+                T before, after;
+                memcpy(&before, old + offset, sizeof(T));
+                memcpy(&after, current + offset, sizeof(T));
+                if (match(before, after)) {
+                    out.append(addrs[i]);
+                    kept++;
+                }
+            }
+        }
+        if (kept == 0) return;
+        Snapshot::Page page = same ? oldPages[oldIndex] : g_snapshot.store(pageAddr, current, hash);
+        if (page.slot != Snapshot::kNoSlot) {
+            unitUpdates.push_back({oldIndex, page});
+        }
+    };
+
+    ResultStore next;
+    scan::runOrdered(units, [&](size_t unit, unsigned workerId, ResultStore& out) {
+        std::vector<uint8_t>& current = pageBuffers[workerId];
+        if (current.empty()) current.resize(kPageSize);
+        std::vector<uintptr_t>& addrs = candidates[workerId];
+
+        if (implicit) {
+            size_t end = std::min(oldPages.size(), (unit + 1) * kPagesPerUnit);
+            for (size_t index = unit * kPagesPerUnit; index < end; index++) {
+                uintptr_t pageAddr = oldPages[index].addr;
+                addrs.clear();
+                for (size_t offset = 0; offset + sizeof(T) <= kPageSize; offset += sizeof(T)) {
+                    addrs.push_back(pageAddr + offset);
                 }
+                processPage(pageAddr, static_cast<ptrdiff_t>(index), addrs.data(), addrs.size(),
+                            current.data(), out, updates[unit]);
             }
+            return;
+        }
+
+        g_results.readBlock(unit, addrs);
+        size_t i = 0;
+        while (i < addrs.size()) {
+            uintptr_t pageAddr = addrs[i] & ~static_cast<uintptr_t>(kPageSize - 1);
+            size_t j = i + 1;
+            while (j < addrs.size() && (addrs[j] & ~static_cast<uintptr_t>(kPageSize - 1)) == pageAddr) j++;
+            processPage(pageAddr, g_snapshot.find(pageAddr), addrs.data() + i, j - i,
+                        current.data(), out, updates[unit]);
+            i = j;
         }
+    }, next);
+
+    // Neighbouring result blocks can share a page, so the same page may show up twice
+    // in a row; keep the first entry and drop the duplicate's fresh slot.
+    std::vector<Snapshot::Page> merged;
+    std::vector<bool> reused(oldPages.size(), false);
+    for (const auto& unitUpdates : updates) {
+        for (const Update& update : unitUpdates) {
+            bool keepsOldSlot = update.oldIndex >= 0 && update.page.slot == oldPages[update.oldIndex].slot;
+            if (!merged.empty() && merged.back().addr == update.page.addr) {
+                if (!keepsOldSlot && update.page.slot != merged.back().slot) g_snapshot.release(update.page);
+                continue;
+            }
+            if (keepsOldSlot) reused[update.oldIndex] = true;
+            merged.push_back(update.page);
+        }
+    }
+    for (size_t i = 0; i < oldPages.size(); i++) {
+        if (!reused[i]) g_snapshot.release(oldPages[i]);
     }
+    g_snapshot.replacePages(std::move(merged));
+    g_results.swap(next);
+    g_implicitResults = false;
 }
 
+// Keeps the results whose current value satisfies `match`. Goes page by page through
+// the snapshot pass, so the pages it reads become the baseline for a later
+// changed/unchanged filter instead of whatever an earlier pass left behind.
+template<typename T, typename Match>
+static void filterResults(Match match) {
+    filterAgainstSnapshot<T>([&](T, T value) { return match(value); }, SAME_EVALUATE, false);
+}
 
 template<typename T>
 static void filterValue(T targetValue, int condition, bool isXor, uint64_t xorKey) {
-    std::vector<uintptr_t> newResults;
-    for (uintptr_t addr : g_results) {
-        T value;
-        if (readMemory(addr, &value)) {
-            T compareValue = isXor ? (value ^ static_cast<T>(xorKey)) : value;
-            bool match = false;
-            switch (condition) {
-                case 0: match = (compareValue == targetValue); break;
-                case 1: match = (compareValue != targetValue); break;
-                case 2: match = (compareValue > targetValue); break;
-                case 3: match = (compareValue < targetValue); break;
-                case 4: match = (compareValue >= targetValue); break;
-                case 5: match = (compareValue <= targetValue); break;
-                default: match = (compareValue == targetValue); break;
-            }
-            if (match) newResults.push_back(addr);
+    filterResults<T>([=](T value) {
+        T compareValue = isXor ? (value ^ static_cast<T>(xorKey)) : value;
+        switch (condition) {
+            case 0: return compareValue == targetValue;
+            case 1: return compareValue != targetValue;
+            case 2: return compareValue > targetValue;
+            case 3: return compareValue < targetValue;
+            case 4: return compareValue >= targetValue;
+            case 5: return compareValue <= targetValue;
+            default: return compareValue == targetValue;
         }
+    });
+}
+
+template<typename T>
+static void filterNear(T targetValue, T tolerance, int condition) {
+    filterResults<T>([=](T value) {
+        switch (condition) {
+            case 0: return std::abs(value - targetValue) < tolerance;
+            case 1: return std::abs(value - targetValue) >= tolerance;
+            case 2: return value > targetValue;
+            case 3: return value < targetValue;
+            case 4: return value >= targetValue;
+            case 5: return value <= targetValue;
+            default: return false;
+        }
+    });
+}
+
+// Conditions 6-9: increased, decreased, changed and unchanged since the last snapshot.
+template<typename T>
+static void filterFuzzy(int condition, bool isXor, uint64_t xorKey) {
+    auto decode = [=](T value) -> T {
+        if constexpr (std::is_integral<T>::value) {
+            return isXor ? static_cast<T>(value ^ static_cast<T>(xorKey)) : value;
+        }
+        return value;
+    };
+    switch (condition) {
+        case 6:
+            filterAgainstSnapshot<T>([=](T before, T after) { return decode(after) > decode(before); }, SAME_DROP);
+            break;
+        case 7:
+            filterAgainstSnapshot<T>([=](T before, T after) { return decode(after) < decode(before); }, SAME_DROP);
+            break;
+        case 8:
+            filterAgainstSnapshot<T>([](T before, T after) { return before != after; }, SAME_DROP);
+            break;
+        case 9:
+            filterAgainstSnapshot<T>([](T before, T after) { return before == after; }, SAME_KEEP);
+            break;
     }
-    g_results = std::move(newResults);
 }
 
 extern "C" {
@@ -200,12 +395,42 @@ JNIEXPORT void JNICALL
 Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeInit(JNIEnv *env, jclass clazz) {
     g_pid = getpid();
     setupSignalHandler();
-    parseMemoryMaps();
+    region_map::refresh(g_regions);
+}
+
+JNIEXPORT void JNICALL
+Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeSetCacheDir(JNIEnv *env, jclass clazz, jstring path) {
+    if (path == nullptr) return;
+    const char* chars = env->GetStringUTFChars(path, nullptr);
+    if (chars == nullptr) return;
+    SpillBuffer::setSpillDirectory(chars);
+    env->ReleaseStringUTFChars(path, chars);
 }
 
 JNIEXPORT void JNICALL
 Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeRefreshRegions(JNIEnv *env, jclass clazz) {
-    parseMemoryMaps();
+    region_map::refresh(g_regions);
+}
+
+JNIEXPORT void JNICALL
+Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeSetRegionClasses(JNIEnv *env, jclass clazz, jint mask) {
+    g_regionMask.store(static_cast<uint32_t>(mask));
+}
+
+// Refreshes the region list once and writes the writable bytes of each class into
+// out[class]. Touches g_regions, so it must run on the thread that runs searches.
+JNIEXPORT void JNICALL
+Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeGetRegionClassTotals(JNIEnv *env, jclass clazz, jlongArray out) {
+    region_map::refresh(g_regions);
+    jsize count = env->GetArrayLength(out);
+    std::vector<jlong> totals(static_cast<size_t>(count), 0);
+    for (const auto& region : g_regions) {
+        jsize kind = static_cast<jsize>(region.kind);
+        if (region.writable && kind < count) {
+            totals[kind] += static_cast<jlong>(region.end - region.start);
+        }
+    }
+    env->SetLongArrayRegion(out, 0, count, totals.data());
 }
 
 JNIEXPORT jint JNICALL
@@ -240,45 +465,21 @@ Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeSearchQ
 JNIEXPORT void JNICALL
 Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeSearchFloat(JNIEnv *env, jclass clazz, jfloat targetValue, jboolean isXor, jlong xorKey) {
     g_searchType = 4;
-    g_results.clear();
-    for (const auto& region : g_regions) {
-        if (!shouldSearchRegion(region)) continue;
-        for (uintptr_t chunkAddr = region.start; chunkAddr < region.end; chunkAddr += CHUNK_SIZE) {
-            size_t chunkSize = std::min((size_t)(region.end - chunkAddr), (size_t)CHUNK_SIZE);
-            if (!readChunk(chunkAddr, chunkSize)) continue;
-            for (size_t offset = 0; offset + sizeof(float) <= chunkSize; offset += 4) {
-                float v = *reinterpret_cast<float*>(g_chunk + offset);
-                float diff = v - targetValue;
-                if (diff < 0) diff = -diff;
-                if (diff < 0.01f) {
-                    g_results.push_back(chunkAddr + offset);
-                    if (g_results.size() >= 50000) return;
-                }
-            }
-        }
-    }
+    searchNear<float>(targetValue, 0.01f);
 }
 
 JNIEXPORT void JNICALL
 Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeSearchDouble(JNIEnv *env, jclass clazz, jdouble targetValue, jboolean isXor, jlong xorKey) {
     g_searchType = 5;
+    searchNear<double>(targetValue, 0.001);
+}
+
+JNIEXPORT void JNICALL
+Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeSearchUnknown(JNIEnv *env, jclass clazz, jint type) {
+    g_searchType = type;
     g_results.clear();
-    for (const auto& region : g_regions) {
-        if (!shouldSearchRegion(region)) continue;
-        for (uintptr_t chunkAddr = region.start; chunkAddr < region.end; chunkAddr += CHUNK_SIZE) {
-            size_t chunkSize = std::min((size_t)(region.end - chunkAddr), (size_t)CHUNK_SIZE);
-            if (!readChunk(chunkAddr, chunkSize)) continue;
-            for (size_t offset = 0; offset + sizeof(double) <= chunkSize; offset += 8) {
-                double v = *reinterpret_cast<double*>(g_chunk + offset);
-                double diff = v - targetValue;
-                if (diff < 0) diff = -diff;
-                if (diff < 0.001) {
-                    g_results.push_back(chunkAddr + offset);
-                    if (g_results.size() >= 50000) return;
-                }
-            }
-        }
-    }
+    g_snapshot.capture(g_regions);
+    g_implicitResults = true;
 }
 
 JNIEXPORT void JNICALL
@@ -304,63 +505,48 @@ Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeFilterQ
 
 JNIEXPORT void JNICALL
 Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeFilterFloat(JNIEnv *env, jclass clazz, jfloat targetValue, jint condition, jboolean isXor, jlong xorKey) {
-    std::vector<uintptr_t> newResults;
-    for (uintptr_t addr : g_results) {
-        float value;
-        if (readMemory(addr, &value)) {
-            bool match = false;
-            switch (condition) {
-                case 0: match = (std::abs(value - targetValue) < 0.01f); break;
-                case 1: match = (std::abs(value - targetValue) >= 0.01f); break;
-                case 2: match = (value > targetValue); break;
-                case 3: match = (value < targetValue); break;
-                case 4: match = (value >= targetValue); break;
-                case 5: match = (value <= targetValue); break;
-            }
-            if (match) newResults.push_back(addr);
-        }
-    }
-    g_results = std::move(newResults);
+    filterNear<float>(targetValue, 0.01f, condition);
 }
 
 JNIEXPORT void JNICALL
 Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeFilterDouble(JNIEnv *env, jclass clazz, jdouble targetValue, jint condition, jboolean isXor, jlong xorKey) {
-    std::vector<uintptr_t> newResults;
-    for (uintptr_t addr : g_results) {
-        double value;
-        if (readMemory(addr, &value)) {
-            bool match = false;
-            switch (condition) {
-                case 0: match = (std::abs(value - targetValue) < 0.001); break;
-                case 1: match = (std::abs(value - targetValue) >= 0.001); break;
-                case 2: match = (value > targetValue); break;
-                case 3: match = (value < targetValue); break;
-                case 4: match = (value >= targetValue); break;
-                case 5: match = (value <= targetValue); break;
-            }
-            if (match) newResults.push_back(addr);
-        }
+    filterNear<double>(targetValue, 0.001, condition);
+}
+
+JNIEXPORT void JNICALL
+Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeFilterFuzzy(JNIEnv *env, jclass clazz, jint condition, jboolean isXor, jlong xorKey) {
+    switch (g_searchType) {
+        case 0: filterFuzzy<int8_t>(condition, isXor, xorKey); break;
+        case 1: filterFuzzy<int16_t>(condition, isXor, xorKey); break;
+        case 2: filterFuzzy<int32_t>(condition, isXor, xorKey); break;
+        case 3: filterFuzzy<int64_t>(condition, isXor, xorKey); break;
+        case 4: filterFuzzy<float>(condition, isXor, xorKey); break;
+        case 5: filterFuzzy<double>(condition, isXor, xorKey); break;
     }
-    g_results = std::move(newResults);
+}
+
+JNIEXPORT jint JNICALL
+Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeGetScanProgress(JNIEnv *env, jclass clazz) {
+    return scan::progressPermille();
 }
 
 JNIEXPORT jint JNICALL
 Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeGetResultCount(JNIEnv *env, jclass clazz) {
-    return static_cast<jint>(g_results.size());
+    uint64_t count = g_implicitResults ? implicitResultCount() : g_results.size();
+    return static_cast<jint>(std::min<uint64_t>(count, INT32_MAX));
 }
 
 JNIEXPORT jlongArray JNICALL
 Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeGetResults(JNIEnv *env, jclass clazz, jint offset, jint count) {
-    int start = std::min(static_cast<size_t>(offset), g_results.size());
-    int end = std::min(static_cast<size_t>(offset + count), g_results.size());
-    int len = end - start;
-    jlongArray result = env->NewLongArray(len);
+    if (offset < 0 || count <= 0) return env->NewLongArray(0);
+    std::vector<uintptr_t> page(static_cast<size_t>(count));
+    size_t len = g_implicitResults
+        ? readImplicitResults(static_cast<uint64_t>(offset), page.size(), page.data())
+        : g_results.read(static_cast<uint64_t>(offset), page.size(), page.data());
+    jlongArray result = env->NewLongArray(static_cast<jsize>(len));
     if (len > 0) {
-        std::vector<jlong> arr(len);
-        for (int i = 0; i < len; i++) {
-            arr[i] = static_cast<jlong>(g_results[start + i]);
-        }
-        env->SetLongArrayRegion(result, 0, len, arr.data());
+        std::vector<jlong> arr(page.begin(), page.begin() + len);
+        env->SetLongArrayRegion(result, 0, static_cast<jsize>(len), arr.data());
     }
     return result;
 }
@@ -368,6 +554,7 @@ Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeGetResu
 JNIEXPORT void JNICALL
 Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeClearResults(JNIEnv *env, jclass clazz) {
     g_results.clear();
+    resetSnapshot();
 }
 
 JNIEXPORT jlong JNICALL
@@ -412,6 +599,22 @@ Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeReadDou
     return value;
 }
 
+JNIEXPORT jboolean JNICALL
+Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeReadMany(JNIEnv *env, jclass clazz, jlongArray addrs, jintArray types, jobject out) {
+    jsize count = env->GetArrayLength(addrs);
+    if (count == 0) return JNI_TRUE;
+    if (env->GetArrayLength(types) < count) return JNI_FALSE;
+    auto* buffer = static_cast<uint8_t*>(env->GetDirectBufferAddress(out));
+    if (buffer == nullptr || env->GetDirectBufferCapacity(out) < static_cast<jlong>(count) * 9) return JNI_FALSE;
+
+    std::vector<jlong> addrValues(count);
+    std::vector<jint> typeValues(count);
+    env->GetLongArrayRegion(addrs, 0, count, addrValues.data());
+    env->GetIntArrayRegion(types, 0, count, typeValues.data());
+    readMany(addrValues.data(), typeValues.data(), static_cast<size_t>(count), buffer);
+    return JNI_TRUE;
+}
+
 JNIEXPORT jboolean JNICALL
 Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeWriteByte(JNIEnv *env, jclass clazz, jlong address, jbyte value) {
     return writeMemory(static_cast<uintptr_t>(address), static_cast<int8_t>(value));
@@ -442,6 +645,48 @@ Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeWriteDo
     return writeMemory(static_cast<uintptr_t>(address), value);
 }
 
+JNIEXPORT void JNICALL
+Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeSetFreezeList(JNIEnv *env, jclass clazz, jlongArray addrs, jintArray types, jlongArray values) {
+    jsize count = env->GetArrayLength(addrs);
+    if (env->GetArrayLength(types) < count || env->GetArrayLength(values) < count) return;
+    std::vector<jlong> addrValues(count);
+    std::vector<jint> typeValues(count);
+    std::vector<jlong> rawValues(count);
+    env->GetLongArrayRegion(addrs, 0, count, addrValues.data());
+    env->GetIntArrayRegion(types, 0, count, typeValues.data());
+    env->GetLongArrayRegion(values, 0, count, rawValues.data());
+
+    std::vector<freezer::Entry> entries(count);
+    for (jsize i = 0; i < count; i++) {
+        freezer::Entry& entry = entries[i];
+        entry.addr = static_cast<uintptr_t>(addrValues[i]);
+        entry.size = static_cast<uint8_t>(valueSize(typeValues[i]));
+        // Values arrive as little-endian raw bits; the low `size` bytes are the value.
+        memcpy(entry.bytes, &rawValues[i], sizeof(entry.bytes));
+    }
+    freezer::setEntries(std::move(entries));
+}
+
+JNIEXPORT void JNICALL
+Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeSetFreezeInterval(JNIEnv *env, jclass clazz, jlong nanos) {
+    freezer::setInterval(nanos);
+}
+
+JNIEXPORT void JNICALL
+Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeStartFreezer(JNIEnv *env, jclass clazz) {
+    freezer::start();
+}
+
+JNIEXPORT void JNICALL
+Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeStopFreezer(JNIEnv *env, jclass clazz) {
+    freezer::stop();
+}
+
+JNIEXPORT jlong JNICALL
+Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeGetFreezeTickNanos(JNIEnv *env, jclass clazz) {
+    return freezer::averageTickNanos();
+}
+
 JNIEXPORT jint JNICALL
 Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeGetSearchType(JNIEnv *env, jclass clazz) {
     return g_searchType;
@@ -459,8 +704,11 @@ Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeGetMine
 
 JNIEXPORT void JNICALL
 Java_org_levimc_launcher_core_mods_memoryeditor_MemoryEditorNative_nativeClose(JNIEnv *env, jclass clazz) {
+    freezer::stop();
     g_results.clear();
+    resetSnapshot();
     g_regions.clear();
+    region_map::reset();
     g_pid = 0;
 }
 
@@ -0,0 +1,135 @@
+#include "region_map.h"
+
+#include <cstring>
+#include <fcntl.h>
+#include <unistd.h>
+
+namespace region_map {
+
+    namespace {
+
+        constexpr size_t kReadChunk = 64 * 1024;
+        constexpr size_t kMinAnonSize = 4096;
+        constexpr size_t kMaxAnonSize = 256 * 1024 * 1024;
+
+        std::string g_text;
+        std::string g_previousText;
+
+        bool readMaps(std::string& out) {
+            out.clear();
+            int fd = open("/proc/self/maps", O_RDONLY | O_CLOEXEC);
+            if (fd < 0) return false;
+            size_t used = 0;
+            while (true) {
+                out.resize(used + kReadChunk);
+                ssize_t n = read(fd, &out[used], kReadChunk);
+                if (n <= 0) break;
+                used += static_cast<size_t>(n);
+            }
+            close(fd);
+            out.resize(used);
+            return true;
+        }
+
+        bool parseHex(const char*& p, const char* end, uintptr_t& value) {
+            const char* begin = p;
+            value = 0;
+            while (p < end) {
+                char c = *p;
+                uintptr_t digit;
+                if (c >= '0' && c <= '9') digit = c - '0';
+                else if (c >= 'a' && c <= 'f') digit = c - 'a' + 10;
+                else if (c >= 'A' && c <= 'F') digit = c - 'A' + 10;
+                else break;
+                value = (value << 4) | digit;
+                p++;
+            }
+            return p != begin;
+        }
+
+        void skipField(const char*& p, const char* end) {
+            while (p < end && *p != ' ') p++;
+            while (p < end && *p == ' ') p++;
+        }
+
+        // Parses "start-end perms offset dev inode   name" without copying the line.
+        bool parseLine(const char* p, const char* end, MemoryRegion& region, std::string_view& name) {
+            if (!parseHex(p, end, region.start) || p >= end || *p++ != '-') return false;
+            if (!parseHex(p, end, region.end) || p >= end || *p++ != ' ') return false;
+            if (end - p < 4) return false;
+            region.readable = p[0] == 'r';
+            region.writable = p[1] == 'w';
+            skipField(p, end);
+            skipField(p, end);
+            skipField(p, end);
+            skipField(p, end);
+            while (p < end && (*p == ' ' || *p == '\t')) p++;
+            name = std::string_view(p, static_cast<size_t>(end - p));
+            return true;
+        }
+
+        bool contains(std::string_view haystack, const char* needle) {
+            return haystack.find(needle) != std::string_view::npos;
+        }
+
+    }
+
+    RegionClass classify(std::string_view name, size_t size) {
+        if (contains(name, "libminecraftpe")) return RegionClass::GameImage;
+        if (contains(name, "[heap]") || contains(name, "[anon:libc_malloc]")) return RegionClass::Heap;
+        if (contains(name, "[anon:scudo:")) return RegionClass::Scudo;
+        if (name.empty() || name.compare(0, 6, "[anon:") == 0) {
+            // Tiny guard-sized and huge reserved anonymous mappings rarely hold game state.
+            if (size > kMinAnonSize && size < kMaxAnonSize) return RegionClass::Anon;
+        }
+        return RegionClass::Other;
+    }
+
+    bool refresh(std::vector<MemoryRegion>& regions) {
+        if (!readMaps(g_text)) return false;
+        if (!regions.empty() && g_text == g_previousText) return false;
+
+        std::vector<MemoryRegion> updated;
+        updated.reserve(regions.size() + 16);
+        // Both lists are sorted by start address, so one merge walk finds the
+        // mappings that survived and lets them keep their name and class.
+        size_t old = 0;
+        const char* p = g_text.data();
+        const char* textEnd = p + g_text.size();
+        while (p < textEnd) {
+            const char* lineEnd = static_cast<const char*>(memchr(p, '\n', static_cast<size_t>(textEnd - p)));
+            if (!lineEnd) lineEnd = textEnd;
+            MemoryRegion region;
+            std::string_view name;
+            bool parsed = parseLine(p, lineEnd, region, name);
+            p = lineEnd + 1;
+            if (!parsed || !region.readable) continue;
+
+            while (old < regions.size() && regions[old].start < region.start) old++;
+            if (old < regions.size()) {
+                MemoryRegion& previous = regions[old];
+                if (previous.start == region.start && previous.end == region.end &&
+                    previous.writable == region.writable && previous.name == name) {
+                    updated.push_back(std::move(previous));
+                    old++;
+                    continue;
+                }
+            }
+            region.kind = classify(name, region.end - region.start);
+            region.name.assign(name.data(), name.size());
+            updated.push_back(std::move(region));
+        }
+
+        regions.swap(updated);
+        g_previousText.swap(g_text);
+        return true;
+    }
+
+    void reset() {
+        g_previousText.clear();
+        g_previousText.shrink_to_fit();
+        g_text.clear();
+        g_text.shrink_to_fit();
+    }
+
+}
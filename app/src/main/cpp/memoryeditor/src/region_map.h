@@ -0,0 +1,22 @@
+#pragma once
+
+#include <string_view>
+#include <vector>
+
+#include "memory_common.h"
+
+// Cached view of /proc/self/maps. The raw text of the last read is kept, so a
+// refresh with an unchanged map costs one read and a compare; a changed map is
+// diffed against the previous regions and only new mappings are classified.
+namespace region_map {
+
+    // Brings `regions` (the result of the previous call) up to date with the
+    // current map. Returns false when nothing changed and `regions` was kept.
+    bool refresh(std::vector<MemoryRegion>& regions);
+
+    // Forgets the cached map text so the next refresh parses from scratch.
+    void reset();
+
+    RegionClass classify(std::string_view name, size_t size);
+
+}
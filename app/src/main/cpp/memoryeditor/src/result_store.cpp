@@ -0,0 +1,219 @@
+#include "result_store.h"
+
+#include <algorithm>
+#include <cstdlib>
+#include <cstring>
+#include <mutex>
+#include <new>
+#include <fcntl.h>
+#include <unistd.h>
+#include <sys/mman.h>
+#include <android/log.h>
+
+#define LOG_TAG "MemoryEditor"
+#define LOGW(...) __android_log_print(ANDROID_LOG_WARN, LOG_TAG, __VA_ARGS__)
+
+namespace {
+
+    std::mutex g_spillDirLock;
+    std::string g_spillDir;
+
+    size_t writeVarint(uint64_t value, uint8_t* out) {
+        size_t n = 0;
+        while (value >= 0x80) {
+            out[n++] = static_cast<uint8_t>(value | 0x80);
+            value >>= 7;
+        }
+        out[n++] = static_cast<uint8_t>(value);
+        return n;
+    }
+
+    uint64_t readVarint(const uint8_t*& p) {
+        uint64_t value = 0;
+        int shift = 0;
+        while (*p & 0x80) {
+            value |= static_cast<uint64_t>(*p++ & 0x7f) << shift;
+            shift += 7;
+        }
+        value |= static_cast<uint64_t>(*p++) << shift;
+        return value;
+    }
+
+}
+
+SpillBuffer::SpillBuffer(size_t memoryBudget) : memoryBudget_(memoryBudget) {}
+
+SpillBuffer::~SpillBuffer() {
+    clear();
+}
+
+void SpillBuffer::setSpillDirectory(const std::string& path) {
+    std::lock_guard<std::mutex> guard(g_spillDirLock);
+    g_spillDir = path;
+}
+
+void SpillBuffer::append(const uint8_t* bytes, size_t length) {
+    if (size_ + length > capacity_) {
+        size_t capacity = std::max<size_t>(capacity_ * 2, 64 * 1024);
+        while (capacity < size_ + length) capacity *= 2;
+        if (!reserve(capacity)) throw std::bad_alloc();
+    }
+    memcpy(data_ + size_, bytes, length);
+    size_ += length;
+}
+
+bool SpillBuffer::reserve(size_t capacity) {
+    if (fd_ >= 0) {
+        if (ftruncate(fd_, static_cast<off_t>(capacity)) != 0) return false;
+        void* grown = mremap(data_, capacity_, capacity, MREMAP_MAYMOVE);
+        if (grown == MAP_FAILED) return false;
+        data_ = static_cast<uint8_t*>(grown);
+        capacity_ = capacity;
+        return true;
+    }
+    if (capacity > memoryBudget_ && spill(capacity)) {
+        return true;
+    }
+    void* grown = realloc(data_, capacity);
+    if (!grown) return false;
+    data_ = static_cast<uint8_t*>(grown);
+    capacity_ = capacity;
+    return true;
+}
+
+int SpillBuffer::createSpillFile(size_t size) {
+    std::string path;
+    {
+        std::lock_guard<std::mutex> guard(g_spillDirLock);
+        if (g_spillDir.empty()) return -1;
+        path = g_spillDir + "/levi_spill_XXXXXX";
+    }
+    int fd = mkstemp(&path[0]);
+    if (fd < 0) {
+        LOGW("Cannot create spill file in %s", path.c_str());
+        return -1;
+    }
+    // Unlinked right away: the mapping keeps it alive and nothing is left behind on a crash.
+    unlink(path.c_str());
+    if (ftruncate(fd, static_cast<off_t>(size)) != 0) {
+        close(fd);
+        return -1;
+    }
+    return fd;
+}
+
+bool SpillBuffer::spill(size_t capacity) {
+    int fd = createSpillFile(capacity);
+    if (fd < 0) return false;
+    void* mapped = mmap(nullptr, capacity, PROT_READ | PROT_WRITE, MAP_SHARED, fd, 0);
+    if (mapped == MAP_FAILED) {
+        close(fd);
+        return false;
+    }
+    if (size_ > 0) memcpy(mapped, data_, size_);
+    free(data_);
+    data_ = static_cast<uint8_t*>(mapped);
+    capacity_ = capacity;
+    fd_ = fd;
+    return true;
+}
+
+void SpillBuffer::clear() {
+    if (fd_ >= 0) {
+        munmap(data_, capacity_);
+        close(fd_);
+        fd_ = -1;
+    } else {
+        free(data_);
+    }
+    data_ = nullptr;
+    size_ = 0;
+    capacity_ = 0;
+}
+
+void SpillBuffer::swap(SpillBuffer& other) {
+    std::swap(data_, other.data_);
+    std::swap(size_, other.size_);
+    std::swap(capacity_, other.capacity_);
+    std::swap(memoryBudget_, other.memoryBudget_);
+    std::swap(fd_, other.fd_);
+}
+
+ResultStore::ResultStore(size_t memoryBudget) : bytes_(memoryBudget) {}
+
+void ResultStore::append(uintptr_t addr) {
+    uint8_t encoded[10];
+    size_t length;
+    if (blocks_.empty() || blocks_.back().count == kBlockEntries) {
+        blocks_.push_back({count_, bytes_.size(), 0, 0});
+        length = writeVarint(addr, encoded);
+    } else {
+        length = writeVarint(addr - last_, encoded);
+    }
+    bytes_.append(encoded, length);
+    Block& block = blocks_.back();
+    block.byteLength += static_cast<uint32_t>(length);
+    block.count++;
+    count_++;
+    last_ = addr;
+}
+
+void ResultStore::appendStore(ResultStore& other) {
+    if (other.count_ == 0) return;
+    uint64_t byteBase = bytes_.size();
+    blocks_.reserve(blocks_.size() + other.blocks_.size());
+    for (const Block& block : other.blocks_) {
+        blocks_.push_back({block.firstIndex + count_, block.byteOffset + byteBase, block.byteLength, block.count});
+    }
+    bytes_.append(other.bytes_.data(), other.bytes_.size());
+    count_ += other.count_;
+    last_ = other.last_;
+    other.clear();
+}
+
+void ResultStore::clear() {
+    blocks_.clear();
+    blocks_.shrink_to_fit();
+    bytes_.clear();
+    count_ = 0;
+    last_ = 0;
+}
+
+void ResultStore::swap(ResultStore& other) {
+    blocks_.swap(other.blocks_);
+    bytes_.swap(other.bytes_);
+    std::swap(count_, other.count_);
+    std::swap(last_, other.last_);
+}
+
+void ResultStore::decodeBlock(size_t index, std::vector<uintptr_t>& out) const {
+    const Block& block = blocks_[index];
+    out.resize(block.count);
+    const uint8_t* p = bytes_.data() + block.byteOffset;
+    uintptr_t addr = static_cast<uintptr_t>(readVarint(p));
+    out[0] = addr;
+    for (uint32_t i = 1; i < block.count; i++) {
+        addr += static_cast<uintptr_t>(readVarint(p));
+        out[i] = addr;
+    }
+}
+
+size_t ResultStore::findBlock(uint64_t index) const {
+    auto it = std::upper_bound(blocks_.begin(), blocks_.end(), index,
+                               [](uint64_t value, const Block& block) { return value < block.firstIndex; });
+    return static_cast<size_t>(it - blocks_.begin()) - 1;
+}
+
+size_t ResultStore::read(uint64_t offset, size_t count, uintptr_t* out) const {
+    if (offset >= count_ || count == 0) return 0;
+    std::vector<uintptr_t> decoded;
+    size_t copied = 0;
+    for (size_t b = findBlock(offset); b < blocks_.size() && copied < count; b++) {
+        decodeBlock(b, decoded);
+        uint64_t skip = offset + copied - blocks_[b].firstIndex;
+        size_t take = std::min<size_t>(decoded.size() - skip, count - copied);
+        memcpy(out + copied, decoded.data() + skip, take * sizeof(uintptr_t));
+        copied += take;
+    }
+    return copied;
+}
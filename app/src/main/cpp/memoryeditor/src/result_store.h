@@ -0,0 +1,98 @@
+#pragma once
+
+#include <cstddef>
+#include <cstdint>
+#include <string>
+#include <vector>
+
+// Growable byte buffer that lives on the heap until it passes a budget, then moves
+// into an unlinked temp file mapped with mmap so the kernel can page it out.
+class SpillBuffer {
+public:
+    explicit SpillBuffer(size_t memoryBudget);
+    ~SpillBuffer();
+
+    SpillBuffer(const SpillBuffer&) = delete;
+    SpillBuffer& operator=(const SpillBuffer&) = delete;
+
+    void append(const uint8_t* bytes, size_t length);
+    void clear();
+    void swap(SpillBuffer& other);
+
+    const uint8_t* data() const { return data_; }
+    size_t size() const { return size_; }
+    bool spilled() const { return fd_ >= 0; }
+
+    // Directory for spill files; until it is set buffers stay on the heap.
+    static void setSpillDirectory(const std::string& path);
+
+    // Creates an unlinked temp file of `size` bytes in the spill directory.
+    // Returns its descriptor, or -1 when no directory is set or creation failed.
+    static int createSpillFile(size_t size);
+
+private:
+    bool reserve(size_t capacity);
+    bool spill(size_t capacity);
+
+    uint8_t* data_ = nullptr;
+    size_t size_ = 0;
+    size_t capacity_ = 0;
+    size_t memoryBudget_;
+    int fd_ = -1;
+};
+
+// Ordered list of result addresses. Addresses are grouped into blocks of up to
+// kBlockEntries; each block keeps its first address raw and the rest as LEB128
+// deltas, so dense hits cost a byte or two each instead of eight.
+class ResultStore {
+public:
+    static constexpr uint32_t kBlockEntries = 4096;
+
+    explicit ResultStore(size_t memoryBudget = kDefaultBudget);
+
+    // Addresses must be appended in ascending order.
+    void append(uintptr_t addr);
+    // Moves the blocks of `other` (whose addresses all follow ours) to the end of this store.
+    void appendStore(ResultStore& other);
+    void clear();
+    void swap(ResultStore& other);
+
+    uint64_t size() const { return count_; }
+    size_t encodedBytes() const { return bytes_.size(); }
+
+    // Copies up to `count` addresses starting at `offset` into `out`, returns how many were copied.
+    size_t read(uint64_t offset, size_t count, uintptr_t* out) const;
+
+    size_t blockCount() const { return blocks_.size(); }
+    // Decodes block `index` into `out`.
+    void readBlock(size_t index, std::vector<uintptr_t>& out) const { decodeBlock(index, out); }
+
+    // Calls fn(const uintptr_t* addrs, size_t n) once per block, in order.
+    template<typename Fn>
+    void forEachBlock(Fn fn) const {
+        std::vector<uintptr_t> decoded;
+        decoded.reserve(kBlockEntries);
+        for (size_t i = 0; i < blocks_.size(); i++) {
+            decodeBlock(i, decoded);
+            fn(decoded.data(), decoded.size());
+        }
+    }
+
+private:
+    static constexpr size_t kDefaultBudget = 32 * 1024 * 1024;
+
+    struct Block {
+        uint64_t firstIndex;
+        uint64_t byteOffset;
+        uint32_t byteLength;
+        uint32_t count;
+    };
+
+    void decodeBlock(size_t index, std::vector<uintptr_t>& out) const;
+    size_t findBlock(uint64_t index) const;
+
+    std::vector<Block> blocks_;
+    SpillBuffer bytes_;
+    uint64_t count_ = 0;
+    uintptr_t last_ = 0;
+};
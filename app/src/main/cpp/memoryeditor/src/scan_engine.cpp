@@ -0,0 +1,333 @@
+#include "scan_engine.h"
+
+#include <algorithm>
+#include <atomic>
+#include <cstring>
+#include <mutex>
+#include <thread>
+#include <unistd.h>
+#include <sys/resource.h>
+#include <sys/syscall.h>
+#include <sys/uio.h>
+
+#if defined(__aarch64__)
+#include <arm_neon.h>
+#endif
+
+namespace scan {
+
+    namespace {
+
+        constexpr size_t kPageSize = 4096;
+        constexpr size_t kBlockSize = 4 * 1024 * 1024;
+        constexpr size_t kMaxSegments = 64;
+        constexpr unsigned kMaxWorkers = 8;
+
+        struct Segment {
+            uintptr_t start;
+            size_t size;
+        };
+
+        // One process_vm_readv batch: up to kBlockSize bytes spread over several regions.
+        struct WorkItem {
+            std::vector<Segment> segments;
+            size_t bytes = 0;
+        };
+
+        std::atomic<uint64_t> g_doneUnits{0};
+        std::atomic<uint64_t> g_totalUnits{0};
+
+        std::vector<WorkItem> buildWorkItems(const std::vector<MemoryRegion>& regions) {
+            std::vector<WorkItem> items;
+            WorkItem current;
+            for (const auto& region : regions) {
+                if (!shouldSearchRegion(region)) continue;
+                uintptr_t addr = region.start;
+                while (addr < region.end) {
+                    size_t room = kBlockSize - current.bytes;
+                    size_t size = std::min(static_cast<size_t>(region.end - addr), room);
+                    current.segments.push_back({addr, size});
+                    current.bytes += size;
+                    addr += size;
+                    if (current.bytes == kBlockSize || current.segments.size() == kMaxSegments) {
+                        items.push_back(std::move(current));
+                        current = WorkItem();
+                    }
+                }
+            }
+            if (!current.segments.empty()) {
+                items.push_back(std::move(current));
+            }
+            return items;
+        }
+
+        // Reads the whole item with a single syscall. Returns how many leading segments
+        // were transferred completely; the rest need the slower fallback path.
+        size_t readBatch(const WorkItem& item, uint8_t* buffer) {
+            struct iovec local[1];
+            struct iovec remote[kMaxSegments];
+            local[0].iov_base = buffer;
+            local[0].iov_len = item.bytes;
+            for (size_t i = 0; i < item.segments.size(); i++) {
+                remote[i].iov_base = reinterpret_cast<void*>(item.segments[i].start);
+                remote[i].iov_len = item.segments[i].size;
+            }
+            ssize_t nread = process_vm_readv(g_pid, local, 1, remote, item.segments.size(), 0);
+            if (nread <= 0) return 0;
+
+            size_t done = 0;
+            size_t covered = 0;
+            for (const auto& segment : item.segments) {
+                if (covered + segment.size > static_cast<size_t>(nread)) break;
+                covered += segment.size;
+                done++;
+            }
+            return done;
+        }
+
+        void matchSegmentByPage(const Segment& segment, uint8_t* buffer, const BlockMatcher& matcher,
+                                ResultStore& out) {
+            size_t runStart = 0;
+            size_t runSize = 0;
+            for (size_t offset = 0; offset < segment.size; offset += kPageSize) {
+                size_t size = std::min(kPageSize, segment.size - offset);
+                uintptr_t addr = segment.start + offset;
+                if (readMemoryPvm(addr, buffer + offset, size) || readMemoryDirect(addr, buffer + offset, size)) {
+                    if (runSize == 0) runStart = offset;
+                    runSize += size;
+                    continue;
+                }
+                if (runSize > 0) {
+                    matcher(buffer + runStart, runSize, segment.start + runStart, out);
+                    runSize = 0;
+                }
+            }
+            if (runSize > 0) {
+                matcher(buffer + runStart, runSize, segment.start + runStart, out);
+            }
+        }
+
+        void scanItem(const WorkItem& item, uint8_t* buffer, const BlockMatcher& matcher, ResultStore& out) {
+            size_t good = readBatch(item, buffer);
+            size_t offset = 0;
+            for (size_t i = 0; i < item.segments.size(); i++) {
+                const Segment& segment = item.segments[i];
+                uint8_t* data = buffer + offset;
+                offset += segment.size;
+                if (i < good || readMemoryPvm(segment.start, data, segment.size)) {
+                    matcher(data, segment.size, segment.start, out);
+                } else {
+                    matchSegmentByPage(segment, data, matcher, out);
+                }
+            }
+        }
+
+        void lowerThreadPriority() {
+            // Keep the game's render and tick threads ahead of the scan.
+            setpriority(PRIO_PROCESS, static_cast<id_t>(syscall(SYS_gettid)), 10);
+        }
+
+    }
+
+    unsigned workerCount() {
+        return std::max(1u, std::min(std::thread::hardware_concurrency(), kMaxWorkers));
+    }
+
+    void runParallel(size_t units, const std::function<void(size_t, unsigned)>& fn) {
+        g_doneUnits.store(0);
+        g_totalUnits.store(units);
+        if (units == 0) return;
+
+        std::atomic<size_t> nextUnit{0};
+        auto worker = [&](unsigned workerId) {
+            while (true) {
+                size_t index = nextUnit.fetch_add(1);
+                if (index >= units) break;
+                fn(index, workerId);
+                g_doneUnits.fetch_add(1);
+            }
+        };
+
+        unsigned workers = static_cast<unsigned>(std::min<size_t>(workerCount(), units));
+        std::vector<std::thread> threads;
+        threads.reserve(workers - 1);
+        for (unsigned i = 1; i < workers; i++) {
+            threads.emplace_back([&worker, i]() {
+                lowerThreadPriority();
+                worker(i);
+            });
+        }
+        worker(0);
+        for (auto& thread : threads) {
+            thread.join();
+        }
+    }
+
+    void runOrdered(size_t units, const std::function<void(size_t, unsigned, ResultStore&)>& fn,
+                    ResultStore& results) {
+        results.clear();
+        std::vector<ResultStore> unitResults(units);
+        std::vector<bool> unitDone(units, false);
+
+        // Units finish out of order; each one is moved into `results` as soon as
+        // every unit before it is done, so only in-flight units hold extra memory.
+        std::mutex prefixLock;
+        size_t prefixEnd = 0;
+
+        runParallel(units, [&](size_t index, unsigned workerId) {
+            fn(index, workerId, unitResults[index]);
+            std::lock_guard<std::mutex> guard(prefixLock);
+            unitDone[index] = true;
+            while (prefixEnd < units && unitDone[prefixEnd]) {
+                results.appendStore(unitResults[prefixEnd]);
+                prefixEnd++;
+            }
+        });
+    }
+
+    void scanRegions(const std::vector<MemoryRegion>& regions, const BlockMatcher& matcher,
+                     ResultStore& results) {
+        std::vector<WorkItem> items = buildWorkItems(regions);
+        std::vector<std::vector<uint8_t>> buffers(workerCount());
+
+        runOrdered(items.size(), [&](size_t index, unsigned workerId, ResultStore& out) {
+            std::vector<uint8_t>& buffer = buffers[workerId];
+            if (buffer.empty()) buffer.resize(kBlockSize);
+            scanItem(items[index], buffer.data(), matcher, out);
+        }, results);
+    }
+
+    int progressPermille() {
+        uint64_t total = g_totalUnits.load();
+        if (total == 0) return 0;
+        return static_cast<int>(std::min<uint64_t>(1000, g_doneUnits.load() * 1000 / total));
+    }
+
+    namespace {
+
+        template<typename T>
+        inline T loadValue(const uint8_t* p) {
+            T value;
+            memcpy(&value, p, sizeof(T));
+            return value;
+        }
+
+        template<typename T>
+        inline void matchEqualScalar(const uint8_t* data, size_t begin, size_t size, uintptr_t base, T target,
+                                     ResultStore& out) {
+            for (size_t offset = begin; offset + sizeof(T) <= size; offset += sizeof(T)) {
+                if (loadValue<T>(data + offset) == target) {
+                    out.append(base + offset);
+                }
+            }
+        }
+
+        template<typename T>
+        inline void matchNearScalar(const uint8_t* data, size_t begin, size_t size, uintptr_t base, T target,
+                                    T tolerance, ResultStore& out) {
+            for (size_t offset = begin; offset + sizeof(T) <= size; offset += sizeof(T)) {
+                T diff = loadValue<T>(data + offset) - target;
+                if (diff < 0) diff = -diff;
+                if (diff < tolerance) {
+                    out.append(base + offset);
+                }
+            }
+        }
+
+#if defined(__aarch64__)
+        inline uint8x16_t equalMask(const uint8_t* p, int8_t target) {
+            return vceqq_u8(vld1q_u8(p), vdupq_n_u8(static_cast<uint8_t>(target)));
+        }
+
+        inline uint8x16_t equalMask(const uint8_t* p, int16_t target) {
+            return vreinterpretq_u8_u16(vceqq_u16(vld1q_u16(reinterpret_cast<const uint16_t*>(p)),
+                                                  vdupq_n_u16(static_cast<uint16_t>(target))));
+        }
+
+        inline uint8x16_t equalMask(const uint8_t* p, int32_t target) {
+            return vreinterpretq_u8_u32(vceqq_u32(vld1q_u32(reinterpret_cast<const uint32_t*>(p)),
+                                                  vdupq_n_u32(static_cast<uint32_t>(target))));
+        }
+
+        inline uint8x16_t equalMask(const uint8_t* p, int64_t target) {
+            return vreinterpretq_u8_u64(vceqq_u64(vld1q_u64(reinterpret_cast<const uint64_t*>(p)),
+                                                  vdupq_n_u64(static_cast<uint64_t>(target))));
+        }
+
+        inline uint8x16_t nearMask(const uint8_t* p, float32x4_t target, float32x4_t tolerance) {
+            float32x4_t v = vld1q_f32(reinterpret_cast<const float*>(p));
+            return vreinterpretq_u8_u32(vcltq_f32(vabdq_f32(v, target), tolerance));
+        }
+
+        inline uint8x16_t nearMask(const uint8_t* p, float64x2_t target, float64x2_t tolerance) {
+            float64x2_t v = vld1q_f64(reinterpret_cast<const double*>(p));
+            return vreinterpretq_u8_u64(vcltq_f64(vabdq_f64(v, target), tolerance));
+        }
+
+        // Tests 64 bytes per iteration and only drops to the scalar loop for blocks
+        // that contain at least one hit, which is rare for a first scan.
+        template<typename MaskFn, typename HitFn>
+        inline size_t scanBlocks(const uint8_t* data, size_t size, MaskFn mask, HitFn hits) {
+            size_t offset = 0;
+            for (; offset + 64 <= size; offset += 64) {
+                uint8x16_t m = vorrq_u8(vorrq_u8(mask(data + offset), mask(data + offset + 16)),
+                                        vorrq_u8(mask(data + offset + 32), mask(data + offset + 48)));
+                if (vmaxvq_u8(m) != 0) {
+                    hits(offset, offset + 64);
+                }
+            }
+            return offset;
+        }
+#endif
+
+    }
+
+    template<typename T>
+    void matchEqual(const uint8_t* data, size_t size, uintptr_t base, T target, ResultStore& out) {
+        size_t offset = 0;
+#if defined(__aarch64__)
+        offset = scanBlocks(data, size,
+                            [target](const uint8_t* p) { return equalMask(p, target); },
+                            [&](size_t begin, size_t end) {
+                                matchEqualScalar<T>(data, begin, end, base, target, out);
+                            });
+#endif
+        matchEqualScalar<T>(data, offset, size, base, target, out);
+    }
+
+    template void matchEqual<int8_t>(const uint8_t*, size_t, uintptr_t, int8_t, ResultStore&);
+    template void matchEqual<int16_t>(const uint8_t*, size_t, uintptr_t, int16_t, ResultStore&);
+    template void matchEqual<int32_t>(const uint8_t*, size_t, uintptr_t, int32_t, ResultStore&);
+    template void matchEqual<int64_t>(const uint8_t*, size_t, uintptr_t, int64_t, ResultStore&);
+
+    void matchNear(const uint8_t* data, size_t size, uintptr_t base, float target, float tolerance,
+                   ResultStore& out) {
+        size_t offset = 0;
+#if defined(__aarch64__)
+        float32x4_t t = vdupq_n_f32(target);
+        float32x4_t tol = vdupq_n_f32(tolerance);
+        offset = scanBlocks(data, size,
+                            [t, tol](const uint8_t* p) { return nearMask(p, t, tol); },
+                            [&](size_t begin, size_t end) {
+                                matchNearScalar<float>(data, begin, end, base, target, tolerance, out);
+                            });
+#endif
+        matchNearScalar<float>(data, offset, size, base, target, tolerance, out);
+    }
+
+    void matchNear(const uint8_t* data, size_t size, uintptr_t base, double target, double tolerance,
+                   ResultStore& out) {
+        size_t offset = 0;
+#if defined(__aarch64__)
+        float64x2_t t = vdupq_n_f64(target);
+        float64x2_t tol = vdupq_n_f64(tolerance);
+        offset = scanBlocks(data, size,
+                            [t, tol](const uint8_t* p) { return nearMask(p, t, tol); },
+                            [&](size_t begin, size_t end) {
+                                matchNearScalar<double>(data, begin, end, base, target, tolerance, out);
+                            });
+#endif
+        matchNearScalar<double>(data, offset, size, base, target, tolerance, out);
+    }
+
+}
@@ -0,0 +1,47 @@
+#pragma once
+
+#include <cstddef>
+#include <cstdint>
+#include <functional>
+#include <vector>
+
+#include "memory_common.h"
+#include "result_store.h"
+
+namespace scan {
+
+    // Called once per run of readable bytes. Appends matching addresses to `out`.
+    using BlockMatcher = std::function<void(const uint8_t* data, size_t size, uintptr_t base,
+                                            ResultStore& out)>;
+
+    // Scans every region accepted by shouldSearchRegion on a worker pool. Results are
+    // stored in address order, exactly like a serial scan.
+    void scanRegions(const std::vector<MemoryRegion>& regions, const BlockMatcher& matcher,
+                     ResultStore& results);
+
+    // Number of threads runParallel uses, including the caller.
+    unsigned workerCount();
+
+    // Runs fn(unit, worker) for every unit in [0, units) on the caller plus a pool of
+    // lowered-priority threads. `worker` is below workerCount() and unique per thread.
+    void runParallel(size_t units, const std::function<void(size_t, unsigned)>& fn);
+
+    // Like runParallel, but each unit writes into its own store and the stores are
+    // appended to `results` in unit order.
+    void runOrdered(size_t units, const std::function<void(size_t, unsigned, ResultStore&)>& fn,
+                    ResultStore& results);
+
+    // Progress of the running (or last) parallel job in permille.
+    int progressPermille();
+
+    template<typename T>
+    void matchEqual(const uint8_t* data, size_t size, uintptr_t base, T target,
+                    ResultStore& out);
+
+    void matchNear(const uint8_t* data, size_t size, uintptr_t base, float target, float tolerance,
+                   ResultStore& out);
+
+    void matchNear(const uint8_t* data, size_t size, uintptr_t base, double target, double tolerance,
+                   ResultStore& out);
+
+}
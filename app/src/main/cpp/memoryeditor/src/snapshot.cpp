@@ -0,0 +1,239 @@
+#include "snapshot.h"
+
+#include <algorithm>
+#include <cstring>
+#include <fcntl.h>
+#include <unistd.h>
+#include <sys/mman.h>
+#include <android/log.h>
+
+#include "result_store.h"
+#include "scan_engine.h"
+
+#define LOG_TAG "MemoryEditor"
+#define LOGW(...) __android_log_print(ANDROID_LOG_WARN, LOG_TAG, __VA_ARGS__)
+
+namespace {
+
+    constexpr size_t kChunkPages = 1024;
+    // Page data is file backed, so the kernel can write it out and drop it under
+    // pressure; the caps only bound the temp file (or anonymous memory) size.
+    constexpr size_t kMaxFileSlots = (2ull * 1024 * 1024 * 1024) / Snapshot::kPageSize;
+    constexpr size_t kMaxMemorySlots = (256ull * 1024 * 1024) / Snapshot::kPageSize;
+
+    alignas(16) const uint8_t kZeroPage[Snapshot::kPageSize] = {};
+
+    struct Chunk {
+        uintptr_t start;
+        size_t pages;
+    };
+
+    std::vector<Chunk> splitRegions(const std::vector<MemoryRegion>& regions) {
+        std::vector<Chunk> chunks;
+        for (const auto& region : regions) {
+            if (!shouldSearchRegion(region)) continue;
+            for (uintptr_t addr = region.start; addr < region.end; addr += kChunkPages * Snapshot::kPageSize) {
+                size_t pages = std::min(kChunkPages, static_cast<size_t>(region.end - addr) / Snapshot::kPageSize);
+                if (pages == 0) break;
+                chunks.push_back({addr, pages});
+            }
+        }
+        return chunks;
+    }
+
+}
+
+Snapshot::~Snapshot() {
+    clear();
+}
+
+uint64_t Snapshot::hashPage(const uint8_t* bytes) {
+    // Four independent multiply-xor lanes so the loop is not bound by one dependency chain.
+    uint64_t h0 = 0x9E3779B97F4A7C15ull, h1 = 0xC2B2AE3D27D4EB4Full;
+    uint64_t h2 = 0x165667B19E3779F9ull, h3 = 0x27D4EB2F165667C5ull;
+    for (size_t i = 0; i < kPageSize; i += 32) {
+        uint64_t w0, w1, w2, w3;
+        memcpy(&w0, bytes + i, 8);
+        memcpy(&w1, bytes + i + 8, 8);
+        memcpy(&w2, bytes + i + 16, 8);
+        memcpy(&w3, bytes + i + 24, 8);
+        h0 = (h0 ^ w0) * 0x9FB21C651E98DF25ull; h0 ^= h0 >> 29;
+        h1 = (h1 ^ w1) * 0x9FB21C651E98DF25ull; h1 ^= h1 >> 29;
+        h2 = (h2 ^ w2) * 0x9FB21C651E98DF25ull; h2 ^= h2 >> 29;
+        h3 = (h3 ^ w3) * 0x9FB21C651E98DF25ull; h3 ^= h3 >> 29;
+    }
+    uint64_t h = h0 ^ (h1 * 31) ^ (h2 * 961) ^ (h3 * 29791);
+    h ^= h >> 33;
+    h *= 0xFF51AFD7ED558CCDull;
+    h ^= h >> 33;
+    return h;
+}
+
+bool Snapshot::isZeroPage(const uint8_t* bytes) {
+    uint64_t acc = 0;
+    for (size_t i = 0; i < kPageSize; i += 8) {
+        uint64_t w;
+        memcpy(&w, bytes + i, 8);
+        acc |= w;
+    }
+    return acc == 0;
+}
+
+bool Snapshot::allocateStorage(size_t slots) {
+    freeStorage();
+    if (slots == 0) return true;
+
+    size_t fileSlots = std::min(slots, kMaxFileSlots);
+    int fd = SpillBuffer::createSpillFile(fileSlots * kPageSize);
+    if (fd >= 0) {
+        void* mapped = mmap(nullptr, fileSlots * kPageSize, PROT_READ | PROT_WRITE, MAP_SHARED, fd, 0);
+        if (mapped != MAP_FAILED) {
+            storage_ = static_cast<uint8_t*>(mapped);
+            slotCapacity_ = fileSlots;
+            fd_ = fd;
+            return true;
+        }
+        close(fd);
+    }
+
+    size_t memorySlots = std::min(slots, kMaxMemorySlots);
+    void* mapped = mmap(nullptr, memorySlots * kPageSize, PROT_READ | PROT_WRITE,
+                        MAP_PRIVATE | MAP_ANONYMOUS | MAP_NORESERVE, -1, 0);
+    if (mapped == MAP_FAILED) return false;
+    storage_ = static_cast<uint8_t*>(mapped);
+    slotCapacity_ = memorySlots;
+    return true;
+}
+
+void Snapshot::freeStorage() {
+    if (storage_) {
+        munmap(storage_, slotCapacity_ * kPageSize);
+        storage_ = nullptr;
+    }
+    if (fd_ >= 0) {
+        close(fd_);
+        fd_ = -1;
+    }
+    slotCapacity_ = 0;
+    nextSlot_.store(0);
+    std::lock_guard<std::mutex> guard(freeLock_);
+    freeSlots_.clear();
+}
+
+void Snapshot::clear() {
+    pages_.clear();
+    pages_.shrink_to_fit();
+    freeStorage();
+}
+
+uint32_t Snapshot::allocateSlot() {
+    {
+        std::lock_guard<std::mutex> guard(freeLock_);
+        if (!freeSlots_.empty()) {
+            uint32_t slot = freeSlots_.back();
+            freeSlots_.pop_back();
+            return slot;
+        }
+    }
+    uint32_t slot = nextSlot_.fetch_add(1);
+    return slot < slotCapacity_ ? slot : kNoSlot;
+}
+
+Snapshot::Page Snapshot::store(uintptr_t addr, const uint8_t* bytes, uint64_t hash) {
+    if (isZeroPage(bytes)) {
+        return {addr, hash, kZeroSlot};
+    }
+    uint32_t slot = allocateSlot();
+    if (slot != kNoSlot) {
+        memcpy(storage_ + static_cast<size_t>(slot) * kPageSize, bytes, kPageSize);
+    }
+    return {addr, hash, slot};
+}
+
+void Snapshot::release(const Page& page) {
+    if (page.slot >= kNoSlot) return;
+    size_t offset = static_cast<size_t>(page.slot) * kPageSize;
+    // Give the backing store back right away; the slot is refilled before it is read again.
+    if (fd_ >= 0) {
+        fallocate(fd_, FALLOC_FL_PUNCH_HOLE | FALLOC_FL_KEEP_SIZE, static_cast<off_t>(offset), kPageSize);
+    } else {
+        madvise(storage_ + offset, kPageSize, MADV_DONTNEED);
+    }
+    std::lock_guard<std::mutex> guard(freeLock_);
+    freeSlots_.push_back(page.slot);
+}
+
+const uint8_t* Snapshot::data(const Page& page) const {
+    if (page.slot >= kNoSlot) return kZeroPage;
+    return storage_ + static_cast<size_t>(page.slot) * kPageSize;
+}
+
+ptrdiff_t Snapshot::find(uintptr_t pageAddr) const {
+    auto it = std::lower_bound(pages_.begin(), pages_.end(), pageAddr,
+                               [](const Page& page, uintptr_t addr) { return page.addr < addr; });
+    if (it == pages_.end() || it->addr != pageAddr) return -1;
+    return it - pages_.begin();
+}
+
+void Snapshot::prepare(const std::vector<MemoryRegion>& regions) {
+    if (storage_) return;
+    std::vector<Chunk> chunks = splitRegions(regions);
+    size_t totalPages = 0;
+    for (const auto& chunk : chunks) totalPages += chunk.pages;
+    if (!allocateStorage(totalPages * 2)) {
+        LOGW("Cannot allocate snapshot storage for %zu pages", totalPages);
+    }
+}
+
+void Snapshot::capture(const std::vector<MemoryRegion>& regions) {
+    clear();
+
+    std::vector<Chunk> chunks = splitRegions(regions);
+    size_t totalPages = 0;
+    for (const auto& chunk : chunks) totalPages += chunk.pages;
+
+    // Room for twice the pages so later filters can write changed pages to new
+    // slots while the old contents are still being compared against.
+    if (!allocateStorage(totalPages * 2)) {
+        LOGW("Cannot allocate snapshot storage for %zu pages", totalPages);
+        return;
+    }
+
+    std::vector<std::vector<Page>> chunkPages(chunks.size());
+    std::vector<std::vector<uint8_t>> buffers(scan::workerCount());
+    std::atomic<bool> full{false};
+
+    scan::runParallel(chunks.size(), [&](size_t index, unsigned workerId) {
+        const Chunk& chunk = chunks[index];
+        std::vector<uint8_t>& buffer = buffers[workerId];
+        if (buffer.empty()) buffer.resize(kChunkPages * kPageSize);
+
+        size_t bytes = chunk.pages * kPageSize;
+        bool whole = readMemoryPvm(chunk.start, buffer.data(), bytes);
+        std::vector<Page>& out = chunkPages[index];
+        out.reserve(chunk.pages);
+        for (size_t i = 0; i < chunk.pages; i++) {
+            uintptr_t addr = chunk.start + i * kPageSize;
+            uint8_t* page = buffer.data() + i * kPageSize;
+            if (!whole && !readMemoryPvm(addr, page, kPageSize) && !readMemoryDirect(addr, page, kPageSize)) {
+                continue;
+            }
+            Page entry = store(addr, page, hashPage(page));
+            if (entry.slot == kNoSlot) {
+                full.store(true);
+                continue;
+            }
+            out.push_back(entry);
+        }
+    });
+
+    size_t kept = 0;
+    for (const auto& pages : chunkPages) kept += pages.size();
+    pages_.reserve(kept);
+    for (auto& pages : chunkPages) {
+        pages_.insert(pages_.end(), pages.begin(), pages.end());
+    }
+    if (full.load()) {
+        LOGW("Snapshot storage full, kept %zu of %zu pages", kept, totalPages);
+    }
+}
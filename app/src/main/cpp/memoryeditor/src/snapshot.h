@@ -0,0 +1,73 @@
+#pragma once
+
+#include <atomic>
+#include <cstddef>
+#include <cstdint>
+#include <mutex>
+#include <vector>
+
+#include "memory_common.h"
+
+// Page-granular copy of the searchable regions, used as the baseline for the
+// increased/decreased/changed/unchanged filters. Page contents live in a sparse,
+// unlinked temp file (or lazily committed anonymous memory when no spill directory
+// is set); all-zero pages take no storage at all, and every page keeps a hash so
+// later passes can skip pages that did not change.
+class Snapshot {
+public:
+    static constexpr size_t kPageSize = 4096;
+    static constexpr uint32_t kZeroSlot = UINT32_MAX;
+    static constexpr uint32_t kNoSlot = UINT32_MAX - 1;
+
+    struct Page {
+        uintptr_t addr;
+        uint64_t hash;
+        uint32_t slot;
+    };
+
+    Snapshot() = default;
+    ~Snapshot();
+
+    Snapshot(const Snapshot&) = delete;
+    Snapshot& operator=(const Snapshot&) = delete;
+
+    // Replaces the snapshot with a copy of every readable page of the regions
+    // accepted by shouldSearchRegion. Runs on the scan worker pool.
+    void capture(const std::vector<MemoryRegion>& regions);
+    void clear();
+    // Makes sure page storage exists so pages can be added one by one with store(),
+    // e.g. when a changed/unchanged filter runs after a known-value search.
+    void prepare(const std::vector<MemoryRegion>& regions);
+
+    bool empty() const { return pages_.empty(); }
+    const std::vector<Page>& pages() const { return pages_; }
+
+    // Index of the page starting at `pageAddr`, or -1 when it is not part of the snapshot.
+    ptrdiff_t find(uintptr_t pageAddr) const;
+    const uint8_t* data(const Page& page) const;
+
+    // Copies `bytes` into a fresh slot and returns the page entry for it. Thread safe.
+    // The slot is kNoSlot when the storage is full; such pages should be dropped.
+    Page store(uintptr_t addr, const uint8_t* bytes, uint64_t hash);
+    void release(const Page& page);
+
+    // Installs a new page table. Slots of the old table that are not reused must
+    // have been released by the caller.
+    void replacePages(std::vector<Page> pages) { pages_ = std::move(pages); }
+
+    static uint64_t hashPage(const uint8_t* bytes);
+    static bool isZeroPage(const uint8_t* bytes);
+
+private:
+    bool allocateStorage(size_t slots);
+    void freeStorage();
+    uint32_t allocateSlot();
+
+    std::vector<Page> pages_;
+    uint8_t* storage_ = nullptr;
+    size_t slotCapacity_ = 0;
+    int fd_ = -1;
+    std::atomic<uint32_t> nextSlot_{0};
+    std::mutex freeLock_;
+    std::vector<uint32_t> freeSlots_;
+};
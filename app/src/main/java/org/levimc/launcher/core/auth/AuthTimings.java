@@ -0,0 +1,59 @@
+package org.levimc.launcher.core.auth;
+
+import android.os.SystemClock;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Start and end offsets of each stage of one sign-in, relative to its start. Stages
+ * run concurrently, so the offsets show which requests overlapped.
+ */
+public final class AuthTimings {
+
+    public interface Stage<T> {
+        T run() throws Exception;
+    }
+
+    private final long originMs = SystemClock.elapsedRealtime();
+    private final Map<String, long[]> stages = new LinkedHashMap<>();
+
+    /** Runs {@code stage} and records it; failures are wrapped for use inside futures. */
+    public <T> T time(String name, Stage<T> stage) {
+        long start = SystemClock.elapsedRealtime() - originMs;
+        try {
+            return stage.run();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            long end = SystemClock.elapsedRealtime() - originMs;
+            synchronized (stages) {
+                stages.put(name, new long[]{start, end});
+            }
+        }
+    }
+
+    public long elapsedMs() {
+        return SystemClock.elapsedRealtime() - originMs;
+    }
+
+    /** Stage name to {start, end} in ms since the sign-in began. */
+    public Map<String, long[]> stages() {
+        synchronized (stages) {
+            return new LinkedHashMap<>(stages);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, long[]> e : stages().entrySet()) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(e.getKey()).append(' ').append(e.getValue()[0]).append('-').append(e.getValue()[1]).append("ms");
+        }
+        return sb.append(" (total ").append(elapsedMs()).append("ms)").toString();
+    }
+}
@@ -2,18 +2,22 @@ package org.levimc.launcher.core.auth;
 
 import android.content.Context;
 import android.text.TextUtils;
+import android.util.Log;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 import org.levimc.launcher.core.auth.storage.XalStorageManager;
 import org.levimc.launcher.util.JsonIOUtils;
+import org.levimc.launcher.util.WriteBehindStore;
 
 import java.io.File;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public class MsftAccountStore {
@@ -48,101 +52,176 @@ public class MsftAccountStore {
     private static final Gson GSON = new Gson();
     private static final Type LIST_TYPE = new TypeToken<List<MsftAccount>>(){}.getType();
 
+    /**
+     * Immutable view of all accounts with its lookup indexes. Writers build a new one
+     * from copies of the accounts they change and publish it in one volatile write, so
+     * readers never lock and never see a half-applied change.
+     */
+    private static final class Snapshot {
+        final List<MsftAccount> accounts;
+        final Map<String, MsftAccount> byId = new HashMap<>();
+        final Map<String, MsftAccount> byMsUserId = new HashMap<>();
+        final MsftAccount active;
+
+        Snapshot(List<MsftAccount> list) {
+            MsftAccount activeAccount = null;
+            for (MsftAccount a : list) {
+                if (a.id != null) byId.put(a.id, a);
+                if (a.msUserId != null) byMsUserId.putIfAbsent(a.msUserId, a);
+                if (a.active && activeAccount == null) activeAccount = a;
+            }
+            this.accounts = Collections.unmodifiableList(list);
+            this.active = activeAccount;
+        }
+    }
+
+    private static final Object writeLock = new Object();
+    private static volatile Snapshot snapshot;
+
     private static File getFile(Context ctx) {
         File dir = XalStorageManager.getXalDir(ctx);
         return new File(dir, FILENAME);
     }
 
-    public static synchronized List<MsftAccount> list(Context ctx) {
-        File f = getFile(ctx);
-        if (!f.exists()) return new ArrayList<>();
-        try {
-            String json = JsonIOUtils.read(f);
-            if (android.text.TextUtils.isEmpty(json)) return new java.util.ArrayList<>();
-            java.util.List<MsftAccount> list = GSON.fromJson(json, LIST_TYPE);
-            return list != null ? list : new java.util.ArrayList<>();
-        } catch (Exception ex) {
-            android.util.Log.w("XALExport", "Failed to read " + f.getAbsolutePath(), ex);
-            return new java.util.ArrayList<>();
+    private static Snapshot snapshot(Context ctx) {
+        Snapshot current = snapshot;
+        if (current != null) return current;
+        synchronized (writeLock) {
+            if (snapshot == null) snapshot = new Snapshot(load(ctx));
+            return snapshot;
         }
     }
 
-    private static synchronized void save(Context ctx, List<MsftAccount> list) {
+    private static List<MsftAccount> load(Context ctx) {
         File f = getFile(ctx);
         try {
-            JsonIOUtils.write(f, GSON.toJson(list));
+            String json = WriteBehindStore.read(f);
+            if (TextUtils.isEmpty(json)) return new ArrayList<>();
+            List<MsftAccount> list = GSON.fromJson(json, LIST_TYPE);
+            return list != null ? list : new ArrayList<>();
         } catch (Exception ex) {
-            android.util.Log.w("XALExport", "Failed to write " + f.getAbsolutePath(), ex);
+            Log.w("XALExport", "Failed to read " + f.getAbsolutePath(), ex);
+            return new ArrayList<>();
         }
     }
 
-    public static synchronized MsftAccount addOrUpdate(Context ctx, String msUserId, String refreshToken, String gamertag) {
+    /** Publishes {@code list} as the new state and queues it for disk. Call with {@code writeLock} held. */
+    private static void commit(Context ctx, List<MsftAccount> list) {
+        Snapshot next = new Snapshot(list);
+        snapshot = next;
+        File f = getFile(ctx);
+        // Serialised on the write-behind thread; a burst of changes is written once.
+        WriteBehindStore.schedule(f.getAbsolutePath(), () -> {
+            if (!JsonIOUtils.writeAtomic(f, GSON.toJson(snapshot.accounts))) {
+                Log.w("XALExport", "Failed to write " + f.getAbsolutePath());
+            }
+        });
+    }
+
+    private static MsftAccount copyOf(MsftAccount a) {
+        return new MsftAccount(a.id, a.msUserId, a.refreshToken, a.xboxGamertag, a.minecraftUsername, a.xuid, a.xboxAvatarUrl, a.lastUpdated, a.active);
+    }
+
+    /** All accounts. The list and its accounts are a shared snapshot and must not be modified. */
+    public static List<MsftAccount> list(Context ctx) {
+        return snapshot(ctx).accounts;
+    }
+
+    public static MsftAccount getActive(Context ctx) {
+        return snapshot(ctx).active;
+    }
+
+    public static MsftAccount addOrUpdate(Context ctx, String msUserId, String refreshToken, String gamertag) {
         return addOrUpdate(ctx, msUserId, refreshToken, gamertag, null, null);
     }
 
-    public static synchronized MsftAccount addOrUpdate(Context ctx, String msUserId, String refreshToken, String gamertag, String minecraftUsername, String xuid) {
+    public static MsftAccount addOrUpdate(Context ctx, String msUserId, String refreshToken, String gamertag, String minecraftUsername, String xuid) {
         return addOrUpdate(ctx, msUserId, refreshToken, gamertag, minecraftUsername, xuid, null);
     }
 
-    public static synchronized MsftAccount addOrUpdate(Context ctx, String msUserId, String refreshToken, String gamertag, String minecraftUsername, String xuid, String avatarUrl) {
-        List<MsftAccount> list = list(ctx);
-        MsftAccount target = null;
-        for (MsftAccount a : list) {
-            if (msUserId != null && msUserId.equals(a.msUserId)) {
-                target = a; break;
+    public static MsftAccount addOrUpdate(Context ctx, String msUserId, String refreshToken, String gamertag, String minecraftUsername, String xuid, String avatarUrl) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot(ctx);
+            List<MsftAccount> list = new ArrayList<>(current.accounts);
+            MsftAccount existing = msUserId != null ? current.byMsUserId.get(msUserId) : null;
+            MsftAccount target;
+            if (existing == null) {
+                target = new MsftAccount(UUID.randomUUID().toString(), msUserId, refreshToken, gamertag, minecraftUsername, xuid, avatarUrl, System.currentTimeMillis(), list.isEmpty());
+                list.add(target);
+            } else {
+                target = copyOf(existing);
+                target.refreshToken = refreshToken;
+                if (!TextUtils.isEmpty(gamertag)) target.xboxGamertag = gamertag;
+                if (!TextUtils.isEmpty(minecraftUsername)) target.minecraftUsername = minecraftUsername;
+                if (!TextUtils.isEmpty(xuid)) target.xuid = xuid;
+                if (!TextUtils.isEmpty(avatarUrl)) target.xboxAvatarUrl = avatarUrl;
+                target.lastUpdated = System.currentTimeMillis();
+                list.set(list.indexOf(existing), target);
             }
+            commit(ctx, list);
+            return target;
         }
-        if (target == null) {
-            target = new MsftAccount(UUID.randomUUID().toString(), msUserId, refreshToken, gamertag, minecraftUsername, xuid, avatarUrl, System.currentTimeMillis(), list.isEmpty());
-            list.add(target);
-        } else {
-            target.refreshToken = refreshToken;
-            if (!TextUtils.isEmpty(gamertag)) target.xboxGamertag = gamertag;
-            if (!TextUtils.isEmpty(minecraftUsername)) target.minecraftUsername = minecraftUsername;
-            if (!TextUtils.isEmpty(xuid)) target.xuid = xuid;
-            if (!TextUtils.isEmpty(avatarUrl)) target.xboxAvatarUrl = avatarUrl;
-            target.lastUpdated = System.currentTimeMillis();
-        }
-        save(ctx, list);
-        return target;
-    }
-
-    public static synchronized void remove(Context ctx, String id) {
-        List<MsftAccount> list = list(ctx);
-        Iterator<MsftAccount> it = list.iterator();
-        MsftAccount removed = null;
-        while (it.hasNext()) {
-            MsftAccount a = it.next();
-            if (a.id.equals(id)) {
-                removed = a;
-                it.remove();
+    }
+
+    public static void remove(Context ctx, String id) {
+        MsftAccount removed;
+        synchronized (writeLock) {
+            Snapshot current = snapshot(ctx);
+            removed = current.byId.get(id);
+            if (removed == null) return;
+            List<MsftAccount> list = new ArrayList<>(current.accounts.size());
+            for (MsftAccount a : current.accounts) {
+                if (!id.equals(a.id)) list.add(a);
+            }
+            boolean hasActive = false;
+            for (MsftAccount a : list) if (a.active) { hasActive = true; break; }
+            if (!hasActive && !list.isEmpty()) {
+                MsftAccount first = copyOf(list.get(0));
+                first.active = true;
+                list.set(0, first);
             }
+            commit(ctx, list);
         }
 
-        if (removed != null && removed.msUserId != null && !removed.msUserId.isEmpty()) {
+        if (removed.msUserId != null && !removed.msUserId.isEmpty()) {
             try {
-                org.levimc.launcher.core.auth.storage.XalStorageManager.deleteUserDir(ctx, removed.msUserId);
+                XalStorageManager.deleteUserDir(ctx, removed.msUserId);
             } catch (Exception ignored) {}
+            XboxTokenCache.getInstance(ctx).invalidate(removed.msUserId);
         }
-
-        boolean hasActive = false;
-        for (MsftAccount a : list) if (a.active) { hasActive = true; break; }
-        if (!hasActive && !list.isEmpty()) list.get(0).active = true;
-        save(ctx, list);
     }
 
-    public static synchronized void setActive(Context ctx, String id) {
-        List<MsftAccount> list = list(ctx);
-        for (MsftAccount a : list) {
-            a.active = a.id.equals(id);
+    public static void setActive(Context ctx, String id) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot(ctx);
+            MsftAccount target = current.byId.get(id);
+            if (target == current.active && (target == null || countActive(current) == 1)) return;
+            List<MsftAccount> list = new ArrayList<>(current.accounts.size());
+            for (MsftAccount a : current.accounts) {
+                boolean active = a.id != null && a.id.equals(id);
+                if (a.active == active) {
+                    list.add(a);
+                } else {
+                    MsftAccount changed = copyOf(a);
+                    changed.active = active;
+                    list.add(changed);
+                }
+            }
+            commit(ctx, list);
         }
-        save(ctx, list);
     }
 
-    public static synchronized MsftAccount find(Context ctx, String id) {
-        for (MsftAccount a : list(ctx)) {
-            if (a.id.equals(id)) return a;
-        }
-        return null;
+    public static MsftAccount find(Context ctx, String id) {
+        return id != null ? snapshot(ctx).byId.get(id) : null;
+    }
+
+    public static MsftAccount findByMsUserId(Context ctx, String msUserId) {
+        return msUserId != null ? snapshot(ctx).byMsUserId.get(msUserId) : null;
+    }
+
+    private static int countActive(Snapshot s) {
+        int n = 0;
+        for (MsftAccount a : s.accounts) if (a.active) n++;
+        return n;
     }
-}
\ No newline at end of file
+}
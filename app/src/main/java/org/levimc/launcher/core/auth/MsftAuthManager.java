@@ -14,7 +14,12 @@ import org.cloudburstmc.protocol.bedrock.util.EncryptionUtils;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import android.util.Log;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import coelho.msftauth.api.oauth20.OAuth20Authorize;
 import coelho.msftauth.api.oauth20.OAuth20Token;
@@ -47,7 +52,27 @@ public class MsftAuthManager {
     public static final String DEFAULT_SCOPE = "service::user.auth.xboxlive.com::mbi_ssl";
     public static final String DEFAULT_XSTS_RELYING_PARTY = "https://multiplayer.minecraft.net/";
 
-   public record XboxAuthResult(XboxToken xstsToken, String gamertag, String avatarUrl, XboxDevice device) {}
+    private static final String TAG = "MsftAuthManager";
+
+    // Stages block on synchronous HTTP calls, so the pool grows to the widest stage fan-out.
+    private static final ExecutorService AUTH_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "msft-auth");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static volatile OkHttpClient sharedClient;
+
+   public record XboxAuthResult(XboxToken xstsToken, String gamertag, String avatarUrl, XboxDevice device, AuthTimings timings) {}
+
+    /** One client for all sign-in traffic, so concurrent requests share its connection pool. */
+    public static OkHttpClient httpClient() {
+        if (sharedClient == null) {
+            synchronized (MsftAuthManager.class) {
+                if (sharedClient == null) sharedClient = new OkHttpClient();
+            }
+        }
+        return sharedClient;
+    }
 
     public static String buildAuthorizeUrl(String clientId, String scope, String codeChallenge, String state) {
         OAuth20Authorize auth = new OAuth20Authorize(clientId, "code", scope);
@@ -74,12 +99,7 @@ public class MsftAuthManager {
         if (account == null || account.msUserId == null || account.msUserId.isEmpty()) {
             throw new IllegalArgumentException("No user id available for the selected account");
         }
-        String refreshToken = MsaTokenStore.findRefreshToken(context, account.msUserId);
-        if (refreshToken == null || refreshToken.isEmpty()) {
-            throw new IllegalArgumentException("No refresh token found in MSA store for the selected account");
-        }
-        OAuth20Token token = exchangeTokenByRefresh(client, DEFAULT_CLIENT_ID, refreshToken, DEFAULT_SCOPE);
-        return performXboxAuth(client, token, context);
+        return XboxTokenCache.getInstance(context).acquire(client, account.msUserId);
     }
 
     private static XboxDeviceAuthRequest buildDeviceAuth(AuthConfig cfg, XboxDeviceKey deviceKey) {
@@ -104,53 +124,153 @@ public class MsftAuthManager {
     }
 
     public static XboxAuthResult performXboxAuth(OkHttpClient client, OAuth20Token token,  Context context) throws Exception {
+        RpsTicket ticket = new RpsTicket(client, context, token.getUserId(), token);
+        XboxTokenCache.Chain chain = authenticate(client, context, token.getUserId(), ticket, null);
+        MsaTokenStore.save(context, token);
+        XboxTokenCache.getInstance(context).put(chain);
+        return toResult(context, chain, chain.timings);
+    }
+
+    /**
+     * Brings a cached chain up to date, requesting only the links that are missing or
+     * close to expiry. The MSA token is only read, or refreshed, if a user or title
+     * token has to be requested again.
+     */
+    static XboxTokenCache.Chain refreshChain(OkHttpClient client, Context context, String msUserId, XboxTokenCache.Chain previous) throws Exception {
+        return authenticate(client, context, msUserId, new RpsTicket(client, context, msUserId, null), previous);
+    }
+
+    static XboxAuthResult toResult(Context context, XboxTokenCache.Chain chain, AuthTimings timings) {
+        return toResult(new XboxDeviceKey(context), chain, timings);
+    }
+
+    /** {@code deviceKey} must be the key {@code chain.deviceToken} was issued for. */
+    static XboxAuthResult toResult(XboxDeviceKey deviceKey, XboxTokenCache.Chain chain, AuthTimings timings) {
+        XboxDevice device = new XboxDevice(deviceKey, chain.deviceToken);
+        String gamertag = chain.gamertag == null || chain.gamertag.isEmpty() ? "Unknown" : chain.gamertag;
+        return new XboxAuthResult(chain.xstsMain, gamertag, chain.avatarUrl, device,
+                timings != null ? timings : new AuthTimings());
+    }
+
+    static ExecutorService executor() {
+        return AUTH_EXECUTOR;
+    }
+
+    /**
+     * Runs the Xbox token chain as a dependency graph: the device and user tokens are
+     * requested together, then the four XSTS tokens in parallel once the user token is
+     * in, with the profile lookup chained onto the xboxlive.com token. Links from
+     * {@code previous} that are still good for a while are reused instead.
+     */
+    private static XboxTokenCache.Chain authenticate(OkHttpClient client, Context context, String userId,
+                                                     RpsTicket ticket, XboxTokenCache.Chain previous) throws Exception {
         AuthConfig cfg = AuthConfig.productionRetailJwtDefault();
+        AuthTimings timings = new AuthTimings();
         XboxDeviceKey deviceKey = new XboxDeviceKey(context);
-        XboxDeviceAuthRequest deviceAuthReq = buildDeviceAuth(cfg, deviceKey);
-
-        XalStorageManager.saveDeviceIdentity(context, token.getUserId(), deviceKey);
-
-        XboxDeviceToken deviceToken = deviceAuthReq.request(client);
-        XalStorageManager.saveDeviceToken(context, token.getUserId(), deviceKey, deviceToken, cfg);
-        XboxDevice device = new XboxDevice(deviceKey, deviceToken);
-        XboxToken userToken = buildUserAuth(cfg, "t="  +token.getAccessToken()).request(client);
-
-        XboxToken xstsTokenMain = null;
-        try{
-            xstsTokenMain = buildXstsForRP(cfg, DEFAULT_XSTS_RELYING_PARTY, Collections.singletonList(userToken)).request(client);
-            String defaultUserId = token.getUserId();
-            XalStorageManager.saveDefaultTitleUser(context, defaultUserId);
-        }catch(Exception e){
-            XboxTitleToken titleToken = new XboxTitleAuthRequest( cfg.userAuthRP(), cfg.tokenType(), cfg.authMethodRps(), cfg.siteNameRps() ,"t=" + token.getAccessToken(),deviceToken,deviceKey).request(client);
-            XalStorageManager.saveTitleToken(context, token.getUserId(), deviceKey, titleToken, cfg);
-
-            xstsTokenMain = buildXstsForRP(cfg, DEFAULT_XSTS_RELYING_PARTY, Collections.singletonList(userToken)).request(client);
-            String defaultUserId = token.getUserId();
-            XalStorageManager.saveDefaultTitleUser(context, defaultUserId);
+        long now = System.currentTimeMillis();
+        // The device token is bound to the device key; anything else survives a key change.
+        XboxTokenCache.Chain prev = previous != null ? previous : new XboxTokenCache.Chain();
+        XboxDeviceToken prevDeviceToken = deviceKey.getId().equals(prev.deviceId) ? prev.deviceToken : null;
+
+        CompletableFuture<XboxDeviceToken> deviceTokenFuture = XboxTokenCache.isReusable(prevDeviceToken, now)
+                ? CompletableFuture.completedFuture(prevDeviceToken)
+                : stage(timings, "device", () -> {
+                    XalStorageManager.saveDeviceIdentity(context, userId, deviceKey);
+                    XboxDeviceToken deviceToken = buildDeviceAuth(cfg, deviceKey).request(client);
+                    XalStorageManager.saveDeviceToken(context, userId, deviceKey, deviceToken, cfg);
+                    return deviceToken;
+                });
+        CompletableFuture<XboxToken> userTokenFuture = reuseOr(timings, "user", prev.userToken, now,
+                () -> buildUserAuth(cfg, await(ticket.get(timings))).request(client));
+
+        XboxToken userToken = await(userTokenFuture);
+        List<XboxToken> userTokens = Collections.singletonList(userToken);
+
+        CompletableFuture<XboxToken> xstsMainFuture = reuseOr(timings, "xsts.main", prev.xstsMain, now, () -> {
+            XboxToken xsts;
+            try {
+                xsts = buildXstsForRP(cfg, DEFAULT_XSTS_RELYING_PARTY, userTokens).request(client);
+            } catch (Exception e) {
+                XboxDeviceToken deviceToken = await(deviceTokenFuture);
+                XboxTitleToken titleToken = new XboxTitleAuthRequest(cfg.userAuthRP(), cfg.tokenType(), cfg.authMethodRps(), cfg.siteNameRps(), await(ticket.get(timings)), deviceToken, deviceKey).request(client);
+                XalStorageManager.saveTitleToken(context, userId, deviceKey, titleToken, cfg);
+                xsts = buildXstsForRP(cfg, DEFAULT_XSTS_RELYING_PARTY, userTokens).request(client);
+            }
+            XalStorageManager.saveDefaultTitleUser(context, userId);
+            return xsts;
+        });
+        CompletableFuture<XboxToken> xstsXboxLiveFuture = reuseOr(timings, "xsts.xboxlive", prev.xstsXboxLive, now,
+                () -> buildXstsForRP(cfg, "http://xboxlive.com", userTokens).request(client));
+        CompletableFuture<XboxToken> xstsPlayfabFuture = reuseOr(timings, "xsts.playfab", prev.xstsPlayfab, now,
+                () -> buildXstsForRP(cfg, "https://b980a380.minecraft.playfabapi.com/", userTokens).request(client));
+        CompletableFuture<XboxToken> xstsRealmsFuture = reuseOr(timings, "xsts.realms", prev.xstsRealms, now,
+                () -> buildXstsForRP(cfg, "https://pocket.realms.minecraft.net/", userTokens).request(client));
+
+        String xuid = extractXuid(userToken);
+        CompletableFuture<Pair<String, String>> profileFuture;
+        // The profile is looked up again only alongside a new xboxlive.com token.
+        if (prev.gamertag != null && XboxTokenCache.isReusable(prev.xstsXboxLive, now)) {
+            profileFuture = CompletableFuture.completedFuture(new Pair<>(prev.gamertag, prev.avatarUrl));
+        } else {
+            profileFuture = xstsXboxLiveFuture.thenApplyAsync(
+                    xbl -> timings.time("profile", () -> fetchXboxProfile(client, xbl, xuid)), AUTH_EXECUTOR);
         }
-        XboxToken xstsXboxLive = buildXstsForRP(cfg, "http://xboxlive.com", Collections.singletonList(userToken)).request(client);
-        XboxToken xstsPlayfab = buildXstsForRP(cfg, "https://b980a380.minecraft.playfabapi.com/", Collections.singletonList(userToken)).request(client);
-        XboxToken xstsRealms = buildXstsForRP(cfg, "https://pocket.realms.minecraft.net/", Collections.singletonList(userToken)).request(client);
 
-        UserTokenStore.save(context, deviceKey, token.getUserId(), cfg, userToken, xstsXboxLive, xstsPlayfab, xstsRealms);
-        MsaTokenStore.save(context, token);
+        XboxTokenCache.Chain chain = new XboxTokenCache.Chain();
+        chain.msUserId = userId;
+        chain.deviceId = deviceKey.getId();
+        chain.deviceToken = await(deviceTokenFuture);
+        chain.userToken = userToken;
+        chain.xstsMain = await(xstsMainFuture);
+        chain.xstsXboxLive = await(xstsXboxLiveFuture);
+        chain.xstsPlayfab = await(xstsPlayfabFuture);
+        chain.xstsRealms = await(xstsRealmsFuture);
 
-        String gamertag = null;
-        String avatarUrl = null;
-        String xuid = extractXuid(userToken);
+        UserTokenStore.save(context, deviceKey, userId, cfg, userToken, chain.xstsXboxLive, chain.xstsPlayfab, chain.xstsRealms);
 
-        Pair<String, String> profile = fetchXboxProfile(client, xstsXboxLive, xuid);
+        Pair<String, String> profile = await(profileFuture);
         if (profile != null) {
-            gamertag = profile.first;
-            avatarUrl = sanitizeUrl(profile.second);
+            chain.gamertag = profile.first;
+            chain.avatarUrl = sanitizeUrl(profile.second);
+        }
+        if (chain.xstsMain == prev.xstsMain) {
+            chain.minecraftUsername = prev.minecraftUsername;
+            chain.minecraftXuid = prev.minecraftXuid;
         }
 
-        if (gamertag == null || gamertag.isEmpty()) gamertag = "Unknown";
+        Log.i(TAG, "Xbox auth: " + timings);
+        chain.timings = timings;
+        return chain;
+    }
+
+    private static <T> CompletableFuture<T> reuseOr(AuthTimings timings, String name, T cached, long now, AuthTimings.Stage<T> request) {
+        if (cached instanceof XboxToken && XboxTokenCache.isReusable((XboxToken) cached, now)) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return stage(timings, name, request);
+    }
 
-        return new XboxAuthResult(xstsTokenMain, gamertag, avatarUrl, device);
+    private static <T> CompletableFuture<T> stage(AuthTimings timings, String name, AuthTimings.Stage<T> stage) {
+        return CompletableFuture.supplyAsync(() -> timings.time(name, stage), AUTH_EXECUTOR);
+    }
+
+    /** Waits for a stage and rethrows its original failure. */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
     }
 
     public static Pair<String, String> fetchMinecraftIdentity(OkHttpClient client, XboxToken xstsToken) throws Exception {
+        XboxTokenCache cache = XboxTokenCache.peek();
+        Pair<String, String> cached = cache != null ? cache.identityFor(xstsToken) : null;
+        if (cached != null) return cached;
+
         String identityToken = xstsToken.toIdentityToken();
 
         JsonObject data = new JsonObject();
@@ -165,7 +285,9 @@ public class MsftAuthManager {
         Response response = client.newCall(builder.build()).execute();
 
         String respBody = response.body().string();
-        return parseUsernameAndXuidFromChain(respBody);
+        Pair<String, String> identity = parseUsernameAndXuidFromChain(respBody);
+        if (cache != null && identity != null) cache.rememberIdentity(xstsToken, identity);
+        return identity;
     }
 
    public static void saveAccount(Context ctx, OAuth20Token token, String gamertag, String minecraftUsername, String xuid, String avatarUrl) {
@@ -253,4 +375,46 @@ public class MsftAuthManager {
         if (!(u.startsWith("http://") || u.startsWith("https://"))) return null;
         return u;
     }
-}
\ No newline at end of file
+
+    /**
+     * The MSA ticket for user and title token requests, fetched at most once per sign-in
+     * and only when one of those requests actually runs.
+     */
+    private static final class RpsTicket {
+        private final OkHttpClient client;
+        private final Context context;
+        private final String msUserId;
+        private final OAuth20Token token;
+        private CompletableFuture<String> future;
+
+        RpsTicket(OkHttpClient client, Context context, String msUserId, OAuth20Token token) {
+            this.client = client;
+            this.context = context;
+            this.msUserId = msUserId;
+            this.token = token;
+        }
+
+        synchronized CompletableFuture<String> get(AuthTimings timings) {
+            if (future == null) {
+                future = token != null
+                        ? CompletableFuture.completedFuture("t=" + token.getAccessToken())
+                        : stage(timings, "msa", this::fetch);
+            }
+            return future;
+        }
+
+        private String fetch() throws Exception {
+            if (MsaTokenStore.isAccessTokenValid(context, msUserId)) {
+                String stored = MsaTokenStore.findRpsTicket(context, msUserId);
+                if (stored != null) return stored;
+            }
+            String refreshToken = MsaTokenStore.findRefreshToken(context, msUserId);
+            if (refreshToken == null || refreshToken.isEmpty()) {
+                throw new IllegalArgumentException("No refresh token found in MSA store for the selected account");
+            }
+            OAuth20Token refreshed = exchangeTokenByRefresh(client, DEFAULT_CLIENT_ID, refreshToken, DEFAULT_SCOPE);
+            MsaTokenStore.save(context, refreshed);
+            return "t=" + refreshed.getAccessToken();
+        }
+    }
+}
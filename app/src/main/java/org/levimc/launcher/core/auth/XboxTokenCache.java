@@ -0,0 +1,262 @@
+package org.levimc.launcher.core.auth;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.Pair;
+
+import com.google.gson.Gson;
+
+import org.levimc.launcher.core.auth.storage.XalStorageManager;
+import org.levimc.launcher.util.JsonIOUtils;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import coelho.msftauth.api.xbox.XboxDeviceKey;
+import coelho.msftauth.api.xbox.XboxDeviceToken;
+import coelho.msftauth.api.xbox.XboxToken;
+import okhttp3.OkHttpClient;
+
+/**
+ * Per-account cache of the Xbox token chain, in memory and on disk. A sign-in whose
+ * tokens are all still valid is served without any network traffic; otherwise only
+ * the expired links are requested again. The active account is refreshed ahead of
+ * expiry in the background, and concurrent callers for the same account share one refresh.
+ */
+public final class XboxTokenCache {
+
+    private static final String TAG = "XboxTokenCache";
+    // A token is only handed out if it stays valid at least this long.
+    private static final long MIN_VALIDITY_MS = TimeUnit.MINUTES.toMillis(5);
+    // Within this window of the earliest expiry a background refresh is started.
+    private static final long REFRESH_AHEAD_MS = TimeUnit.MINUTES.toMillis(60);
+    private static final long MIN_RESCHEDULE_MS = TimeUnit.MINUTES.toMillis(15);
+    private static final Gson GSON = new Gson();
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "xbox-token-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static volatile XboxTokenCache instance;
+
+    /**
+     * One account's tokens; serialised as-is to the cache file. A published chain is not
+     * modified again; changes are made on a copy that replaces it.
+     */
+    static final class Chain {
+        String msUserId;
+        String deviceId;
+        XboxDeviceToken deviceToken;
+        XboxToken userToken;
+        XboxToken xstsMain;
+        XboxToken xstsXboxLive;
+        XboxToken xstsPlayfab;
+        XboxToken xstsRealms;
+        String gamertag;
+        String avatarUrl;
+        // Minecraft identity looked up with xstsMain; reused while that token is.
+        String minecraftUsername;
+        String minecraftXuid;
+        // Stages of the sign-in that produced this chain; not persisted.
+        transient AuthTimings timings;
+
+        Chain() {}
+
+        private Chain(Chain other) {
+            msUserId = other.msUserId;
+            deviceId = other.deviceId;
+            deviceToken = other.deviceToken;
+            userToken = other.userToken;
+            xstsMain = other.xstsMain;
+            xstsXboxLive = other.xstsXboxLive;
+            xstsPlayfab = other.xstsPlayfab;
+            xstsRealms = other.xstsRealms;
+            gamertag = other.gamertag;
+            avatarUrl = other.avatarUrl;
+            minecraftUsername = other.minecraftUsername;
+            minecraftXuid = other.minecraftXuid;
+        }
+
+        long earliestExpiry() {
+            long min = Long.MAX_VALUE;
+            for (XboxToken token : new XboxToken[]{deviceToken, userToken, xstsMain, xstsXboxLive, xstsPlayfab, xstsRealms}) {
+                min = Math.min(min, expiryOf(token));
+            }
+            return min;
+        }
+    }
+
+    private final Context appContext;
+    private final Map<String, Chain> chains = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Chain>> inflight = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> scheduled = new ConcurrentHashMap<>();
+
+    private XboxTokenCache(Context context) {
+        this.appContext = context.getApplicationContext();
+    }
+
+    public static XboxTokenCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (XboxTokenCache.class) {
+                if (instance == null) instance = new XboxTokenCache(context);
+            }
+        }
+        return instance;
+    }
+
+    /** The cache if it has been created, for callers without a context. */
+    static XboxTokenCache peek() {
+        return instance;
+    }
+
+    /**
+     * Returns a sign-in result for the account, from cache when every token is fresh
+     * and by refreshing the stale links otherwise.
+     */
+    public MsftAuthManager.XboxAuthResult acquire(OkHttpClient client, String msUserId) throws Exception {
+        Chain cached = load(msUserId);
+        long now = System.currentTimeMillis();
+        // The device token only signs requests for the key it was issued to; after the key
+        // is regenerated the chain is refreshed, which requests a new device token.
+        XboxDeviceKey deviceKey = new XboxDeviceKey(appContext);
+        if (cached != null && deviceKey.getId().equals(cached.deviceId)
+                && cached.earliestExpiry() - now > MIN_VALIDITY_MS) {
+            if (cached.earliestExpiry() - now < REFRESH_AHEAD_MS) refresh(client, msUserId);
+            return MsftAuthManager.toResult(deviceKey, cached, new AuthTimings());
+        }
+        CompletableFuture<Chain> pending = refresh(client, msUserId);
+        try {
+            Chain chain = pending.join();
+            return MsftAuthManager.toResult(appContext, chain, chain.timings);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+            throw e;
+        }
+    }
+
+    /** Stores a freshly authenticated chain, e.g. after an interactive sign-in. */
+    synchronized void put(Chain chain) {
+        chains.put(chain.msUserId, chain);
+        JsonIOUtils.writeAtomic(cacheFile(chain.msUserId), GSON.toJson(chain));
+        scheduleRefresh(chain);
+    }
+
+    /** Drops everything cached for the account, e.g. when it is removed. */
+    public synchronized void invalidate(String msUserId) {
+        if (msUserId == null) return;
+        chains.remove(msUserId);
+        // A refresh still running for the account must not store its result.
+        inflight.remove(msUserId);
+        ScheduledFuture<?> task = scheduled.remove(msUserId);
+        if (task != null) task.cancel(false);
+        File f = cacheFile(msUserId);
+        if (f.exists() && !f.delete()) Log.w(TAG, "Failed to delete " + f.getAbsolutePath());
+    }
+
+    Pair<String, String> identityFor(XboxToken xstsMain) {
+        for (Chain chain : chains.values()) {
+            if (chain.minecraftUsername != null && chain.xstsMain != null
+                    && chain.xstsMain.getToken().equals(xstsMain.getToken())) {
+                return new Pair<>(chain.minecraftUsername, chain.minecraftXuid);
+            }
+        }
+        return null;
+    }
+
+    synchronized void rememberIdentity(XboxToken xstsMain, Pair<String, String> identity) {
+        for (Chain chain : chains.values()) {
+            if (chain.xstsMain != null && chain.xstsMain.getToken().equals(xstsMain.getToken())) {
+                Chain updated = new Chain(chain);
+                updated.minecraftUsername = identity.first;
+                updated.minecraftXuid = identity.second;
+                if (chains.replace(chain.msUserId, chain, updated)) {
+                    JsonIOUtils.writeAtomic(cacheFile(updated.msUserId), GSON.toJson(updated));
+                }
+            }
+        }
+    }
+
+    /** Starts a refresh of the account's stale links, or joins the one already running. */
+    private CompletableFuture<Chain> refresh(OkHttpClient client, String msUserId) {
+        CompletableFuture<Chain> created = new CompletableFuture<>();
+        CompletableFuture<Chain> running = inflight.putIfAbsent(msUserId, created);
+        if (running != null) return running;
+        MsftAuthManager.executor().execute(() -> {
+            try {
+                Chain chain = MsftAuthManager.refreshChain(client, appContext, msUserId, load(msUserId));
+                synchronized (this) {
+                    if (inflight.get(msUserId) == created) put(chain);
+                }
+                created.complete(chain);
+            } catch (Throwable t) {
+                Log.w(TAG, "Token refresh failed for " + msUserId, t);
+                created.completeExceptionally(t);
+            } finally {
+                inflight.remove(msUserId, created);
+            }
+        });
+        return created;
+    }
+
+    private void scheduleRefresh(Chain chain) {
+        long delay = chain.earliestExpiry() - REFRESH_AHEAD_MS - System.currentTimeMillis();
+        // Tokens issued with less than the look-ahead window would otherwise refresh in a loop.
+        ScheduledFuture<?> task = scheduler.schedule(() -> {
+            // Only the active account is kept fresh in the background; any other one is
+            // refreshed when it is next used, which also schedules it again.
+            MsftAccountStore.MsftAccount active = MsftAccountStore.getActive(appContext);
+            if (active != null && chain.msUserId.equals(active.msUserId)) {
+                refresh(MsftAuthManager.httpClient(), chain.msUserId);
+            }
+        }, Math.max(delay, MIN_RESCHEDULE_MS), TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = scheduled.put(chain.msUserId, task);
+        if (previous != null) previous.cancel(false);
+    }
+
+    private Chain load(String msUserId) {
+        Chain chain = chains.get(msUserId);
+        if (chain != null) return chain;
+        String json = JsonIOUtils.read(cacheFile(msUserId));
+        if (json == null) return null;
+        try {
+            chain = GSON.fromJson(json, Chain.class);
+        } catch (Exception e) {
+            Log.w(TAG, "Discarding unreadable token cache for " + msUserId, e);
+            return null;
+        }
+        if (chain == null || !msUserId.equals(chain.msUserId)) return null;
+        chains.putIfAbsent(msUserId, chain);
+        return chains.get(msUserId);
+    }
+
+    private File cacheFile(String msUserId) {
+        // Kept outside the XAL directory, which is exported to the game as-is.
+        File dir = new File(appContext.getFilesDir(), "auth_cache");
+        if (!dir.exists()) dir.mkdirs();
+        return new File(dir, XalStorageManager.base64UserId(msUserId) + ".json");
+    }
+
+    /** Expiry of a token in epoch ms, or 0 when it is missing or unparsable. */
+    static long expiryOf(XboxToken token) {
+        if (token == null || token.getToken() == null || token.getNotAfter() == null) return 0;
+        try {
+            return Instant.parse(token.getNotAfter()).toEpochMilli();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    /** Whether a refresh may keep {@code token} rather than request it again. */
+    static boolean isReusable(XboxToken token, long now) {
+        return expiryOf(token) - now > REFRESH_AHEAD_MS;
+    }
+}
@@ -35,9 +35,10 @@ public class ContentManager {
         this.context = context.getApplicationContext();
         this.worldManager = new WorldManager(this.context);
         this.resourcePackManager = new ResourcePackManager(this.context);
-        this.screenshotManager = new ScreenshotManager();
+        this.screenshotManager = new ScreenshotManager(new File(this.context.getCacheDir(), "screenshot_index.json"));
         this.serverManager = new ServerManager();
         this.refreshExecutor = Executors.newSingleThreadExecutor();
+        this.screenshotManager.setOnChangeListener(this::refreshScreenshots);
     }
 
     public static synchronized ContentManager getInstance(Context context) {
@@ -80,21 +81,21 @@ public class ContentManager {
 
     public void refreshResourcePacks() {
         refreshExecutor.execute(() -> {
-            List<ResourcePackItem> resourcePacks = resourcePackManager.getResourcePacks();
+            List<ResourcePackItem> resourcePacks = resourcePackManager.getResourcePacks(resourcePacksLiveData::postValue);
             resourcePacksLiveData.postValue(resourcePacks);
         });
     }
 
     public void refreshBehaviorPacks() {
         refreshExecutor.execute(() -> {
-            List<ResourcePackItem> behaviorPacks = resourcePackManager.getBehaviorPacks();
+            List<ResourcePackItem> behaviorPacks = resourcePackManager.getBehaviorPacks(behaviorPacksLiveData::postValue);
             behaviorPacksLiveData.postValue(behaviorPacks);
         });
     }
 
     public void refreshSkinPacks() {
         refreshExecutor.execute(() -> {
-            List<ResourcePackItem> skinPacks = resourcePackManager.getSkinPacks();
+            List<ResourcePackItem> skinPacks = resourcePackManager.getSkinPacks(skinPacksLiveData::postValue);
             skinPacksLiveData.postValue(skinPacks);
         });
     }
@@ -198,6 +199,7 @@ public class ContentManager {
     public void shutdown() {
         worldManager.shutdown();
         resourcePackManager.shutdown();
+        screenshotManager.setOnChangeListener(null);
         refreshExecutor.shutdown();
     }
     
@@ -0,0 +1,135 @@
+package org.levimc.launcher.core.content;
+
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.levimc.launcher.util.WriteBehindStore;
+
+import java.io.File;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistent cache of pack metadata keyed by pack directory. An entry is reused while the
+ * pack directory, its manifest.json, its texts directory and the locale's and en_US .lang
+ * files keep their mtimes and the locale is unchanged, so listing unchanged packs skips
+ * manifest parsing, .lang lookups and the recursive size walk.
+ */
+final class PackMetadataIndex {
+    private static final String TAG = "PackMetadataIndex";
+    private static final Gson GSON = new Gson();
+    private static final Type ENTRIES_TYPE = new TypeToken<Map<String, Entry>>() {}.getType();
+    // Mtimes this close to now may still tick within the same timestamp, so such packs are
+    // read again next time instead of being cached.
+    private static final long MTIME_SETTLE_MS = 2000;
+
+    static final class Entry {
+        long dirMtime;
+        long manifestMtime;
+        long textsMtime;
+        // Editing a .lang file in place leaves the texts directory's mtime alone.
+        long localeLangMtime;
+        long defaultLangMtime;
+        String locale;
+        String rawName;
+        String rawDescription;
+        String version;
+        String uuid;
+        ResourcePackItem.PackType packType;
+        boolean valid;
+        // Resolved for {@link #locale}.
+        String name;
+        String description;
+        long size;
+        long lastModified;
+
+        boolean matches(Entry stamp) {
+            return dirMtime == stamp.dirMtime && manifestMtime == stamp.manifestMtime
+                    && textsMtime == stamp.textsMtime && localeLangMtime == stamp.localeLangMtime
+                    && defaultLangMtime == stamp.defaultLangMtime && stamp.locale.equals(locale);
+        }
+    }
+
+    private final File file;
+    private Map<String, Entry> entries;
+    private boolean changed;
+
+    PackMetadataIndex(File file) {
+        this.file = file;
+    }
+
+    /** Current mtimes of {@code packDir}; pass it to {@link #get} and {@link #put}. */
+    static Entry stamp(File packDir, Locale locale) {
+        Entry stamp = new Entry();
+        File texts = new File(packDir, "texts");
+        stamp.dirMtime = packDir.lastModified();
+        stamp.manifestMtime = new File(packDir, "manifest.json").lastModified();
+        stamp.textsMtime = texts.lastModified();
+        stamp.localeLangMtime = new File(texts, ResourcePackItem.langCodeOf(locale) + ".lang").lastModified();
+        stamp.defaultLangMtime = new File(texts, "en_US.lang").lastModified();
+        stamp.locale = locale.toString();
+        return stamp;
+    }
+
+    synchronized Entry get(File packDir, Entry stamp) {
+        Entry entry = load().get(packDir.getAbsolutePath());
+        return entry != null && entry.matches(stamp) ? entry : null;
+    }
+
+    /** Records {@code item}, which was loaded from disk after {@code stamp} was taken. */
+    synchronized void put(File packDir, Entry stamp, ResourcePackItem item) {
+        long newest = Math.max(Math.max(stamp.dirMtime, stamp.manifestMtime),
+                Math.max(stamp.textsMtime, Math.max(stamp.localeLangMtime, stamp.defaultLangMtime)));
+        if (System.currentTimeMillis() - newest < MTIME_SETTLE_MS) return;
+        stamp.rawName = item.getRawPackName();
+        stamp.rawDescription = item.getRawDescription();
+        stamp.version = item.getVersion();
+        stamp.uuid = item.getUuid();
+        stamp.packType = item.getPackType();
+        stamp.valid = item.isValid();
+        if (stamp.valid) {
+            stamp.name = item.getPackName();
+            stamp.description = item.getDescription();
+        }
+        stamp.size = item.getSize();
+        stamp.lastModified = stamp.dirMtime;
+        load().put(packDir.getAbsolutePath(), stamp);
+        changed = true;
+    }
+
+    /** Drops entries for packs in {@code parent} that are not in {@code present}. */
+    synchronized void retain(File parent, Set<String> present) {
+        Iterator<Map.Entry<String, Entry>> it = load().entrySet().iterator();
+        while (it.hasNext()) {
+            String path = it.next().getKey();
+            if (!present.contains(path) && parent.equals(new File(path).getParentFile())) {
+                it.remove();
+                changed = true;
+            }
+        }
+    }
+
+    synchronized void save() {
+        if (!changed) return;
+        changed = false;
+        WriteBehindStore.write(file, GSON.toJson(entries, ENTRIES_TYPE));
+    }
+
+    private Map<String, Entry> load() {
+        if (entries != null) return entries;
+        String json = WriteBehindStore.read(file);
+        try {
+            if (json != null) entries = GSON.fromJson(json, ENTRIES_TYPE);
+        } catch (Exception e) {
+            Log.w(TAG, "Discarding unreadable pack index", e);
+        }
+        if (entries == null) entries = new HashMap<>();
+        return entries;
+    }
+}
@@ -11,6 +11,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -30,6 +31,9 @@ public class ResourcePackItem extends ContentItem {
     private PackType packType;
     private boolean isValid;
     private String uuid;
+    // Display strings, resolved against the .lang files on first use.
+    private String packName;
+    private String description;
 
     public ResourcePackItem(String name, File packFile, PackType packType) {
         super(name, packFile);
@@ -38,6 +42,18 @@ public class ResourcePackItem extends ContentItem {
         loadPackInfo();
     }
 
+    ResourcePackItem(File packFile, PackMetadataIndex.Entry entry) {
+        super(packFile.getName(), packFile, entry.size, entry.lastModified);
+        this.rawPackName = entry.rawName;
+        this.rawDescription = entry.rawDescription;
+        this.version = entry.version;
+        this.uuid = entry.uuid;
+        this.packType = entry.packType;
+        this.isValid = entry.valid;
+        this.packName = entry.name;
+        this.description = entry.description;
+    }
+
     @Override
     public String getType() {
         switch (packType) {
@@ -55,11 +71,8 @@ public class ResourcePackItem extends ContentItem {
     @Override
     public String getDescription() {
         if (!isValid) return "Invalid pack";
-        String resolved = resolveLocalizedString(rawDescription);
-        if (resolved != null && !resolved.isEmpty()) {
-            return resolved;
-        }
-        return String.format("Version: %s", version != null ? version : "Unknown");
+        if (description == null) resolveNames();
+        return description;
     }
 
     @Override
@@ -68,14 +81,8 @@ public class ResourcePackItem extends ContentItem {
     }
 
     public String getPackName() {
-        String resolved = resolveLocalizedString(rawPackName);
-        if (resolved != null && !resolved.isEmpty() && !resolved.equals(rawPackName)) {
-            return resolved;
-        }
-        if (isLocalizationKey(rawPackName)) {
-            return file.getName();
-        }
-        return rawPackName;
+        if (packName == null) resolveNames();
+        return packName;
     }
 
     @Override
@@ -87,6 +94,45 @@ public class ResourcePackItem extends ContentItem {
         return version;
     }
 
+    String getRawPackName() {
+        return rawPackName;
+    }
+
+    String getRawDescription() {
+        return rawDescription;
+    }
+
+    String getUuid() {
+        return uuid;
+    }
+
+    PackType getPackType() {
+        return packType;
+    }
+
+    // The .lang files are only read when a raw string is a localization key, and at most once per item.
+    private synchronized void resolveNames() {
+        if (packName != null && description != null) return;
+        Map<String, String> langStrings = isLocalizationKey(rawPackName) || isLocalizationKey(rawDescription)
+                ? loadLangStrings() : Collections.emptyMap();
+
+        String resolved = resolveLocalizedString(rawPackName, langStrings);
+        if (resolved != null && !resolved.isEmpty() && !resolved.equals(rawPackName)) {
+            packName = resolved;
+        } else if (isLocalizationKey(rawPackName)) {
+            packName = file.getName();
+        } else {
+            packName = rawPackName;
+        }
+
+        resolved = resolveLocalizedString(rawDescription, langStrings);
+        if (resolved != null && !resolved.isEmpty()) {
+            description = resolved;
+        } else {
+            description = String.format("Version: %s", version != null ? version : "Unknown");
+        }
+    }
+
     private void loadPackInfo() {
         if (file == null || !file.exists()) {
             isValid = false;
@@ -128,15 +174,8 @@ public class ResourcePackItem extends ContentItem {
 
         Locale locale = Locale.getDefault();
         String systemLang = locale.getLanguage().toLowerCase();
-        String systemCountry = locale.getCountry();
-        
-        if (systemCountry == null || systemCountry.isEmpty()) {
-            systemCountry = systemLang.toUpperCase();
-        } else {
-            systemCountry = systemCountry.toUpperCase();
-        }
-        
-        String fullLocale = systemLang + "_" + systemCountry;
+        String fullLocale = langCodeOf(locale);
+        String systemCountry = fullLocale.substring(fullLocale.indexOf('_') + 1);
         
         File[] allLangFiles = textsDir.listFiles((dir, name) -> name.endsWith(".lang"));
 
@@ -201,6 +240,13 @@ public class ResourcePackItem extends ContentItem {
         return langStrings;
     }
 
+    /** The .lang file name, without extension, tried first for {@code locale}, e.g. "en_US". */
+    static String langCodeOf(Locale locale) {
+        String language = locale.getLanguage().toLowerCase();
+        String country = locale.getCountry();
+        return language + "_" + (country == null || country.isEmpty() ? language : country).toUpperCase();
+    }
+
     private void parseLangFile(File langFile, Map<String, String> langStrings) {
         try (BufferedReader reader = new BufferedReader(
                 new InputStreamReader(new FileInputStream(langFile), StandardCharsets.UTF_8))) {
@@ -224,14 +270,13 @@ public class ResourcePackItem extends ContentItem {
         }
     }
 
-    private String resolveLocalizedString(String value) {
+    private String resolveLocalizedString(String value, Map<String, String> langStrings) {
         if (value == null || value.isEmpty()) {
             return value;
         }
         if (!isLocalizationKey(value)) {
             return value;
         }
-        Map<String, String> langStrings = loadLangStrings();
         if (langStrings.containsKey(value)) {
             return langStrings.get(value);
         }
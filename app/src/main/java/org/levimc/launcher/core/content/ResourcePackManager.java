@@ -17,16 +17,23 @@ import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public class ResourcePackManager {
     private static final String TAG = "ResourcePackManager";
     private static final int BUFFER_SIZE = 8192;
+    // Packs read from disk between partial list updates.
+    private static final int PROGRESS_BATCH = 16;
     
     private final Context context;
     private final ExecutorService executor;
+    private final PackMetadataIndex metadataIndex;
     private File resourcePacksDirectory;
     private File behaviorPacksDirectory;
     private File skinPacksDirectory;
@@ -40,6 +47,7 @@ public class ResourcePackManager {
     public ResourcePackManager(Context context) {
         this.context = context;
         this.executor = Executors.newSingleThreadExecutor();
+        this.metadataIndex = new PackMetadataIndex(new File(context.getCacheDir(), "pack_index.json"));
     }
 
     public void setCurrentVersion(GameVersion version) {
@@ -82,47 +90,95 @@ public class ResourcePackManager {
     }
 
     public List<ResourcePackItem> getResourcePacks() {
+        return getResourcePacks(null);
+    }
+
+    /** @param progress receives partial lists while changed packs are still being read; may be null */
+    public List<ResourcePackItem> getResourcePacks(Consumer<List<ResourcePackItem>> progress) {
         List<ResourcePackItem> packs = new ArrayList<>();
         
         if (resourcePacksDirectory != null && resourcePacksDirectory.exists()) {
-            addPacksFromDirectory(resourcePacksDirectory, ResourcePackItem.PackType.RESOURCE_PACK, packs);
+            addPacksFromDirectory(resourcePacksDirectory, ResourcePackItem.PackType.RESOURCE_PACK, packs, progress);
         }
         
         return packs;
     }
 
     public List<ResourcePackItem> getBehaviorPacks() {
+        return getBehaviorPacks(null);
+    }
+
+    /** @param progress receives partial lists while changed packs are still being read; may be null */
+    public List<ResourcePackItem> getBehaviorPacks(Consumer<List<ResourcePackItem>> progress) {
         List<ResourcePackItem> packs = new ArrayList<>();
         
         if (behaviorPacksDirectory != null && behaviorPacksDirectory.exists()) {
-            addPacksFromDirectory(behaviorPacksDirectory, ResourcePackItem.PackType.BEHAVIOR_PACK, packs);
+            addPacksFromDirectory(behaviorPacksDirectory, ResourcePackItem.PackType.BEHAVIOR_PACK, packs, progress);
         }
         
         return packs;
     }
 
     public List<ResourcePackItem> getSkinPacks() {
+        return getSkinPacks(null);
+    }
+
+    /** @param progress receives partial lists while changed packs are still being read; may be null */
+    public List<ResourcePackItem> getSkinPacks(Consumer<List<ResourcePackItem>> progress) {
         List<ResourcePackItem> packs = new ArrayList<>();
         
         if (skinPacksDirectory != null && skinPacksDirectory.exists()) {
-            addPacksFromDirectory(skinPacksDirectory, ResourcePackItem.PackType.RESOURCE_PACK, packs);
+            addPacksFromDirectory(skinPacksDirectory, ResourcePackItem.PackType.RESOURCE_PACK, packs, progress);
         }
         
         return packs;
     }
 
-    private void addPacksFromDirectory(File directory, ResourcePackItem.PackType packType, List<ResourcePackItem> packs) {
-        File[] packDirs = directory.listFiles();
-        if (packDirs != null) {
-            for (File packDir : packDirs) {
-                if (packDir.isDirectory()) {
-                    ResourcePackItem pack = new ResourcePackItem(packDir.getName(), packDir, packType);
-                    if (pack.isValid()) {
-                        packs.add(pack);
-                    }
-                }
+    /**
+     * Lists the packs in {@code directory}, taking unchanged packs from the metadata index
+     * and reading only new or modified ones from disk.
+     */
+    private void addPacksFromDirectory(File directory, ResourcePackItem.PackType packType, List<ResourcePackItem> packs,
+                                       Consumer<List<ResourcePackItem>> progress) {
+        File[] packDirs = directory.getAbsoluteFile().listFiles(File::isDirectory);
+        if (packDirs == null) return;
+
+        Locale locale = Locale.getDefault();
+        ResourcePackItem[] items = new ResourcePackItem[packDirs.length];
+        PackMetadataIndex.Entry[] stamps = new PackMetadataIndex.Entry[packDirs.length];
+        Set<String> present = new HashSet<>();
+        int pending = 0;
+        for (int i = 0; i < packDirs.length; i++) {
+            present.add(packDirs[i].getAbsolutePath());
+            stamps[i] = PackMetadataIndex.stamp(packDirs[i], locale);
+            PackMetadataIndex.Entry cached = metadataIndex.get(packDirs[i], stamps[i]);
+            if (cached != null) {
+                items[i] = new ResourcePackItem(packDirs[i], cached);
+            } else {
+                pending++;
             }
         }
+
+        // Show the cached packs first, then fill in the rest as they are read.
+        if (progress != null && pending > 0 && pending < packDirs.length) progress.accept(validPacks(items));
+        int read = 0;
+        for (int i = 0; i < packDirs.length; i++) {
+            if (items[i] != null) continue;
+            items[i] = new ResourcePackItem(packDirs[i].getName(), packDirs[i], packType);
+            metadataIndex.put(packDirs[i], stamps[i], items[i]);
+            if (progress != null && ++read % PROGRESS_BATCH == 0 && read < pending) progress.accept(validPacks(items));
+        }
+        metadataIndex.retain(directory.getAbsoluteFile(), present);
+        metadataIndex.save();
+        packs.addAll(validPacks(items));
+    }
+
+    private static List<ResourcePackItem> validPacks(ResourcePackItem[] items) {
+        List<ResourcePackItem> packs = new ArrayList<>();
+        for (ResourcePackItem item : items) {
+            if (item != null && item.isValid()) packs.add(item);
+        }
+        return packs;
     }
 
     private static class PackInfo {
@@ -7,11 +7,13 @@ public class ScreenshotItem {
     public final File file;
     public final String directory;
     public final long captureTime;
+    public final long mtime;
 
-    public ScreenshotItem(String name, File file, String directory, long captureTime) {
+    public ScreenshotItem(String name, File file, String directory, long captureTime, long mtime) {
         this.name = name;
         this.file = file;
         this.directory = directory;
         this.captureTime = captureTime;
+        this.mtime = mtime;
     }
 }
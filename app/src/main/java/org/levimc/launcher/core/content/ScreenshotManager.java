@@ -1,73 +1,151 @@
 package org.levimc.launcher.core.content;
 
+import android.os.FileObserver;
+import android.util.Log;
+
+import com.google.gson.Gson;
+
 import org.json.JSONObject;
+import org.levimc.launcher.util.WriteBehindStore;
 
 import java.io.File;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Lists screenshots from the root screenshots directory and its per-world
+ * subdirectories. Metadata is kept in a persistent index, and a directory is only
+ * listed again when its mtime changes or a file observer reports a change in it, so a
+ * refresh costs one stat per directory plus the work for what actually changed.
+ */
 public class ScreenshotManager {
+    private static final String TAG = "ScreenshotManager";
+    private static final Gson GSON = new Gson();
+    private static final Comparator<ScreenshotItem> NEWEST_FIRST = (a, b) -> Long.compare(b.captureTime, a.captureTime);
+    // Directory mtimes this close to now may still tick within the same timestamp, so
+    // they are not trusted until the next refresh.
+    private static final long MTIME_SETTLE_MS = 2000;
+    private static final int WATCH_MASK = FileObserver.CLOSE_WRITE | FileObserver.CREATE | FileObserver.DELETE
+            | FileObserver.MOVED_FROM | FileObserver.MOVED_TO;
+
+    /** Index entry for one screenshot. */
+    static final class FileEntry {
+        String name;
+        long size;
+        long mtime;
+        long sidecarMtime;
+        long captureTime;
+    }
+
+    /** Index entry for one directory; the key "" is the root itself. */
+    static final class DirEntry {
+        long mtime;
+        List<FileEntry> files = new ArrayList<>();
+    }
+
+    static final class Index {
+        String root;
+        Map<String, DirEntry> dirs = new HashMap<>();
+    }
+
+    private final File indexFile;
     private File screenshotsDir;
+    private Index index;
+    private List<ScreenshotItem> sorted;
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final List<FileObserver> observers = new ArrayList<>();
+    private final AtomicBoolean changeSignalled = new AtomicBoolean();
+    private volatile Runnable changeListener;
 
-    public void setScreenshotsDirectory(File directory) {
+    public ScreenshotManager() {
+        this(null);
+    }
+
+    /** @param indexFile where the metadata index is persisted, or null to keep it in memory only */
+    public ScreenshotManager(File indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    public synchronized void setScreenshotsDirectory(File directory) {
         this.screenshotsDir = directory;
+        this.sorted = null;
+        rewatch();
     }
 
-    public List<ScreenshotItem> getScreenshots() {
-        List<ScreenshotItem> items = new ArrayList<>();
+    /**
+     * Watches the screenshot directories and calls {@code listener} once per burst of
+     * changes, until the next {@link #getScreenshots()}. Pass null to stop watching.
+     */
+    public synchronized void setOnChangeListener(Runnable listener) {
+        this.changeListener = listener;
+        rewatch();
+    }
+
+    /** Returns the screenshots, newest first. The list is a snapshot and must not be modified. */
+    public synchronized List<ScreenshotItem> getScreenshots() {
+        changeSignalled.set(false);
         if (screenshotsDir == null || !screenshotsDir.exists() || !screenshotsDir.isDirectory()) {
-            return items;
-        }
-
-        File[] directFiles = screenshotsDir.listFiles((dir, name) -> name.endsWith(".jpg") || name.endsWith(".png") || name.endsWith(".jpeg"));
-        if (directFiles != null) {
-            for (File file : directFiles) {
-                long captureTime = file.lastModified();
-                String jsonPath = file.getAbsolutePath().replaceAll("\\.(jpg|png|jpeg)$", ".json");
-                File jsonFile = new File(jsonPath);
-                if (jsonFile.exists()) {
-                    try {
-                        String content = new String(Files.readAllBytes(jsonFile.toPath()));
-                        JSONObject json = new JSONObject(content);
-                        if (json.has("CaptureTime")) {
-                            captureTime = json.getLong("CaptureTime") * 1000L;
-                        }
-                    } catch (Exception e) {
-                    }
-                }
-                items.add(new ScreenshotItem(file.getName(), file, screenshotsDir.getName(), captureTime));
+            return new ArrayList<>();
+        }
+        Index idx = loadIndex();
+        long now = System.currentTimeMillis();
+
+        // New or removed world directories change the root's mtime, so the subdirectory
+        // list from the index is reused while the root is unchanged.
+        boolean rootDirty = dirty.remove("");
+        DirEntry rootEntry = idx.dirs.get("");
+        long rootMtime = screenshotsDir.lastModified();
+        Set<String> keys = new HashSet<>();
+        keys.add("");
+        if (rootEntry != null && rootEntry.mtime == rootMtime && !rootDirty) {
+            keys.addAll(idx.dirs.keySet());
+        } else {
+            File[] subdirs = screenshotsDir.listFiles(File::isDirectory);
+            if (subdirs != null) {
+                for (File subdir : subdirs) keys.add(subdir.getName());
             }
         }
 
-        File[] subdirs = screenshotsDir.listFiles(File::isDirectory);
-        if (subdirs != null) {
-            for (File subdir : subdirs) {
-                File[] files = subdir.listFiles((dir, name) -> name.endsWith(".jpg") || name.endsWith(".png") || name.endsWith(".jpeg"));
-                if (files != null) {
-                    for (File file : files) {
-                        long captureTime = file.lastModified();
-                        String jsonPath = file.getAbsolutePath().replaceAll("\\.(jpg|png|jpeg)$", ".json");
-                        File jsonFile = new File(jsonPath);
-                        if (jsonFile.exists()) {
-                            try {
-                                String content = new String(Files.readAllBytes(jsonFile.toPath()));
-                                JSONObject json = new JSONObject(content);
-                                if (json.has("CaptureTime")) {
-                                    captureTime = json.getLong("CaptureTime") * 1000L;
-                                }
-                            } catch (Exception e) {
-                            }
-                        }
-
-                        items.add(new ScreenshotItem(file.getName(), file, subdir.getName(), captureTime));
-                    }
-                }
+        Set<String> changed = new HashSet<>();
+        for (String key : keys) {
+            File dir = key.isEmpty() ? screenshotsDir : new File(screenshotsDir, key);
+            long mtime = dir.lastModified();
+            DirEntry entry = idx.dirs.get(key);
+            boolean forced = key.isEmpty() ? rootDirty : dirty.remove(key);
+            if (entry != null && entry.mtime == mtime && mtime != 0 && !forced) continue;
+            DirEntry scanned = scan(dir, entry);
+            scanned.mtime = now - mtime < MTIME_SETTLE_MS ? -1 : mtime;
+            idx.dirs.put(key, scanned);
+            changed.add(key);
+        }
+        for (String key : new ArrayList<>(idx.dirs.keySet())) {
+            if (!keys.contains(key)) {
+                idx.dirs.remove(key);
+                changed.add(key);
             }
         }
-        
-        items.sort((a, b) -> Long.compare(b.captureTime, a.captureTime));
-        return items;
+
+        if (sorted == null) {
+            sorted = Collections.unmodifiableList(buildAll(idx));
+        } else if (!changed.isEmpty()) {
+            sorted = Collections.unmodifiableList(merge(sorted, idx, changed));
+        }
+        if (!changed.isEmpty()) {
+            if (indexFile != null) WriteBehindStore.write(indexFile, GSON.toJson(idx));
+            // World directories come and go with the root's own entries, and the watches
+            // on unchanged ones stay valid, so only a root change needs new observers.
+            if (changed.contains("")) rewatch();
+        }
+        return sorted;
     }
 
     public boolean deleteScreenshot(ScreenshotItem item) {
@@ -77,8 +155,159 @@ public class ScreenshotManager {
             if (jsonFile.exists()) {
                 jsonFile.delete();
             }
+            dirty.add(keyOf(item.file.getParentFile()));
             return true;
         }
         return false;
     }
+
+    private Index loadIndex() {
+        String root = screenshotsDir.getAbsolutePath();
+        if (index != null && root.equals(index.root)) return index;
+        Index loaded = null;
+        if (indexFile != null) {
+            String json = WriteBehindStore.read(indexFile);
+            try {
+                if (json != null) loaded = GSON.fromJson(json, Index.class);
+            } catch (Exception e) {
+                Log.w(TAG, "Discarding unreadable screenshot index", e);
+            }
+        }
+        if (loaded == null || !root.equals(loaded.root) || loaded.dirs == null) {
+            loaded = new Index();
+            loaded.root = root;
+        }
+        index = loaded;
+        sorted = null;
+        return index;
+    }
+
+    /** Lists {@code dir}, reusing entries whose image and sidecar are unchanged. */
+    private DirEntry scan(File dir, DirEntry previous) {
+        Map<String, FileEntry> known = new HashMap<>();
+        if (previous != null) {
+            for (FileEntry entry : previous.files) known.put(entry.name, entry);
+        }
+        DirEntry result = new DirEntry();
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".jpg") || name.endsWith(".png") || name.endsWith(".jpeg"));
+        if (files == null) return result;
+        for (File file : files) {
+            File sidecar = sidecarOf(file);
+            long size = file.length();
+            long mtime = file.lastModified();
+            long sidecarMtime = sidecar.lastModified();
+            FileEntry entry = known.get(file.getName());
+            if (entry == null || entry.size != size || entry.mtime != mtime || entry.sidecarMtime != sidecarMtime) {
+                entry = new FileEntry();
+                entry.name = file.getName();
+                entry.size = size;
+                entry.mtime = mtime;
+                entry.sidecarMtime = sidecarMtime;
+                entry.captureTime = readCaptureTime(sidecar, mtime);
+            }
+            result.files.add(entry);
+        }
+        return result;
+    }
+
+    private static long readCaptureTime(File sidecar, long fallback) {
+        if (!sidecar.exists()) return fallback;
+        try {
+            String content = new String(Files.readAllBytes(sidecar.toPath()));
+            JSONObject json = new JSONObject(content);
+            if (json.has("CaptureTime")) {
+                return json.getLong("CaptureTime") * 1000L;
+            }
+        } catch (Exception e) {
+        }
+        return fallback;
+    }
+
+    private List<ScreenshotItem> buildAll(Index idx) {
+        List<ScreenshotItem> items = new ArrayList<>();
+        for (Map.Entry<String, DirEntry> dir : idx.dirs.entrySet()) {
+            addItems(items, dir.getKey(), dir.getValue());
+        }
+        items.sort(NEWEST_FIRST);
+        return items;
+    }
+
+    /** Drops the changed directories' items from {@code current} and inserts their new ones in order. */
+    private List<ScreenshotItem> merge(List<ScreenshotItem> current, Index idx, Set<String> changedKeys) {
+        Set<File> changedDirs = new HashSet<>();
+        for (String key : changedKeys) changedDirs.add(key.isEmpty() ? screenshotsDir : new File(screenshotsDir, key));
+        List<ScreenshotItem> result = new ArrayList<>(current.size());
+        for (ScreenshotItem item : current) {
+            if (!changedDirs.contains(item.file.getParentFile())) result.add(item);
+        }
+        List<ScreenshotItem> added = new ArrayList<>();
+        for (String key : changedKeys) {
+            DirEntry entry = idx.dirs.get(key);
+            if (entry != null) addItems(added, key, entry);
+        }
+        for (ScreenshotItem item : added) {
+            int at = Collections.binarySearch(result, item, NEWEST_FIRST);
+            result.add(at < 0 ? -at - 1 : at, item);
+        }
+        return result;
+    }
+
+    private void addItems(List<ScreenshotItem> out, String key, DirEntry entry) {
+        File dir = key.isEmpty() ? screenshotsDir : new File(screenshotsDir, key);
+        String directory = key.isEmpty() ? screenshotsDir.getName() : key;
+        for (FileEntry file : entry.files) {
+            out.add(new ScreenshotItem(file.name, new File(dir, file.name), directory, file.captureTime, file.mtime));
+        }
+    }
+
+    private String keyOf(File dir) {
+        return dir == null || dir.equals(screenshotsDir) ? "" : dir.getName();
+    }
+
+    private static File sidecarOf(File image) {
+        return new File(image.getAbsolutePath().replaceAll("\\.(jpg|png|jpeg)$", ".json"));
+    }
+
+    // Observers are recreated whenever the root, and so the set of world directories, changes.
+    private void rewatch() {
+        for (FileObserver observer : observers) observer.stopWatching();
+        observers.clear();
+        if (changeListener == null || screenshotsDir == null || !screenshotsDir.isDirectory()) return;
+        watch(screenshotsDir, "");
+        File[] subdirs = screenshotsDir.listFiles(File::isDirectory);
+        if (subdirs != null) {
+            for (File subdir : subdirs) watch(subdir, subdir.getName());
+        }
+    }
+
+    private void watch(File dir, String key) {
+        FileObserver observer = new DirObserver(dir, key);
+        observer.startWatching();
+        observers.add(observer);
+    }
+
+    private void onDirectoryEvent(String key, String path) {
+        if (path == null) return;
+        boolean relevant = path.endsWith(".jpg") || path.endsWith(".png") || path.endsWith(".jpeg") || path.endsWith(".json")
+                || (key.isEmpty() && new File(screenshotsDir, path).isDirectory());
+        if (!relevant) return;
+        dirty.add(key);
+        Runnable listener = changeListener;
+        if (listener != null && changeSignalled.compareAndSet(false, true)) listener.run();
+    }
+
+    private final class DirObserver extends FileObserver {
+        private final String key;
+
+        @SuppressWarnings("deprecation")
+        DirObserver(File dir, String key) {
+            super(dir.getAbsolutePath(), WATCH_MASK);
+            this.key = key;
+        }
+
+        @Override
+        public void onEvent(int event, String path) {
+            onDirectoryEvent(key, path);
+        }
+    }
 }
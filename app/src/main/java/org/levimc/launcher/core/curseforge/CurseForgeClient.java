@@ -1,13 +1,20 @@
 package org.levimc.launcher.core.curseforge;
 
+import android.content.Context;
+
 import org.levimc.launcher.BuildConfig;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
 
 import org.levimc.launcher.core.curseforge.models.ContentSearchResponse;
 import org.levimc.launcher.core.curseforge.models.ModFilesResponse;
 import org.levimc.launcher.core.curseforge.models.StringResponse;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import okhttp3.Call;
@@ -31,21 +38,29 @@ public class CurseForgeClient {
     
     private final OkHttpClient client;
     private final Gson gson;
+    private final CurseForgeResponseCache cache;
+    private final Map<String, Exchange> inflight = new HashMap<>();
 
     private static CurseForgeClient instance;
 
-    private CurseForgeClient() {
-        this.client = new OkHttpClient.Builder()
+    private CurseForgeClient(Context context) {
+        this(new OkHttpClient.Builder()
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+                .build(), new File(context.getCacheDir(), "curseforge"));
+    }
+
+    // Tests pass a client that routes the API host to a local server.
+    CurseForgeClient(OkHttpClient client, File cacheDir) {
+        this.client = client;
         this.gson = new Gson();
+        this.cache = new CurseForgeResponseCache(cacheDir, gson);
     }
 
-    public static synchronized CurseForgeClient getInstance() {
+    public static synchronized CurseForgeClient getInstance(Context context) {
         if (instance == null) {
-            instance = new CurseForgeClient();
+            instance = new CurseForgeClient(context.getApplicationContext());
         }
         return instance;
     }
@@ -55,7 +70,7 @@ public class CurseForgeClient {
         void onError(Throwable t);
     }
 
-    public void searchContent(String query, int classId, String version, int index, int pageSize, String sortField, String sortOrder, CurseForgeCallback<ContentSearchResponse> callback) {
+    public PendingRequest searchContent(String query, int classId, String version, int index, int pageSize, String sortField, String sortOrder, CurseForgeCallback<ContentSearchResponse> callback) {
         HttpUrl.Builder urlBuilder = HttpUrl.parse(BASE_URL + "/v1/mods/search").newBuilder();
         urlBuilder.addQueryParameter("gameId", String.valueOf(GAME_ID_MINECRAFT));
         urlBuilder.addQueryParameter("sortField", sortField != null ? sortField : SORT_POPULARITY);
@@ -73,100 +88,213 @@ public class CurseForgeClient {
             urlBuilder.addQueryParameter("gameVersion", version);
         }
 
-        Request request = new Request.Builder()
-                .url(urlBuilder.build())
-                .addHeader("x-api-key", API_KEY)
-                .addHeader("Accept", "application/json")
-                .build();
+        return fetch(urlBuilder.build(), ContentSearchResponse.class, callback);
+    }
 
-        client.newCall(request).enqueue(new Callback() {
+    public PendingRequest getContentDescription(int contentId, CurseForgeCallback<String> callback) {
+        HttpUrl url = HttpUrl.parse(BASE_URL + "/v1/mods/" + contentId + "/description");
+        return fetch(url, StringResponse.class, new CurseForgeCallback<StringResponse>() {
             @Override
-            public void onFailure(Call call, IOException e) {
-                callback.onError(e);
+            public void onSuccess(StringResponse result) {
+                callback.onSuccess(result != null ? result.data : null);
             }
 
             @Override
-            public void onResponse(Call call, Response response) {
-                if (!response.isSuccessful()) {
-                    callback.onError(new IOException("Unexpected code " + response));
-                    return;
-                }
-                
-                try {
-                    String json = response.body().string();
-                    ContentSearchResponse contentResponse = gson.fromJson(json, ContentSearchResponse.class);
-                    callback.onSuccess(contentResponse);
-                } catch (Exception e) {
-                    callback.onError(e);
-                }
+            public void onError(Throwable t) {
+                callback.onError(t);
             }
         });
     }
 
-    public void getContentDescription(int contentId, CurseForgeCallback<String> callback) {
-        String url = BASE_URL + "/v1/mods/" + contentId + "/description";
-        Request request = new Request.Builder()
-                .url(url)
-                .addHeader("x-api-key", API_KEY)
-                .addHeader("Accept", "application/json")
-                .build();
+    public PendingRequest getModFiles(int modId, int index, int pageSize, CurseForgeCallback<ModFilesResponse> callback) {
+        HttpUrl.Builder urlBuilder = HttpUrl.parse(BASE_URL + "/v1/mods/" + modId + "/files").newBuilder();
+        urlBuilder.addQueryParameter("index", String.valueOf(index));
+        urlBuilder.addQueryParameter("pageSize", String.valueOf(pageSize));
 
-        client.newCall(request).enqueue(new Callback() {
-            @Override
-            public void onFailure(Call call, IOException e) {
-                callback.onError(e);
-            }
+        return fetch(urlBuilder.build(), ModFilesResponse.class, callback);
+    }
 
-            @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                if (!response.isSuccessful()) {
-                    callback.onError(new IOException("Unexpected code " + response));
-                    return;
-                }
+    public CurseForgeResponseCache.Stats getCacheStats() {
+        return cache.stats();
+    }
 
-                try {
-                    String json = response.body().string();
-                    StringResponse stringResponse = gson.fromJson(json, StringResponse.class);
-                    callback.onSuccess(stringResponse.data);
-                } catch (Exception e) {
-                    callback.onError(e);
-                }
+    /** Handle for an issued request; once cancelled its callback is never invoked. */
+    public static final class PendingRequest {
+        private volatile boolean cancelled;
+        private volatile Runnable onCancel;
+
+        public void cancel() {
+            cancelled = true;
+            Runnable action = onCancel;
+            if (action != null) action.run();
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /** One network request for a cache key, shared by every caller that wants it. */
+    private static final class Exchange {
+        final Class<?> type;
+        // Background revalidations keep running when their last waiter goes away.
+        final boolean background;
+        final Map<PendingRequest, CurseForgeCallback<Object>> waiters = new LinkedHashMap<>();
+        Call call;
+
+        Exchange(Class<?> type, boolean background) {
+            this.type = type;
+            this.background = background;
+        }
+    }
+
+    /**
+     * Serves {@code url} from the response cache when fresh, from a stale entry while it
+     * is revalidated in the background, and otherwise from the network with the cached
+     * validators attached. Callers asking for the same URL share one request. Callbacks
+     * run on a background thread.
+     */
+    private <T> PendingRequest fetch(HttpUrl url, Class<T> type, CurseForgeCallback<T> callback) {
+        PendingRequest pending = new PendingRequest();
+        String key = CurseForgeResponseCache.key(url);
+        client.dispatcher().executorService().execute(() -> {
+            if (pending.isCancelled()) return;
+            CurseForgeResponseCache.Entry cached = cache.get(key);
+            long now = System.currentTimeMillis();
+            if (cached != null && cached.isFresh(now)) {
+                cache.hits.incrementAndGet();
+                deliver(key, cached, type, pending, callback);
+            } else if (cached != null && cached.isUsableStale(now)) {
+                cache.staleHits.incrementAndGet();
+                deliver(key, cached, type, pending, callback);
+                join(url, key, cached, type, null, null);
+            } else {
+                cache.misses.incrementAndGet();
+                join(url, key, cached, type, pending, callback);
             }
         });
+        return pending;
     }
 
-    public void getModFiles(int modId, int index, int pageSize, CurseForgeCallback<ModFilesResponse> callback) {
-        HttpUrl.Builder urlBuilder = HttpUrl.parse(BASE_URL + "/v1/mods/" + modId + "/files").newBuilder();
-        urlBuilder.addQueryParameter("index", String.valueOf(index));
-        urlBuilder.addQueryParameter("pageSize", String.valueOf(pageSize));
+    // A null pending request marks a background revalidation, which only updates the cache.
+    @SuppressWarnings("unchecked")
+    private <T> void join(HttpUrl url, String key, CurseForgeResponseCache.Entry cached, Class<T> type, PendingRequest pending, CurseForgeCallback<T> callback) {
+        Exchange exchange;
+        boolean start = false;
+        synchronized (inflight) {
+            exchange = inflight.get(key);
+            if (exchange == null) {
+                exchange = new Exchange(type, pending == null);
+                inflight.put(key, exchange);
+                start = true;
+            }
+            if (pending != null) {
+                exchange.waiters.put(pending, (CurseForgeCallback<Object>) callback);
+                Exchange joined = exchange;
+                pending.onCancel = () -> leave(key, joined, pending);
+            }
+        }
+        if (pending != null && pending.isCancelled()) leave(key, exchange, pending);
+        if (start) network(url, key, cached, exchange);
+    }
+
+    private void leave(String key, Exchange exchange, PendingRequest pending) {
+        Call abandoned = null;
+        synchronized (inflight) {
+            if (exchange.waiters.remove(pending) == null) return;
+            if (exchange.waiters.isEmpty() && !exchange.background && inflight.get(key) == exchange) {
+                inflight.remove(key);
+                abandoned = exchange.call;
+            }
+        }
+        if (abandoned != null) abandoned.cancel();
+    }
 
-        Request request = new Request.Builder()
-                .url(urlBuilder.build())
+    private void network(HttpUrl url, String key, CurseForgeResponseCache.Entry cached, Exchange exchange) {
+        Request.Builder builder = new Request.Builder()
+                .url(url)
                 .addHeader("x-api-key", API_KEY)
-                .addHeader("Accept", "application/json")
-                .build();
+                .addHeader("Accept", "application/json");
+        if (cached != null && cached.etag != null) builder.addHeader("If-None-Match", cached.etag);
+        if (cached != null && cached.lastModified != null) builder.addHeader("If-Modified-Since", cached.lastModified);
 
-        client.newCall(request).enqueue(new Callback() {
+        Call call = client.newCall(builder.build());
+        synchronized (inflight) {
+            exchange.call = call;
+        }
+        call.enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
-                callback.onError(e);
+                Map<PendingRequest, CurseForgeCallback<Object>> waiters = finish(key, exchange);
+                if (cached != null && !waiters.isEmpty()) {
+                    cache.servedOnError.incrementAndGet();
+                    for (Map.Entry<PendingRequest, CurseForgeCallback<Object>> w : waiters.entrySet()) {
+                        deliver(key, cached, exchange.type, w.getKey(), w.getValue());
+                    }
+                } else {
+                    for (Map.Entry<PendingRequest, CurseForgeCallback<Object>> w : waiters.entrySet()) {
+                        if (!w.getKey().isCancelled()) w.getValue().onError(e);
+                    }
+                }
             }
 
             @Override
             public void onResponse(Call call, Response response) {
-                if (!response.isSuccessful()) {
-                    callback.onError(new IOException("Unexpected code " + response));
-                    return;
-                }
-
-                try {
-                    String json = response.body().string();
-                    ModFilesResponse filesResponse = gson.fromJson(json, ModFilesResponse.class);
-                    callback.onSuccess(filesResponse);
+                CurseForgeResponseCache.Entry entry = null;
+                boolean store = false;
+                Exception error = null;
+                try (response) {
+                    if (response.code() == 304 && cached != null) {
+                        cache.notModified.incrementAndGet();
+                        entry = cache.renew(cached, response);
+                        store = true;
+                    } else if (response.isSuccessful()) {
+                        // Parsed straight from the socket; the body is never held as one String.
+                        Object parsed = gson.getAdapter(exchange.type).read(new JsonReader(response.body().charStream()));
+                        entry = cache.create(key, response, parsed);
+                        store = CurseForgeResponseCache.isStorable(response);
+                    } else if (cached != null && response.code() >= 500) {
+                        cache.servedOnError.incrementAndGet();
+                        entry = cached;
+                    } else {
+                        error = new IOException("Unexpected code " + response);
+                    }
                 } catch (Exception e) {
-                    callback.onError(e);
+                    entry = null;
+                    error = e;
                 }
+                Map<PendingRequest, CurseForgeCallback<Object>> waiters = finish(key, exchange);
+                for (Map.Entry<PendingRequest, CurseForgeCallback<Object>> w : waiters.entrySet()) {
+                    if (entry != null) {
+                        deliver(key, entry, exchange.type, w.getKey(), w.getValue());
+                    } else if (!w.getKey().isCancelled()) {
+                        w.getValue().onError(error);
+                    }
+                }
+                if (store) cache.put(entry);
             }
         });
     }
+
+    private Map<PendingRequest, CurseForgeCallback<Object>> finish(String key, Exchange exchange) {
+        synchronized (inflight) {
+            inflight.remove(key, exchange);
+            Map<PendingRequest, CurseForgeCallback<Object>> waiters = new LinkedHashMap<>(exchange.waiters);
+            exchange.waiters.clear();
+            return waiters;
+        }
+    }
+
+    private <T> void deliver(String key, CurseForgeResponseCache.Entry entry, Class<T> type, PendingRequest pending, CurseForgeCallback<? super T> callback) {
+        if (pending.isCancelled()) return;
+        T result;
+        try {
+            result = cache.parsed(entry, type);
+        } catch (Exception e) {
+            cache.remove(key);
+            callback.onError(e);
+            return;
+        }
+        callback.onSuccess(result);
+    }
 }
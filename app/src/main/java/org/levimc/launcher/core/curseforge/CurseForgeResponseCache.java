@@ -0,0 +1,283 @@
+package org.levimc.launcher.core.curseforge;
+
+import android.util.Log;
+
+import com.google.gson.Gson;
+
+import org.levimc.launcher.util.CryptoUtils;
+import org.levimc.launcher.util.JsonIOUtils;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.HttpUrl;
+import okhttp3.Response;
+
+/**
+ * Memory and disk cache of CurseForge API responses, keyed by normalised request URL.
+ * Entries keep their ETag / Last-Modified validators for conditional requests, and the
+ * memory tier keeps the parsed model so repeat views skip JSON parsing. Network
+ * responses are parsed as they stream in and only serialised again for the disk tier. Parsed
+ * models are shared between callers and must be treated as read-only. Disk access
+ * happens on the calling thread, so use it off the main thread only.
+ */
+public final class CurseForgeResponseCache {
+
+    private static final String TAG = "CurseForgeCache";
+    // Used when the response carries no max-age.
+    private static final long DEFAULT_MAX_AGE_MS = TimeUnit.MINUTES.toMillis(5);
+    // How long past freshness an entry may still be shown while it is revalidated.
+    private static final long STALE_WHILE_REVALIDATE_MS = TimeUnit.HOURS.toMillis(24);
+    private static final long MAX_MEMORY_CHARS = 2 * 1024 * 1024;
+    private static final long MAX_DISK_BYTES = 16 * 1024 * 1024;
+
+    /** One cached response; replaced, never modified, once published. */
+    static final class Entry {
+        String url;
+        String etag;
+        String lastModified;
+        long storedAt;
+        long maxAgeMs;
+        // JSON as read from disk; null for entries parsed straight off the network.
+        String body;
+        transient volatile Object parsed;
+        // Approximate memory footprint in chars, set when the entry enters the memory tier.
+        transient long weight;
+
+        boolean isFresh(long now) {
+            return now - storedAt < maxAgeMs;
+        }
+
+        boolean isUsableStale(long now) {
+            return now - storedAt < maxAgeMs + STALE_WHILE_REVALIDATE_MS;
+        }
+    }
+
+    /** Counters since process start. */
+    public static final class Stats {
+        /** Served from a fresh entry without touching the network. */
+        public final long hits;
+        /** Served from a stale entry while it was revalidated in the background. */
+        public final long staleHits;
+        /** Had to wait for the network, conditionally or not. */
+        public final long misses;
+        /** Network answered 304 and the cached body was reused. */
+        public final long notModified;
+        /** Network failed and a cached entry was served instead. */
+        public final long servedOnError;
+        /** Parsed model reused without running Gson. */
+        public final long parseSkips;
+
+        Stats(long hits, long staleHits, long misses, long notModified, long servedOnError, long parseSkips) {
+            this.hits = hits;
+            this.staleHits = staleHits;
+            this.misses = misses;
+            this.notModified = notModified;
+            this.servedOnError = servedOnError;
+            this.parseSkips = parseSkips;
+        }
+
+        public double hitRate() {
+            long total = hits + staleHits + misses;
+            return total == 0 ? 0 : (double) (hits + staleHits) / total;
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + " stale=" + staleHits + " misses=" + misses + " notModified=" + notModified
+                    + " servedOnError=" + servedOnError + " parseSkips=" + parseSkips;
+        }
+    }
+
+    private final File dir;
+    private final Gson gson;
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(32, 0.75f, true);
+    private long memoryChars;
+    private long diskBytes = -1;
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong staleHits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+    final AtomicLong notModified = new AtomicLong();
+    final AtomicLong servedOnError = new AtomicLong();
+    private final AtomicLong parseSkips = new AtomicLong();
+
+    CurseForgeResponseCache(File dir, Gson gson) {
+        this.dir = dir;
+        this.gson = gson;
+    }
+
+    /**
+     * Cache key for {@code url}: query parameters sorted by name so the same request
+     * built in a different order shares one entry.
+     */
+    static String key(HttpUrl url) {
+        HttpUrl.Builder builder = url.newBuilder().query(null).fragment(null);
+        for (String name : new TreeSet<>(url.queryParameterNames())) {
+            for (String value : url.queryParameterValues(name)) {
+                builder.addQueryParameter(name, value);
+            }
+        }
+        return builder.build().toString();
+    }
+
+    Entry get(String key) {
+        synchronized (this) {
+            Entry entry = memory.get(key);
+            if (entry != null) return entry;
+        }
+        String json = JsonIOUtils.read(fileFor(key));
+        if (json == null) return null;
+        Entry entry;
+        try {
+            entry = gson.fromJson(json, Entry.class);
+        } catch (Exception e) {
+            Log.w(TAG, "Discarding unreadable cache entry for " + key, e);
+            return null;
+        }
+        if (entry == null || !key.equals(entry.url) || entry.body == null) return null;
+        synchronized (this) {
+            Entry raced = memory.get(key);
+            if (raced != null) return raced;
+            entry.weight = entry.body.length();
+            putInMemory(key, entry);
+        }
+        return entry;
+    }
+
+    static boolean isStorable(Response response) {
+        return !response.cacheControl().noStore();
+    }
+
+    /** A new entry for a parsed 200 response; only {@link #put} it if {@link #isStorable}. */
+    Entry create(String key, Response response, Object parsed) {
+        Entry entry = new Entry();
+        entry.url = key;
+        entry.parsed = parsed;
+        applyHeaders(entry, response);
+        return entry;
+    }
+
+    /** A copy of {@code cached} renewed by a 304 response, keeping its body and parsed model. */
+    Entry renew(Entry cached, Response response) {
+        Entry entry = new Entry();
+        entry.url = cached.url;
+        entry.body = cached.body;
+        entry.parsed = cached.parsed;
+        entry.etag = cached.etag;
+        entry.lastModified = cached.lastModified;
+        applyHeaders(entry, response);
+        return entry;
+    }
+
+    /**
+     * Stores the entry in both tiers. Entries without a body are serialised from their
+     * parsed model here, so call this after the result has been delivered.
+     */
+    void put(Entry entry) {
+        Entry stored = entry;
+        if (entry.body == null) {
+            stored = new Entry();
+            stored.url = entry.url;
+            stored.etag = entry.etag;
+            stored.lastModified = entry.lastModified;
+            stored.storedAt = entry.storedAt;
+            stored.maxAgeMs = entry.maxAgeMs;
+            stored.body = gson.toJson(entry.parsed);
+        }
+        entry.weight = stored.body.length();
+        synchronized (this) {
+            putInMemory(entry.url, entry);
+        }
+        String json = gson.toJson(stored);
+        if (JsonIOUtils.writeAtomic(fileFor(entry.url), json)) noteWritten(json.length());
+    }
+
+    void remove(String key) {
+        synchronized (this) {
+            Entry removed = memory.remove(key);
+            if (removed != null) memoryChars -= removed.weight;
+        }
+        File f = fileFor(key);
+        if (f.exists() && !f.delete()) Log.w(TAG, "Failed to delete " + f.getAbsolutePath());
+    }
+
+    /** Returns the entry's body as {@code type}, parsing it only the first time. */
+    <T> T parsed(Entry entry, Class<T> type) {
+        Object parsed = entry.parsed;
+        if (type.isInstance(parsed)) {
+            parseSkips.incrementAndGet();
+            return type.cast(parsed);
+        }
+        return parse(entry, type);
+    }
+
+    /** Parses the entry's body and keeps the result on the entry for later reads. */
+    <T> T parse(Entry entry, Class<T> type) {
+        if (entry.body == null) throw new IllegalStateException("No " + type.getSimpleName() + " cached for " + entry.url);
+        T value = gson.fromJson(entry.body, type);
+        entry.parsed = value;
+        return value;
+    }
+
+    public Stats stats() {
+        return new Stats(hits.get(), staleHits.get(), misses.get(), notModified.get(), servedOnError.get(), parseSkips.get());
+    }
+
+    private void applyHeaders(Entry entry, Response response) {
+        String etag = response.header("ETag");
+        String lastModified = response.header("Last-Modified");
+        if (etag != null) entry.etag = etag;
+        if (lastModified != null) entry.lastModified = lastModified;
+        int maxAge = response.cacheControl().maxAgeSeconds();
+        entry.maxAgeMs = maxAge >= 0 ? TimeUnit.SECONDS.toMillis(maxAge) : DEFAULT_MAX_AGE_MS;
+        entry.storedAt = System.currentTimeMillis();
+    }
+
+    private void putInMemory(String key, Entry entry) {
+        Entry previous = memory.put(key, entry);
+        if (previous != null) memoryChars -= previous.weight;
+        memoryChars += entry.weight;
+        Iterator<Entry> it = memory.values().iterator();
+        while (memoryChars > MAX_MEMORY_CHARS && it.hasNext()) {
+            Entry eldest = it.next();
+            if (eldest == entry) break;
+            memoryChars -= eldest.weight;
+            it.remove();
+        }
+    }
+
+    // Measured from the directory on first write, then kept as a running total.
+    private synchronized void noteWritten(long bytes) {
+        if (diskBytes >= 0) {
+            diskBytes += bytes;
+            if (diskBytes <= MAX_DISK_BYTES) return;
+        }
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
+        if (files == null) return;
+        long total = 0;
+        for (File f : files) total += f.length();
+        if (total > MAX_DISK_BYTES) {
+            List<File> oldestFirst = Arrays.asList(files);
+            oldestFirst.sort(Comparator.comparingLong(File::lastModified));
+            for (File f : oldestFirst) {
+                if (total <= MAX_DISK_BYTES * 3 / 4) break;
+                long length = f.length();
+                if (f.delete()) total -= length;
+            }
+        }
+        diskBytes = total;
+    }
+
+    private File fileFor(String key) {
+        if (!dir.exists()) dir.mkdirs();
+        return new File(dir, CryptoUtils.urlSafeBase64(CryptoUtils.sha256(key)) + ".json");
+    }
+}
@@ -17,6 +17,8 @@ public class ContentFile implements Serializable {
     public List<FileHash> hashes;
     @SerializedName("fileDate")
     public String fileDate;
+    @SerializedName("fileLength")
+    public long fileLength;
     @SerializedName("downloadUrl")
     public String downloadUrl;
     @SerializedName("gameVersions")
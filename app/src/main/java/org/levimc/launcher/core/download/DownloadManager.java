@@ -0,0 +1,110 @@
+package org.levimc.launcher.core.download;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Shared download engine. Downloads run concurrently but draw their connections from
+ * one pool, so a queued download starts as soon as a running one stops using a
+ * connection. Enqueuing a destination that is already downloading attaches to it.
+ */
+public final class DownloadManager {
+
+    // Total parallel connections across all downloads.
+    static final int MAX_CONNECTIONS = 6;
+
+    private static volatile DownloadManager instance;
+
+    final OkHttpClient client;
+    final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "download");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Semaphore connections = new Semaphore(MAX_CONNECTIONS, true);
+    private final Map<String, DownloadTask> running = new HashMap<>();
+
+    public interface Listener {
+        void onProgress(long downloaded, long total);
+        void onComplete(File file);
+        void onError(Exception e);
+    }
+
+    private DownloadManager() {
+        this(new OkHttpClient.Builder()
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .build());
+    }
+
+    // Package-private so tests can run downloads against a local server.
+    DownloadManager(OkHttpClient client) {
+        this.client = client;
+    }
+
+    public static DownloadManager getInstance() {
+        if (instance == null) {
+            synchronized (DownloadManager.class) {
+                if (instance == null) instance = new DownloadManager();
+            }
+        }
+        return instance;
+    }
+
+    /** The client downloads use, for other launcher traffic to the same hosts. */
+    public OkHttpClient httpClient() {
+        return client;
+    }
+
+    /**
+     * Starts or queues {@code request}. A partial file left by an earlier attempt, even
+     * from a previous process, is resumed if the server still serves the same content.
+     * Listener methods run on a download thread.
+     */
+    public DownloadTask enqueue(DownloadRequest request, Listener listener) {
+        String key = request.destination.getAbsolutePath();
+        DownloadTask task;
+        synchronized (running) {
+            DownloadTask existing = running.get(key);
+            if (existing != null && existing.addListener(listener)) return existing;
+            // A cancelled task stays registered until it ends; its replacement waits for
+            // it before touching the part files.
+            task = new DownloadTask(this, request, listener, existing);
+            running.put(key, task);
+        }
+        executor.execute(task);
+        return task;
+    }
+
+    void finished(DownloadTask task) {
+        synchronized (running) {
+            running.remove(task.request.destination.getAbsolutePath(), task);
+        }
+    }
+
+    void acquireConnection() throws InterruptedException {
+        connections.acquire();
+    }
+
+    /** Takes a spare connection if one is free and no queued download is waiting for it. */
+    boolean tryAcquireConnection() {
+        try {
+            // Unlike tryAcquire(), the timed variant honours fairness towards queued downloads.
+            return connections.tryAcquire(0, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    void releaseConnection() {
+        connections.release();
+    }
+}
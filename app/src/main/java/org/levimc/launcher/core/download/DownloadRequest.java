@@ -0,0 +1,65 @@
+package org.levimc.launcher.core.download;
+
+import java.io.File;
+
+/**
+ * What to download and how to check it. Size and hash are optional; when given, the
+ * finished file is verified against them before it replaces {@link #destination}.
+ */
+public final class DownloadRequest {
+
+    final String url;
+    final File destination;
+    final long expectedSize;
+    final String hashAlgorithm;
+    final String expectedHash;
+    final int maxConnections;
+
+    private DownloadRequest(Builder builder) {
+        this.url = builder.url;
+        this.destination = builder.destination;
+        this.expectedSize = builder.expectedSize;
+        this.hashAlgorithm = builder.hashAlgorithm;
+        this.expectedHash = builder.expectedHash;
+        this.maxConnections = builder.maxConnections;
+    }
+
+    public File getDestination() {
+        return destination;
+    }
+
+    public static final class Builder {
+        private final String url;
+        private final File destination;
+        private long expectedSize = -1;
+        private String hashAlgorithm;
+        private String expectedHash;
+        private int maxConnections = 4;
+
+        public Builder(String url, File destination) {
+            this.url = url;
+            this.destination = destination;
+        }
+
+        public Builder expectedSize(long bytes) {
+            this.expectedSize = bytes;
+            return this;
+        }
+
+        /** @param algorithm a {@link java.security.MessageDigest} name such as "SHA-1"; {@code hex} is case-insensitive */
+        public Builder hash(String algorithm, String hex) {
+            this.hashAlgorithm = algorithm;
+            this.expectedHash = hex;
+            return this;
+        }
+
+        public Builder maxConnections(int connections) {
+            this.maxConnections = Math.max(1, connections);
+            return this;
+        }
+
+        public DownloadRequest build() {
+            return new DownloadRequest(this);
+        }
+    }
+}
@@ -0,0 +1,528 @@
+package org.levimc.launcher.core.download;
+
+import android.util.Log;
+
+import com.google.gson.Gson;
+
+import org.levimc.launcher.util.JsonIOUtils;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.BufferedSource;
+
+/**
+ * One download. The file is fetched into a preallocated {@code .part} file through
+ * positional {@link FileChannel} writes, split into byte ranges served by parallel
+ * connections. Idle connections take over half of the largest remaining range, so
+ * faster connections end up carrying more of the file. Range progress is checkpointed
+ * next to the part file, which lets a later attempt resume after a dropped connection
+ * or process death.
+ */
+public final class DownloadTask implements Runnable {
+
+    private static final String TAG = "DownloadTask";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Ranges are not split below this; a new connection would cost more than it saves.
+    private static final long MIN_SPLIT_BYTES = 1024 * 1024;
+    // Nor when the current connection will finish within this long at its own rate.
+    private static final long SPLIT_HORIZON_MS = 1000;
+    // A connection's first bytes arrive in a burst; its rate means nothing before this.
+    private static final long RATE_WINDOW_MS = 500;
+    private static final long CHECKPOINT_INTERVAL_MS = 1000;
+    private static final long PROGRESS_INTERVAL_MS = 200;
+    private static final int MAX_ATTEMPTS = 4;
+    private static final Gson GSON = new Gson();
+
+    /** A byte range [start, end); {@code next} is the first byte not yet written. */
+    static final class Segment {
+        long start;
+        volatile long next;
+        volatile long end;
+        transient boolean assigned;
+        transient long resumedAt;
+        transient long resumedFrom;
+
+        Segment(long start, long end) {
+            this.start = start;
+            this.next = start;
+            this.end = end;
+        }
+
+        long remaining() {
+            return Math.max(0, end - next);
+        }
+
+        /** Bytes per ms since this connection picked the range up, or 0 until it has run long enough to tell. */
+        double rate(long now) {
+            long elapsed = now - resumedAt;
+            return elapsed < RATE_WINDOW_MS ? 0 : (double) (next - resumedFrom) / elapsed;
+        }
+    }
+
+    /** Checkpoint written next to the part file. */
+    static final class State {
+        String url;
+        // Strong ETag or Last-Modified, sent as If-Range so a changed file is not spliced.
+        String validator;
+        long total;
+        boolean ranged;
+        List<Segment> segments = new ArrayList<>();
+    }
+
+    /** The server no longer serves what the part file holds. */
+    private static final class RemoteChangedException extends IOException {
+        RemoteChangedException(String message) {
+            super(message);
+        }
+    }
+
+    final DownloadRequest request;
+    private final DownloadManager manager;
+    // The task this one replaced for the same destination, which may still be using the part files.
+    private DownloadTask previous;
+    private final CountDownLatch ended = new CountDownLatch(1);
+    private final List<DownloadManager.Listener> listeners = new CopyOnWriteArrayList<>();
+    private final File partFile;
+    private final File stateFile;
+    private final Set<Call> calls = ConcurrentHashMap.newKeySet();
+    private final AtomicLong downloaded = new AtomicLong();
+    private volatile boolean cancelled;
+    private volatile IOException failure;
+    private boolean done;
+    private State state;
+    private FileChannel channel;
+    private long lastCheckpoint;
+    private long lastProgress;
+
+    DownloadTask(DownloadManager manager, DownloadRequest request, DownloadManager.Listener listener, DownloadTask previous) {
+        this.manager = manager;
+        this.request = request;
+        this.previous = previous;
+        this.partFile = new File(request.destination.getPath() + ".part");
+        this.stateFile = new File(request.destination.getPath() + ".part.json");
+        if (listener != null) listeners.add(listener);
+    }
+
+    /** Stops the transfer; the partial file is kept so a later enqueue can resume it. */
+    public void cancel() {
+        cancelled = true;
+        for (Call call : calls) call.cancel();
+    }
+
+    public long getDownloaded() {
+        return downloaded.get();
+    }
+
+    public long getTotal() {
+        State s = state;
+        return s != null ? s.total : -1;
+    }
+
+    synchronized boolean addListener(DownloadManager.Listener listener) {
+        if (done || cancelled) return false;
+        if (listener != null) listeners.add(listener);
+        return true;
+    }
+
+    @Override
+    public void run() {
+        Exception error = null;
+        try {
+            if (previous != null) {
+                previous.ended.await();
+                previous = null;
+            }
+            if (cancelled) throw new InterruptedIOException("Download cancelled");
+            manager.acquireConnection();
+            try {
+                try {
+                    download();
+                } catch (RemoteChangedException e) {
+                    Log.i(TAG, "Restarting " + request.url + ": " + e.getMessage());
+                    discardPartial();
+                    download();
+                }
+            } finally {
+                manager.releaseConnection();
+            }
+            verify();
+            File destination = request.destination;
+            if (destination.exists() && !destination.delete()) throw new IOException("Cannot replace " + destination);
+            if (!partFile.renameTo(destination)) throw new IOException("Cannot move download to " + destination);
+            stateFile.delete();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = new InterruptedIOException("Download interrupted");
+        } catch (Exception e) {
+            error = cancelled ? new InterruptedIOException("Download cancelled") : e;
+        }
+        synchronized (this) {
+            done = true;
+        }
+        ended.countDown();
+        manager.finished(this);
+        for (DownloadManager.Listener listener : listeners) {
+            if (error == null) listener.onComplete(request.destination);
+            else listener.onError(error);
+        }
+    }
+
+    private void download() throws IOException, InterruptedException {
+        state = loadState();
+        try (RandomAccessFile file = new RandomAccessFile(partFile, "rw")) {
+            channel = file.getChannel();
+            Response first = null;
+            Segment firstSegment = null;
+            if (state == null) {
+                first = probe(file);
+                firstSegment = claimFirst();
+            } else {
+                long written = 0;
+                for (Segment segment : state.segments) written += Math.min(segment.next, segment.end) - segment.start;
+                downloaded.set(written);
+            }
+            failure = null;
+
+            // The connection taken in run() serves the first range; extra ones join if free.
+            List<Future<?>> helpers = new ArrayList<>();
+            int wanted = state.ranged ? Math.min(request.maxConnections, DownloadManager.MAX_CONNECTIONS) : 1;
+            for (int i = 1; i < wanted && manager.tryAcquireConnection(); i++) {
+                helpers.add(manager.executor.submit(() -> {
+                    try {
+                        work(null, null);
+                    } finally {
+                        manager.releaseConnection();
+                    }
+                }));
+            }
+            work(firstSegment, first);
+            for (Future<?> helper : helpers) {
+                try {
+                    helper.get();
+                } catch (ExecutionException e) {
+                    Log.w(TAG, "Download worker failed", e.getCause());
+                }
+            }
+            if (failure != null) throw failure;
+            if (cancelled) throw new InterruptedIOException("Download cancelled");
+            checkpoint(true);
+        } finally {
+            channel = null;
+        }
+    }
+
+    /**
+     * Opens the first connection with an open-ended range. Its response tells whether
+     * the server supports ranges and how large the file is, and its body becomes the
+     * first segment so no request is spent on probing alone.
+     */
+    private Response probe(RandomAccessFile file) throws IOException {
+        Response response = execute(0, -1, null);
+        State fresh = new State();
+        fresh.url = request.url;
+        fresh.validator = validatorOf(response);
+        if (response.code() == 206) {
+            fresh.total = totalFromContentRange(response.header("Content-Range"));
+            fresh.ranged = fresh.total > 0;
+        } else {
+            fresh.total = response.body().contentLength();
+            fresh.ranged = false;
+        }
+        if (request.expectedSize > 0 && fresh.total > 0 && fresh.total != request.expectedSize) {
+            response.close();
+            throw new IOException("Server reports " + fresh.total + " bytes, expected " + request.expectedSize);
+        }
+        if (fresh.total > 0) {
+            file.setLength(fresh.total);
+        } else {
+            file.setLength(0);
+        }
+        fresh.segments.add(new Segment(0, fresh.total > 0 ? fresh.total : Long.MAX_VALUE));
+        state = fresh;
+        downloaded.set(0);
+        checkpoint(true);
+        return response;
+    }
+
+    /** Downloads ranges until none is left to take, starting with {@code open}'s range if given. */
+    private void work(Segment segment, Response open) {
+        if (segment == null) segment = nextSegment();
+        try {
+            while (segment != null && !cancelled && failure == null) {
+                transfer(segment, open);
+                open = null;
+                segment = nextSegment();
+            }
+        } catch (IOException e) {
+            if (failure == null) failure = e;
+            for (Call call : calls) call.cancel();
+        } finally {
+            if (open != null) open.close();
+        }
+    }
+
+    private void transfer(Segment segment, Response open) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        int attempt = 0;
+        while (segment.next < segment.end) {
+            if (cancelled) throw new InterruptedIOException("Download cancelled");
+            try {
+                Response response = open;
+                open = null;
+                if (response == null) {
+                    if (!state.ranged && segment.next > segment.start) {
+                        // Without range support the only way to resume is from the start.
+                        downloaded.addAndGet(segment.start - segment.next);
+                        segment.next = segment.start;
+                    }
+                    long last = segment.end == Long.MAX_VALUE ? -1 : segment.end - 1;
+                    response = execute(segment.next, last, state.validator);
+                    if (state.ranged && response.code() != 206) {
+                        response.close();
+                        throw new RemoteChangedException("server answered " + response.code() + " to a range request");
+                    }
+                }
+                try (Response r = response) {
+                    stream(r.body().source(), segment, buffer);
+                }
+                attempt = 0;
+            } catch (RemoteChangedException e) {
+                throw e;
+            } catch (IOException e) {
+                if (cancelled || ++attempt >= MAX_ATTEMPTS) throw e;
+                Log.w(TAG, "Retrying range " + segment.next + "-" + segment.end + " of " + request.url, e);
+                try {
+                    Thread.sleep(500L << attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Download interrupted");
+                }
+            }
+        }
+    }
+
+    private void stream(BufferedSource source, Segment segment, ByteBuffer buffer) throws IOException {
+        synchronized (this) {
+            segment.resumedAt = System.currentTimeMillis();
+            segment.resumedFrom = segment.next;
+        }
+        while (true) {
+            long pos = segment.next;
+            long end = segment.end;
+            if (pos >= end) return;
+            buffer.clear();
+            if (end - pos < buffer.capacity()) buffer.limit((int) (end - pos));
+            int read = source.read(buffer);
+            if (read == -1) {
+                if (end == Long.MAX_VALUE) {
+                    // Length was unknown; the end of the body is the end of the file.
+                    synchronized (this) {
+                        segment.end = pos;
+                        state.total = pos;
+                    }
+                    return;
+                }
+                throw new EOFException("Connection closed at byte " + pos + " of " + end);
+            }
+            buffer.flip();
+            long at = pos;
+            while (buffer.hasRemaining()) at += channel.write(buffer, at);
+            // A split may have moved the end below what was just written; those bytes
+            // are identical to what the new owner writes, but are only counted once.
+            long counted = Math.min(at, segment.end) - Math.min(pos, segment.end);
+            segment.next = at;
+            onProgress(counted);
+            if (cancelled) throw new InterruptedIOException("Download cancelled");
+        }
+    }
+
+    private synchronized Segment claimFirst() {
+        Segment first = state.segments.get(0);
+        first.assigned = true;
+        return first;
+    }
+
+    /** An unclaimed range, or the back half of the range with the most work left. */
+    private synchronized Segment nextSegment() {
+        for (Segment segment : state.segments) {
+            if (!segment.assigned && segment.next < segment.end) {
+                segment.assigned = true;
+                return segment;
+            }
+        }
+        if (!state.ranged) return null;
+        long now = System.currentTimeMillis();
+        Segment largest = null;
+        for (Segment segment : state.segments) {
+            if (largest == null || segment.remaining() > largest.remaining()) largest = segment;
+        }
+        if (largest == null) return null;
+        long remaining = largest.remaining();
+        if (remaining < 2 * MIN_SPLIT_BYTES || remaining < largest.rate(now) * SPLIT_HORIZON_MS) return null;
+        long mid = largest.next + remaining / 2;
+        Segment split = new Segment(mid, largest.end);
+        largest.end = mid;
+        split.assigned = true;
+        state.segments.add(split);
+        return split;
+    }
+
+    private void onProgress(long bytes) throws IOException {
+        long total = downloaded.addAndGet(bytes);
+        long now = System.currentTimeMillis();
+        boolean report;
+        synchronized (this) {
+            report = now - lastProgress >= PROGRESS_INTERVAL_MS;
+            if (report) lastProgress = now;
+        }
+        if (report) {
+            for (DownloadManager.Listener listener : listeners) listener.onProgress(total, state.total);
+        }
+        checkpoint(false);
+    }
+
+    /**
+     * Persists range progress. The JSON snapshot is taken before the channel is forced,
+     * so every byte it claims is on disk by the time it is written.
+     */
+    private void checkpoint(boolean force) throws IOException {
+        String json;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (!force && now - lastCheckpoint < CHECKPOINT_INTERVAL_MS) return;
+            lastCheckpoint = now;
+            json = GSON.toJson(state);
+        }
+        if (!state.ranged) return;
+        channel.force(false);
+        JsonIOUtils.writeAtomic(stateFile, json);
+    }
+
+    private State loadState() {
+        if (!partFile.exists()) return null;
+        String json = JsonIOUtils.read(stateFile);
+        State loaded = null;
+        try {
+            if (json != null) loaded = GSON.fromJson(json, State.class);
+        } catch (Exception e) {
+            Log.w(TAG, "Discarding unreadable download state " + stateFile, e);
+        }
+        if (loaded == null || !loaded.ranged || !request.url.equals(loaded.url)
+                || loaded.segments == null || loaded.segments.isEmpty()
+                || loaded.total <= 0 || partFile.length() != loaded.total
+                || (request.expectedSize > 0 && loaded.total != request.expectedSize)) {
+            discardPartial();
+            return null;
+        }
+        return loaded;
+    }
+
+    private void discardPartial() {
+        stateFile.delete();
+        partFile.delete();
+        state = null;
+    }
+
+    private void verify() throws IOException {
+        long length = partFile.length();
+        long total = state.total;
+        // A wrong size would fail every resume the same way, so start over next time.
+        if (total > 0 && length != total) {
+            discardPartial();
+            throw new IOException("Downloaded " + length + " bytes, expected " + total);
+        }
+        if (request.expectedSize > 0 && length != request.expectedSize) {
+            discardPartial();
+            throw new IOException("Downloaded " + length + " bytes, expected " + request.expectedSize);
+        }
+        if (request.hashAlgorithm == null || request.expectedHash == null) return;
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(request.hashAlgorithm);
+        } catch (Exception e) {
+            throw new IOException("Unsupported hash " + request.hashAlgorithm, e);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(partFile, "r")) {
+            FileChannel in = file.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        String actual = toHex(digest.digest());
+        if (!actual.equalsIgnoreCase(request.expectedHash)) {
+            discardPartial();
+            throw new IOException(request.hashAlgorithm + " mismatch: got " + actual + ", expected " + request.expectedHash.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private Response execute(long from, long toInclusive, String validator) throws IOException {
+        // A Range header also stops OkHttp from asking for gzip, which would break offsets.
+        Request.Builder builder = new Request.Builder()
+                .url(request.url)
+                .header("Range", "bytes=" + from + "-" + (toInclusive >= 0 ? toInclusive : ""));
+        if (validator != null) builder.header("If-Range", validator);
+        Call call = manager.client.newCall(builder.build());
+        // Kept until the task ends so cancel() reaches every open connection.
+        calls.add(call);
+        if (cancelled) call.cancel();
+        Response response = call.execute();
+        if (response.code() == 416) {
+            response.close();
+            throw new RemoteChangedException("range " + from + "- is no longer satisfiable");
+        }
+        if (!response.isSuccessful()) {
+            response.close();
+            throw new IOException("Unexpected code " + response.code() + " for " + request.url);
+        }
+        return response;
+    }
+
+    private static String validatorOf(Response response) {
+        String etag = response.header("ETag");
+        if (etag != null && !etag.startsWith("W/")) return etag;
+        return response.header("Last-Modified");
+    }
+
+    private static long totalFromContentRange(String contentRange) {
+        // "bytes 0-1023/4096"; the total may be "*" when unknown.
+        if (contentRange == null) return -1;
+        int slash = contentRange.lastIndexOf('/');
+        if (slash < 0) return -1;
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,194 @@
+package org.levimc.launcher.core.logging;
+
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Single reader of this process's logcat. Lines are split straight from the raw byte
+ * stream and fanned out to the on-disk {@link LogSegmentStore} (when persistence is on)
+ * and to live listeners such as the logcat overlay. logcat runs only while something
+ * consumes it.
+ */
+public final class LogCapture {
+
+    public interface LineListener {
+        /** Called on the capture thread; {@code buf} is reused after the call returns. */
+        void onLine(byte[] buf, int off, int len);
+
+        /** Called after each batch of lines that arrived in one read. */
+        default void onBatchEnd() {}
+    }
+
+    private static final String TAG = "LogCapture";
+    private static final int READ_CHUNK = 16 * 1024;
+    private static volatile LogCapture instance;
+
+    private final LogSegmentStore store;
+    // Guards the store writer and the listener list against the capture thread.
+    private final Object lock = new Object();
+    private final List<LineListener> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService attachExecutor = Executors.newSingleThreadExecutor();
+    private volatile boolean persistent;
+    private Process logcatProc;
+    private Thread readerThread;
+
+    private LogCapture(Context context) {
+        store = new LogSegmentStore(new File(context.getFilesDir(), "logcat"));
+    }
+
+    public static void init(Context context, boolean persistent) {
+        if (instance == null) {
+            synchronized (LogCapture.class) {
+                if (instance == null) instance = new LogCapture(context.getApplicationContext());
+            }
+        }
+        instance.setPersistent(persistent);
+    }
+
+    public static LogCapture getInstance() { return instance; }
+
+    public LogSegmentStore getStore() { return store; }
+
+    public void setPersistent(boolean enabled) {
+        synchronized (lock) {
+            persistent = enabled;
+            if (!enabled) store.close();
+        }
+        updateRunning();
+    }
+
+    /**
+     * Subscribes to live lines. When {@code backfillMillis} is positive the listener first
+     * receives the stored lines from that far back, with no gap or overlap before the
+     * live ones. Registration happens off the calling thread.
+     */
+    public void addListener(LineListener listener, long backfillMillis) {
+        attachExecutor.execute(() -> {
+            synchronized (lock) {
+                if (listeners.contains(listener)) return;
+                if (backfillMillis > 0 && persistent) {
+                    flushLocked();
+                    long now = System.currentTimeMillis();
+                    store.readRange(now - backfillMillis, Long.MAX_VALUE, listener::onLine);
+                    listener.onBatchEnd();
+                }
+                listeners.add(listener);
+            }
+            updateRunning();
+        });
+    }
+
+    public void removeListener(LineListener listener) {
+        attachExecutor.execute(() -> {
+            listeners.remove(listener);
+            updateRunning();
+        });
+    }
+
+    /** Makes everything captured so far readable from the store, e.g. before a crash report. */
+    public void flush() {
+        synchronized (lock) {
+            flushLocked();
+        }
+    }
+
+    private void flushLocked() {
+        try {
+            store.sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Log store flush failed", e);
+        }
+    }
+
+    private synchronized void updateRunning() {
+        boolean wanted = persistent || !listeners.isEmpty();
+        boolean running = readerThread != null && readerThread.isAlive();
+        if (wanted && !running) {
+            startReader();
+        } else if (!wanted && running) {
+            stopReader();
+        }
+    }
+
+    private void startReader() {
+        readerThread = new Thread(() -> {
+            try {
+                List<String> cmd = new ArrayList<>();
+                cmd.add("logcat");
+                cmd.add("-v"); cmd.add("threadtime");
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                    cmd.add("--pid");
+                    cmd.add(String.valueOf(android.os.Process.myPid()));
+                }
+                logcatProc = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+                readLines(logcatProc.getInputStream());
+            } catch (Exception e) {
+                Log.w(TAG, "logcat capture stopped", e);
+            }
+        }, "LogcatCapture");
+        readerThread.setPriority(Thread.MIN_PRIORITY);
+        readerThread.start();
+    }
+
+    private void stopReader() {
+        try {
+            if (logcatProc != null) logcatProc.destroy();
+            if (readerThread != null && readerThread.isAlive()) readerThread.interrupt();
+        } catch (Throwable ignored) {}
+        logcatProc = null;
+        readerThread = null;
+    }
+
+    private void readLines(InputStream in) throws IOException {
+        byte[] buf = new byte[READ_CHUNK];
+        int filled = 0;
+        int n;
+        while ((n = in.read(buf, filled, buf.length - filled)) > 0) {
+            filled += n;
+            int lineStart = 0;
+            synchronized (lock) {
+                for (int i = 0; i < filled; i++) {
+                    if (buf[i] != '\n') continue;
+                    int end = i > lineStart && buf[i - 1] == '\r' ? i - 1 : i;
+                    dispatch(buf, lineStart, end - lineStart);
+                    lineStart = i + 1;
+                }
+                if (lineStart == 0 && filled == buf.length) {
+                    // A line longer than the read buffer; keep its head and drop the rest.
+                    dispatch(buf, 0, filled);
+                    filled = 0;
+                } else if (lineStart > 0) {
+                    System.arraycopy(buf, lineStart, buf, 0, filled - lineStart);
+                    filled -= lineStart;
+                }
+                // Sync the store only when the pipe is drained: a burst is compressed as one
+                // block, and a quiet stream is on disk before the next line can be a crash.
+                if (persistent && in.available() == 0) flushLocked();
+                for (LineListener listener : listeners) listener.onBatchEnd();
+            }
+        }
+    }
+
+    private void dispatch(byte[] buf, int off, int len) {
+        if (persistent) {
+            try {
+                store.append(buf, off, len);
+            } catch (IOException e) {
+                Log.w(TAG, "Log store write failed, disabling persistence", e);
+                persistent = false;
+                store.close();
+            }
+        }
+        for (LineListener listener : listeners) listener.onLine(buf, off, len);
+    }
+}
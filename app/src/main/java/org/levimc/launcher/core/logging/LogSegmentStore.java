@@ -0,0 +1,230 @@
+package org.levimc.launcher.core.logging;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Rotating on-disk log store. Lines go into gzip segment files named after the time
+ * the segment was opened, which doubles as the time index: finding the lines around a
+ * moment only decompresses the one or two segments that cover it.
+ * <p>
+ * Writing is not thread safe; {@link LogCapture} owns the writer. Reads open their own
+ * streams and may run on any thread while the current segment is being written.
+ */
+public final class LogSegmentStore {
+
+    public interface LineSink {
+        void onLine(byte[] buf, int off, int len);
+    }
+
+    private static final String PREFIX = "seg-";
+    private static final String SUFFIX = ".log.gz";
+    private static final long MAX_SEGMENT_RAW_BYTES = 4L * 1024 * 1024;
+    private static final long MAX_TOTAL_BYTES = 32L * 1024 * 1024;
+    private static final int STAGING_BYTES = 64 * 1024;
+    private static final int GZIP_BUFFER = 32 * 1024;
+    private static final int READ_CHUNK = 32 * 1024;
+
+    private final File dir;
+    private final ByteBuffer staging = ByteBuffer.allocate(STAGING_BYTES);
+    private GZIPOutputStream out;
+    private long segmentRawBytes;
+    private long lastSegmentStart;
+    private boolean dirty;
+
+    public LogSegmentStore(File dir) {
+        this.dir = dir;
+    }
+
+    /** Appends one line; a newline is added. Opens or rotates the segment as needed. */
+    void append(byte[] buf, int off, int len) throws IOException {
+        if (out == null) openSegment();
+        if (staging.remaining() < len + 1) drainStaging();
+        if (len + 1 > staging.capacity()) {
+            out.write(buf, off, len);
+            out.write('\n');
+        } else {
+            staging.put(buf, off, len).put((byte) '\n');
+        }
+        segmentRawBytes += len + 1;
+        dirty = true;
+        if (segmentRawBytes >= MAX_SEGMENT_RAW_BYTES) {
+            closeSegment();
+            prune();
+        }
+    }
+
+    /** Pushes staged lines through the compressor and sync-flushes them to the file. */
+    void sync() throws IOException {
+        if (out == null || !dirty) return;
+        drainStaging();
+        out.flush();
+        dirty = false;
+    }
+
+    void close() {
+        try {
+            closeSegment();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /** Segment files, oldest first. */
+    public List<File> segments() {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null) return new ArrayList<>();
+        Arrays.sort(files, (a, b) -> Long.compare(segmentStart(a), segmentStart(b)));
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    public static long segmentStart(File segment) {
+        String name = segment.getName();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Streams the stored lines logged between {@code fromMillis} and {@code toMillis}
+     * to {@code sink}, oldest first. Lines without a timestamp of their own take the
+     * time of the line before them. A segment cut short by a crash is read up to
+     * its last complete flush.
+     */
+    public void readRange(long fromMillis, long toMillis, LineSink sink) {
+        List<File> files = segments();
+        for (int k = 0; k < files.size(); k++) {
+            long start = segmentStart(files.get(k));
+            long end = k + 1 < files.size() ? segmentStart(files.get(k + 1)) : Long.MAX_VALUE;
+            if (start > toMillis || end <= fromMillis) continue;
+            if (!readSegment(files.get(k), start, fromMillis, toMillis, sink)) return;
+        }
+    }
+
+    private boolean readSegment(File file, long segmentStart, long fromMillis, long toMillis, LineSink sink) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(segmentStart);
+        int year = calendar.get(Calendar.YEAR);
+        long time = segmentStart;
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)), READ_CHUNK)) {
+            byte[] buf = new byte[READ_CHUNK];
+            int filled = 0;
+            int n;
+            while (true) {
+                try {
+                    n = in.read(buf, filled, buf.length - filled);
+                } catch (EOFException e) {
+                    // Segment still being written or cut off by a crash.
+                    break;
+                }
+                if (n <= 0) break;
+                filled += n;
+                int lineStart = 0;
+                for (int i = 0; i < filled; i++) {
+                    if (buf[i] != '\n') continue;
+                    long stamp = parseTime(buf, lineStart, i - lineStart, calendar, year, segmentStart);
+                    if (stamp >= 0) time = stamp;
+                    if (time > toMillis) return false;
+                    if (time >= fromMillis) sink.onLine(buf, lineStart, i - lineStart);
+                    lineStart = i + 1;
+                }
+                if (lineStart == 0 && filled == buf.length) {
+                    filled = 0;
+                } else {
+                    System.arraycopy(buf, lineStart, buf, 0, filled - lineStart);
+                    filled -= lineStart;
+                }
+            }
+        } catch (IOException ignored) {
+            // Deleted by rotation while listing, or unreadable; skip it.
+        }
+        return true;
+    }
+
+    /** Parses the {@code MM-DD HH:MM:SS.mmm} prefix of a threadtime line, or returns -1. */
+    private static long parseTime(byte[] b, int off, int len, Calendar calendar, int year, long segmentStart) {
+        if (len < 18 || b[off + 2] != '-' || b[off + 5] != ' ' || b[off + 8] != ':' || b[off + 11] != ':' || b[off + 14] != '.') {
+            return -1;
+        }
+        int month = num(b, off, 2), day = num(b, off + 3, 2);
+        int hour = num(b, off + 6, 2), minute = num(b, off + 9, 2), second = num(b, off + 12, 2);
+        int millis = num(b, off + 15, 3);
+        if ((month | day | hour | minute | second | millis) < 0) return -1;
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        calendar.set(Calendar.MILLISECOND, millis);
+        long time = calendar.getTimeInMillis();
+        // logcat omits the year; a segment opened in late December can hold January lines.
+        if (time < segmentStart - 86_400_000L) {
+            calendar.set(Calendar.YEAR, year + 1);
+            time = calendar.getTimeInMillis();
+        }
+        return time;
+    }
+
+    private static int num(byte[] b, int off, int digits) {
+        int value = 0;
+        for (int i = 0; i < digits; i++) {
+            int d = b[off + i] - '0';
+            if (d < 0 || d > 9) return -1;
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private void openSegment() throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        long start = Math.max(System.currentTimeMillis(), lastSegmentStart + 1);
+        lastSegmentStart = start;
+        File file = new File(dir, PREFIX + start + SUFFIX);
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        out = new GZIPOutputStream(Channels.newOutputStream(channel), GZIP_BUFFER, true);
+        segmentRawBytes = 0;
+        prune();
+    }
+
+    private void drainStaging() throws IOException {
+        if (staging.position() == 0) return;
+        out.write(staging.array(), 0, staging.position());
+        staging.clear();
+    }
+
+    private void closeSegment() throws IOException {
+        if (out == null) return;
+        try {
+            drainStaging();
+            out.close();
+        } finally {
+            out = null;
+            dirty = false;
+            staging.clear();
+        }
+    }
+
+    /** Deletes the oldest finished segments until the store fits its size cap. */
+    private void prune() {
+        List<File> files = segments();
+        long total = 0;
+        for (File f : files) total += f.length();
+        for (int k = 0; k < files.size() - 1 && total > MAX_TOTAL_BYTES; k++) {
+            long size = files.get(k).length();
+            if (files.get(k).delete()) total -= size;
+        }
+    }
+}
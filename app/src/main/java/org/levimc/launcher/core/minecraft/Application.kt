@@ -7,6 +7,7 @@ import android.os.Environment
 import android.util.Log
 import androidx.preference.PreferenceManager
 import org.levimc.launcher.BuildConfig
+import org.levimc.launcher.core.logging.LogCapture
 import org.levimc.launcher.settings.FeatureSettings
 import xcrash.ICrashCallback
 import xcrash.XCrash
@@ -21,10 +22,12 @@ class LauncherApplication : Application() {
         super.onCreate()
         context = applicationContext
         FeatureSettings.init(applicationContext)
+        LogCapture.init(this, FeatureSettings.getInstance().isLogCaptureEnabled)
         LogcatOverlayManager.init(this)
         preferences = PreferenceManager.getDefaultSharedPreferences(this)
 
         val callback: ICrashCallback = ICrashCallback { logPath, emergency ->
+            LogCapture.getInstance()?.flush()
             try {
                 val i = Intent(applicationContext, CrashActivity::class.java).apply {
                     putExtra("LOG_PATH", logPath)
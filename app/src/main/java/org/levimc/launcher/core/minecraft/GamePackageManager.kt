@@ -341,15 +341,48 @@ class GamePackageManager private constructor(private val context: Context, priva
 
     fun loadAllLibraries(excludeLibs: Set<String> = emptySet()) {
         val allLibs = requiredLibs + systemLoadedLibs
-        allLibs.forEach { lib ->
-            val libName = lib.removePrefix("lib").removeSuffix(".so")
-            if (excludeLibs.contains(libName) || excludeLibs.contains(lib)) {
-                return@forEach
+        val libNames = allLibs.map { it.removePrefix("lib").removeSuffix(".so") }.filterNot { libName ->
+            excludeLibs.contains(libName) || excludeLibs.contains("lib$libName.so")
+        }
+        loadLibraries(libNames)
+    }
+
+    /**
+     * Loads [names] with their files warmed in parallel first. Libraries extracted to
+     * [nativeLibDir] are loaded in DT_NEEDED order, system libraries follow in the given order.
+     */
+    fun loadLibraries(names: List<String>): Boolean {
+        val fileLibs = mutableListOf<File>()
+        val systemLibs = mutableListOf<String>()
+        names.forEach { name ->
+            val fileName = if (name.startsWith("lib")) name else "lib$name.so"
+            if (systemLoadedLibs.contains(fileName)) {
+                systemLibs.add(name)
+            } else {
+                // Warm exactly the file loadLibrary() will resolve and load.
+                fileLibs.add(resolveLibraryPath(name)?.let(::File) ?: File(nativeLibDir, fileName))
             }
+        }
+
+        NativeLibraryPreloader.warm(fileLibs)
+
+        var allLoaded = true
+        val ordered = NativeLibraryPreloader.orderByDependencies(fileLibs.filter { it.exists() })
+        val missing = fileLibs.filterNot { it.exists() }
+        (ordered + missing).forEach { lib ->
+            val libName = lib.name.removePrefix("lib").removeSuffix(".so")
+            if (!loadLibrary(libName)) {
+                Log.e(TAG, "Failed to load required library $libName")
+                allLoaded = false
+            }
+        }
+        systemLibs.forEach { libName ->
             if (!loadLibrary(libName)) {
                 Log.e(TAG, "Failed to load required library $libName")
+                allLoaded = false
             }
         }
+        return allLoaded
     }
 
     fun getAssets(): AssetManager = assetManager
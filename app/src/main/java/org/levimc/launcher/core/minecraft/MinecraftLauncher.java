@@ -13,11 +13,13 @@ import org.levimc.launcher.core.mods.ModNativeLoader;
 import org.levimc.launcher.core.versions.GameVersion;
 import org.levimc.launcher.settings.FeatureSettings;
 import org.levimc.launcher.ui.dialogs.LoadingDialog;
+import org.levimc.launcher.util.WriteBehindStore;
 import android.util.Log;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 public class MinecraftLauncher {
     private static final String TAG = "MinecraftLauncher";
@@ -127,9 +129,11 @@ public class MinecraftLauncher {
                 sourceIntent.putExtra("MINECRAFT_VERSION", version.versionCode);
                 sourceIntent.putExtra("MINECRAFT_VERSION_DIR", version.directoryName);
 
+                ModNativeLoader.StagedMods stagedMods =
+                        ModNativeLoader.stageEnabledSoMods(ModManager.getInstance(), context.getCacheDir());
+
                 if (shouldLoadHttpClient(version)) {
-                    gameManager.loadLibrary("c++_shared");
-                    gameManager.loadLibrary("HttpClient.Android");
+                    gameManager.loadLibraries(Arrays.asList("c++_shared", "HttpClient.Android"));
                 }
 
                 if (shouldLoadMaesdk(version)) {
@@ -143,15 +147,16 @@ public class MinecraftLauncher {
                     }
                     gameManager.loadAllLibraries(excludeLibs);
                 } else {
+                    List<String> libs = new ArrayList<>();
                     if (!shouldLoadHttpClient(version)) {
-                        gameManager.loadLibrary("c++_shared");
+                        libs.add("c++_shared");
                     }
-                    gameManager.loadLibrary("fmod");
-                    gameManager.loadLibrary("MediaDecoders_Android");
-                    gameManager.loadLibrary("minecraftpe");
+                    libs.addAll(Arrays.asList("fmod", "MediaDecoders_Android", "minecraftpe"));
+                    gameManager.loadLibraries(libs);
                 }
 
-                ModNativeLoader.loadEnabledSoMods(ModManager.getInstance(), context.getCacheDir());
+                ModNativeLoader.loadStagedSoMods(stagedMods);
+                WriteBehindStore.flush();
 
                 activity.runOnUiThread(() -> {
                     dismissLoading();
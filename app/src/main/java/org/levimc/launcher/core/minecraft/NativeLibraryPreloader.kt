@@ -0,0 +1,84 @@
+package org.levimc.launcher.core.minecraft
+
+import android.util.Log
+import java.io.File
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.AtomicInteger
+
+object NativeLibraryPreloader {
+    private const val TAG = "NativeLibraryPreloader"
+
+    private val executor: ExecutorService by lazy {
+        val threads = Runtime.getRuntime().availableProcessors().coerceIn(2, 4)
+        val counter = AtomicInteger()
+        Executors.newFixedThreadPool(threads, ThreadFactory { runnable ->
+            Thread(runnable, "lib-preload-${counter.incrementAndGet()}").apply { isDaemon = true }
+        })
+    }
+
+    /**
+     * Starts reading every file into the page cache on a background pool, so the I/O
+     * overlaps with the dlopen calls that follow instead of happening page by page
+     * inside them. Nothing waits for it; the returned futures can be ignored.
+     */
+    fun warm(files: Collection<File>): List<Future<*>> {
+        return files.filter { it.isFile && it.length() > 0 }.map { file ->
+            executor.submit {
+                try {
+                    if (!nativeWarmFile(file.absolutePath)) {
+                        Log.w(TAG, "Readahead failed for ${file.name}")
+                    }
+                } catch (e: UnsatisfiedLinkError) {
+                    Log.w(TAG, "levi_init not available, skipping readahead: ${e.message}")
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the DT_NEEDED sonames of [file], or null when the ELF can't be parsed.
+     */
+    fun readNeeded(file: File): List<String>? {
+        return try {
+            nativeReadNeeded(file.absolutePath)?.toList()
+        } catch (e: UnsatisfiedLinkError) {
+            Log.w(TAG, "levi_init not available, skipping DT_NEEDED scan: ${e.message}")
+            null
+        }
+    }
+
+    /**
+     * Orders [files] so that each library comes after the ones it needs from the same set.
+     * Libraries without a relation keep their given order; cycles fall back to that order too.
+     */
+    fun orderByDependencies(files: List<File>): List<File> {
+        val byName = files.associateBy { it.name }
+        val needed = files.associate { file ->
+            file.name to (readNeeded(file)?.filter { it != file.name && byName.containsKey(it) } ?: emptyList())
+        }
+
+        val ordered = LinkedHashMap<String, File>()
+        val visiting = HashSet<String>()
+
+        fun visit(name: String) {
+            if (ordered.containsKey(name) || !visiting.add(name)) {
+                return
+            }
+            needed[name]?.forEach(::visit)
+            visiting.remove(name)
+            byName[name]?.let { ordered[name] = it }
+        }
+
+        files.forEach { visit(it.name) }
+        return ordered.values.toList()
+    }
+
+    @JvmStatic
+    private external fun nativeReadNeeded(path: String): Array<String>?
+
+    @JvmStatic
+    private external fun nativeWarmFile(path: String): Boolean
+}
@@ -8,6 +8,7 @@ import android.graphics.Color;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.ParcelFileDescriptor;
 import android.provider.OpenableColumns;
 import android.util.Log;
 
@@ -23,8 +24,8 @@ import org.levimc.launcher.core.versions.VersionManager;
 import org.levimc.launcher.ui.dialogs.CustomAlertDialog;
 import org.levimc.launcher.ui.views.MainViewModel;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -32,12 +33,26 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 
 public class FileHandler {
     private static final String TAG = "FileHandler";
@@ -47,6 +62,11 @@ public class FileHandler {
     private static final String DEFAULT_MOD_AUTHOR = "Unknown";
     private static final String DEFAULT_MOD_ICON = "";
     private static final String DEFAULT_MOD_VERSION = "1.0.0";
+    private static final String IMPORTING_MARKER = ".importing";
+    private static final ExecutorService IMPORT_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())));
+    // Coordinators block on overwrite dialogs and worker results, so they must not share the worker pool.
+    private static final ExecutorService IMPORT_COORDINATOR = Executors.newCachedThreadPool();
     private static final Gson GSON = new GsonBuilder()
             .setPrettyPrinting()
             .disableHtmlEscaping()
@@ -56,15 +76,61 @@ public class FileHandler {
     private final MainViewModel modManager;
     private String targetPath;
 
-    private static final class PreparedImport {
-        final String targetId;
-        final File packageDir;
-        final File cleanupRoot;
+    private static final class ZipSource implements Closeable {
+        final ZipFile zipFile;
+        final ParcelFileDescriptor descriptor;
+        final File tempFile;
+
+        ZipSource(ZipFile zipFile, ParcelFileDescriptor descriptor, File tempFile) {
+            this.zipFile = zipFile;
+            this.descriptor = descriptor;
+            this.tempFile = tempFile;
+        }
+
+        @Override
+        public void close() {
+            try {
+                zipFile.close();
+            } catch (IOException ignored) {
+            }
+            if (descriptor != null) {
+                try {
+                    descriptor.close();
+                } catch (IOException ignored) {
+                }
+            }
+            if (tempFile != null) {
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+            }
+        }
+    }
 
-        PreparedImport(String targetId, File packageDir, File cleanupRoot) {
+    private static final class ImportPlan implements Closeable {
+        final Uri uri;
+        final String fileName;
+        final String targetId;
+        final JsonObject manifest;
+        final ZipSource zip;
+        final String rootPrefix;
+        final Map<String, ZipEntry> zipEntries;
+
+        ImportPlan(Uri uri, String fileName, String targetId, JsonObject manifest,
+                   ZipSource zip, String rootPrefix, Map<String, ZipEntry> zipEntries) {
+            this.uri = uri;
+            this.fileName = fileName;
             this.targetId = targetId;
-            this.packageDir = packageDir;
-            this.cleanupRoot = cleanupRoot;
+            this.manifest = manifest;
+            this.zip = zip;
+            this.rootPrefix = rootPrefix;
+            this.zipEntries = zipEntries;
+        }
+
+        @Override
+        public void close() {
+            if (zip != null) {
+                zip.close();
+            }
         }
     }
 
@@ -112,15 +178,19 @@ public class FileHandler {
             return;
         }
 
-        new Thread(() -> {
+        IMPORT_COORDINATOR.execute(() -> {
+            List<Future<Boolean>> classifications = new ArrayList<>();
+            for (Uri uri : supportedUris) {
+                classifications.add(IMPORT_EXECUTOR.submit(() -> needsMetadataInput(uri, resolveFileName(uri))));
+            }
+
             List<Uri> packagedUris = new ArrayList<>();
             List<Uri> bareUris = new ArrayList<>();
-            for (Uri uri : supportedUris) {
-                String fileName = resolveFileName(uri);
-                if (needsMetadataInput(uri, fileName)) {
-                    bareUris.add(uri);
+            for (int i = 0; i < supportedUris.size(); i++) {
+                if (awaitQuietly(classifications.get(i), true)) {
+                    bareUris.add(supportedUris.get(i));
                 } else {
-                    packagedUris.add(uri);
+                    packagedUris.add(supportedUris.get(i));
                 }
             }
 
@@ -142,7 +212,7 @@ public class FileHandler {
                     showNextMetadataDialog(bareUris, 0, callback);
                 }
             });
-        }).start();
+        });
     }
 
     private boolean needsMetadataInput(Uri uri, String fileName) {
@@ -157,16 +227,13 @@ public class FileHandler {
     }
 
     private boolean peekZipForManifest(Uri uri) {
-        try (InputStream raw = context.getContentResolver().openInputStream(uri);
-             ZipInputStream zis = new ZipInputStream(raw)) {
-            if (raw == null) return false;
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                String name = entry.getName();
+        try (ZipSource zip = openZip(uri)) {
+            Enumeration<? extends ZipEntry> entries = zip.zipFile.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
                 if (name != null && (name.equals(MANIFEST_FILE_NAME) || name.endsWith("/" + MANIFEST_FILE_NAME))) {
                     return true;
                 }
-                zis.closeEntry();
             }
         } catch (Exception e) {
             Log.w(TAG, "Could not peek zip for manifest: " + e.getMessage());
@@ -298,7 +365,7 @@ public class FileHandler {
             List<Uri> fileUris,
             String overrideName, String overrideType, String overrideVersion,
             FileOperationCallback callback) {
-        new Thread(() -> {
+        IMPORT_COORDINATOR.execute(() -> {
             if (targetPath == null) {
                 postError(callback, "No selected version mods directory");
                 return;
@@ -310,44 +377,63 @@ public class FileHandler {
                 return;
             }
 
-            int completed = 0;
-            int processed = 0;
-            String lastError = null;
-
+            List<Future<ImportPlan>> plans = new ArrayList<>();
             for (Uri uri : fileUris) {
-                PreparedImport preparedImport = null;
-                try {
-                    String fileName = resolveFileName(uri);
-                    if (!isSupportedImportFile(fileName)) {
-                        throw new IOException("Unsupported mod import file: " + fileName);
-                    }
-
-                    preparedImport = prepareImport(uri, fileName, overrideName, overrideType, overrideVersion);
-                    File destinationDir = new File(targetDir, preparedImport.targetId);
-                    if (destinationDir.exists() && !confirmOverwrite(preparedImport.targetId)) {
-                        continue;
-                    }
+                plans.add(IMPORT_EXECUTOR.submit(() -> planImport(uri, overrideName, overrideType, overrideVersion)));
+            }
 
-                    if (destinationDir.exists() && !deleteRecursively(destinationDir)) {
-                        throw new IOException("Failed to overwrite existing mod: " + preparedImport.targetId);
-                    }
+            AtomicInteger completed = new AtomicInteger();
+            AtomicInteger processed = new AtomicInteger();
+            AtomicReference<String> lastError = new AtomicReference<>();
+            Map<String, Future<?>> installsByTarget = new HashMap<>();
+            List<Future<?>> installs = new ArrayList<>();
 
-                    copyDirectory(preparedImport.packageDir, destinationDir);
-                    ++processed;
+            for (Future<ImportPlan> planFuture : plans) {
+                ImportPlan plan;
+                try {
+                    plan = awaitPlan(planFuture);
                 } catch (Exception e) {
-                    lastError = e.getMessage();
+                    lastError.set(e.getMessage());
                     Log.e(TAG, "Failed to import mod", e);
-                } finally {
-                    if (preparedImport != null) {
-                        deleteRecursively(preparedImport.cleanupRoot);
-                    }
-                    ++completed;
-                    postProgress(callback, completed, fileUris.size());
+                    postProgress(callback, completed.incrementAndGet(), fileUris.size());
+                    continue;
+                }
+
+                // Two files of one batch can map to the same mod; let the first finish before asking.
+                Future<?> earlierInstall = installsByTarget.get(plan.targetId);
+                if (earlierInstall != null) {
+                    awaitQuietly(earlierInstall, null);
                 }
+
+                File destinationDir = new File(targetDir, plan.targetId);
+                if (destinationDir.exists() && !confirmOverwrite(plan.targetId)) {
+                    plan.close();
+                    postProgress(callback, completed.incrementAndGet(), fileUris.size());
+                    continue;
+                }
+
+                Future<?> install = IMPORT_EXECUTOR.submit(() -> {
+                    try {
+                        installImport(plan, targetDir, destinationDir);
+                        processed.incrementAndGet();
+                    } catch (Exception e) {
+                        lastError.set(e.getMessage());
+                        Log.e(TAG, "Failed to import mod", e);
+                    } finally {
+                        plan.close();
+                        postProgress(callback, completed.incrementAndGet(), fileUris.size());
+                    }
+                });
+                installsByTarget.put(plan.targetId, install);
+                installs.add(install);
             }
 
-            final int processedCount = processed;
-            final String finalError = lastError;
+            for (Future<?> install : installs) {
+                awaitQuietly(install, null);
+            }
+
+            final int processedCount = processed.get();
+            final String finalError = lastError.get();
             new Handler(Looper.getMainLooper()).post(() -> {
                 modManager.refreshMods();
                 if (processedCount > 0) {
@@ -358,87 +444,152 @@ public class FileHandler {
                     callback.onError(finalError);
                 }
             });
-        }).start();
+        });
     }
 
-    private PreparedImport prepareImport(
-            Uri uri, String fileName,
-            String overrideName, String overrideType, String overrideVersion) throws IOException {
+    private ImportPlan planImport(
+            Uri uri, String overrideName, String overrideType, String overrideVersion) throws IOException {
+        String fileName = resolveFileName(uri);
         String lowerName = fileName.toLowerCase(Locale.ROOT);
         if (lowerName.endsWith(".so")) {
-            return prepareSoImport(uri, fileName, overrideName, overrideType, overrideVersion);
+            return planSoImport(uri, fileName, overrideName, overrideType, overrideVersion);
         }
         if (lowerName.endsWith(".zip")) {
-            return prepareZipImport(uri, fileName, overrideName, overrideType, overrideVersion);
+            return planZipImport(uri, fileName, overrideName, overrideType, overrideVersion);
         }
         throw new IOException("Unsupported mod import file: " + fileName);
     }
 
-    private PreparedImport prepareSoImport(
+    private ImportPlan planSoImport(
             Uri uri, String fileName,
-            String overrideName, String overrideType, String overrideVersion) throws IOException {
-        File stagingRoot = createTempDirectory("mod_import_so");
+            String overrideName, String overrideType, String overrideVersion) {
         String displayName = (overrideName != null && !overrideName.isEmpty())
                 ? overrideName
                 : deriveDisplayNameFromLibrary(fileName);
         String targetId = buildTargetId(displayName, stripExtension(fileName));
-        File packageDir = new File(stagingRoot, targetId);
-        if (!packageDir.mkdirs()) {
-            throw new IOException("Failed to prepare mod package directory");
-        }
-
-        File libraryFile = new File(packageDir, fileName);
-        copyUriToFile(uri, libraryFile);
-        writeManifest(packageDir, createNormalizedManifest(
-                new JsonObject(), displayName, fileName, packageDir, overrideType, overrideVersion));
-        return new PreparedImport(targetId, packageDir, stagingRoot);
+        JsonObject manifest = createNormalizedManifest(
+                new JsonObject(), displayName, fileName, fileName::equals, overrideType, overrideVersion);
+        return new ImportPlan(uri, fileName, targetId, manifest, null, null, null);
     }
 
-    private PreparedImport prepareZipImport(
+    /**
+     * Resolves the mod root, entry library and manifest from the zip central directory,
+     * without extracting anything.
+     */
+    private ImportPlan planZipImport(
             Uri uri, String fileName,
             String overrideName, String overrideType, String overrideVersion) throws IOException {
-        File tempZip = new File(context.getCacheDir(), "mod_zip_" + System.currentTimeMillis() + ".zip");
-        File stagingRoot = createTempDirectory("mod_import_zip");
+        ZipSource zip = openZip(uri);
         try {
-            copyUriToFile(uri, tempZip);
-            extractZip(tempZip, stagingRoot);
-        } finally {
-            if (tempZip.exists()) {
-                //noinspection ResultOfMethodCallIgnored
-                tempZip.delete();
+            Map<String, ZipEntry> entries = new LinkedHashMap<>();
+            Enumeration<? extends ZipEntry> enumeration = zip.zipFile.entries();
+            while (enumeration.hasMoreElements()) {
+                ZipEntry entry = enumeration.nextElement();
+                String normalizedName = normalizeZipEntryName(entry.getName());
+                if (!normalizedName.isEmpty()) {
+                    entries.put(normalizedName, entry);
+                }
             }
-        }
 
-        File modRoot = findImportedModRoot(stagingRoot);
-        if (modRoot == null) {
-            throw new IOException("Invalid mod zip: no manifest.json or .so entry found");
+            String rootPrefix = findModRootPrefix(entries);
+            if (rootPrefix == null) {
+                throw new IOException("Invalid mod zip: no manifest.json or .so entry found");
+            }
+
+            Set<String> rootFiles = new HashSet<>();
+            List<String> soFiles = new ArrayList<>();
+            for (Map.Entry<String, ZipEntry> entry : entries.entrySet()) {
+                if (entry.getValue().isDirectory() || !entry.getKey().startsWith(rootPrefix)) {
+                    continue;
+                }
+                String relativePath = normalizeEntryPath(entry.getKey().substring(rootPrefix.length()));
+                if (relativePath == null) {
+                    continue;
+                }
+                rootFiles.add(relativePath);
+                if (relativePath.toLowerCase(Locale.ROOT).endsWith(".so")) {
+                    soFiles.add(relativePath);
+                }
+            }
+            soFiles.sort(Comparator.naturalOrder());
+
+            JsonObject manifest = readManifest(zip.zipFile, entries.get(rootPrefix + MANIFEST_FILE_NAME));
+            String rootName = rootPrefix.isEmpty()
+                    ? stripExtension(fileName)
+                    : new File(rootPrefix.substring(0, rootPrefix.length() - 1)).getName();
+            String entryPath = resolveEntryPath(manifest, rootName, soFiles, rootFiles::contains, fileName);
+            if (entryPath == null) {
+                throw new IOException("Invalid mod zip: manifest entry is missing or ambiguous");
+            }
+
+            String displayName = (overrideName != null && !overrideName.isEmpty())
+                    ? overrideName
+                    : resolveDisplayName(manifest, entryPath);
+            JsonObject normalized = createNormalizedManifest(
+                    manifest, displayName, entryPath, rootFiles::contains, overrideType, overrideVersion);
+
+            String targetId = buildTargetId(displayName, rootName);
+            return new ImportPlan(uri, fileName, targetId, normalized, zip, rootPrefix, entries);
+        } catch (IOException | RuntimeException e) {
+            zip.close();
+            throw e;
         }
+    }
 
-        List<String> soFiles = collectRelativeSoFiles(modRoot);
-        JsonObject manifest = readManifest(modRoot);
-        String entryPath = resolveEntryPath(manifest, modRoot, soFiles, fileName);
-        if (entryPath == null) {
-            throw new IOException("Invalid mod zip: manifest entry is missing or ambiguous");
+    /**
+     * Writes the mod into a hidden sibling of {@code destinationDir} and renames it into place,
+     * so the mods directory never exposes a half-written mod. The staging name is unique, so
+     * concurrent imports of the same id never write into each other's staging.
+     */
+    private void installImport(ImportPlan plan, File targetDir, File destinationDir) throws IOException {
+        File stagingDir = Files.createTempDirectory(targetDir.toPath(), "." + plan.targetId + IMPORTING_MARKER).toFile();
+
+        try {
+            if (plan.zip == null) {
+                copyUriToFile(plan.uri, new File(stagingDir, plan.fileName));
+            } else {
+                extractZipRoot(plan.zip.zipFile, plan.zipEntries, plan.rootPrefix, stagingDir);
+            }
+            writeManifest(stagingDir, plan.manifest);
+
+            if (destinationDir.exists() && !deleteRecursively(destinationDir)) {
+                throw new IOException("Failed to overwrite existing mod: " + plan.targetId);
+            }
+            if (!stagingDir.renameTo(destinationDir)) {
+                throw new IOException("Failed to move imported mod into place: " + plan.targetId);
+            }
+        } finally {
+            deleteRecursively(stagingDir);
         }
+    }
 
-        String displayName = (overrideName != null && !overrideName.isEmpty())
-                ? overrideName
-                : resolveDisplayName(manifest, entryPath);
-        writeManifest(modRoot, createNormalizedManifest(
-                manifest, displayName, entryPath, modRoot, overrideType, overrideVersion));
+    private ImportPlan awaitPlan(Future<ImportPlan> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
 
-        String rootName = modRoot.equals(stagingRoot) ? stripExtension(fileName) : modRoot.getName();
-        String targetId = buildTargetId(displayName, rootName);
-        return new PreparedImport(targetId, modRoot, stagingRoot);
+    private <T> T awaitQuietly(Future<T> future, T fallback) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback;
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Import task failed", e.getCause());
+            return fallback;
+        }
     }
 
-    private JsonObject readManifest(File modRoot) throws IOException {
-        File manifestFile = new File(modRoot, MANIFEST_FILE_NAME);
-        if (!manifestFile.isFile()) {
+    private JsonObject readManifest(ZipFile zipFile, ZipEntry manifestEntry) {
+        if (manifestEntry == null || manifestEntry.isDirectory()) {
             return new JsonObject();
         }
 
-        try (InputStreamReader reader = new InputStreamReader(new FileInputStream(manifestFile), StandardCharsets.UTF_8)) {
+        try (InputStreamReader reader = new InputStreamReader(zipFile.getInputStream(manifestEntry), StandardCharsets.UTF_8)) {
             JsonObject manifest = GSON.fromJson(reader, JsonObject.class);
             return manifest == null ? new JsonObject() : manifest;
         } catch (Exception e) {
@@ -448,7 +599,7 @@ public class FileHandler {
     }
 
     private JsonObject createNormalizedManifest(
-            JsonObject manifest, String displayName, String entryPath, File modRoot,
+            JsonObject manifest, String displayName, String entryPath, Predicate<String> modFileExists,
             String overrideType, String overrideVersion) {
         JsonObject normalized = manifest == null ? new JsonObject() : manifest.deepCopy();
         String type = (overrideType != null && !overrideType.isEmpty()) ? overrideType : PRELOAD_NATIVE_TYPE;
@@ -457,15 +608,15 @@ public class FileHandler {
         normalized.addProperty("name", displayName);
         normalized.addProperty("entry", entryPath.replace('\\', '/'));
         normalized.addProperty("author", resolveAuthor(manifest));
-        normalized.addProperty("icon", resolveIconPath(manifest, modRoot));
+        normalized.addProperty("icon", resolveIconPath(manifest, modFileExists));
         normalized.addProperty("version", version);
         return normalized;
     }
 
     // Overload without metadata overrides (for packaged zips that already have a manifest).
     private JsonObject createNormalizedManifest(
-            JsonObject manifest, String displayName, String entryPath, File modRoot) {
-        return createNormalizedManifest(manifest, displayName, entryPath, modRoot, null, null);
+            JsonObject manifest, String displayName, String entryPath, Predicate<String> modFileExists) {
+        return createNormalizedManifest(manifest, displayName, entryPath, modFileExists, null, null);
     }
 
     private String resolveAuthor(JsonObject manifest) {
@@ -501,13 +652,10 @@ public class FileHandler {
         return DEFAULT_MOD_AUTHOR;
     }
 
-    private String resolveIconPath(JsonObject manifest, File modRoot) {
+    private String resolveIconPath(JsonObject manifest, Predicate<String> modFileExists) {
         String iconPath = normalizeEntryPath(getStringProperty(manifest, "icon"));
-        if (iconPath != null) {
-            File iconFile = new File(modRoot, iconPath);
-            if (iconFile.isFile()) {
-                return iconPath;
-            }
+        if (iconPath != null && modFileExists.test(iconPath)) {
+            return iconPath;
         }
         return DEFAULT_MOD_ICON;
     }
@@ -527,10 +675,12 @@ public class FileHandler {
         }
     }
 
-    private String resolveEntryPath(JsonObject manifest, File modRoot, List<String> soFiles, String sourceFileName) {
+    private String resolveEntryPath(
+            JsonObject manifest, String modRootName, List<String> soFiles,
+            Predicate<String> modFileExists, String sourceFileName) {
         String manifestEntry = getStringProperty(manifest, "entry");
         String normalizedEntry = normalizeEntryPath(manifestEntry);
-        if (normalizedEntry != null && new File(modRoot, normalizedEntry).isFile()) {
+        if (normalizedEntry != null && modFileExists.test(normalizedEntry)) {
             return normalizedEntry;
         }
 
@@ -544,7 +694,7 @@ public class FileHandler {
 
         List<String> preferredTokens = new ArrayList<>();
         preferredTokens.add(stripExtension(sourceFileName));
-        preferredTokens.add(modRoot.getName());
+        preferredTokens.add(modRootName);
         if (normalizedEntry != null) {
             preferredTokens.add(new File(normalizedEntry).getName());
         }
@@ -676,86 +826,52 @@ public class FileHandler {
         return fileName.substring(0, dotIndex);
     }
 
-    private List<String> collectRelativeSoFiles(File rootDir) {
-        List<String> soFiles = new ArrayList<>();
-        collectRelativeSoFilesRecursive(rootDir, rootDir, soFiles);
-        soFiles.sort(Comparator.naturalOrder());
-        return soFiles;
-    }
-
-    private void collectRelativeSoFilesRecursive(File rootDir, File currentDir, List<String> soFiles) {
-        File[] files = currentDir.listFiles();
-        if (files == null) {
-            return;
-        }
-
-        for (File file : files) {
-            if (file.isDirectory()) {
-                collectRelativeSoFilesRecursive(rootDir, file, soFiles);
+    /**
+     * Picks the directory prefix of the zip that holds the mod: the zip root if it directly
+     * contains a manifest or library, otherwise the single outermost directory that does.
+     */
+    private String findModRootPrefix(Map<String, ZipEntry> entries) {
+        Set<String> directRoots = new HashSet<>();
+        for (Map.Entry<String, ZipEntry> entry : entries.entrySet()) {
+            if (entry.getValue().isDirectory()) {
                 continue;
             }
-
-            if (file.isFile() && file.getName().toLowerCase(Locale.ROOT).endsWith(".so")) {
-                String relativePath = rootDir.toPath().relativize(file.toPath()).toString().replace('\\', '/');
-                String normalizedPath = normalizeEntryPath(relativePath);
-                if (normalizedPath != null) {
-                    soFiles.add(normalizedPath);
-                }
+            String name = entry.getKey();
+            int lastSlash = name.lastIndexOf('/');
+            String baseName = name.substring(lastSlash + 1);
+            if (baseName.equals(MANIFEST_FILE_NAME) || baseName.toLowerCase(Locale.ROOT).endsWith(".so")) {
+                directRoots.add(name.substring(0, lastSlash + 1));
             }
         }
-    }
-
-    private File findImportedModRoot(File extractedRoot) {
-        if (isDirectModRoot(extractedRoot)) {
-            return extractedRoot;
-        }
 
-        List<File> candidates = new ArrayList<>();
-        collectCandidateModRoots(extractedRoot, candidates);
-        if (candidates.size() == 1) {
-            return candidates.get(0);
-        }
-        return null;
-    }
-
-    private void collectCandidateModRoots(File currentDir, List<File> candidates) {
-        File[] children = currentDir.listFiles();
-        if (children == null) {
-            return;
+        if (directRoots.contains("")) {
+            return "";
         }
 
-        for (File child : children) {
-            if (!child.isDirectory() || "__MACOSX".equals(child.getName())) {
+        String candidate = null;
+        for (String root : directRoots) {
+            if (isMacOsMetadataPath(root) || hasAncestorIn(root, directRoots)) {
                 continue;
             }
-
-            if (isDirectModRoot(child)) {
-                candidates.add(child);
-                continue;
+            if (candidate != null) {
+                return null;
             }
-            collectCandidateModRoots(child, candidates);
+            candidate = root;
         }
+        return candidate;
     }
 
-    private boolean isDirectModRoot(File directory) {
-        if (!directory.isDirectory()) {
-            return false;
-        }
-
-        File manifestFile = new File(directory, MANIFEST_FILE_NAME);
-        if (manifestFile.isFile()) {
-            return true;
-        }
-
-        File[] files = directory.listFiles();
-        if (files == null) {
-            return false;
-        }
+    private boolean isMacOsMetadataPath(String prefix) {
+        return prefix.startsWith("__MACOSX/") || prefix.contains("/__MACOSX/");
+    }
 
-        for (File file : files) {
-            if (file.isFile() && file.getName().toLowerCase(Locale.ROOT).endsWith(".so")) {
+    private boolean hasAncestorIn(String prefix, Set<String> roots) {
+        int slash = prefix.indexOf('/');
+        while (slash >= 0 && slash < prefix.length() - 1) {
+            if (roots.contains(prefix.substring(0, slash + 1))) {
                 return true;
             }
+            slash = prefix.indexOf('/', slash + 1);
         }
         return false;
     }
@@ -808,44 +924,62 @@ public class FileHandler {
         }
     }
 
-    private void extractZip(File zipFile, File targetDir) throws IOException {
-        try (FileInputStream fis = new FileInputStream(zipFile);
-             ZipInputStream zis = new ZipInputStream(fis)) {
-            ZipEntry entry;
-            byte[] buffer = new byte[BUFFER_SIZE];
+    private ZipSource openZip(Uri uri) throws IOException {
+        if ("file".equals(uri.getScheme()) && uri.getPath() != null) {
+            return new ZipSource(new ZipFile(uri.getPath()), null, null);
+        }
 
-            while ((entry = zis.getNextEntry()) != null) {
-                String normalizedName = normalizeZipEntryName(entry.getName());
-                if (normalizedName.isEmpty()) {
-                    continue;
+        ParcelFileDescriptor descriptor = null;
+        try {
+            descriptor = context.getContentResolver().openFileDescriptor(uri, "r");
+            if (descriptor != null) {
+                return new ZipSource(new ZipFile("/proc/self/fd/" + descriptor.getFd()), descriptor, null);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Zip is not seekable in place, copying it first: " + e.getMessage());
+            if (descriptor != null) {
+                try {
+                    descriptor.close();
+                } catch (IOException ignored) {
                 }
+            }
+        }
 
-                File entryFile = new File(targetDir, normalizedName);
-                String targetCanonicalPath = targetDir.getCanonicalPath();
-                String entryCanonicalPath = entryFile.getCanonicalPath();
-                if (!entryCanonicalPath.startsWith(targetCanonicalPath + File.separator)
-                        && !entryCanonicalPath.equals(targetCanonicalPath)) {
-                    continue;
-                }
+        File tempZip = new File(context.getCacheDir(), "mod_zip_" + System.nanoTime() + ".zip");
+        try {
+            copyUriToFile(uri, tempZip);
+            return new ZipSource(new ZipFile(tempZip), null, tempZip);
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            tempZip.delete();
+            throw e;
+        }
+    }
 
-                if (entry.isDirectory()) {
-                    if (!entryFile.exists() && !entryFile.mkdirs()) {
-                        throw new IOException("Failed to create directory: " + entryFile.getAbsolutePath());
-                    }
-                    continue;
-                }
+    private void extractZipRoot(ZipFile zipFile, Map<String, ZipEntry> entries, String rootPrefix, File targetDir)
+            throws IOException {
+        String targetCanonicalPath = targetDir.getCanonicalPath();
+        for (Map.Entry<String, ZipEntry> entry : entries.entrySet()) {
+            String name = entry.getKey();
+            if (!name.startsWith(rootPrefix) || name.length() == rootPrefix.length()) {
+                continue;
+            }
 
-                File parent = entryFile.getParentFile();
-                if (parent != null && !parent.exists() && !parent.mkdirs()) {
-                    throw new IOException("Failed to create directory: " + parent.getAbsolutePath());
-                }
+            File entryFile = new File(targetDir, name.substring(rootPrefix.length()));
+            String entryCanonicalPath = entryFile.getCanonicalPath();
+            if (!entryCanonicalPath.startsWith(targetCanonicalPath + File.separator)) {
+                continue;
+            }
 
-                try (FileOutputStream fos = new FileOutputStream(entryFile)) {
-                    int len;
-                    while ((len = zis.read(buffer)) > 0) {
-                        fos.write(buffer, 0, len);
-                    }
+            if (entry.getValue().isDirectory()) {
+                if (!entryFile.exists() && !entryFile.mkdirs()) {
+                    throw new IOException("Failed to create directory: " + entryFile.getAbsolutePath());
                 }
+                continue;
+            }
+
+            try (InputStream in = zipFile.getInputStream(entry.getValue())) {
+                copyStreamToFile(in, entryFile);
             }
         }
     }
@@ -883,39 +1017,6 @@ public class FileHandler {
         }
     }
 
-    private void copyDirectory(File source, File target) throws IOException {
-        if (source.isDirectory()) {
-            if (!target.exists() && !target.mkdirs()) {
-                throw new IOException("Failed to create directory: " + target.getAbsolutePath());
-            }
-
-            File[] files = source.listFiles();
-            if (files == null) {
-                return;
-            }
-
-            for (File file : files) {
-                copyDirectory(file, new File(target, file.getName()));
-            }
-            return;
-        }
-
-        try (FileInputStream fis = new FileInputStream(source)) {
-            copyStreamToFile(fis, target);
-        }
-    }
-
-    private File createTempDirectory(String prefix) throws IOException {
-        File cacheDir = context.getCacheDir();
-        for (int attempt = 0; attempt < 10; attempt++) {
-            File dir = new File(cacheDir, prefix + "_" + System.currentTimeMillis() + "_" + attempt);
-            if (dir.mkdirs()) {
-                return dir;
-            }
-        }
-        throw new IOException("Failed to create temporary directory");
-    }
-
     private boolean deleteRecursively(File file) {
         if (file == null || !file.exists()) {
             return true;
@@ -11,6 +11,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 
 import org.levimc.launcher.core.versions.GameVersion;
+import org.levimc.launcher.util.WriteBehindStore;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -22,12 +23,19 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class ModManager {
     private static final String TAG = "ModManager";
@@ -37,6 +45,14 @@ public class ModManager {
     private static final String DEFAULT_MOD_ICON = "";
     private static final String DEFAULT_MOD_VERSION = "1.0.0";
     private static final int COPY_BUFFER_SIZE = 8192;
+    private static final long OBSERVER_DEBOUNCE_MS = 250;
+    private static final int WATCH_MASK = FileObserver.CREATE | FileObserver.DELETE | FileObserver.MOVED_FROM
+            | FileObserver.MOVED_TO | FileObserver.CLOSE_WRITE;
+    // How long a directory without a usable manifest keeps being re-parsed, in case it is
+    // still being copied in. After that it is only looked at again once it changes.
+    private static final long NON_MOD_SETTLE_MS = 5000;
+    private static final Comparator<String> MOD_ID_ORDER =
+            String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
 
     private static volatile ModManager instance;
     private static volatile boolean preloaderLoadAttempted;
@@ -46,6 +62,25 @@ public class ModManager {
     private final Map<String, Boolean> enabledMap = new LinkedHashMap<>();
     private final List<String> modOrder = new ArrayList<>();
     private FileObserver modDirObserver;
+    // Watched directory -> observer marking its mod dirty. Changes inside a mod directory
+    // never reach modDirObserver, so every indexed directory and the directory holding its
+    // entry library get one, and an unchanged tree is listed without touching the disk.
+    private final Map<String, EntryObserver> entryObservers = new HashMap<>();
+    private final Map<String, ModDescriptor> descriptorIndex = new TreeMap<>(MOD_ID_ORDER);
+    // Directory name -> when it was first marked dirty.
+    private final Map<String, Long> dirtyModIds = new HashMap<>();
+    // Settled directories that are not mods -> their stamp when last parsed.
+    private final Map<String, Long> nonModDirs = new HashMap<>();
+    private boolean indexValid;
+    // Mods directories already cleared of leftover import staging this process.
+    private final Set<String> sweptModsDirs = new HashSet<>();
+    private boolean looseLibrariesPending = true;
+    private final ScheduledExecutorService ioExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "mod-observer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> pendingObserverRefresh;
     private GameVersion currentVersion;
     private final MutableLiveData<Void> modsChangedLiveData = new MutableLiveData<>();
     private final Gson gson = new Gson();
@@ -59,12 +94,19 @@ public class ModManager {
         final String fileName;
         final String entryPath;
         final String displayName;
+        final long manifestModified;
+        final long entrySize;
+        final long entryModified;
 
-        ModDescriptor(String id, String fileName, String entryPath, String displayName) {
+        ModDescriptor(String id, String fileName, String entryPath, String displayName, long manifestModified,
+                      long entrySize, long entryModified) {
             this.id = id;
             this.fileName = fileName;
             this.entryPath = entryPath;
             this.displayName = displayName;
+            this.manifestModified = manifestModified;
+            this.entrySize = entrySize;
+            this.entryModified = entryModified;
         }
     }
 
@@ -122,11 +164,14 @@ public class ModManager {
         if (Objects.equals(currentVersion, version)) return;
         stopFileObserver();
         currentVersion = version;
+        invalidateIndex();
+        descriptorIndex.clear();
 
         if (version != null && version.modsDir != null) {
             modsDir = version.modsDir;
             modsDir.mkdirs();
             configFile = new File(modsDir, "mods_config.json");
+            removeStaleStaging();
             loadConfig();
             reconcileModsState();
             initFileObserver();
@@ -146,8 +191,7 @@ public class ModManager {
     public synchronized List<Mod> getMods() {
         if (modsDir == null) return new ArrayList<>();
 
-        reconcileModsState();
-        List<ModDescriptor> descriptors = discoverMods();
+        List<ModDescriptor> descriptors = reconcileModsState();
         Map<String, ModDescriptor> descriptorMap = new LinkedHashMap<>();
         for (ModDescriptor descriptor : descriptors) {
             descriptorMap.put(descriptor.id, descriptor);
@@ -186,14 +230,15 @@ public class ModManager {
         enabledMap.clear();
         modOrder.clear();
 
-        if (!configFile.exists()) {
+        String json = WriteBehindStore.read(configFile);
+        if (json == null) {
             updateConfigFromDirectory();
             return;
         }
 
-        try (FileReader reader = new FileReader(configFile)) {
+        try {
             Type type = new TypeToken<List<Map<String, Object>>>() {}.getType();
-            List<Map<String, Object>> configList = gson.fromJson(reader, type);
+            List<Map<String, Object>> configList = gson.fromJson(json, type);
 
             if (configList != null) {
                 for (Map<String, Object> item : configList) {
@@ -202,6 +247,7 @@ public class ModManager {
                     if (name != null && enabled != null) {
                         enabledMap.put(name, enabled);
                         modOrder.add(name);
+                        seedDescriptor(name, item);
                     }
                 }
             } else {
@@ -212,6 +258,29 @@ public class ModManager {
         }
     }
 
+    /**
+     * Restores a descriptor persisted in mods_config.json. It is only trusted by the next
+     * index rebuild if the manifest timestamp still matches.
+     */
+    private void seedDescriptor(String modId, Map<String, Object> item) {
+        Object entry = item.get("entry");
+        Object displayName = item.get("displayName");
+        Object manifestModified = item.get("manifestModified");
+        if (!(entry instanceof String) || !(displayName instanceof String) || !(manifestModified instanceof Number)) {
+            return;
+        }
+
+        String entryPath = (String) entry;
+        String fileName = entryPath.substring(entryPath.lastIndexOf('/') + 1);
+        // Configs written before these were recorded get their mod re-parsed once.
+        Object entrySize = item.get("entrySize");
+        Object entryModified = item.get("entryModified");
+        descriptorIndex.put(modId, new ModDescriptor(
+                modId, fileName, entryPath, (String) displayName, ((Number) manifestModified).longValue(),
+                entrySize instanceof Number ? ((Number) entrySize).longValue() : -1,
+                entryModified instanceof Number ? ((Number) entryModified).longValue() : -1));
+    }
+
     private void updateConfigFromDirectory() {
         for (ModDescriptor descriptor : discoverMods()) {
             enabledMap.put(descriptor.id, true);
@@ -222,46 +291,155 @@ public class ModManager {
 
     private void saveConfig() {
         if (configFile == null) return;
-        try (FileWriter writer = new FileWriter(configFile)) {
-            List<Map<String, Object>> configList = new ArrayList<>();
-            for (int i = 0; i < modOrder.size(); i++) {
-                String modId = modOrder.get(i);
-                Map<String, Object> item = new LinkedHashMap<>();
-                item.put("name", modId);
-                item.put("enabled", enabledMap.get(modId));
-                item.put("order", i);
-                configList.add(item);
+        List<Map<String, Object>> configList = new ArrayList<>();
+        for (int i = 0; i < modOrder.size(); i++) {
+            String modId = modOrder.get(i);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", modId);
+            item.put("enabled", enabledMap.get(modId));
+            item.put("order", i);
+            ModDescriptor descriptor = descriptorIndex.get(modId);
+            if (descriptor != null) {
+                item.put("entry", descriptor.entryPath);
+                item.put("displayName", descriptor.displayName);
+                item.put("manifestModified", descriptor.manifestModified);
+                item.put("entrySize", descriptor.entrySize);
+                item.put("entryModified", descriptor.entryModified);
             }
-            gson.toJson(configList, writer);
-        } catch (Exception ignored) {}
+            configList.add(item);
+        }
+
+        WriteBehindStore.write(configFile, gson.toJson(configList));
     }
 
     private void initFileObserver() {
         if (modsDir == null) return;
-        modDirObserver = new FileObserver(modsDir.getAbsolutePath(),
-                FileObserver.CREATE | FileObserver.DELETE | FileObserver.MOVED_FROM | FileObserver.MOVED_TO) {
+        modDirObserver = new FileObserver(modsDir.getAbsolutePath(), WATCH_MASK) {
             @Override
             public void onEvent(int event, String path) {
-                notifyModsChanged();
+                if (path != null && configFile != null && path.startsWith(configFile.getName())) {
+                    return;
+                }
+                onModsDirEvent(path);
             }
         };
         modDirObserver.startWatching();
     }
 
+    private synchronized void onModsDirEvent(String path) {
+        if (path != null && isHiddenEntry(path)) {
+            return;
+        }
+        if (path == null) {
+            invalidateIndex();
+        } else if (path.toLowerCase().endsWith(".so")) {
+            looseLibrariesPending = true;
+        } else {
+            markDirty(path);
+        }
+        scheduleObservedChange();
+    }
+
+    private synchronized void onEntryEvent(EntryObserver observer) {
+        // Events can still arrive from an observer that was just replaced.
+        if (entryObservers.get(observer.path) != observer) {
+            return;
+        }
+        markDirty(observer.modId);
+        scheduleObservedChange();
+    }
+
+    private void scheduleObservedChange() {
+        if (pendingObserverRefresh != null) {
+            pendingObserverRefresh.cancel(false);
+        }
+        pendingObserverRefresh = ioExecutor.schedule(
+                this::notifyModsChanged, OBSERVER_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void invalidateIndex() {
+        indexValid = false;
+        looseLibrariesPending = true;
+        dirtyModIds.clear();
+        nonModDirs.clear();
+    }
+
     private void stopFileObserver() {
         if (modDirObserver != null) {
             modDirObserver.stopWatching();
             modDirObserver = null;
         }
+        unwatchEntries(null);
+    }
+
+    /**
+     * Starts observers for indexed directories that have none. A change made between
+     * parsing a directory and watching it is caught by comparing its stats once more.
+     */
+    private void watchEntries() {
+        Map<String, String> wanted = new HashMap<>();
+        for (ModDescriptor descriptor : descriptorIndex.values()) {
+            File modDirectory = new File(modsDir, descriptor.id);
+            wanted.put(modDirectory.getAbsolutePath(), descriptor.id);
+            File entryDirectory = new File(modDirectory, descriptor.entryPath).getParentFile();
+            if (entryDirectory != null) wanted.put(entryDirectory.getAbsolutePath(), descriptor.id);
+        }
+        for (String name : nonModDirs.keySet()) {
+            wanted.put(new File(modsDir, name).getAbsolutePath(), name);
+        }
+
+        Iterator<Map.Entry<String, EntryObserver>> it = entryObservers.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, EntryObserver> watched = it.next();
+            if (!watched.getValue().modId.equals(wanted.get(watched.getKey()))) {
+                watched.getValue().stopWatching();
+                it.remove();
+            }
+        }
+
+        Set<String> started = new HashSet<>();
+        for (Map.Entry<String, String> target : wanted.entrySet()) {
+            if (entryObservers.containsKey(target.getKey())) continue;
+            EntryObserver observer = new EntryObserver(target.getKey(), target.getValue());
+            entryObservers.put(target.getKey(), observer);
+            observer.startWatching();
+            started.add(target.getValue());
+        }
+        for (String modId : started) {
+            ModDescriptor descriptor = descriptorIndex.get(modId);
+            File modDirectory = new File(modsDir, modId);
+            boolean current = descriptor != null
+                    ? isDescriptorCurrent(descriptor, modDirectory)
+                    : Objects.equals(nonModDirs.get(modId), nonModStamp(modDirectory));
+            if (!current) markDirty(modId);
+        }
+    }
+
+    /** Stops the observers of {@code modId}, or all of them when it is null. */
+    private void unwatchEntries(String modId) {
+        Iterator<EntryObserver> it = entryObservers.values().iterator();
+        while (it.hasNext()) {
+            EntryObserver observer = it.next();
+            if (modId == null || observer.modId.equals(modId)) {
+                observer.stopWatching();
+                it.remove();
+            }
+        }
     }
 
     public synchronized void deleteMod(String modId) {
         if (modsDir == null) return;
 
         File modDirectory = new File(modsDir, modId);
+        unwatchEntries(modId);
         boolean deleted = modDirectory.isDirectory() && deleteRecursively(modDirectory);
 
-        if (deleted) {
+        if (!deleted) {
+            // Whatever is left has to be looked at, and watched, again.
+            markDirty(modId);
+        } else {
+            descriptorIndex.remove(modId);
+            dirtyModIds.remove(modId);
             enabledMap.remove(modId);
             modOrder.remove(modId);
             saveConfig();
@@ -289,41 +467,136 @@ public class ModManager {
     }
 
     public synchronized void refreshMods() {
+        invalidateIndex();
         notifyModsChanged();
     }
 
-    private void reconcileModsState() {
-        boolean changed = migrateTopLevelSoMods();
-        changed |= syncConfigWithDiscoveredMods(discoverMods());
+    private List<ModDescriptor> reconcileModsState() {
+        boolean changed = false;
+        if (looseLibrariesPending) {
+            looseLibrariesPending = false;
+            changed = migrateTopLevelSoMods();
+        }
+        List<ModDescriptor> descriptors = discoverMods();
+        changed |= syncConfigWithDiscoveredMods(descriptors);
         if (changed) {
             saveConfig();
         }
+        return descriptors;
     }
 
     private List<ModDescriptor> discoverMods() {
-        List<ModDescriptor> descriptors = new ArrayList<>();
         if (modsDir == null || !modsDir.exists()) {
-            return descriptors;
+            return new ArrayList<>();
+        }
+
+        if (!indexValid) {
+            rebuildIndex();
+            watchEntries();
+        } else if (!dirtyModIds.isEmpty()) {
+            refreshDirtyEntries();
+            watchEntries();
         }
+        return new ArrayList<>(descriptorIndex.values());
+    }
+
+    private void rebuildIndex() {
+        Map<String, ModDescriptor> previous = new HashMap<>(descriptorIndex);
+        descriptorIndex.clear();
+        dirtyModIds.clear();
+        nonModDirs.clear();
+        // Directories may have been replaced since they were watched.
+        unwatchEntries(null);
 
         File[] entries = modsDir.listFiles();
-        if (entries == null) {
-            return descriptors;
+        if (entries != null) {
+            for (File entry : entries) {
+                if (!entry.isDirectory() || isHiddenEntry(entry.getName())) {
+                    continue;
+                }
+
+                ModDescriptor cached = previous.get(entry.getName());
+                ModDescriptor descriptor = isDescriptorCurrent(cached, entry) ? cached : parseDirectoryMod(entry);
+                if (descriptor != null) {
+                    descriptorIndex.put(descriptor.id, descriptor);
+                } else {
+                    nonModDirs.put(entry.getName(), nonModStamp(entry));
+                }
+            }
         }
+        indexValid = true;
+    }
 
-        Arrays.sort(entries, Comparator.comparing(File::getName, String.CASE_INSENSITIVE_ORDER));
-        for (File entry : entries) {
-            if (!entry.isDirectory()) {
+    private void refreshDirtyEntries() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Long> dirty : new ArrayList<>(dirtyModIds.entrySet())) {
+            String modId = dirty.getKey();
+            if (isHiddenEntry(modId)) {
+                dirtyModIds.remove(modId);
                 continue;
             }
+            File modDirectory = new File(modsDir, modId);
+            descriptorIndex.remove(modId);
+            nonModDirs.remove(modId);
+            // The directory or its entry path may have been replaced; watch it afresh.
+            unwatchEntries(modId);
 
-            ModDescriptor descriptor = parseDirectoryMod(entry);
+            ModDescriptor descriptor = modDirectory.isDirectory() ? parseDirectoryMod(modDirectory) : null;
             if (descriptor != null) {
-                descriptors.add(descriptor);
+                descriptorIndex.put(descriptor.id, descriptor);
+            }
+            // A directory that exists without a usable manifest may still be being copied in;
+            // keep it dirty for a while so the next listings look at it again.
+            if (descriptor != null || !modDirectory.exists()) {
+                dirtyModIds.remove(modId);
+            } else if (now - dirty.getValue() >= NON_MOD_SETTLE_MS) {
+                dirtyModIds.remove(modId);
+                nonModDirs.put(modId, nonModStamp(modDirectory));
             }
         }
+    }
 
-        return descriptors;
+    private void markDirty(String modId) {
+        dirtyModIds.putIfAbsent(modId, System.currentTimeMillis());
+    }
+
+    // Changes when files are added to or removed from the directory, or its manifest is rewritten.
+    private static long nonModStamp(File directory) {
+        return directory.lastModified() * 31 + new File(directory, MANIFEST_FILE_NAME).lastModified();
+    }
+
+    /**
+     * Dot-prefixed entries are never mods; FileHandler stages imports in
+     * {@code .<id>.importing<n>} directories next to the mods they become.
+     */
+    private static boolean isHiddenEntry(String name) {
+        return name.startsWith(".");
+    }
+
+    /**
+     * Deletes import staging directories left behind by a crash. Runs once per mods
+     * directory and process, before any import into it can have started.
+     */
+    private void removeStaleStaging() {
+        if (!sweptModsDirs.add(modsDir.getAbsolutePath())) return;
+        File[] stale = modsDir.listFiles((dir, name) -> isHiddenEntry(name) && name.contains(".importing"));
+        if (stale == null) return;
+        for (File dir : stale) {
+            if (!deleteRecursively(dir)) {
+                Log.w(TAG, "Failed to remove stale import staging: " + dir.getAbsolutePath());
+            }
+        }
+    }
+
+    private boolean isDescriptorCurrent(ModDescriptor cached, File modDirectory) {
+        if (cached == null
+                || new File(modDirectory, MANIFEST_FILE_NAME).lastModified() != cached.manifestModified) {
+            return false;
+        }
+        File entryFile = new File(modDirectory, cached.entryPath);
+        return entryFile.isFile()
+                && entryFile.length() == cached.entrySize
+                && entryFile.lastModified() == cached.entryModified;
     }
 
     private boolean migrateTopLevelSoMods() {
@@ -363,6 +636,7 @@ public class ModManager {
         moveFile(looseLibrary, migratedLibrary);
         writeManifest(targetDirectory, displayName, fileName);
         migrateConfigId(fileName, targetDirectory.getName());
+        markDirty(targetDirectory.getName());
         return true;
     }
 
@@ -486,7 +760,10 @@ public class ModManager {
                     modDirectory.getName(),
                     entryFile.getName(),
                     entryPath,
-                    displayName
+                    displayName,
+                    manifestFile.lastModified(),
+                    entryFile.length(),
+                    entryFile.lastModified()
             );
         } catch (Exception e) {
             Log.w(TAG, "Failed to parse mod manifest: " + manifestFile.getAbsolutePath(), e);
@@ -639,4 +916,21 @@ public class ModManager {
         }
         return fileName.substring(0, dotIndex);
     }
+
+    private final class EntryObserver extends FileObserver {
+        final String path;
+        final String modId;
+
+        @SuppressWarnings("deprecation")
+        EntryObserver(String path, String modId) {
+            super(path, WATCH_MASK);
+            this.path = path;
+            this.modId = modId;
+        }
+
+        @Override
+        public void onEvent(int event, String file) {
+            onEntryEvent(this);
+        }
+    }
 }
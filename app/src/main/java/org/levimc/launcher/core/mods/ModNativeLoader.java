@@ -1,39 +1,92 @@
 package org.levimc.launcher.core.mods;
 
+import android.os.SystemClock;
 import android.util.Log;
 
+import org.levimc.launcher.core.minecraft.NativeLibraryPreloader;
+
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class ModNativeLoader {
     private static final String TAG = "ModNativeLoader";
+    private static final String STAGE_STAMP_FILE = ".levi_stage";
+
+    private static final class StagedEntry {
+        final File file;
+        final boolean reused;
+
+        StagedEntry(File file, boolean reused) {
+            this.file = file;
+            this.reused = reused;
+        }
+    }
+
+    /** Mods being copied into the cache, as returned by {@link #stageEnabledSoMods}. */
+    public static final class StagedMods {
+        private final List<Mod> mods;
+        private final File cacheModsDir;
+        private final Map<String, Future<File>> staged;
+
+        private StagedMods(List<Mod> mods, File cacheModsDir, Map<String, Future<File>> staged) {
+            this.mods = mods;
+            this.cacheModsDir = cacheModsDir;
+            this.staged = staged;
+        }
+    }
 
-    public static void loadEnabledSoMods(ModManager modManager, File cacheDir) {
+    /**
+     * Starts staging the enabled mods into {@code cacheDir} in the background, so the copies
+     * and their readahead overlap with loading the game libraries. Pass the result, null
+     * when no version is selected, to {@link #loadStagedSoMods}.
+     */
+    public static StagedMods stageEnabledSoMods(ModManager modManager, File cacheDir) {
         if (modManager.getCurrentVersion() == null || modManager.getCurrentVersion().modsDir == null) {
-            return;
+            return null;
         }
 
-        List<Mod> mods = modManager.getMods();
         File cacheModsDir = new File(cacheDir, "mods");
         if (!cacheModsDir.exists() && !cacheModsDir.mkdirs()) {
             Log.e(TAG, "Failed to create cache mod directory: " + cacheModsDir.getAbsolutePath());
-            return;
+            return null;
         }
 
-        Set<String> stagedModIds = new HashSet<>();
-        for (Mod mod : mods) {
-            if (!mod.isEnabled()) {
-                continue;
+        List<Mod> enabledMods = new ArrayList<>();
+        for (Mod mod : modManager.getMods()) {
+            if (mod.isEnabled()) {
+                enabledMods.add(mod);
             }
+        }
+        return new StagedMods(enabledMods, cacheModsDir, stageMods(modManager, cacheModsDir, enabledMods));
+    }
+
+    public static void loadStagedSoMods(StagedMods stagedMods) {
+        if (stagedMods == null) {
+            return;
+        }
 
+        Set<String> stagedModIds = new HashSet<>();
+        for (Mod mod : stagedMods.mods) {
             try {
-                File targetFile = prepareCachedEntry(modManager, cacheModsDir, mod);
+                File targetFile = awaitStaged(stagedMods.staged.get(mod.getId()));
                 if (targetFile == null || !targetFile.isFile()) {
                     Log.e(TAG, "Entry not found after copy: " + (targetFile == null ? "<null>" : targetFile.getAbsolutePath()));
                     continue;
@@ -41,6 +94,7 @@ public class ModNativeLoader {
 
                 ensureReadOnly(targetFile);
                 stagedModIds.add(mod.getId());
+                long loadStart = SystemClock.elapsedRealtime();
                 System.load(targetFile.getAbsolutePath());
 
                 if (ModManager.ensurePreloaderLoaded()) {
@@ -49,28 +103,160 @@ public class ModNativeLoader {
                         continue;
                     }
                 }
+                Log.i(TAG, "Loaded " + mod.getDisplayName() + " in " + (SystemClock.elapsedRealtime() - loadStart) + " ms");
             } catch (IOException | UnsatisfiedLinkError e) {
                 Log.e(TAG, "Can't load " + mod.getDisplayName() + ": " + e.getMessage(), e);
             }
         }
 
-        pruneStaleCachedMods(cacheModsDir, stagedModIds);
+        pruneStaleCachedMods(stagedMods.cacheModsDir, stagedModIds);
+    }
+
+    private static Map<String, Future<File>> stageMods(ModManager modManager, File cacheModsDir, List<Mod> mods) {
+        Map<String, Future<File>> staged = new HashMap<>();
+        if (mods.isEmpty()) {
+            return staged;
+        }
+
+        int threads = Math.max(1, Math.min(mods.size(), Math.min(4, Runtime.getRuntime().availableProcessors())));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Mod mod : mods) {
+                staged.put(mod.getId(), executor.submit(() -> {
+                    long start = SystemClock.elapsedRealtime();
+                    StagedEntry entry = prepareCachedEntry(modManager, cacheModsDir, mod);
+                    // A fresh copy is still in the page cache; a reused one may have been evicted.
+                    if (entry.reused) {
+                        NativeLibraryPreloader.INSTANCE.warm(Collections.singletonList(entry.file));
+                    }
+                    Log.i(TAG, (entry.reused ? "Reused staged " : "Staged ") + mod.getDisplayName()
+                            + " in " + (SystemClock.elapsedRealtime() - start) + " ms");
+                    return entry.file;
+                }));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return staged;
+    }
+
+    private static File awaitStaged(Future<File> future) throws IOException {
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to stage mod", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while staging mod", e);
+        }
     }
 
-    private static File prepareCachedEntry(ModManager modManager, File cacheModsDir, Mod mod) throws IOException {
+    private static StagedEntry prepareCachedEntry(ModManager modManager, File cacheModsDir, Mod mod) throws IOException {
         File sourceDirectory = new File(modManager.getCurrentVersion().modsDir, mod.getId());
         if (!sourceDirectory.isDirectory()) {
             throw new IOException("Mod package directory does not exist: " + sourceDirectory.getAbsolutePath());
         }
 
         File targetDirectory = new File(cacheModsDir, mod.getId());
+        File targetFile = new File(targetDirectory, mod.getEntryPath());
+        File stampFile = new File(targetDirectory, STAGE_STAMP_FILE);
+        String fingerprint = fingerprint(sourceDirectory, new File(sourceDirectory, mod.getEntryPath()));
+
+        // The stamp also records the staged tree as written, so files a mod adds or
+        // rewrites in its staged directory at runtime cause a fresh copy next launch.
+        if (targetFile.isFile() && (fingerprint + "\n" + treeSummary(targetDirectory, targetFile)).equals(readStamp(stampFile))) {
+            ensureReadOnly(targetFile);
+            return new StagedEntry(targetFile, true);
+        }
+
         if (targetDirectory.exists() && !deleteRecursively(targetDirectory)) {
             throw new IOException("Failed to clear cached mod directory: " + targetDirectory.getAbsolutePath());
         }
         copyDirectory(sourceDirectory, targetDirectory);
-        File targetFile = new File(targetDirectory, mod.getEntryPath());
         ensureReadOnly(targetFile);
-        return targetFile;
+        // Written last so an interrupted copy is never mistaken for a complete one.
+        writeStamp(stampFile, fingerprint + "\n" + treeSummary(targetDirectory, targetFile));
+        return new StagedEntry(targetFile, false);
+    }
+
+    private static String fingerprint(File sourceDirectory, File entryFile) throws IOException {
+        long[] totals = new long[3];
+        accumulateTree(sourceDirectory, totals);
+        return totals[0] + ":" + totals[1] + ":" + totals[2] + ":" + sha256Hex(entryFile);
+    }
+
+    /** File count, total size and newest mtime of {@code directory}, plus its entry's size and mtime. */
+    private static String treeSummary(File directory, File entryFile) {
+        long[] totals = new long[3];
+        accumulateTree(directory, totals);
+        return totals[0] + ":" + totals[1] + ":" + totals[2] + ":" + entryFile.length() + ":" + entryFile.lastModified();
+    }
+
+    private static void accumulateTree(File file, long[] totals) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children == null) {
+                return;
+            }
+            for (File child : children) {
+                if (!STAGE_STAMP_FILE.equals(child.getName())) {
+                    accumulateTree(child, totals);
+                }
+            }
+            return;
+        }
+
+        totals[0]++;
+        totals[1] += file.length();
+        totals[2] = Math.max(totals[2], file.lastModified());
+    }
+
+    private static String sha256Hex(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buf = new byte[65536];
+            int len;
+            while ((len = in.read(buf)) > 0) {
+                digest.update(buf, 0, len);
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static String readStamp(File stampFile) {
+        if (!stampFile.isFile()) {
+            return null;
+        }
+        try {
+            return new String(Files.readAllBytes(stampFile.toPath()), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeStamp(File stampFile, String fingerprint) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(stampFile)) {
+            out.write(fingerprint.getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
     }
 
     private static void copyFile(File src, File dst) throws IOException {
@@ -11,5 +11,13 @@ public class FpsMod {
 
     public static native boolean nativeInit();
     public static native int nativeGetFps();
+
+    /**
+     * Copies swap timestamps (steady clock, ns) of frames from {@code fromSeq} on into
+     * {@code out}, newest ones first kept when more are pending. Returns the sequence
+     * number after the last frame copied, or -1 if the reader fell behind and must
+     * resync from the current sequence.
+     */
+    public static native long nativeReadFrameTimes(long fromSeq, long[] out);
     public static native boolean nativeIsInitialized();
 }
@@ -2,7 +2,9 @@ package org.levimc.launcher.core.mods.inbuilt.overlay;
 
 import android.app.Activity;
 import android.graphics.PixelFormat;
+import android.os.Build;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.SystemClock;
 import android.util.Log;
@@ -14,16 +16,27 @@ import android.view.ViewGroup;
 import android.view.WindowManager;
 import android.widget.FrameLayout;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import org.levimc.launcher.R;
 import org.levimc.launcher.core.mods.inbuilt.manager.InbuiltModManager;
+import org.levimc.launcher.core.mods.inbuilt.model.InbuiltMod;
 import org.levimc.launcher.core.mods.inbuilt.model.ModIds;
 import org.levimc.launcher.core.mods.inbuilt.nativemod.FpsMod;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
 public class FpsDisplayOverlay {
     private static final String TAG = "FpsDisplayOverlay";
     private static final int UPDATE_INTERVAL = 250;
     private static final float DRAG_THRESHOLD = 10f;
+    private static final int LONG_PRESS_MS = 600;
+    // At most half the native ring; see FpsMod.nativeReadFrameTimes.
+    private static final int READ_BATCH = 2048;
 
     private final Activity activity;
     private final WindowManager windowManager;
@@ -31,10 +44,14 @@ public class FpsDisplayOverlay {
 
     private View overlayView;
     private TextView statsText;
+    private FrameTimeGraphView graphView;
     private WindowManager.LayoutParams wmParams;
-    private boolean isShowing = false;
+    private volatile boolean isShowing = false;
     private Runnable pendingShowRunnable;
-    private boolean initialized = false;
+    private volatile boolean initialized = false;
+
+    // Set and cleared on the main thread.
+    private StatsSession stats;
 
     private float initialX, initialY;
     private float initialTouchX, initialTouchY;
@@ -42,15 +59,6 @@ public class FpsDisplayOverlay {
     private boolean isLocked = false;
     private long touchDownTime = 0;
 
-    private final Runnable updateRunnable = new Runnable() {
-        @Override
-        public void run() {
-            if (!isShowing) return;
-            updateDisplay();
-            handler.postDelayed(this, UPDATE_INTERVAL);
-        }
-    };
-
     public FpsDisplayOverlay(Activity activity) {
         this.activity = activity;
         this.windowManager = (WindowManager) activity.getSystemService(Activity.WINDOW_SERVICE);
@@ -85,8 +93,9 @@ public class FpsDisplayOverlay {
         }
 
         try {
-            overlayView = LayoutInflater.from(activity).inflate(R.layout.overlay_stats_display, null);
+            overlayView = LayoutInflater.from(activity).inflate(R.layout.overlay_fps_display, null);
             statsText = overlayView.findViewById(R.id.stats_text);
+            graphView = overlayView.findViewById(R.id.frame_time_graph);
             statsText.setText("FPS: --");
 
             wmParams = new WindowManager.LayoutParams(
@@ -107,7 +116,7 @@ public class FpsDisplayOverlay {
             windowManager.addView(overlayView, wmParams);
             isShowing = true;
 
-            handler.post(updateRunnable);
+            startStats();
             applyOpacity();
             updateLockState();
         } catch (Exception e) {
@@ -120,8 +129,9 @@ public class FpsDisplayOverlay {
         ViewGroup rootView = activity.findViewById(android.R.id.content);
         if (rootView == null) return;
 
-        overlayView = LayoutInflater.from(activity).inflate(R.layout.overlay_stats_display, null);
+        overlayView = LayoutInflater.from(activity).inflate(R.layout.overlay_fps_display, null);
         statsText = overlayView.findViewById(R.id.stats_text);
+        graphView = overlayView.findViewById(R.id.frame_time_graph);
         statsText.setText("FPS: --");
 
         FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(
@@ -137,20 +147,172 @@ public class FpsDisplayOverlay {
         isShowing = true;
         wmParams = null;
 
-        handler.post(updateRunnable);
+        startStats();
         applyOpacity();
         updateLockState();
     }
 
-    private void updateDisplay() {
-        if (statsText != null) {
-            if (initialized && FpsMod.nativeIsInitialized()) {
-                int fps = FpsMod.nativeGetFps();
-                statsText.setText("FPS: " + fps);
-            } else {
-                statsText.setText("FPS: --");
+    private void startStats() {
+        stats = new StatsSession();
+        stats.start();
+    }
+
+    private void stopStats() {
+        if (stats == null) return;
+        stats.stop();
+        stats = null;
+    }
+
+    private void showStats(StatsSession session, String text, float[] graph, int graphCount) {
+        if (session != stats || statsText == null) return;
+        statsText.setText(text);
+        if (graphView != null) {
+            graphView.setVisibility(graph == null ? View.GONE : View.VISIBLE);
+            if (graph != null) graphView.setSamples(graph, graphCount);
+        }
+    }
+
+    /** Starts or stops a CSV benchmark session; bound to a long press on the overlay. */
+    private void toggleRecording() {
+        if (stats == null) return;
+        stats.toggleRecording(sessionHeader(), benchmarkDir());
+    }
+
+    /**
+     * One show/hide cycle of the stats thread. The loop only ever posts to its own
+     * handler and stops once the session ends, so a quick hide/show cannot leak it into
+     * the next session. Everything below the handler is owned by the session's thread.
+     */
+    private final class StatsSession implements Runnable {
+        private final HandlerThread thread = new HandlerThread("FpsStats");
+        private final Handler statsHandler;
+        private volatile boolean active = true;
+
+        private final FrameTimeStats frameStats = new FrameTimeStats();
+        private final long[] frameBuffer = new long[READ_BATCH];
+        private long frameSeq = -1;
+        private long lastSwapNanos = -1;
+        private FrameTimeRecorder recorder;
+
+        StatsSession() {
+            thread.start();
+            statsHandler = new Handler(thread.getLooper());
+        }
+
+        void start() {
+            statsHandler.post(this);
+        }
+
+        void stop() {
+            active = false;
+            statsHandler.removeCallbacks(this);
+            statsHandler.post(this::stopRecording);
+            thread.quitSafely();
+        }
+
+        @Override
+        public void run() {
+            if (!active) return;
+            collectStats();
+            if (active) statsHandler.postDelayed(this, UPDATE_INTERVAL);
+        }
+
+        /** Drains new frames from native, then hands a snapshot to the UI. */
+        private void collectStats() {
+            if (!initialized || !FpsMod.nativeIsInitialized()) {
+                handler.post(() -> showStats(this, "FPS: --", null, 0));
+                return;
+            }
+            long end = FpsMod.nativeReadFrameTimes(frameSeq, frameBuffer);
+            if (end < 0) {
+                frameSeq = -1;
+                lastSwapNanos = -1;
+                return;
+            }
+            int count = frameSeq < 0 ? 0 : (int) Math.min(end - frameSeq, frameBuffer.length);
+            if (frameSeq >= 0 && end - frameSeq > count) lastSwapNanos = -1;
+            for (int i = 0; i < count; i++) {
+                long swap = frameBuffer[i];
+                if (lastSwapNanos >= 0) frameStats.add(swap - lastSwapNanos);
+                lastSwapNanos = swap;
+                if (recorder != null) {
+                    try {
+                        recorder.record(swap);
+                    } catch (IOException e) {
+                        Log.w(TAG, "Frame time recording failed", e);
+                        recorder.abort();
+                        recorder = null;
+                        handler.post(() -> toast(activity.getString(R.string.fps_recording_failed)));
+                    }
+                }
+            }
+            frameSeq = end;
+
+            StringBuilder text = new StringBuilder("FPS: ").append(FpsMod.nativeGetFps());
+            if (frameStats.size() > 0) {
+                text.append(String.format(Locale.US, "  1%% low: %.0f\np50 %.1f  p95 %.1f  p99 %.1f ms",
+                        frameStats.onePercentLowFps(), frameStats.percentileMs(0.50),
+                        frameStats.percentileMs(0.95), frameStats.percentileMs(0.99)));
+            }
+            if (recorder != null) text.append("  \u25CF REC");
+            float[] graph = new float[FrameTimeGraphView.SAMPLES];
+            int graphCount = frameStats.recent(graph);
+            String snapshot = text.toString();
+            handler.post(() -> showStats(this, snapshot, graph, graphCount));
+        }
+
+        void toggleRecording(List<String> header, File dir) {
+            statsHandler.post(() -> {
+                if (recorder != null) {
+                    stopRecording();
+                    return;
+                }
+                if (!active) return;
+                try {
+                    recorder = FrameTimeRecorder.start(dir, header);
+                    handler.post(() -> toast(activity.getString(R.string.fps_recording_started)));
+                } catch (IOException e) {
+                    Log.w(TAG, "Cannot start frame time recording", e);
+                    handler.post(() -> toast(activity.getString(R.string.fps_recording_failed)));
+                }
+            });
+        }
+
+        private void stopRecording() {
+            if (recorder == null) return;
+            try {
+                File file = recorder.finish();
+                handler.post(() -> toast(activity.getString(R.string.fps_recording_saved, file.getAbsolutePath())));
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot finish frame time recording", e);
+                handler.post(() -> toast(activity.getString(R.string.fps_recording_failed)));
             }
+            recorder = null;
+        }
+    }
+
+    private List<String> sessionHeader() {
+        List<String> lines = new ArrayList<>();
+        String gameVersion = activity.getIntent() != null ? activity.getIntent().getStringExtra("MINECRAFT_VERSION") : null;
+        lines.add("game_version=" + (gameVersion != null ? gameVersion : "unknown"));
+        lines.add("device=" + Build.MANUFACTURER + " " + Build.MODEL);
+        lines.add("android=" + Build.VERSION.RELEASE);
+        StringBuilder mods = new StringBuilder();
+        for (InbuiltMod mod : InbuiltModManager.getInstance(activity).getAddedMods(activity)) {
+            if (mods.length() > 0) mods.append(';');
+            mods.append(mod.getId());
         }
+        lines.add("inbuilt_mods=" + mods);
+        return lines;
+    }
+
+    private File benchmarkDir() {
+        File base = activity.getExternalFilesDir(null);
+        return new File(base != null ? base : activity.getFilesDir(), "benchmarks");
+    }
+
+    private void toast(String message) {
+        Toast.makeText(activity.getApplicationContext(), message, Toast.LENGTH_LONG).show();
     }
 
     private void applyOpacity() {
@@ -193,6 +355,9 @@ public class FpsDisplayOverlay {
             case MotionEvent.ACTION_CANCEL:
                 if (isDragging && !isLocked) {
                     savePosition(wmParams.x, wmParams.y);
+                } else if (!isDragging && event.getActionMasked() == MotionEvent.ACTION_UP
+                        && SystemClock.uptimeMillis() - touchDownTime >= LONG_PRESS_MS) {
+                    toggleRecording();
                 }
                 isDragging = false;
                 v.getParent().requestDisallowInterceptTouchEvent(false);
@@ -236,6 +401,9 @@ public class FpsDisplayOverlay {
                 if (isDragging && !isLocked) {
                     savePosition((int) (initialX + (event.getRawX() - initialTouchX)), 
                                  (int) (initialY + (event.getRawY() - initialTouchY)));
+                } else if (!isDragging && event.getActionMasked() == MotionEvent.ACTION_UP
+                        && SystemClock.uptimeMillis() - touchDownTime >= LONG_PRESS_MS) {
+                    toggleRecording();
                 }
                 isDragging = false;
                 v.getParent().requestDisallowInterceptTouchEvent(false);
@@ -251,7 +419,7 @@ public class FpsDisplayOverlay {
         }
         if (!isShowing) return;
         isShowing = false;
-        handler.removeCallbacks(updateRunnable);
+        stopStats();
         try {
             if (wmParams != null && windowManager != null) {
                 windowManager.removeView(overlayView);
@@ -264,6 +432,7 @@ public class FpsDisplayOverlay {
         } catch (Exception ignored) {}
         overlayView = null;
         statsText = null;
+        graphView = null;
     }
 
     public void applyConfigurationChanges() {
@@ -0,0 +1,67 @@
+package org.levimc.launcher.core.mods.inbuilt.overlay;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Rolling bar graph of recent frame times for the FPS overlay. Bars past the
+ * 60 Hz budget turn amber, past two budgets red.
+ */
+public class FrameTimeGraphView extends View {
+
+    static final int SAMPLES = 120;
+    private static final float BUDGET_MS = 1000f / 60f;
+    private static final float SCALE_MS = BUDGET_MS * 3;
+
+    private final Paint barPaint = new Paint();
+    private final Paint budgetPaint = new Paint();
+    private float[] samples = new float[0];
+    private int sampleCount;
+
+    public FrameTimeGraphView(Context context) {
+        super(context);
+        init();
+    }
+
+    public FrameTimeGraphView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    private void init() {
+        budgetPaint.setColor(0x66FFFFFF);
+        budgetPaint.setStrokeWidth(1f);
+    }
+
+    /** Takes ownership of {@code frameMs}; the first {@code count} entries are drawn, oldest left. */
+    public void setSamples(float[] frameMs, int count) {
+        samples = frameMs;
+        sampleCount = count;
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        int width = getWidth();
+        int height = getHeight();
+        if (width == 0 || height == 0) return;
+
+        float barWidth = (float) width / SAMPLES;
+        float left = width - sampleCount * barWidth;
+        for (int i = 0; i < sampleCount; i++) {
+            float ms = samples[i];
+            barPaint.setColor(ms > BUDGET_MS * 2 ? Color.RED : ms > BUDGET_MS * 1.2f ? 0xFFFFB300 : 0xFF66BB6A);
+            float top = height - Math.min(ms / SCALE_MS, 1f) * height;
+            canvas.drawRect(left + i * barWidth, top, left + (i + 1) * barWidth, height, barPaint);
+        }
+        float budgetY = height - BUDGET_MS / SCALE_MS * height;
+        canvas.drawLine(0, budgetY, width, budgetY, budgetPaint);
+    }
+}
@@ -0,0 +1,92 @@
+package org.levimc.launcher.core.mods.inbuilt.overlay;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streams every frame of a benchmark session to a CSV file: one row per frame with
+ * its swap time relative to the session start and its frame time, both in ms.
+ * Comment lines at the top describe the run so sessions across game versions and
+ * mod sets can be told apart. Used from the FPS overlay's stats thread only.
+ */
+final class FrameTimeRecorder {
+
+    private final File file;
+    private final Writer writer;
+    private final StringBuilder row = new StringBuilder(32);
+    private long startNanos = -1;
+    private long lastNanos;
+    private long frames;
+
+    private FrameTimeRecorder(File file) throws IOException {
+        this.file = file;
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    static FrameTimeRecorder start(File dir, List<String> headerLines) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        String name = "frametimes-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + ".csv";
+        FrameTimeRecorder recorder = new FrameTimeRecorder(new File(dir, name));
+        for (String line : headerLines) {
+            recorder.writer.write("# ");
+            recorder.writer.write(line);
+            recorder.writer.write('\n');
+        }
+        recorder.writer.write("frame,time_ms,frame_time_ms\n");
+        return recorder;
+    }
+
+    /** Records one swap; the first one only sets the session origin. */
+    void record(long swapNanos) throws IOException {
+        if (startNanos < 0) {
+            startNanos = swapNanos;
+            lastNanos = swapNanos;
+            return;
+        }
+        row.setLength(0);
+        row.append(++frames).append(',');
+        appendMillis(row, swapNanos - startNanos).append(',');
+        appendMillis(row, swapNanos - lastNanos).append('\n');
+        writer.append(row);
+        lastNanos = swapNanos;
+    }
+
+    /** Closes the file and returns it. */
+    File finish() throws IOException {
+        try {
+            if (frames > 0) {
+                writer.write("# frames=" + frames + " duration_ms=");
+                writer.append(appendMillis(new StringBuilder(), lastNanos - startNanos)).write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    void abort() {
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    // Fixed three decimals without String.format, which is too slow to call per frame.
+    private static StringBuilder appendMillis(StringBuilder sb, long nanos) {
+        long micros = nanos / 1000;
+        sb.append(micros / 1000).append('.');
+        long frac = micros % 1000;
+        if (frac < 100) sb.append('0');
+        if (frac < 10) sb.append('0');
+        return sb.append(frac);
+    }
+}
@@ -0,0 +1,84 @@
+package org.levimc.launcher.core.mods.inbuilt.overlay;
+
+/**
+ * Sliding window of recent frame times with a bucketed histogram kept in step, so
+ * percentiles and the 1% low come from a bucket scan instead of a sort. Not thread
+ * safe; owned by the FPS overlay's stats thread.
+ */
+final class FrameTimeStats {
+
+    static final int WINDOW_FRAMES = 1024;
+    // 0.1 ms buckets up to 100 ms; slower frames share the last bucket.
+    private static final int BUCKET_MICROS = 100;
+    private static final int BUCKETS = 1001;
+    // Longer gaps are pauses (backgrounded, loading screen), not frames.
+    private static final long MAX_FRAME_NANOS = 1_000_000_000L;
+
+    private final int[] window = new int[WINDOW_FRAMES];
+    private final int[] histogram = new int[BUCKETS];
+    private int head;
+    private int count;
+
+    /** Adds one frame; returns false if it was discarded as a pause. */
+    boolean add(long frameNanos) {
+        if (frameNanos <= 0 || frameNanos > MAX_FRAME_NANOS) return false;
+        int micros = (int) (frameNanos / 1000);
+        if (count == WINDOW_FRAMES) {
+            int old = window[head];
+            histogram[bucket(old)]--;
+        } else {
+            count++;
+        }
+        window[head] = micros;
+        head = (head + 1) % WINDOW_FRAMES;
+        histogram[bucket(micros)]++;
+        return true;
+    }
+
+    int size() { return count; }
+
+    /** Frame time in ms below which {@code fraction} of the window falls, at bucket resolution. */
+    float percentileMs(double fraction) {
+        if (count == 0) return 0f;
+        int rank = (int) Math.ceil(fraction * count);
+        int seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += histogram[b];
+            if (seen >= Math.max(rank, 1)) return bucketMs(b);
+        }
+        return bucketMs(BUCKETS - 1);
+    }
+
+    /** Average FPS over the slowest 1% of frames in the window. */
+    float onePercentLowFps() {
+        if (count == 0) return 0f;
+        int want = Math.max(1, count / 100);
+        int taken = 0;
+        double sumMs = 0;
+        for (int b = BUCKETS - 1; b >= 0 && taken < want; b--) {
+            int n = Math.min(histogram[b], want - taken);
+            sumMs += n * bucketMs(b);
+            taken += n;
+        }
+        return sumMs <= 0 ? 0f : (float) (1000.0 * taken / sumMs);
+    }
+
+    /** Copies the newest frame times in ms, oldest first, into {@code out}; returns how many. */
+    int recent(float[] out) {
+        int n = Math.min(out.length, count);
+        int start = head - n;
+        for (int i = 0; i < n; i++) {
+            out[i] = window[(start + i + WINDOW_FRAMES) % WINDOW_FRAMES] / 1000f;
+        }
+        return n;
+    }
+
+    private static int bucket(int micros) {
+        return Math.min(micros / BUCKET_MICROS, BUCKETS - 1);
+    }
+
+    private static float bucketMs(int bucket) {
+        // Upper edge of the bucket, so percentiles never read optimistic.
+        return (bucket + 1) * BUCKET_MICROS / 1000f;
+    }
+}
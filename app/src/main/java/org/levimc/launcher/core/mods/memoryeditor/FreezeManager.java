@@ -1,29 +1,21 @@
 package org.levimc.launcher.core.mods.memoryeditor;
 
-import android.os.Handler;
-import android.os.Looper;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Keeps frozen addresses pinned. The writes run on a native thread; this class only
+ * tracks the list and hands it over as pre-parsed raw values whenever it changes.
+ */
 public class FreezeManager {
     private static volatile FreezeManager instance;
     private final List<MemoryAddress> frozenAddresses = new CopyOnWriteArrayList<>();
-    private final Handler handler = new Handler(Looper.getMainLooper());
     private boolean running = false;
-    private static final int FREEZE_INTERVAL = 50;
-
-    private final Runnable freezeRunnable = new Runnable() {
-        @Override
-        public void run() {
-            if (!running) return;
-            for (MemoryAddress addr : frozenAddresses) {
-                if (addr.isFrozen() && !addr.getFrozenValue().isEmpty()) {
-                    addr.writeValue(addr.getFrozenValue());
-                }
-            }
-            handler.postDelayed(this, FREEZE_INTERVAL);
-        }
-    };
+    private static final long DEFAULT_INTERVAL_NANOS = 50 * 1_000_000L;
+    // Kept across stop/start so the chosen rate survives reopening the editor.
+    private volatile long intervalNanos = DEFAULT_INTERVAL_NANOS;
+    private volatile boolean perFrame = false;
 
     private FreezeManager() {}
 
@@ -41,30 +33,121 @@ public class FreezeManager {
     public void start() {
         if (!running) {
             running = true;
-            handler.post(freezeRunnable);
+            try {
+                MemoryEditorNative.nativeSetFreezeInterval(intervalNanos);
+                refresh();
+                MemoryEditorNative.nativeStartFreezer();
+            } catch (UnsatisfiedLinkError e) {
+                running = false;
+            }
         }
     }
 
     public void stop() {
+        if (!running) return;
         running = false;
-        handler.removeCallbacks(freezeRunnable);
+        try {
+            MemoryEditorNative.nativeStopFreezer();
+        } catch (UnsatisfiedLinkError ignored) {
+        }
+    }
+
+    public void setIntervalMs(int intervalMs) {
+        perFrame = false;
+        setIntervalNanos(intervalMs * 1_000_000L);
+    }
+
+    /** Writes once per display frame, e.g. pass {@code Display.getRefreshRate()}. */
+    public void setPerFrame(float refreshRate) {
+        if (refreshRate <= 0f) return;
+        perFrame = true;
+        setIntervalNanos((long) (1_000_000_000L / refreshRate));
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    public boolean isPerFrame() {
+        return perFrame;
+    }
+
+    private void setIntervalNanos(long intervalNanos) {
+        this.intervalNanos = intervalNanos;
+        try {
+            MemoryEditorNative.nativeSetFreezeInterval(intervalNanos);
+        } catch (UnsatisfiedLinkError ignored) {
+        }
+    }
+
+    /** Smoothed wall time of one freeze tick in nanoseconds, or 0 before the first tick. */
+    public long getTickCostNanos() {
+        try {
+            return MemoryEditorNative.nativeGetFreezeTickNanos();
+        } catch (UnsatisfiedLinkError e) {
+            return 0;
+        }
     }
 
     public void addFrozenAddress(MemoryAddress address) {
         if (!frozenAddresses.contains(address)) {
             frozenAddresses.add(address);
         }
+        refresh();
     }
 
     public void removeFrozenAddress(MemoryAddress address) {
         frozenAddresses.remove(address);
+        refresh();
     }
 
     public void clearAll() {
         frozenAddresses.clear();
+        refresh();
     }
 
     public boolean isRunning() {
         return running;
     }
+
+    /** Re-parses the frozen values and pushes the write list; call after editing a frozen value. */
+    public void refresh() {
+        int size = frozenAddresses.size();
+        long[] addresses = new long[size];
+        int[] types = new int[size];
+        long[] rawValues = new long[size];
+        int count = 0;
+        for (MemoryAddress addr : frozenAddresses) {
+            if (count == size) break;
+            if (!addr.isFrozen() || addr.getFrozenValue().isEmpty()) continue;
+            try {
+                rawValues[count] = parseRawBits(addr.getType(), addr.getFrozenValue());
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            addresses[count] = addr.getAddress();
+            types[count] = addr.getType().getId();
+            count++;
+        }
+        if (count < size) {
+            addresses = Arrays.copyOf(addresses, count);
+            types = Arrays.copyOf(types, count);
+            rawValues = Arrays.copyOf(rawValues, count);
+        }
+        try {
+            MemoryEditorNative.nativeSetFreezeList(addresses, types, rawValues);
+        } catch (UnsatisfiedLinkError ignored) {
+        }
+    }
+
+    private static long parseRawBits(ValueType type, String value) {
+        switch (type) {
+            case BYTE: return Byte.parseByte(value);
+            case WORD: return Short.parseShort(value);
+            case QWORD: return Long.parseLong(value);
+            case FLOAT: return Float.floatToRawIntBits(Float.parseFloat(value));
+            case DOUBLE: return Double.doubleToRawLongBits(Double.parseDouble(value));
+            default: return Integer.parseInt(value);
+        }
+    }
 }
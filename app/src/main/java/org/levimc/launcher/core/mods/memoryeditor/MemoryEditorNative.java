@@ -1,13 +1,18 @@
 package org.levimc.launcher.core.mods.memoryeditor;
 
+import java.nio.ByteBuffer;
+
 public class MemoryEditorNative {
     static {
         System.loadLibrary("memoryeditor");
     }
 
     public static native void nativeInit();
+    public static native void nativeSetCacheDir(String path);
     public static native void nativeRefreshRegions();
     public static native int nativeGetRegionCount();
+    public static native void nativeSetRegionClasses(int mask);
+    public static native void nativeGetRegionClassTotals(long[] out);
     
     public static native void nativeSearchByte(byte value, boolean isXor, long xorKey);
     public static native void nativeSearchWord(short value, boolean isXor, long xorKey);
@@ -15,6 +20,7 @@ public class MemoryEditorNative {
     public static native void nativeSearchQword(long value, boolean isXor, long xorKey);
     public static native void nativeSearchFloat(float value, boolean isXor, long xorKey);
     public static native void nativeSearchDouble(double value, boolean isXor, long xorKey);
+    public static native void nativeSearchUnknown(int type);
     
     public static native void nativeFilterByte(byte value, int condition, boolean isXor, long xorKey);
     public static native void nativeFilterWord(short value, int condition, boolean isXor, long xorKey);
@@ -22,7 +28,9 @@ public class MemoryEditorNative {
     public static native void nativeFilterQword(long value, int condition, boolean isXor, long xorKey);
     public static native void nativeFilterFloat(float value, int condition, boolean isXor, long xorKey);
     public static native void nativeFilterDouble(double value, int condition, boolean isXor, long xorKey);
+    public static native void nativeFilterFuzzy(int condition, boolean isXor, long xorKey);
     
+    public static native int nativeGetScanProgress();
     public static native int nativeGetResultCount();
     public static native long[] nativeGetResults(int offset, int count);
     public static native void nativeClearResults();
@@ -33,6 +41,7 @@ public class MemoryEditorNative {
     public static native long nativeReadQword(long address);
     public static native float nativeReadFloat(long address);
     public static native double nativeReadDouble(long address);
+    public static native boolean nativeReadMany(long[] addresses, int[] types, ByteBuffer out);
     
     public static native boolean nativeWriteByte(long address, byte value);
     public static native boolean nativeWriteWord(long address, short value);
@@ -41,6 +50,12 @@ public class MemoryEditorNative {
     public static native boolean nativeWriteFloat(long address, float value);
     public static native boolean nativeWriteDouble(long address, double value);
     
+    public static native void nativeSetFreezeList(long[] addresses, int[] types, long[] rawValues);
+    public static native void nativeSetFreezeInterval(long intervalNanos);
+    public static native void nativeStartFreezer();
+    public static native void nativeStopFreezer();
+    public static native long nativeGetFreezeTickNanos();
+    
     public static native int nativeGetSearchType();
     public static native long nativeGetMinecraftBase();
     public static native void nativeClose();
@@ -47,7 +47,7 @@ public class MemoryEditorOverlay {
     private View editorContainer;
     private Spinner spinnerType, spinnerCondition;
     private EditText inputValue;
-    private Button btnSearch, btnFilter, btnReset;
+    private Button btnSearch, btnFilter, btnReset, btnRegions;
     private Button btnTabSearch, btnTabSaved;
     private TextView resultCount, baseAddressText;
     private RecyclerView resultsRecycler;
@@ -55,6 +55,30 @@ public class MemoryEditorOverlay {
     private MemorySavedAdapter savedAdapter;
     private boolean showingSaved = false;
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final long SEARCH_PROGRESS_INTERVAL_MS = 200;
+    private static final long VALUE_REFRESH_INTERVAL_MS = 100;
+    private static final int[] FREEZE_INTERVALS_MS = {20, 50, 100, 250};
+    private final Runnable valueRefresher = new Runnable() {
+        @Override
+        public void run() {
+            if (!isShowing || overlayView == null || resultsRecycler == null) return;
+            if (showingSaved) {
+                savedAdapter.refreshVisibleValues(resultsRecycler);
+            } else {
+                resultAdapter.refreshVisibleValues(resultsRecycler);
+            }
+            handler.postDelayed(this, VALUE_REFRESH_INTERVAL_MS);
+        }
+    };
+    private final Runnable searchProgressUpdater = new Runnable() {
+        @Override
+        public void run() {
+            if (resultCount == null) return;
+            int permille = MemorySearchEngine.getInstance().getProgress();
+            resultCount.setText("Searching... " + (permille / 10) + "%");
+            handler.postDelayed(this, SEARCH_PROGRESS_INTERVAL_MS);
+        }
+    };
 
     public MemoryEditorOverlay(Activity activity) {
         this.activity = activity;
@@ -74,7 +98,7 @@ public class MemoryEditorOverlay {
     private void showInternal() {
         if (isShowing || activity.isFinishing() || activity.isDestroyed()) return;
         try {
-            MemorySearchEngine.getInstance().init();
+            MemorySearchEngine.getInstance().init(activity);
             FreezeManager.getInstance().start();
             overlayView = LayoutInflater.from(activity).inflate(R.layout.overlay_memory_editor, null);
             setupViews();
@@ -103,7 +127,7 @@ public class MemoryEditorOverlay {
         if (isShowing) return;
         ViewGroup rootView = activity.findViewById(android.R.id.content);
         if (rootView == null) return;
-        MemorySearchEngine.getInstance().init();
+        MemorySearchEngine.getInstance().init(activity);
         FreezeManager.getInstance().start();
         overlayView = LayoutInflater.from(activity).inflate(R.layout.overlay_memory_editor, null);
         setupViews();
@@ -127,6 +151,7 @@ public class MemoryEditorOverlay {
         btnSearch = overlayView.findViewById(R.id.btn_search);
         btnFilter = overlayView.findViewById(R.id.btn_filter);
         btnReset = overlayView.findViewById(R.id.btn_reset);
+        btnRegions = overlayView.findViewById(R.id.btn_regions);
         btnTabSearch = overlayView.findViewById(R.id.btn_tab_search);
         btnTabSaved = overlayView.findViewById(R.id.btn_tab_saved);
         resultCount = overlayView.findViewById(R.id.result_count);
@@ -144,7 +169,7 @@ public class MemoryEditorOverlay {
         spinnerType.setAdapter(typeAdapter);
         spinnerType.setSelection(4);
 
-        String[] conditions = {"=", "≠", ">", "<", "≥", "≤"};
+        String[] conditions = {"=", "≠", ">", "<", "≥", "≤", "↑", "↓", "≠ prev", "= prev"};
         ArrayAdapter<String> condAdapter = new ArrayAdapter<>(activity, R.layout.spinner_item_memory, conditions);
         condAdapter.setDropDownViewResource(R.layout.spinner_dropdown_item_memory);
         spinnerCondition.setAdapter(condAdapter);
@@ -203,6 +228,8 @@ public class MemoryEditorOverlay {
             resultAdapter.updateItems(java.util.Collections.emptyList());
         });
 
+        btnRegions.setOnClickListener(v -> showRegionClassDialog());
+
         btnTabSearch.setOnClickListener(v -> {
             showingSaved = false;
             btnTabSearch.setTextColor(0xFF00FF88);
@@ -247,6 +274,8 @@ public class MemoryEditorOverlay {
 
         updateResultCount();
         refreshSearchResults();
+        handler.removeCallbacks(valueRefresher);
+        handler.postDelayed(valueRefresher, VALUE_REFRESH_INTERVAL_MS);
     }
 
     public void requestFocusForEdit(EditText editText) {
@@ -293,8 +322,8 @@ public class MemoryEditorOverlay {
     }
 
     private void performSearch() {
+        // An empty value starts an unknown-initial-value search.
         String value = inputValue.getText().toString().trim();
-        if (value.isEmpty()) return;
         hideKeyboard();
         int typePos = spinnerType.getSelectedItemPosition();
         ValueType type = ValueType.fromId(typePos);
@@ -308,9 +337,15 @@ public class MemoryEditorOverlay {
         }
         resultCount.setText("Searching...");
         btnSearch.setEnabled(false);
+        handler.postDelayed(searchProgressUpdater, SEARCH_PROGRESS_INTERVAL_MS);
         executor.execute(() -> {
-            engine.search(value);
+            if (value.isEmpty()) {
+                engine.searchUnknown();
+            } else {
+                engine.search(value);
+            }
             handler.post(() -> {
+                handler.removeCallbacks(searchProgressUpdater);
                 btnSearch.setEnabled(true);
                 updateResultCount();
                 refreshSearchResults();
@@ -320,15 +355,15 @@ public class MemoryEditorOverlay {
 
     private void performFilter() {
         String value = inputValue.getText().toString().trim();
-        if (value.isEmpty()) return;
+        int condPos = spinnerCondition.getSelectedItemPosition();
+        SearchCondition condition = SearchCondition.fromId(condPos);
+        if (value.isEmpty() && !condition.isSnapshotCompare()) return;
         int currentResults = MemorySearchEngine.getInstance().getResultCount();
         if (currentResults == 0) {
             resultCount.setText("Search first!");
             return;
         }
         hideKeyboard();
-        int condPos = spinnerCondition.getSelectedItemPosition();
-        SearchCondition condition = SearchCondition.fromId(condPos);
         resultCount.setText("Filtering " + currentResults + "...");
         btnFilter.setEnabled(false);
         executor.execute(() -> {
@@ -465,6 +500,7 @@ public class MemoryEditorOverlay {
         if (!isShowing || overlayView == null) return;
         hideKeyboard();
         handler.post(() -> {
+            handler.removeCallbacks(valueRefresher);
             try {
                 if (wmParams != null && windowManager != null) {
                     windowManager.removeView(overlayView);
@@ -484,6 +520,8 @@ public class MemoryEditorOverlay {
         if (!isShowing || overlayView == null) return;
         hideKeyboard();
         handler.post(() -> {
+            handler.removeCallbacks(searchProgressUpdater);
+            handler.removeCallbacks(valueRefresher);
             try {
                 FreezeManager.getInstance().stop();
                 MemorySearchEngine.getInstance().close();
@@ -505,6 +543,72 @@ public class MemoryEditorOverlay {
         return isShowing;
     }
 
+    private void showRegionClassDialog() {
+        // The totals re-read the region list, which a running search may be iterating.
+        MemorySearchEngine engine = MemorySearchEngine.getInstance();
+        executor.execute(() -> {
+            long[] totals = engine.getRegionClassTotals();
+            handler.post(() -> {
+                if (isShowing) showRegionClassDialog(engine, totals);
+            });
+        });
+    }
+
+    private void showRegionClassDialog(MemorySearchEngine engine, long[] totals) {
+        RegionClass[] classes = RegionClass.values();
+        String[] labels = new String[classes.length];
+        boolean[] checked = new boolean[classes.length];
+        int mask = engine.getRegionMask();
+        for (int i = 0; i < classes.length; i++) {
+            long megabytes = totals[classes[i].getId()] >> 20;
+            labels[i] = classes[i].getName() + " (" + megabytes + " MB)";
+            checked[i] = (mask & classes[i].bit()) != 0;
+        }
+
+        AlertDialog dialog = new AlertDialog.Builder(activity)
+            .setTitle(R.string.memory_editor_regions)
+            .setMultiChoiceItems(labels, checked, (d, which, isChecked) -> checked[which] = isChecked)
+            .setPositiveButton(R.string.dialog_positive_ok, (d, which) -> {
+                int newMask = 0;
+                for (int i = 0; i < classes.length; i++) {
+                    if (checked[i]) newMask |= classes[i].bit();
+                }
+                engine.setRegionMask(newMask);
+            })
+            .setNegativeButton(R.string.dialog_negative_cancel, null)
+            .setNeutralButton(R.string.memory_editor_freeze_rate, (d, which) -> showFreezeRateDialog())
+            .create();
+        dialog.show();
+    }
+
+    @SuppressWarnings("deprecation")
+    private void showFreezeRateDialog() {
+        FreezeManager freezer = FreezeManager.getInstance();
+        String[] labels = new String[FREEZE_INTERVALS_MS.length + 1];
+        labels[0] = activity.getString(R.string.memory_editor_freeze_every_frame);
+        int checked = freezer.isPerFrame() ? 0 : -1;
+        for (int i = 0; i < FREEZE_INTERVALS_MS.length; i++) {
+            labels[i + 1] = activity.getString(R.string.memory_editor_freeze_every_ms, FREEZE_INTERVALS_MS[i]);
+            if (!freezer.isPerFrame() && freezer.getIntervalNanos() == FREEZE_INTERVALS_MS[i] * 1_000_000L) {
+                checked = i + 1;
+            }
+        }
+        long tickMicros = freezer.getTickCostNanos() / 1000;
+
+        new AlertDialog.Builder(activity)
+            .setTitle(activity.getString(R.string.memory_editor_freeze_rate_title, tickMicros))
+            .setSingleChoiceItems(labels, checked, (d, which) -> {
+                if (which == 0) {
+                    freezer.setPerFrame(activity.getWindowManager().getDefaultDisplay().getRefreshRate());
+                } else {
+                    freezer.setIntervalMs(FREEZE_INTERVALS_MS[which - 1]);
+                }
+                d.dismiss();
+            })
+            .setNegativeButton(R.string.dialog_negative_cancel, null)
+            .show();
+    }
+
     private void showOverlayConfigDialog(int position, MemoryAddress address) {
         View dialogView = LayoutInflater.from(activity).inflate(R.layout.dialog_memory_overlay_config, null);
         EditText editName = dialogView.findViewById(R.id.edit_name);
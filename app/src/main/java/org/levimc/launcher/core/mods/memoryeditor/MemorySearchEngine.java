@@ -1,14 +1,21 @@
 package org.levimc.launcher.core.mods.memoryeditor;
 
+import android.content.Context;
+import android.content.SharedPreferences;
+
 import java.util.ArrayList;
 import java.util.List;
 
 public class MemorySearchEngine {
+    private static final String PREFS_NAME = "memory_editor_settings";
+    private static final String KEY_REGION_MASK = "region_mask";
     private static volatile MemorySearchEngine instance;
     private ValueType currentType = ValueType.DWORD;
     private boolean isXorMode = false;
     private long xorKey = 0;
     private boolean initialized = false;
+    private SharedPreferences prefs;
+    private int regionMask = RegionClass.DEFAULT_MASK;
 
     private MemorySearchEngine() {}
 
@@ -23,9 +30,14 @@ public class MemorySearchEngine {
         return instance;
     }
 
-    public void init() {
+    public void init(Context context) {
         if (!initialized) {
             MemoryEditorNative.nativeInit();
+            // Large result sets spill to an unlinked temp file here instead of growing the heap.
+            MemoryEditorNative.nativeSetCacheDir(context.getCacheDir().getAbsolutePath());
+            prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            regionMask = prefs.getInt(KEY_REGION_MASK, RegionClass.DEFAULT_MASK);
+            MemoryEditorNative.nativeSetRegionClasses(regionMask);
             initialized = true;
         }
     }
@@ -43,6 +55,28 @@ public class MemorySearchEngine {
     public void setXorKey(long key) { this.xorKey = key; }
     public long getXorKey() { return xorKey; }
 
+    public int getRegionMask() { return regionMask; }
+
+    /** Limits later scans to the given {@link RegionClass} bits; remembered across sessions. */
+    public void setRegionMask(int mask) {
+        regionMask = mask;
+        MemoryEditorNative.nativeSetRegionClasses(mask);
+        if (prefs != null) {
+            prefs.edit().putInt(KEY_REGION_MASK, mask).apply();
+        }
+    }
+
+    /**
+     * Bytes of scannable memory currently mapped in each class, indexed by
+     * {@link RegionClass#getId()}. Refreshes the region list, so call it on the thread
+     * that runs searches and filters.
+     */
+    public long[] getRegionClassTotals() {
+        long[] totals = new long[RegionClass.values().length];
+        MemoryEditorNative.nativeGetRegionClassTotals(totals);
+        return totals;
+    }
+
     public void search(String valueStr) {
         MemoryEditorNative.nativeRefreshRegions();
         try {
@@ -73,6 +107,17 @@ public class MemorySearchEngine {
         } catch (NumberFormatException ignored) {}
     }
 
+    /**
+     * Unknown initial value: snapshots every candidate page so later filters can ask
+     * for values that increased, decreased, changed or stayed the same.
+     */
+    public void searchUnknown() {
+        MemoryEditorNative.nativeRefreshRegions();
+        ValueType type = currentType;
+        if (type == ValueType.AUTO || type == ValueType.XOR) type = ValueType.DWORD;
+        MemoryEditorNative.nativeSearchUnknown(type.getId());
+    }
+
     private void autoSearch(String valueStr) {
         if (valueStr.contains(".")) {
             MemoryEditorNative.nativeSearchFloat(Float.parseFloat(valueStr), false, 0);
@@ -91,6 +136,10 @@ public class MemorySearchEngine {
     }
 
     public void filter(String valueStr, SearchCondition condition) {
+        if (condition.isSnapshotCompare()) {
+            MemoryEditorNative.nativeFilterFuzzy(condition.getId(), isXorMode, xorKey);
+            return;
+        }
         try {
             switch (currentType) {
                 case BYTE:
@@ -131,6 +180,13 @@ public class MemorySearchEngine {
         }
     }
 
+    /**
+     * Progress of the running first scan in permille (0-1000). Safe to poll from any thread.
+     */
+    public int getProgress() {
+        return MemoryEditorNative.nativeGetScanProgress();
+    }
+
     public int getResultCount() {
         return MemoryEditorNative.nativeGetResultCount();
     }
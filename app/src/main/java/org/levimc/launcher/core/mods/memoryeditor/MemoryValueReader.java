@@ -0,0 +1,67 @@
+package org.levimc.launcher.core.mods.memoryeditor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Reads a list of addresses with one {@link MemoryEditorNative#nativeReadMany} call.
+ * Values land in a direct buffer as raw 8-byte slots, so callers can see which rows
+ * changed before turning anything into text. Not thread safe; keep one per caller.
+ */
+public class MemoryValueReader {
+    private static final int SLOT_SIZE = 8;
+
+    private long[] addresses = new long[0];
+    private int[] types = new int[0];
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(0);
+    private int count;
+
+    public boolean read(List<MemoryAddress> items) {
+        int size = items.size();
+        if (addresses.length != size) {
+            addresses = new long[size];
+            types = new int[size];
+        }
+        if (buffer.capacity() < size * (SLOT_SIZE + 1)) {
+            buffer = ByteBuffer.allocateDirect(Math.max(size, 32) * (SLOT_SIZE + 1)).order(ByteOrder.nativeOrder());
+        }
+        for (int i = 0; i < size; i++) {
+            MemoryAddress item = items.get(i);
+            addresses[i] = item.getAddress();
+            types[i] = item.getType().getId();
+        }
+        count = size;
+        try {
+            return MemoryEditorNative.nativeReadMany(addresses, types, buffer);
+        } catch (UnsatisfiedLinkError e) {
+            return false;
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isValid(int index) {
+        return buffer.get(count * SLOT_SIZE + index) != 0;
+    }
+
+    /** Raw slot contents, zero padded past the value width; equal bits mean an unchanged value. */
+    public long getRawBits(int index) {
+        return buffer.getLong(index * SLOT_SIZE);
+    }
+
+    public String format(int index, ValueType type) {
+        if (!isValid(index)) return "???";
+        int offset = index * SLOT_SIZE;
+        switch (type) {
+            case BYTE: return String.valueOf(buffer.get(offset));
+            case WORD: return String.valueOf(buffer.getShort(offset));
+            case QWORD: return String.valueOf(buffer.getLong(offset));
+            case FLOAT: return String.valueOf(buffer.getFloat(offset));
+            case DOUBLE: return String.valueOf(buffer.getDouble(offset));
+            default: return String.valueOf(buffer.getInt(offset));
+        }
+    }
+}
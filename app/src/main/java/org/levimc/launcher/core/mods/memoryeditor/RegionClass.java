@@ -0,0 +1,24 @@
+package org.levimc.launcher.core.mods.memoryeditor;
+
+public enum RegionClass {
+    GAME_IMAGE(0, "Game image"),
+    HEAP(1, "Heap"),
+    SCUDO(2, "Scudo"),
+    ANON(3, "Anonymous"),
+    OTHER(4, "Other");
+
+    /** Classes scanned until the user picks their own. */
+    public static final int DEFAULT_MASK = GAME_IMAGE.bit() | HEAP.bit() | SCUDO.bit() | ANON.bit();
+
+    private final int id;
+    private final String name;
+
+    RegionClass(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public int getId() { return id; }
+    public String getName() { return name; }
+    public int bit() { return 1 << id; }
+}
@@ -6,7 +6,11 @@ public enum SearchCondition {
     GREATER(2, ">"),
     LESS(3, "<"),
     GREATER_EQUALS(4, "≥"),
-    LESS_EQUALS(5, "≤");
+    LESS_EQUALS(5, "≤"),
+    INCREASED(6, "↑"),
+    DECREASED(7, "↓"),
+    CHANGED(8, "≠ prev"),
+    UNCHANGED(9, "= prev");
 
     private final int id;
     private final String symbol;
@@ -19,6 +23,9 @@ public enum SearchCondition {
     public int getId() { return id; }
     public String getSymbol() { return symbol; }
 
+    /** Compares against the last snapshot instead of a typed value. */
+    public boolean isSnapshotCompare() { return id >= INCREASED.id; }
+
     public static SearchCondition fromId(int id) {
         for (SearchCondition c : values()) {
             if (c.id == id) return c;
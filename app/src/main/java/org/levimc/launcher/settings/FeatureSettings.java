@@ -8,6 +8,8 @@ public class FeatureSettings {
     private boolean versionIsolationEnabled = false;
     private boolean launcherManagedMcLoginEnabled = false;
     private boolean logcatOverlayEnabled = false;
+    private int logcatOverlayMaxLines = 8192;
+    private boolean logCaptureEnabled = false;
     private boolean memoryEditorEnabled = false;
 
     public enum StorageType {
@@ -43,6 +45,12 @@ public class FeatureSettings {
     public boolean isLogcatOverlayEnabled() { return logcatOverlayEnabled; }
     public void setLogcatOverlayEnabled(boolean enabled) { this.logcatOverlayEnabled = enabled; autoSave(); }
 
+    public int getLogcatOverlayMaxLines() { return logcatOverlayMaxLines; }
+    public void setLogcatOverlayMaxLines(int maxLines) { this.logcatOverlayMaxLines = maxLines; autoSave(); }
+
+    public boolean isLogCaptureEnabled() { return logCaptureEnabled; }
+    public void setLogCaptureEnabled(boolean enabled) { this.logCaptureEnabled = enabled; autoSave(); }
+
     public boolean isMemoryEditorEnabled() { return memoryEditorEnabled; }
     public void setMemoryEditorEnabled(boolean enabled) { this.memoryEditorEnabled = enabled; autoSave(); }
 
@@ -92,7 +92,7 @@ public class AccountsActivity extends BaseActivity {
                     org.levimc.launcher.util.DialogUtils.showWithMessage(loadingDialog, getString(R.string.ms_login_exchanging));
 
                     executor.execute(() -> {
-                        OkHttpClient client = new OkHttpClient();
+                        OkHttpClient client = MsftAuthManager.httpClient();
                         try {
                             OAuth20Token token = MsftAuthManager.exchangeCodeForToken(client, MsftAuthManager.DEFAULT_CLIENT_ID, code, codeVerifier, MsftAuthManager.DEFAULT_SCOPE + " offline_access");
 
@@ -153,7 +153,7 @@ public class AccountsActivity extends BaseActivity {
                 org.levimc.launcher.util.DialogUtils.showWithMessage(loadingDialog, getString(R.string.ms_login_auth_xbox_device));
 
                 executor.execute(() -> {
-                    OkHttpClient client = new OkHttpClient();
+                    OkHttpClient client = MsftAuthManager.httpClient();
                     try {
                         MsftAuthManager.XboxAuthResult xbox = MsftAuthManager.refreshAndAuth(client, account, AccountsActivity.this);
 
@@ -195,9 +195,7 @@ public class AccountsActivity extends BaseActivity {
     }
 
     private MsftAccountStore.MsftAccount getActiveAccount() {
-        List<MsftAccountStore.MsftAccount> list = MsftAccountStore.list(this);
-        for (MsftAccountStore.MsftAccount a : list) if (a.active) return a;
-        return null;
+        return MsftAccountStore.getActive(this);
     }
 
 
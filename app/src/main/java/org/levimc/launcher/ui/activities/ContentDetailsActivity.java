@@ -30,21 +30,14 @@ import org.levimc.launcher.core.content.ContentImporter;
 import org.levimc.launcher.core.curseforge.CurseForgeClient;
 import org.levimc.launcher.core.curseforge.models.Content;
 import org.levimc.launcher.core.curseforge.models.ContentFile;
+import org.levimc.launcher.core.download.DownloadManager;
+import org.levimc.launcher.core.download.DownloadRequest;
 import org.levimc.launcher.core.versions.GameVersion;
 import org.levimc.launcher.core.versions.VersionManager;
 
 
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
 
 public class ContentDetailsActivity extends BaseActivity {
 
@@ -61,7 +54,6 @@ public class ContentDetailsActivity extends BaseActivity {
     private MaterialButton btnBrowser;
     private ProgressBar progressBar;
 
-    private ExecutorService downloadExecutor = Executors.newSingleThreadExecutor();
     private ContentImporter contentImporter;
     private VersionManager versionManager;
     private CurseForgeClient client;
@@ -79,7 +71,7 @@ public class ContentDetailsActivity extends BaseActivity {
 
         contentImporter = new ContentImporter(this);
         versionManager = VersionManager.get(this);
-        client = CurseForgeClient.getInstance();
+        client = CurseForgeClient.getInstance(this);
         
     initViews();
         initWebView();
@@ -320,37 +312,39 @@ public class ContentDetailsActivity extends BaseActivity {
             Toast.makeText(this, getString(R.string.curseforge_downloading), Toast.LENGTH_SHORT).show();
         });
         
-        downloadExecutor.execute(() -> {
-            try {
-                File cacheDir = getCacheDir();
-                File outputFile = new File(cacheDir, file.fileName);
-                
-                OkHttpClient client = new OkHttpClient();
-                Request request = new Request.Builder().url(file.downloadUrl).build();
-                
-                try (Response response = client.newCall(request).execute()) {
-                    if (!response.isSuccessful()) throw new IOException("Failed to download");
-                    
-                    try (InputStream is = response.body().byteStream();
-                         FileOutputStream fos = new FileOutputStream(outputFile)) {
-                        byte[] buffer = new byte[8192];
-                        int read;
-                        while ((read = is.read(buffer)) != -1) {
-                            fos.write(buffer, 0, read);
-                        }
-                    }
+        File outputFile = new File(getCacheDir(), file.fileName);
+        DownloadRequest.Builder request = new DownloadRequest.Builder(file.downloadUrl, outputFile);
+        if (file.fileLength > 0) request.expectedSize(file.fileLength);
+        if (file.hashes != null) {
+            for (ContentFile.FileHash hash : file.hashes) {
+                // CurseForge hash algorithms: 1 = SHA-1, 2 = MD5.
+                if (hash.algo == 1) {
+                    request.hash("SHA-1", hash.value);
+                    break;
                 }
+                if (hash.algo == 2) request.hash("MD5", hash.value);
+            }
+        }
+
+        DownloadManager.getInstance().enqueue(request.build(), new DownloadManager.Listener() {
+            @Override
+            public void onProgress(long downloaded, long total) {
+            }
 
+            @Override
+            public void onComplete(File downloadedFile) {
                 runOnUiThread(() -> {
-                    Toast.makeText(this, getString(R.string.curseforge_importing), Toast.LENGTH_SHORT).show();
-                    importFile(outputFile);
+                    Toast.makeText(ContentDetailsActivity.this, getString(R.string.curseforge_importing), Toast.LENGTH_SHORT).show();
+                    importFile(downloadedFile);
                 });
+            }
 
-            } catch (Exception e) {
+            @Override
+            public void onError(Exception e) {
                 runOnUiThread(() -> {
                     progressBar.setVisibility(View.GONE);
                     btnInstall.setEnabled(true);
-                    Toast.makeText(this, getString(R.string.curseforge_download_failed) + ": " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    Toast.makeText(ContentDetailsActivity.this, getString(R.string.curseforge_download_failed) + ": " + e.getMessage(), Toast.LENGTH_SHORT).show();
                 });
             }
         });
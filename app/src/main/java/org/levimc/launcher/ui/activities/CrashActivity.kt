@@ -11,6 +11,8 @@ import org.levimc.launcher.R
 import java.io.File
 import androidx.core.content.FileProvider
 import java.util.concurrent.Executors
+import java.io.ByteArrayOutputStream
+import org.levimc.launcher.core.logging.LogCapture
 
 class CrashActivity : AppCompatActivity() {
     
@@ -82,6 +84,12 @@ class CrashActivity : AppCompatActivity() {
                     append(getString(R.string.crash_emergency_label)).append("\n")
                     append(emergency)
                 }
+                val recentLog = readRecentLogcat()
+                if (recentLog.isNotEmpty()) {
+                    append("\n\n")
+                    append(getString(R.string.crash_logcat_label)).append("\n")
+                    append(recentLog)
+                }
                 if (isEmpty()) {
                     append(getString(R.string.crash_no_details))
                 }
@@ -95,6 +103,22 @@ class CrashActivity : AppCompatActivity() {
         }
     }
     
+    private fun readRecentLogcat(): String {
+        val capture = LogCapture.getInstance() ?: return ""
+        capture.flush()
+        // The crash log is written at crash time; the report may open in a later process.
+        val crashTime = logPath?.let { File(it).lastModified() }?.takeIf { it > 0 }
+            ?: System.currentTimeMillis()
+        val out = ByteArrayOutputStream()
+        capture.store.readRange(crashTime - CRASH_LOG_WINDOW_MS, crashTime + 1000) { buf, off, len ->
+            out.write(buf, off, len)
+            out.write('\n'.code)
+        }
+        val text = out.toString("UTF-8")
+        val maxLength = 50000
+        return if (text.length > maxLength) text.substring(text.length - maxLength) else text
+    }
+
     private fun navigateToMain() {
         try {
             val intent = Intent(this, SplashActivity::class.java)
@@ -134,6 +158,10 @@ class CrashActivity : AppCompatActivity() {
         }
     }
     
+    companion object {
+        private const val CRASH_LOG_WINDOW_MS = 30_000L
+    }
+
     override fun onDestroy() {
         super.onDestroy()
         try {
@@ -4,6 +4,8 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.View;
 import android.view.inputmethod.EditorInfo;
 import android.widget.AdapterView;
@@ -40,6 +42,14 @@ public class CurseForgeActivity extends BaseActivity {
     private int currentPage = 1;
     private int totalPages = 1;
     private static final int PAGE_SIZE = 20;
+    // Rows from the end of the page at which the next page is fetched into the cache.
+    private static final int PREFETCH_DISTANCE = 6;
+    private static final String TAG = "CurseForgeActivity";
+
+    private CurseForgeClient.PendingRequest currentSearch;
+    private int searchGeneration;
+    private CurseForgeClient.PendingRequest prefetch;
+    private String prefetchKey;
 
 
     private static class Category {
@@ -70,7 +80,7 @@ public class CurseForgeActivity extends BaseActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_curseforge);
 
-        client = CurseForgeClient.getInstance();
+        client = CurseForgeClient.getInstance(this);
 
         setupData();
         initViews();
@@ -120,6 +130,12 @@ public class CurseForgeActivity extends BaseActivity {
         });
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         recyclerView.setAdapter(adapter);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView rv, int dx, int dy) {
+                if (dy > 0) maybePrefetch();
+            }
+        });
 
 
         searchBox.setOnEditorActionListener((v, actionId, event) -> {
@@ -155,19 +171,25 @@ public class CurseForgeActivity extends BaseActivity {
     }
     
     private void loadContent() {
-        String query = searchBox.getText().toString();
-        Category category = (Category) spinnerCategory.getSelectedItem();
-        SortOption sort = (SortOption) spinnerSort.getSelectedItem();
-        
         loadingProgress.setVisibility(View.VISIBLE);
         recyclerView.setVisibility(View.GONE);
 
-        int index = (currentPage - 1) * PAGE_SIZE;
+        if (currentSearch != null) currentSearch.cancel();
+        // A prefetch of exactly this page is left running so the search below joins it.
+        if (prefetch != null && !searchKey(currentPage).equals(prefetchKey)) {
+            prefetch.cancel();
+            prefetch = null;
+            prefetchKey = null;
+        }
 
-        client.searchContent(query, category != null ? category.id : 0, "", index, PAGE_SIZE, sort != null ? sort.field : CurseForgeClient.SORT_POPULARITY, sort != null ? sort.order : "desc", new CurseForgeClient.CurseForgeCallback<ContentSearchResponse>() {
+        final int generation = ++searchGeneration;
+        final int page = currentPage;
+        final long startedAt = SystemClock.elapsedRealtime();
+        currentSearch = search(page, new CurseForgeClient.CurseForgeCallback<ContentSearchResponse>() {
             @Override
             public void onSuccess(ContentSearchResponse result) {
                 handler.post(() -> {
+                    if (generation != searchGeneration) return;
                     loadingProgress.setVisibility(View.GONE);
                     recyclerView.setVisibility(View.VISIBLE);
                     if (result != null && result.data != null) {
@@ -188,10 +210,13 @@ public class CurseForgeActivity extends BaseActivity {
                             Toast.makeText(CurseForgeActivity.this, R.string.no_mods_found, Toast.LENGTH_SHORT).show();
                         }
                         recyclerView.scrollToPosition(0);
+                        // Short pages never scroll, so check once the rows are laid out.
+                        recyclerView.post(CurseForgeActivity.this::maybePrefetch);
                     } else {
                         adapter.setContents(Collections.emptyList(), 1, 1);
                     }
-
+                    Log.d(TAG, "Page " + page + " shown after " + (SystemClock.elapsedRealtime() - startedAt)
+                            + " ms (cache " + client.getCacheStats() + ")");
                 });
             }
 
@@ -199,6 +224,7 @@ public class CurseForgeActivity extends BaseActivity {
             @Override
             public void onError(Throwable t) {
                 handler.post(() -> {
+                    if (generation != searchGeneration) return;
                     loadingProgress.setVisibility(View.GONE);
                     recyclerView.setVisibility(View.VISIBLE);
                     Toast.makeText(CurseForgeActivity.this, "Error: " + t.getMessage(), Toast.LENGTH_SHORT).show();
@@ -207,6 +233,50 @@ public class CurseForgeActivity extends BaseActivity {
         });
     }
 
+    /** Fetches the next page into the response cache once the list nears its end. */
+    private void maybePrefetch() {
+        if (currentPage >= totalPages) return;
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        if (layoutManager == null || layoutManager.findLastVisibleItemPosition() < adapter.getItemCount() - PREFETCH_DISTANCE) return;
+        String key = searchKey(currentPage + 1);
+        if (key.equals(prefetchKey)) return;
+        if (prefetch != null) prefetch.cancel();
+        prefetchKey = key;
+        prefetch = search(currentPage + 1, new CurseForgeClient.CurseForgeCallback<ContentSearchResponse>() {
+            @Override
+            public void onSuccess(ContentSearchResponse result) {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                handler.post(() -> {
+                    if (key.equals(prefetchKey)) prefetchKey = null;
+                });
+            }
+        });
+    }
+
+    private CurseForgeClient.PendingRequest search(int page, CurseForgeClient.CurseForgeCallback<ContentSearchResponse> callback) {
+        String query = searchBox.getText().toString();
+        Category category = (Category) spinnerCategory.getSelectedItem();
+        SortOption sort = (SortOption) spinnerSort.getSelectedItem();
+        int index = (page - 1) * PAGE_SIZE;
+        return client.searchContent(query, category != null ? category.id : 0, "", index, PAGE_SIZE, sort != null ? sort.field : CurseForgeClient.SORT_POPULARITY, sort != null ? sort.order : "desc", callback);
+    }
+
+    private String searchKey(int page) {
+        Category category = (Category) spinnerCategory.getSelectedItem();
+        SortOption sort = (SortOption) spinnerSort.getSelectedItem();
+        return searchBox.getText() + "|" + (category != null ? category.id : 0) + "|" + (sort != null ? sort.field + sort.order : "") + "|" + page;
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (currentSearch != null) currentSearch.cancel();
+        if (prefetch != null) prefetch.cancel();
+        super.onDestroy();
+    }
+
     private void onContentClick(Content content) {
         Intent intent = new Intent(this, ContentDetailsActivity.class);
         intent.putExtra(ContentDetailsActivity.EXTRA_CONTENT, content);
@@ -138,7 +138,7 @@ import okhttp3.OkHttpClient;
                     org.levimc.launcher.util.DialogUtils.showWithMessage(accountLoadingDialog, getString(R.string.ms_login_exchanging));
 
                     accountExecutor.execute(() -> {
-                        okhttp3.OkHttpClient client = new okhttp3.OkHttpClient();
+                        okhttp3.OkHttpClient client = MsftAuthManager.httpClient();
                         try {
                             OAuth20Token token =MsftAuthManager.exchangeCodeForToken(client, org.levimc.launcher.core.auth.MsftAuthManager.DEFAULT_CLIENT_ID, code, codeVerifier, org.levimc.launcher.core.auth.MsftAuthManager.DEFAULT_SCOPE + " offline_access");
 
@@ -196,9 +196,7 @@ import okhttp3.OkHttpClient;
     }
 
     private MsftAccountStore.MsftAccount getActiveAccount() {
-        java.util.List<MsftAccountStore.MsftAccount> list = MsftAccountStore.list(this);
-        for (MsftAccountStore.MsftAccount a : list) if (a.active) return a;
-        return null;
+        return MsftAccountStore.getActive(this);
     }
 
      private void setupOnBackPressedCallback() {
@@ -382,7 +380,7 @@ import okhttp3.OkHttpClient;
                      DialogUtils.showWithMessage(accountLoadingDialog, getString(R.string.ms_login_auth_xbox_device));
 
                      accountExecutor.execute(() -> {
-                         OkHttpClient client = new OkHttpClient();
+                         OkHttpClient client = MsftAuthManager.httpClient();
                          try {
                              MsftAuthManager.XboxAuthResult xbox = MsftAuthManager.refreshAndAuth(client, account, MainActivity.this);
 
@@ -27,6 +27,7 @@ import org.levimc.launcher.settings.FeatureSettings;
 import org.levimc.launcher.ui.adapter.SettingsAdapter;
 import org.levimc.launcher.ui.animation.DynamicAnim;
 import org.levimc.launcher.ui.dialogs.CustomAlertDialog;
+import org.levimc.launcher.core.logging.LogCapture;
 import org.levimc.launcher.ui.dialogs.LogcatOverlayManager;
 import org.levimc.launcher.util.GithubReleaseUpdater;
 import org.levimc.launcher.util.LanguageManager;
@@ -86,6 +87,12 @@ public class SettingsActivity extends BaseActivity {
                     if (mgr != null) mgr.refreshVisibility();
                 } catch (Throwable ignored) {}
             });
+            addLogcatBufferSelectorItem(fs);
+            addSwitchItem(getString(R.string.log_capture_enabled), fs.isLogCaptureEnabled(), (btn, checked) -> {
+                fs.setLogCaptureEnabled(checked);
+                LogCapture capture = LogCapture.getInstance();
+                if (capture != null) capture.setPersistent(checked);
+            });
 
             try {
                 String localVersion = getPackageManager().getPackageInfo(getPackageName(), 0).versionName;
@@ -247,6 +254,29 @@ public class SettingsActivity extends BaseActivity {
         });
     }
 
+    private void addLogcatBufferSelectorItem(FeatureSettings fs) {
+        int[] sizes = {2000, 8192, 25000, 100000};
+        String[] options = new String[sizes.length];
+        int defaultIdx = 1;
+        for (int i = 0; i < sizes.length; i++) {
+            options[i] = getString(R.string.logcat_buffer_lines, sizes[i]);
+            if (sizes[i] == fs.getLogcatOverlayMaxLines()) defaultIdx = i;
+        }
+        Spinner spinner = addSpinnerItem(getString(R.string.logcat_buffer_size), options, defaultIdx);
+        spinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (sizes[position] != fs.getLogcatOverlayMaxLines()) {
+                    fs.setLogcatOverlayMaxLines(sizes[position]);
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+    }
+
     private void addLanguageSelectorItem(LanguageManager languageManager) {
         String[] languageOptions = {
                 getString(R.string.english),
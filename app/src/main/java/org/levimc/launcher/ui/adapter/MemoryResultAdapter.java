@@ -5,7 +5,6 @@ import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
@@ -14,6 +13,7 @@ import org.levimc.launcher.R;
 import org.levimc.launcher.core.mods.memoryeditor.FreezeManager;
 import org.levimc.launcher.core.mods.memoryeditor.MemoryAddress;
 import org.levimc.launcher.core.mods.memoryeditor.MemoryEditorOverlay;
+import org.levimc.launcher.core.mods.memoryeditor.MemoryValueReader;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -21,6 +21,7 @@ public class MemoryResultAdapter extends RecyclerView.Adapter<MemoryResultAdapte
     private List<MemoryAddress> items = new ArrayList<>();
     private OnItemActionListener listener;
     private MemoryEditorOverlay overlay;
+    private final MemoryValueReader valueReader = new MemoryValueReader();
 
     public interface OnItemActionListener {
         void onSave(MemoryAddress address);
@@ -52,8 +53,7 @@ public class MemoryResultAdapter extends RecyclerView.Adapter<MemoryResultAdapte
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
         MemoryAddress item = items.get(position);
         holder.addressText.setText(item.getAddressHex());
-        holder.valueEdit.removeTextChangedListener(holder.watcher);
-        holder.valueEdit.setText(item.readValue());
+        holder.bindValue(item.readValue());
         holder.watcher = new TextWatcher() {
             @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
             @Override public void onTextChanged(CharSequence s, int start, int before, int count) {}
@@ -64,6 +64,7 @@ public class MemoryResultAdapter extends RecyclerView.Adapter<MemoryResultAdapte
                     item.writeValue(val);
                     if (item.isFrozen()) {
                         item.setFrozenValue(val);
+                        FreezeManager.getInstance().refresh();
                     }
                 }
             }
@@ -107,21 +108,22 @@ public class MemoryResultAdapter extends RecyclerView.Adapter<MemoryResultAdapte
         });
     }
 
+    public void refreshVisibleValues(RecyclerView recycler) {
+        MemoryValueHolder.refreshVisibleValues(recycler, items, valueReader);
+    }
+
     @Override
     public int getItemCount() {
         return items.size();
     }
 
-    static class ViewHolder extends RecyclerView.ViewHolder {
+    static class ViewHolder extends MemoryValueHolder {
         TextView addressText;
-        EditText valueEdit;
         ImageButton btnSave, btnFreeze, btnOverlay;
-        TextWatcher watcher;
 
         ViewHolder(View v) {
             super(v);
             addressText = v.findViewById(R.id.address_text);
-            valueEdit = v.findViewById(R.id.value_edit);
             btnSave = v.findViewById(R.id.btn_save);
             btnFreeze = v.findViewById(R.id.btn_freeze);
             btnOverlay = v.findViewById(R.id.btn_overlay);
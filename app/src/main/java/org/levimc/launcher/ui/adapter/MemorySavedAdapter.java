@@ -5,7 +5,6 @@ import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
@@ -14,6 +13,7 @@ import org.levimc.launcher.R;
 import org.levimc.launcher.core.mods.memoryeditor.FreezeManager;
 import org.levimc.launcher.core.mods.memoryeditor.MemoryAddress;
 import org.levimc.launcher.core.mods.memoryeditor.MemoryEditorOverlay;
+import org.levimc.launcher.core.mods.memoryeditor.MemoryValueReader;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -21,6 +21,7 @@ public class MemorySavedAdapter extends RecyclerView.Adapter<MemorySavedAdapter.
     private List<MemoryAddress> items = new ArrayList<>();
     private OnItemActionListener listener;
     private MemoryEditorOverlay overlay;
+    private final MemoryValueReader valueReader = new MemoryValueReader();
 
     public interface OnItemActionListener {
         void onDelete(int position);
@@ -55,8 +56,7 @@ public class MemorySavedAdapter extends RecyclerView.Adapter<MemorySavedAdapter.
         String label = item.getLabel();
         holder.labelText.setText(label.isEmpty() ? item.getType().getName() : label);
         holder.addressText.setText(item.getAddressHex());
-        holder.valueEdit.removeTextChangedListener(holder.watcher);
-        holder.valueEdit.setText(item.readValue());
+        holder.bindValue(item.readValue());
         holder.watcher = new TextWatcher() {
             @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
             @Override public void onTextChanged(CharSequence s, int start, int before, int count) {}
@@ -67,6 +67,7 @@ public class MemorySavedAdapter extends RecyclerView.Adapter<MemorySavedAdapter.
                     item.writeValue(val);
                     if (item.isFrozen()) {
                         item.setFrozenValue(val);
+                        FreezeManager.getInstance().refresh();
                     }
                     if (listener != null) {
                         listener.onUpdate(holder.getAdapterPosition(), item);
@@ -144,22 +145,23 @@ public class MemorySavedAdapter extends RecyclerView.Adapter<MemorySavedAdapter.
         notifyItemChanged(position);
     }
 
+    public void refreshVisibleValues(RecyclerView recycler) {
+        MemoryValueHolder.refreshVisibleValues(recycler, items, valueReader);
+    }
+
     @Override
     public int getItemCount() {
         return items.size();
     }
 
-    static class ViewHolder extends RecyclerView.ViewHolder {
+    static class ViewHolder extends MemoryValueHolder {
         TextView labelText, addressText;
-        EditText valueEdit;
         ImageButton btnFreeze, btnOverlay, btnDelete;
-        TextWatcher watcher;
 
         ViewHolder(View v) {
             super(v);
             labelText = v.findViewById(R.id.label_text);
             addressText = v.findViewById(R.id.address_text);
-            valueEdit = v.findViewById(R.id.value_edit);
             btnFreeze = v.findViewById(R.id.btn_freeze);
             btnOverlay = v.findViewById(R.id.btn_overlay);
             btnDelete = v.findViewById(R.id.btn_delete);
@@ -0,0 +1,73 @@
+package org.levimc.launcher.ui.adapter;
+
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.EditText;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import org.levimc.launcher.R;
+import org.levimc.launcher.core.mods.memoryeditor.MemoryAddress;
+import org.levimc.launcher.core.mods.memoryeditor.MemoryValueReader;
+import org.levimc.launcher.core.mods.memoryeditor.ValueType;
+import java.util.List;
+
+/**
+ * Row of a memory editor list with a live value field. Remembers the raw bits last shown
+ * so a refresh only rewrites rows whose value changed.
+ */
+abstract class MemoryValueHolder extends RecyclerView.ViewHolder {
+    final EditText valueEdit;
+    TextWatcher watcher;
+    private boolean hasLastRaw;
+    private boolean lastValid;
+    private long lastRaw;
+
+    MemoryValueHolder(View v) {
+        super(v);
+        valueEdit = v.findViewById(R.id.value_edit);
+    }
+
+    /** Shows {@code text} from a full bind; the next refresh rewrites the row regardless. */
+    void bindValue(String text) {
+        valueEdit.removeTextChangedListener(watcher);
+        valueEdit.setText(text);
+        hasLastRaw = false;
+    }
+
+    /** Shows value {@code index} of the last read, formatting it only if it changed. */
+    private void showValue(MemoryValueReader valueReader, int index, ValueType type) {
+        boolean valid = valueReader.isValid(index);
+        long raw = valueReader.getRawBits(index);
+        if (hasLastRaw && lastValid == valid && lastRaw == raw) return;
+        hasLastRaw = true;
+        lastValid = valid;
+        lastRaw = raw;
+        valueEdit.removeTextChangedListener(watcher);
+        valueEdit.setText(valueReader.format(index, type));
+        valueEdit.addTextChangedListener(watcher);
+    }
+
+    /**
+     * Re-reads the rows on screen with one native call and only rewrites the text of
+     * rows whose value changed. A row that is being edited is left alone.
+     */
+    static void refreshVisibleValues(@NonNull RecyclerView recycler, @NonNull List<MemoryAddress> items,
+                                     @NonNull MemoryValueReader valueReader) {
+        if (!(recycler.getLayoutManager() instanceof LinearLayoutManager) || items.isEmpty()) return;
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recycler.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = Math.min(layoutManager.findLastVisibleItemPosition(), items.size() - 1);
+        if (first == RecyclerView.NO_POSITION || last < first) return;
+
+        List<MemoryAddress> visible = items.subList(first, last + 1);
+        if (!valueReader.read(visible)) return;
+        for (int i = 0; i < visible.size(); i++) {
+            RecyclerView.ViewHolder found = recycler.findViewHolderForAdapterPosition(first + i);
+            if (!(found instanceof MemoryValueHolder)) continue;
+            MemoryValueHolder holder = (MemoryValueHolder) found;
+            if (holder.valueEdit.hasFocus()) continue;
+            holder.showValue(valueReader, i, visible.get(i).getType());
+        }
+    }
+}
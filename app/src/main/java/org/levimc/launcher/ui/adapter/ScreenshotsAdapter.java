@@ -1,10 +1,5 @@
 package org.levimc.launcher.ui.adapter;
 
-import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.os.Handler;
-import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -15,6 +10,12 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.signature.ObjectKey;
+
 import org.levimc.launcher.R;
 import org.levimc.launcher.core.content.ScreenshotItem;
 
@@ -22,15 +23,11 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class ScreenshotsAdapter extends RecyclerView.Adapter<ScreenshotsAdapter.ViewHolder> {
     private List<ScreenshotItem> screenshots;
     private final OnScreenshotClickListener listener;
     private final SimpleDateFormat dateFormat;
-    private final ExecutorService imageLoaderExecutor;
-    private final Handler mainThreadHandler;
 
     public interface OnScreenshotClickListener {
         void onDeleteClick(ScreenshotItem screenshot);
@@ -41,8 +38,6 @@ public class ScreenshotsAdapter extends RecyclerView.Adapter<ScreenshotsAdapter.
         this.screenshots = screenshots;
         this.listener = listener;
         this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
-        this.imageLoaderExecutor = Executors.newFixedThreadPool(4);
-        this.mainThreadHandler = new Handler(Looper.getMainLooper());
     }
 
     public void updateData(List<ScreenshotItem> newScreenshots) {
@@ -64,22 +59,17 @@ public class ScreenshotsAdapter extends RecyclerView.Adapter<ScreenshotsAdapter.
         holder.nameText.setText(screenshot.name);
         holder.dateText.setText("Date: " + dateFormat.format(new Date(screenshot.captureTime)));
 
-        holder.imageView.setImageBitmap(null);
-        holder.imageView.setTag(screenshot.file.getAbsolutePath());
-
-        imageLoaderExecutor.execute(() -> {
-            BitmapFactory.Options options = new BitmapFactory.Options();
-            options.inSampleSize = 4;
-            Bitmap bitmap = BitmapFactory.decodeFile(screenshot.file.getAbsolutePath(), options);
-            
-            mainThreadHandler.post(() -> {
-                if (holder.imageView.getTag().equals(screenshot.file.getAbsolutePath())) {
-                    if (bitmap != null) {
-                        holder.imageView.setImageBitmap(bitmap);
-                    }
-                }
-            });
-        });
+        // Glide sizes the decode to the view, keeps thumbnails in its heap-sized memory
+        // cache and on disk, and decodes into pooled bitmaps. Keying on the path plus
+        // mtime makes a screenshot overwritten in place get a new thumbnail.
+        Glide.with(holder.imageView)
+                .load(screenshot.file)
+                .signature(new ObjectKey(screenshot.mtime))
+                .diskCacheStrategy(DiskCacheStrategy.RESOURCE)
+                .downsample(DownsampleStrategy.CENTER_OUTSIDE)
+                .format(DecodeFormat.PREFER_RGB_565)
+                .centerCrop()
+                .into(holder.imageView);
 
         holder.deleteButton.setOnClickListener(v -> {
             if (listener != null) {
@@ -99,10 +89,11 @@ public class ScreenshotsAdapter extends RecyclerView.Adapter<ScreenshotsAdapter.
         return screenshots == null ? 0 : screenshots.size();
     }
 
-    public void shutdown() {
-        if (imageLoaderExecutor != null && !imageLoaderExecutor.isShutdown()) {
-            imageLoaderExecutor.shutdown();
-        }
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        super.onViewRecycled(holder);
+        // Cancels a decode still in flight and returns the bitmap to the pool.
+        Glide.with(holder.imageView).clear(holder.imageView);
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
@@ -0,0 +1,422 @@
+package org.levimc.launcher.ui.dialogs;
+
+import androidx.annotation.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fixed-size store for raw logcat lines. Line bytes are copied once into a byte ring
+ * and each line gets a record with its level and field offsets, parsed on append.
+ * Each record also keeps a 256-bit bloom of the line's lowercase byte pairs, so most
+ * non-matching lines are rejected by a mask test before any byte search.
+ * Lines are addressed by a sequence number that keeps counting across evictions.
+ * All methods lock on the buffer; hold the lock yourself to read several fields of
+ * one line consistently.
+ */
+final class LogRingBuffer {
+
+    static final byte FORMAT_PLAIN = 0;
+    /** {@code MM-DD HH:MM:SS.mmm pid tid L tag: msg} */
+    static final byte FORMAT_THREADTIME = 1;
+    /** {@code [Tag] L msg} */
+    static final byte FORMAT_BRACKET = 2;
+
+    private static final byte[] LOWER = new byte[256];
+    private static final int GRAM_WORDS = 4;
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            LOWER[i] = (byte) (i >= 'A' && i <= 'Z' ? i + ('a' - 'A') : i);
+        }
+    }
+
+    private final byte[] data;
+    private final int maxLines;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final byte[] levels;
+    private final byte[] formats;
+    // Offsets below are relative to the start of the line.
+    private final int[] levelPos;
+    private final int[] tagStarts;
+    private final int[] tagEnds;
+    private final int[] msgStarts;
+    private final int[] pids;
+    private final int[] tids;
+    private final long[] grams;
+
+    private long oldestSeq;
+    private long nextSeq;
+    private int writePos;
+
+    LogRingBuffer(int byteCapacity, int maxLines) {
+        this.data = new byte[byteCapacity];
+        this.maxLines = maxLines;
+        offsets = new int[maxLines];
+        lengths = new int[maxLines];
+        levels = new byte[maxLines];
+        formats = new byte[maxLines];
+        levelPos = new int[maxLines];
+        tagStarts = new int[maxLines];
+        tagEnds = new int[maxLines];
+        msgStarts = new int[maxLines];
+        pids = new int[maxLines];
+        tids = new int[maxLines];
+        grams = new long[maxLines * GRAM_WORDS];
+    }
+
+    int maxLines() { return maxLines; }
+
+    /** Copies one line (without its newline) into the ring, evicting the oldest lines as needed. */
+    synchronized void append(byte[] src, int off, int len) {
+        len = Math.min(len, data.length / 4);
+        if (writePos + len > data.length) {
+            // Lines from the previous pass at or past writePos are the oldest; dropping them
+            // leaves the live lines laid out in sequence order from offset 0.
+            while (oldestSeq < nextSeq && offsets[slot(oldestSeq)] >= writePos) oldestSeq++;
+            writePos = 0;
+        }
+        // Live lines at or after writePos are older than the ones before it and sit in
+        // ascending offset order, so evicting from the oldest end frees the target range.
+        int end = writePos + len;
+        while (oldestSeq < nextSeq) {
+            int oldest = slot(oldestSeq);
+            boolean inRange = offsets[oldest] >= writePos && offsets[oldest] < end;
+            if (!inRange && nextSeq - oldestSeq < maxLines) break;
+            oldestSeq++;
+        }
+
+        int i = slot(nextSeq);
+        System.arraycopy(src, off, data, writePos, len);
+        offsets[i] = writePos;
+        lengths[i] = len;
+        parse(i, writePos, len);
+        gramMask(data, writePos, len, grams, i * GRAM_WORDS);
+        writePos += len;
+        nextSeq++;
+    }
+
+    synchronized void clear() {
+        oldestSeq = nextSeq;
+        writePos = 0;
+    }
+
+    synchronized long oldestSeq() { return oldestSeq; }
+
+    synchronized long nextSeq() { return nextSeq; }
+
+    synchronized boolean contains(long seq) { return seq >= oldestSeq && seq < nextSeq; }
+
+    synchronized byte format(long seq) { return formats[slot(seq)]; }
+
+    /** Level letter (V, D, I, W, E or F), or 0 when the line has none. */
+    synchronized char level(long seq) { return (char) levels[slot(seq)]; }
+
+    synchronized int length(long seq) { return lengths[slot(seq)]; }
+
+    synchronized int levelPos(long seq) { return levelPos[slot(seq)]; }
+
+    synchronized int tagStart(long seq) { return tagStarts[slot(seq)]; }
+
+    synchronized int tagEnd(long seq) { return tagEnds[slot(seq)]; }
+
+    synchronized int msgStart(long seq) { return msgStarts[slot(seq)]; }
+
+    synchronized int pid(long seq) { return pids[slot(seq)]; }
+
+    synchronized int tid(long seq) { return tids[slot(seq)]; }
+
+    /** Decodes bytes {@code [from, to)} of a line. */
+    synchronized String text(long seq, int from, int to) {
+        int i = slot(seq);
+        return new String(data, offsets[i] + from, Math.max(0, to - from), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends the sequence numbers of lines in {@code [fromSeq, nextSeq)} that pass
+     * {@code filter} to {@code out} and returns the sequence to resume from.
+     */
+    synchronized long collect(long fromSeq, @NonNull Filter filter, @NonNull SeqList out) {
+        for (long seq = Math.max(fromSeq, oldestSeq); seq < nextSeq; seq++) {
+            int i = slot(seq);
+            if (filter.matches(data, offsets[i], lengths[i], levels[i], grams, i * GRAM_WORDS)) out.add(seq);
+        }
+        return nextSeq;
+    }
+
+    /**
+     * Keeps the entries of {@code rows} that are still buffered and pass {@code filter}.
+     * Used when the filter only narrows, so lines outside {@code rows} cannot match.
+     */
+    synchronized void refine(@NonNull SeqList rows, @NonNull Filter filter, @NonNull SeqList out) {
+        for (int k = 0; k < rows.size(); k++) {
+            long seq = rows.get(k);
+            if (seq < oldestSeq) continue;
+            int i = slot(seq);
+            if (filter.matches(data, offsets[i], lengths[i], levels[i], grams, i * GRAM_WORDS)) out.add(seq);
+        }
+    }
+
+    private static void gramMask(byte[] bytes, int off, int len, long[] out, int outOff) {
+        for (int w = 0; w < GRAM_WORDS; w++) out[outOff + w] = 0;
+        int end = off + len - 1;
+        for (int p = off; p < end; p++) {
+            int pair = (LOWER[bytes[p] & 0xFF] & 0xFF) << 8 | (LOWER[bytes[p + 1] & 0xFF] & 0xFF);
+            int bit = (pair * 0x9E3779B1) >>> 24;
+            out[outOff + (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % maxLines);
+    }
+
+    private void parse(int i, int start, int len) {
+        levels[i] = 0;
+        formats[i] = FORMAT_PLAIN;
+        levelPos[i] = -1;
+        tagStarts[i] = tagEnds[i] = msgStarts[i] = -1;
+        pids[i] = tids[i] = 0;
+        if (parseThreadtime(i, start, len)) return;
+        if (parseBracket(i, start, len)) return;
+        parseBrief(i, start, len);
+    }
+
+    private boolean parseThreadtime(int i, int start, int len) {
+        int end = start + len;
+        // MM-DD HH:MM:SS.mmm
+        if (len < 19) return false;
+        if (!digits(start, 2) || data[start + 2] != '-' || !digits(start + 3, 2) || data[start + 5] != ' ') return false;
+        if (!digits(start + 6, 2) || data[start + 8] != ':' || !digits(start + 9, 2) || data[start + 11] != ':'
+                || !digits(start + 12, 2) || data[start + 14] != '.' || !digits(start + 15, 3)) return false;
+        int p = start + 18;
+        int q = skipSpaces(p, end);
+        if (q == p) return false;
+        p = q;
+        int pid = 0;
+        for (q = p; q < end && isDigit(data[q]); q++) pid = pid * 10 + (data[q] - '0');
+        if (q == p) return false;
+        p = skipSpaces(q, end);
+        if (p == q) return false;
+        int tid = 0;
+        for (q = p; q < end && isDigit(data[q]); q++) tid = tid * 10 + (data[q] - '0');
+        if (q == p) return false;
+        p = skipSpaces(q, end);
+        if (p == q || p >= end || !isLevel(data[p])) return false;
+        int lvl = p;
+        p = skipSpaces(lvl + 1, end);
+        if (p == lvl + 1 || p >= end || data[p] == ':') return false;
+        int tagStart = p;
+        while (p < end && data[p] != ':') p++;
+        if (p >= end) return false;
+        int tagEnd = p;
+        while (tagEnd > tagStart && isSpace(data[tagEnd - 1])) tagEnd--;
+        int msg = skipSpaces(p + 1, end);
+
+        formats[i] = FORMAT_THREADTIME;
+        levels[i] = data[lvl];
+        levelPos[i] = lvl - start;
+        tagStarts[i] = tagStart - start;
+        tagEnds[i] = tagEnd - start;
+        msgStarts[i] = msg - start;
+        pids[i] = pid;
+        tids[i] = tid;
+        return true;
+    }
+
+    private boolean parseBracket(int i, int start, int len) {
+        int end = start + len;
+        int p = skipSpaces(start, end);
+        if (p >= end || data[p] != '[') return false;
+        int close = p + 1;
+        while (close < end && data[close] != ']') close++;
+        if (close == p + 1 || close >= end) return false;
+        p = skipSpaces(close + 1, end);
+        if (p == close + 1 || p >= end || !isLevel(data[p])) return false;
+        if (p + 1 < end && isWordByte(data[p + 1])) return false;
+        int msg = skipSpaces(Math.min(p + 2, end), end);
+
+        formats[i] = FORMAT_BRACKET;
+        levels[i] = data[p];
+        levelPos[i] = p - start;
+        msgStarts[i] = msg - start;
+        return true;
+    }
+
+    private void parseBrief(int i, int start, int len) {
+        int end = start + len;
+        int p = skipSpaces(start, end);
+        if (p >= end || !isLevel(data[p])) return;
+        int q = skipSpaces(p + 1, end);
+        if (q < end && data[q] == '/') levels[i] = data[p];
+    }
+
+    private boolean digits(int p, int count) {
+        for (int k = 0; k < count; k++) {
+            if (!isDigit(data[p + k])) return false;
+        }
+        return true;
+    }
+
+    private int skipSpaces(int p, int end) {
+        while (p < end && isSpace(data[p])) p++;
+        return p;
+    }
+
+    private static boolean isDigit(byte b) { return b >= '0' && b <= '9'; }
+
+    private static boolean isSpace(byte b) { return b == ' ' || b == '\t'; }
+
+    private static boolean isLevel(byte b) {
+        return b == 'V' || b == 'D' || b == 'I' || b == 'W' || b == 'E' || b == 'F';
+    }
+
+    private static boolean isWordByte(byte b) {
+        return isDigit(b) || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_';
+    }
+
+    /**
+     * Level plus case-insensitive include/exclude keywords, compiled to bytes once so
+     * lines are matched in place without building Strings. Case folding is ASCII only.
+     */
+    static final class Filter {
+        static final Filter ALL = new Filter((char) 0, "", Collections.emptyList());
+
+        private final byte level;
+        private final byte[] include;
+        private final byte[][] excludes;
+        private final long[] includeGrams = new long[GRAM_WORDS];
+        private final long[][] excludeGrams;
+
+        Filter(char level, @NonNull String include, @NonNull List<String> excludes) {
+            this.level = (byte) level;
+            this.include = lowerBytes(include);
+            List<byte[]> compiled = new ArrayList<>();
+            for (String ex : excludes) {
+                if (!ex.isEmpty()) compiled.add(lowerBytes(ex));
+            }
+            this.excludes = compiled.toArray(new byte[0][]);
+            gramMask(this.include, 0, this.include.length, includeGrams, 0);
+            excludeGrams = new long[this.excludes.length][GRAM_WORDS];
+            for (int k = 0; k < this.excludes.length; k++) {
+                gramMask(this.excludes[k], 0, this.excludes[k].length, excludeGrams[k], 0);
+            }
+        }
+
+        boolean matches(byte[] data, int off, int len, byte lineLevel, long[] lineGrams, int gramOff) {
+            if (level != 0 && lineLevel != level) return false;
+            if (include.length > 0) {
+                if (!maybeContains(lineGrams, gramOff, includeGrams)) return false;
+                if (indexOf(data, off, len, include) < 0) return false;
+            }
+            for (int k = 0; k < excludes.length; k++) {
+                if (maybeContains(lineGrams, gramOff, excludeGrams[k]) && indexOf(data, off, len, excludes[k]) >= 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * True when every line passing this filter also passes {@code previous}: same or
+         * newly set level, include text extending the old one, and every old exclude
+         * still covered by an exclude that is a substring of it.
+         */
+        boolean narrows(@NonNull Filter previous) {
+            if (previous.level != 0 && previous.level != level) return false;
+            if (previous.include.length > 0 && indexOf(include, 0, include.length, previous.include) < 0) return false;
+            for (byte[] old : previous.excludes) {
+                boolean covered = false;
+                for (byte[] ex : excludes) {
+                    if (indexOf(old, 0, old.length, ex) >= 0) {
+                        covered = true;
+                        break;
+                    }
+                }
+                if (!covered) return false;
+            }
+            return true;
+        }
+
+        private static boolean maybeContains(long[] lineGrams, int gramOff, long[] needleGrams) {
+            for (int w = 0; w < GRAM_WORDS; w++) {
+                if ((lineGrams[gramOff + w] & needleGrams[w]) != needleGrams[w]) return false;
+            }
+            return true;
+        }
+
+        private static byte[] lowerBytes(String s) {
+            return s.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static int indexOf(byte[] data, int off, int len, byte[] needle) {
+            int last = off + len - needle.length;
+            byte first = needle[0];
+            outer:
+            for (int p = off; p <= last; p++) {
+                if (LOWER[data[p] & 0xFF] != first) continue;
+                for (int k = 1; k < needle.length; k++) {
+                    if (LOWER[data[p + k] & 0xFF] != needle[k]) continue outer;
+                }
+                return p;
+            }
+            return -1;
+        }
+    }
+
+    /** Growable list of sequence numbers that can drop a prefix without shifting. */
+    static final class SeqList {
+        private long[] values = new long[256];
+        private int head;
+        private int tail;
+
+        int size() { return tail - head; }
+
+        long get(int index) { return values[head + index]; }
+
+        void add(long seq) {
+            if (tail == values.length) {
+                int size = size();
+                long[] grown = size * 2 > values.length ? new long[values.length * 2] : values;
+                System.arraycopy(values, head, grown, 0, size);
+                values = grown;
+                head = 0;
+                tail = size;
+            }
+            values[tail++] = seq;
+        }
+
+        /** Drops leading entries below {@code seq}; returns how many were dropped. */
+        int dropBefore(long seq) {
+            int start = head;
+            while (head < tail && values[head] < seq) head++;
+            return head - start;
+        }
+
+        void clear() {
+            head = tail = 0;
+        }
+
+        SeqList copy() {
+            SeqList copy = new SeqList();
+            copy.values = Arrays.copyOfRange(values, head, Math.max(tail, head + 1));
+            copy.tail = size();
+            return copy;
+        }
+
+        /** Index of the first entry not below {@code seq}, or {@link #size()} if none. */
+        int lowerBound(long seq) {
+            int lo = head, hi = tail;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[mid] < seq) lo = mid + 1; else hi = mid;
+            }
+            return lo - head;
+        }
+    }
+}
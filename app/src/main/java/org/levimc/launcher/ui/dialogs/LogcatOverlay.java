@@ -8,7 +8,6 @@ import android.graphics.Color;
 import android.graphics.Typeface;
 import android.graphics.Rect;
 import android.graphics.drawable.GradientDrawable;
-import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import android.text.SpannableStringBuilder;
@@ -33,13 +32,12 @@ import androidx.appcompat.widget.ListPopupWindow;
 import androidx.core.content.ContextCompat;
 
 import org.levimc.launcher.R;
+import org.levimc.launcher.core.logging.LogCapture;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 public class LogcatOverlay extends FrameLayout {
@@ -60,21 +58,42 @@ public class LogcatOverlay extends FrameLayout {
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private final SharedPreferences prefs;
 
-    private final ArrayDeque<String> logBuffer = new ArrayDeque<>(2000);
-    private static final int MAX_BUFFER_LINES = 2000;
-
-    private final ArrayBlockingQueue<String> pendingLines = new ArrayBlockingQueue<>(8192);
-    private ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
-    private ExecutorService filterExecutor = Executors.newSingleThreadExecutor();
-    private volatile boolean renderLoopStarted = false;
-
-    private boolean autoScroll = true, autoScrollLocked = false, paused = false, minimized = false;
+    private static final int DEFAULT_MAX_LINES = 8192;
+    // Byte budget per line of capacity; longer lines simply evict sooner.
+    private static final int BYTES_PER_LINE = 128;
+    // Stored history replayed into an empty overlay, so it opens with recent context.
+    private static final long BACKFILL_MILLIS = 60_000;
+
+    private volatile LogRingBuffer logBuffer = new LogRingBuffer(DEFAULT_MAX_LINES * BYTES_PER_LINE, DEFAULT_MAX_LINES);
+    private final ExecutorService filterExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean drainPosted = new AtomicBoolean();
+    private final Runnable drainRunnable = this::drainNewLines;
+    // Next sequence number not yet run through the filter; main thread only.
+    private long drainedSeq = 0;
+
+    private volatile boolean paused = false;
+    private boolean autoScroll = true, autoScrollLocked = false, minimized = false;
     private String filterTextLower = "";
     private List<String> excludeKeywordsLower = Collections.emptyList();
     private char levelFilterChar = 0;
+    private volatile LogRingBuffer.Filter filter = LogRingBuffer.Filter.ALL;
+    // Filter the adapter rows were last rebuilt with; main thread only.
+    private LogRingBuffer.Filter appliedFilter = LogRingBuffer.Filter.ALL;
 
-    private Process logcatProc;
-    private Thread readerThread;
+    private boolean listening = false;
+    private final LogCapture.LineListener captureListener = new LogCapture.LineListener() {
+        @Override
+        public void onLine(byte[] buf, int off, int len) {
+            if (!paused) logBuffer.append(buf, off, len);
+        }
+
+        @Override
+        public void onBatchEnd() {
+            if (!paused && drainPosted.compareAndSet(false, true)) {
+                mainHandler.post(drainRunnable);
+            }
+        }
+    };
 
     public LogcatOverlay(Context context) { super(context); prefs = init(context); }
     public LogcatOverlay(Context context, AttributeSet attrs) { super(context, attrs); prefs = init(context); }
@@ -120,13 +139,12 @@ public class LogcatOverlay extends FrameLayout {
         SharedPreferences sp = ctx.getSharedPreferences("LogcatOverlaySPrefs", MODE_PRIVATE);
         setupUiListeners();
         restoreState(sp);
-        startBackgroundRenderLoop();
         return sp;
     }
 
     private void setupUiListeners() {
         clearButton.setOnClickListener(v -> {
-            synchronized (logBuffer) { logBuffer.clear(); }
+            logBuffer.clear();
             if (logAdapter != null) logAdapter.clear();
         });
 
@@ -371,200 +389,130 @@ public class LogcatOverlay extends FrameLayout {
     }
 
     public void start() {
-        if (readerThread != null && readerThread.isAlive()) return;
+        if (listening) return;
+        LogCapture capture = LogCapture.getInstance();
+        if (capture == null) return;
+        listening = true;
         paused = false;
-        ioExecutor = Executors.newSingleThreadExecutor();
-        startBackgroundRenderLoop();
-        startReader();
+        boolean empty = logBuffer.oldestSeq() == logBuffer.nextSeq();
+        capture.addListener(captureListener, empty ? BACKFILL_MILLIS : 0);
     }
 
     public void stop() {
         paused = true;
-        stopReader();
-        // Clear any pending lines so nothing gets appended after disable
-        pendingLines.clear();
-        ioExecutor.shutdownNow();
-        renderLoopStarted = false;
-    }
-
-    private void startReader() {
-        readerThread = new Thread(() -> {
-            try {
-                List<String> cmd = new ArrayList<>();
-                cmd.add("logcat");
-                cmd.add("-v"); cmd.add("threadtime");
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-                    cmd.add("--pid");
-                    cmd.add(String.valueOf(android.os.Process.myPid()));
-                }
-                logcatProc = new ProcessBuilder(cmd).redirectErrorStream(true).start();
-
-                var reader = new java.io.BufferedReader(new java.io.InputStreamReader(logcatProc.getInputStream()));
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (!paused) pendingLines.offer(line);
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }, "LogcatReader");
-        readerThread.start();
-    }
-
-    private void stopReader() {
-        try {
-            if (logcatProc != null) logcatProc.destroy();
-            if (readerThread != null && readerThread.isAlive()) readerThread.interrupt();
-        } catch (Throwable ignored) {}
-        logcatProc = null;
-        readerThread = null;
+        if (listening) {
+            listening = false;
+            LogCapture capture = LogCapture.getInstance();
+            if (capture != null) capture.removeListener(captureListener);
+        }
+        // Nothing read before the stop gets appended after disable
+        mainHandler.removeCallbacks(drainRunnable);
+        drainPosted.set(false);
     }
 
-    private void startBackgroundRenderLoop() {
-        if (renderLoopStarted) return;
-        renderLoopStarted = true;
-        ioExecutor.submit(() -> {
-            StringBuilder sb = new StringBuilder();
-            while (true) {
-                try {
-                    String ln = pendingLines.poll(100, java.util.concurrent.TimeUnit.MILLISECONDS);
-                    if (ln != null) {
-                        synchronized (logBuffer) {
-                            if (logBuffer.size() >= MAX_BUFFER_LINES) logBuffer.pollFirst();
-                            logBuffer.addLast(ln);
-                        }
-                        if (passesFilter(ln)) {
-                            sb.append(ln).append("\n");
-                        }
-                    }
-
-                    if (sb.length() > 0) {
-                        final String chunk = sb.toString();
-                        sb.setLength(0);
-                        mainHandler.post(() -> appendChunk(chunk));
-                    }
-                } catch (InterruptedException e) {
-                    renderLoopStarted = false;
-                    return;
-                }
-            }
-        });
+    /**
+     * Runs lines appended since the last drain through the filter the shown rows were built
+     * with; at most one post is pending. A pending refresh re-collects from its own start.
+     */
+    private void drainNewLines() {
+        drainPosted.set(false);
+        int before = logAdapter.getItemCount();
+        drainedSeq = logBuffer.collect(drainedSeq, appliedFilter, logAdapter.rows);
+        int added = logAdapter.getItemCount() - before;
+        int dropped = logAdapter.rows.dropBefore(logBuffer.oldestSeq());
+        if (added > 0) logAdapter.notifyItemRangeInserted(before, added);
+        if (dropped > 0) logAdapter.notifyItemRangeRemoved(0, dropped);
+        if (added > 0 && autoScroll) smoothScrollToBottom();
     }
 
-    private void appendChunk(String chunk) {
-        if (chunk == null || chunk.isEmpty()) return;
-        String[] lines = chunk.split("\n");
-        List<CharSequence> items = new ArrayList<>();
-        for (String ln : lines) {
-            if (ln.isEmpty()) continue;
-            items.add(colorizeLine(ln));
-        }
-        int startPos = logAdapter.getItemCount();
-        logAdapter.addAll(items);
-        if (autoScroll) smoothScrollToBottom();
+    /** Resizes the line buffer; buffered lines are dropped when the capacity changes. */
+    public void setMaxLines(int maxLines) {
+        if (maxLines <= 0 || maxLines == logBuffer.maxLines()) return;
+        logBuffer = new LogRingBuffer(maxLines * BYTES_PER_LINE, maxLines);
+        drainedSeq = 0;
+        logAdapter.clear();
     }
 
+    /**
+     * Re-filters after the filter inputs change. A query that only narrows the previous
+     * one re-checks the rows already shown; anything else rescans the buffer. Either way
+     * the adapter receives a diff instead of a full reset.
+     */
     private void scheduleFilterRefresh() {
+        LogRingBuffer.Filter next = new LogRingBuffer.Filter(levelFilterChar, filterTextLower, excludeKeywordsLower);
+        filter = next;
+        LogRingBuffer buffer = logBuffer;
+        LogRingBuffer.SeqList current = next.narrows(appliedFilter) ? logAdapter.rows.copy() : null;
+        long from = drainedSeq;
         filterExecutor.submit(() -> {
-            List<String> snapshot;
-            synchronized (logBuffer) { snapshot = new ArrayList<>(logBuffer); }
-            List<CharSequence> items = new ArrayList<>();
-            for (String ln : snapshot) {
-                if (passesFilter(ln)) {
-                    items.add(colorizeLine(ln));
-                }
+            LogRingBuffer.SeqList rows = new LogRingBuffer.SeqList();
+            long end;
+            if (current != null) {
+                buffer.refine(current, next, rows);
+                end = from;
+            } else {
+                end = buffer.collect(0, next, rows);
             }
             mainHandler.post(() -> {
+                // A newer filter has its own refresh queued behind this one.
+                if (filter != next || logBuffer != buffer) return;
                 boolean wasAtBottom = isAtBottom();
                 int firstPos = layoutManager.findFirstVisibleItemPosition();
                 View firstView = layoutManager.findViewByPosition(firstPos);
                 int offset = (firstView == null) ? 0 : firstView.getTop();
+                long firstSeq = firstPos >= 0 && firstPos < logAdapter.getItemCount() ? logAdapter.rows.get(firstPos) : -1;
 
-                logAdapter.setItems(items);
+                logAdapter.setRows(rows);
+                appliedFilter = next;
+                drainedSeq = end;
+                drainNewLines();
 
                 recyclerView.post(() -> {
                     if (wasAtBottom && autoScroll) {
                         smoothScrollToBottom();
-                    } else if (firstPos >= 0) {
-                        layoutManager.scrollToPositionWithOffset(Math.min(firstPos, Math.max(0, logAdapter.getItemCount()-1)), offset);
+                    } else if (firstSeq >= 0) {
+                        int pos = logAdapter.rows.lowerBound(firstSeq);
+                        layoutManager.scrollToPositionWithOffset(Math.min(pos, Math.max(0, logAdapter.getItemCount()-1)), offset);
                     }
                 });
             });
         });
     }
 
-    private boolean passesFilter(@NonNull String line) {
-        if (levelFilterChar != 0) {
-            char c = detectLevelChar(line);
-            if (c == 0 || c != levelFilterChar) return false;
-        }
-        String lower = line.toLowerCase(Locale.ROOT);
-        if (!filterTextLower.isEmpty() && !lower.contains(filterTextLower)) return false;
-        for (String ex : excludeKeywordsLower) {
-            if (!ex.isEmpty() && lower.contains(ex)) return false;
-        }
-        return true;
-    }
-
-    // Strict patterns to avoid matching level from message content
-    private static final Pattern LOG_BRIEF = Pattern.compile("^\\s*([VDIWEF])\\s*/"); // E/Tag: ...
-    private static final Pattern LOG_BRACKET = Pattern.compile("^\\s*\\[[^\\]]+\\]\\s+([VDIWEF])\\b"); // [Tag] I ...
-
-    private char detectLevelChar(@NonNull String ln) {
-        // 1) threadtime format: MM-DD HH:MM:SS pid tid L tag: msg
-        Matcher mt = LOG_THREADTIME.matcher(ln);
-        if (mt.find()) return mt.group(2).charAt(0);
-        // 2) custom bracket format: [Tag] L message
-        Matcher mb = LOG_BRACKET.matcher(ln);
-        if (mb.find()) return mb.group(1).charAt(0);
-        // 3) brief format: L/Tag: message
-        Matcher mr = LOG_BRIEF.matcher(ln);
-        if (mr.find()) return mr.group(1).charAt(0);
-        // Unknown
-        return (char) 0;
-    }
-
-    private SpannableStringBuilder colorizeChunk(String chunk) {
-        SpannableStringBuilder out = new SpannableStringBuilder();
-        String[] lines = chunk.split("\n");
-        for (String ln : lines) out.append(colorizeLine(ln)).append('\n');
-        return out;
-    }
-
-    private CharSequence colorizeLine(String ln) {
-        CharSequence formatted = tryFormatThreadtime(ln);
-        if (formatted != null) return formatted;
-
-        SpannableStringBuilder sb = new SpannableStringBuilder(ln);
-        Matcher mb = LOG_BRACKET.matcher(ln);
-        if (mb.find()) {
-            int letterStart = mb.start(1);
-            int letterEnd = mb.end(1);
-            char lvl = ln.charAt(letterStart);
-            int color = levelColor(lvl);
-            sb.setSpan(new BackgroundColorSpan(color), letterStart, letterEnd, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-            sb.setSpan(new ForegroundColorSpan(contrastingTextColor(color)), letterStart, letterEnd, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-            int msgStart = Math.min(letterEnd + 1, sb.length());
-            while (msgStart < sb.length() && Character.isWhitespace(sb.charAt(msgStart))) msgStart++;
-            if (msgStart < sb.length()) {
-                sb.setSpan(new ForegroundColorSpan(color), msgStart, sb.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    /** Builds the coloured row for one line; only called for rows being bound. */
+    private CharSequence colorizeLine(long seq) {
+        LogRingBuffer logBuffer = this.logBuffer;
+        synchronized (logBuffer) {
+            if (!logBuffer.contains(seq)) return "";
+            int len = logBuffer.length(seq);
+            switch (logBuffer.format(seq)) {
+                case LogRingBuffer.FORMAT_THREADTIME:
+                    return formatThreadtime(logBuffer, seq);
+                case LogRingBuffer.FORMAT_BRACKET: {
+                    String ln = logBuffer.text(seq, 0, len);
+                    SpannableStringBuilder sb = new SpannableStringBuilder(ln);
+                    int letterStart = logBuffer.text(seq, 0, logBuffer.levelPos(seq)).length();
+                    int letterEnd = letterStart + 1;
+                    int color = levelColor(logBuffer.level(seq));
+                    sb.setSpan(new BackgroundColorSpan(color), letterStart, letterEnd, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    sb.setSpan(new ForegroundColorSpan(contrastingTextColor(color)), letterStart, letterEnd, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    int msgStart = ln.length() - logBuffer.text(seq, logBuffer.msgStart(seq), len).length();
+                    if (msgStart < sb.length()) {
+                        sb.setSpan(new ForegroundColorSpan(color), msgStart, sb.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    }
+                    return sb;
+                }
+                default:
+                    return logBuffer.text(seq, 0, len); // fallback: no special coloring
             }
-            return sb;
         }
-        return sb; // fallback: no special coloring
     }
 
-    private static final Pattern LOG_THREADTIME = Pattern.compile(
-            "^\\d{2}-\\d{2} (\\d{2}:\\d{2}:\\d{2})(?:\\.\\d{3})\\s+\\d+\\s+\\d+\\s+([VDIWEF])\\s+([^:]+):\\s*(.*)$"
-    );
-
-    private CharSequence tryFormatThreadtime(@NonNull String ln) {
-        Matcher m = LOG_THREADTIME.matcher(ln);
-        if (!m.find()) return null;
-        String time = m.group(1); // HH:MM:SS
-        char lvl = m.group(2).charAt(0);
-        String tag = m.group(3).trim();
-        String msg = m.group(4);
+    private CharSequence formatThreadtime(LogRingBuffer logBuffer, long seq) {
+        String time = logBuffer.text(seq, 6, 14); // HH:MM:SS
+        char lvl = logBuffer.level(seq);
+        String tag = logBuffer.text(seq, logBuffer.tagStart(seq), logBuffer.tagEnd(seq));
+        String msg = logBuffer.text(seq, logBuffer.msgStart(seq), logBuffer.length(seq));
 
         SpannableStringBuilder out = new SpannableStringBuilder();
         int timeStart = out.length();
@@ -618,7 +566,10 @@ public class LogcatOverlay extends FrameLayout {
     }
 
     private class LogAdapter extends RecyclerView.Adapter<LogViewHolder> {
-        private final List<CharSequence> items = new ArrayList<>();
+        private static final int MAX_DIFF_RUNS = 256;
+
+        // Sequence numbers of visible lines in logBuffer; text is built on bind.
+        private LogRingBuffer.SeqList rows = new LogRingBuffer.SeqList();
 
         @NonNull
         @Override
@@ -636,27 +587,50 @@ public class LogcatOverlay extends FrameLayout {
 
         @Override
         public void onBindViewHolder(@NonNull LogViewHolder holder, int position) {
-            holder.tv.setText(items.get(position));
+            holder.tv.setText(colorizeLine(rows.get(position)));
         }
 
         @Override
-        public int getItemCount() { return items.size(); }
-
-        void addAll(@NonNull List<CharSequence> more) {
-            if (more.isEmpty()) return;
-            int start = items.size();
-            items.addAll(more);
-            notifyItemRangeInserted(start, more.size());
-        }
-
-        void setItems(@NonNull List<CharSequence> newItems) {
-            items.clear();
-            items.addAll(newItems);
-            notifyDataSetChanged();
+        public int getItemCount() { return rows.size(); }
+
+        /**
+         * Swaps in a new row list and notifies only the ranges that changed. Both lists
+         * are sorted by sequence number, so one merge pass finds them in linear time.
+         */
+        void setRows(@NonNull LogRingBuffer.SeqList newRows) {
+            LogRingBuffer.SeqList oldRows = rows;
+            rows = newRows;
+            int oldSize = oldRows.size(), newSize = newRows.size();
+            int i = 0, j = 0, pos = 0, runs = 0;
+            List<int[]> ops = new ArrayList<>();
+            while (i < oldSize || j < newSize) {
+                if (j >= newSize || (i < oldSize && oldRows.get(i) < newRows.get(j))) {
+                    int count = 0;
+                    while (i < oldSize && (j >= newSize || oldRows.get(i) < newRows.get(j))) { i++; count++; }
+                    ops.add(new int[]{0, pos, count});
+                } else if (i >= oldSize || newRows.get(j) < oldRows.get(i)) {
+                    int count = 0;
+                    while (j < newSize && (i >= oldSize || newRows.get(j) < oldRows.get(i))) { j++; count++; }
+                    ops.add(new int[]{1, pos, count});
+                    pos += count;
+                } else {
+                    i++; j++; pos++;
+                    continue;
+                }
+                // Past a few hundred scattered ranges a full rebind is cheaper.
+                if (++runs > MAX_DIFF_RUNS) {
+                    notifyDataSetChanged();
+                    return;
+                }
+            }
+            for (int[] op : ops) {
+                if (op[0] == 0) notifyItemRangeRemoved(op[1], op[2]);
+                else notifyItemRangeInserted(op[1], op[2]);
+            }
         }
 
         void clear() {
-            items.clear();
+            rows.clear();
             notifyDataSetChanged();
         }
     }
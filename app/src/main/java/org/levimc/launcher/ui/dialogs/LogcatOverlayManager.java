@@ -44,8 +44,10 @@ public class LogcatOverlayManager {
 
     private void updateVisibility() {
         boolean show = FeatureSettings.getInstance().isLogcatOverlayEnabled() && !onSplash;
+        int maxLines = FeatureSettings.getInstance().getLogcatOverlayMaxLines();
         mainHandler.post(() -> {
             if (overlay == null) return;
+            overlay.setMaxLines(maxLines);
             if (show) overlay.show(); else overlay.hide();
         });
     }
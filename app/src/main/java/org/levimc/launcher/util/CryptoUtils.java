@@ -1,10 +1,9 @@
 package org.levimc.launcher.util;
 
-import android.util.Base64;
-
 import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 
 public final class CryptoUtils {
     private CryptoUtils() {}
@@ -25,7 +24,7 @@ public final class CryptoUtils {
     }
 
     public static String urlSafeBase64(byte[] bytes) {
-        return Base64.encodeToString(bytes, Base64.NO_PADDING | Base64.NO_WRAP | Base64.URL_SAFE);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
     }
 
     public static String randomString(int len) {
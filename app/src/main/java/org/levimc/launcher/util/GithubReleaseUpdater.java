@@ -15,12 +15,12 @@ import androidx.core.content.FileProvider;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.levimc.launcher.R;
+import org.levimc.launcher.core.download.DownloadManager;
+import org.levimc.launcher.core.download.DownloadRequest;
 import org.levimc.launcher.ui.dialogs.CustomAlertDialog;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -36,8 +36,10 @@ public class GithubReleaseUpdater {
     private final Activity activity;
     private final String owner;
     private final String repo;
-    private final OkHttpClient client = new OkHttpClient();
+    private final OkHttpClient client = DownloadManager.getInstance().httpClient();
     private ActivityResultLauncher<Intent> permissionResultLauncher;
+    private long apkSize = -1;
+    private String apkSha256;
 
     public GithubReleaseUpdater(Activity activity, String owner, String repo,
                                 ActivityResultLauncher<Intent> permissionResultLauncher) {
@@ -84,6 +86,7 @@ public class GithubReleaseUpdater {
                         String name = asset.getString("name");
                         if (name.endsWith(APK_ASSET_KEYWORD)) {
                             downloadUrl = asset.getString("browser_download_url");
+                            rememberAsset(asset);
                             break;
                         }
                     }
@@ -127,6 +130,7 @@ public class GithubReleaseUpdater {
                         String name = asset.getString("name");
                         if (name.endsWith(APK_ASSET_KEYWORD)) {
                             downloadUrl = asset.getString("browser_download_url");
+                            rememberAsset(asset);
                             break;
                         }
                     }
@@ -178,57 +182,41 @@ public class GithubReleaseUpdater {
         activity.runOnUiThread(() -> Toast.makeText(activity, activity.getString(R.string.version_ignored), Toast.LENGTH_SHORT).show());
     }
 
+    private void rememberAsset(JSONObject asset) {
+        apkSize = asset.optLong("size", -1);
+        // Newer releases carry a digest such as "sha256:<hex>".
+        String digest = asset.optString("digest", "");
+        apkSha256 = digest.startsWith("sha256:") ? digest.substring("sha256:".length()) : null;
+    }
+
     private void downloadApk(String url) {
         activity.runOnUiThread(() -> Toast.makeText(activity, activity.getString(R.string.downloading_update), Toast.LENGTH_SHORT).show());
-        Request request = new Request.Builder().url(url).build();
-        client.newCall(request).enqueue(new Callback() {
+        File apkFile = new File(activity.getExternalCacheDir(), "update_apk.apk");
+        DownloadRequest.Builder request = new DownloadRequest.Builder(url, apkFile).expectedSize(apkSize);
+        if (apkSha256 != null) request.hash("SHA-256", apkSha256);
+        DownloadManager.getInstance().enqueue(request.build(), new DownloadManager.Listener() {
+            private long lastToastTime;
+
             @Override
-            public void onFailure(Call call, IOException e) {
-                activity.runOnUiThread(() ->
-                        Toast.makeText(activity, activity.getString(R.string.update_failed, e.getMessage()), Toast.LENGTH_LONG).show());
+            public void onProgress(long downloaded, long total) {
+                long now = System.currentTimeMillis();
+                if (now - lastToastTime > 500 && total > 0) {
+                    int percent = (int) (downloaded * 100 / total);
+                    activity.runOnUiThread(() ->
+                            Toast.makeText(activity, activity.getString(R.string.update_progress, percent), Toast.LENGTH_SHORT).show());
+                    lastToastTime = now;
+                }
             }
 
             @Override
-            public void onResponse(Call call, Response response) {
-                InputStream is = null;
-                FileOutputStream fos = null;
-                try {
-                    byte[] buf = new byte[4096];
-                    int len;
-                    long downloaded = 0;
-                    long total = response.body().contentLength();
-                    is = response.body().byteStream();
-                    File apkFile = new File(activity.getExternalCacheDir(), "update_apk.apk");
-                    fos = new FileOutputStream(apkFile);
-
-                    long lastToastTime = 0;
-                    while ((len = is.read(buf)) > 0) {
-                        fos.write(buf, 0, len);
-                        downloaded += len;
+            public void onComplete(File file) {
+                installApk(file);
+            }
 
-                        long now = System.currentTimeMillis();
-                        if (now - lastToastTime > 500 && total > 0) {
-                            int percent = (int) (downloaded * 100 / total);
-                            activity.runOnUiThread(() ->
-                                    Toast.makeText(activity, activity.getString(R.string.update_progress, percent), Toast.LENGTH_SHORT).show());
-                            lastToastTime = now;
-                        }
-                    }
-                    fos.flush();
-                    installApk(apkFile);
-                } catch (Exception e) {
-                    activity.runOnUiThread(() ->
-                            Toast.makeText(activity, activity.getString(R.string.update_failed, e.getMessage()), Toast.LENGTH_LONG).show());
-                } finally {
-                    try {
-                        if (is != null) is.close();
-                    } catch (Exception ignored) {
-                    }
-                    try {
-                        if (fos != null) fos.close();
-                    } catch (Exception ignored) {
-                    }
-                }
+            @Override
+            public void onError(Exception e) {
+                activity.runOnUiThread(() ->
+                        Toast.makeText(activity, activity.getString(R.string.update_failed, e.getMessage()), Toast.LENGTH_LONG).show());
             }
         });
     }
@@ -41,4 +41,27 @@ public final class JsonIOUtils {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes to a sibling temp file, syncs it and renames it over {@code f}, so readers
+     * never observe a truncated file.
+     */
+    public static boolean writeAtomic(File f, String content) {
+        if (f == null) return false;
+        File tmp = new File(f.getParentFile(), f.getName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp, false)) {
+            fos.write((content != null ? content : "").getBytes(StandardCharsets.UTF_8));
+            fos.getFD().sync();
+        } catch (Exception ex) {
+            Log.w(TAG, "Failed to write " + tmp.getAbsolutePath(), ex);
+            tmp.delete();
+            return false;
+        }
+        if (!tmp.renameTo(f)) {
+            Log.w(TAG, "Failed to replace " + f.getAbsolutePath());
+            tmp.delete();
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,129 @@
+package org.levimc.launcher.util;
+
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind persistence for launcher state. Bursts of writes to the same file (or the
+ * same task key) are coalesced so only the latest one runs, on a single background thread.
+ * Files are written atomically via {@link JsonIOUtils#writeAtomic(File, String)}.
+ */
+public final class WriteBehindStore {
+
+    private static final String TAG = "WriteBehindStore";
+    private static final long COALESCE_DELAY_MS = 200;
+
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Map<String, Runnable> pendingTasks = new LinkedHashMap<>();
+    private static final Map<String, String> pendingContent = new LinkedHashMap<>();
+    private static final AtomicLong writeCount = new AtomicLong();
+
+    private WriteBehindStore() {}
+
+    public static void write(File file, String content) {
+        if (file == null) return;
+        String key = file.getAbsolutePath();
+        synchronized (WriteBehindStore.class) {
+            pendingContent.put(key, content);
+        }
+        schedule(key, () -> {
+            String latest;
+            synchronized (WriteBehindStore.class) {
+                latest = pendingContent.get(key);
+            }
+            if (latest == null) return;
+            // Stays readable through read() until the file holds it; a newer write keeps its entry.
+            try {
+                if (JsonIOUtils.writeAtomic(file, latest)) {
+                    writeCount.incrementAndGet();
+                }
+            } finally {
+                synchronized (WriteBehindStore.class) {
+                    pendingContent.remove(key, latest);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the content still waiting to be written to {@code file}, or what is on disk.
+     */
+    public static String read(File file) {
+        if (file == null) return null;
+        synchronized (WriteBehindStore.class) {
+            String pending = pendingContent.get(file.getAbsolutePath());
+            if (pending != null) {
+                return pending;
+            }
+        }
+        return JsonIOUtils.read(file);
+    }
+
+    /**
+     * Runs {@code task} after a short delay, replacing any task still pending under {@code key}.
+     */
+    public static void schedule(String key, Runnable task) {
+        boolean alreadyScheduled;
+        synchronized (WriteBehindStore.class) {
+            alreadyScheduled = pendingTasks.put(key, task) != null;
+        }
+        if (!alreadyScheduled) {
+            executor.schedule(() -> runPending(key), COALESCE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Blocks until every pending write has reached disk. Call before handing control to the game.
+     */
+    public static void flush() {
+        Future<?> barrier = executor.submit(() -> {
+            List<String> keys;
+            synchronized (WriteBehindStore.class) {
+                keys = new ArrayList<>(pendingTasks.keySet());
+            }
+            for (String key : keys) {
+                runPending(key);
+            }
+        });
+        try {
+            barrier.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            Log.w(TAG, "Flush failed", e);
+        }
+    }
+
+    public static long getWriteCount() {
+        return writeCount.get();
+    }
+
+    private static void runPending(String key) {
+        Runnable task;
+        synchronized (WriteBehindStore.class) {
+            task = pendingTasks.remove(key);
+        }
+        if (task == null) {
+            return;
+        }
+        try {
+            task.run();
+        } catch (Exception e) {
+            Log.w(TAG, "Deferred write failed for " + key, e);
+        }
+    }
+}
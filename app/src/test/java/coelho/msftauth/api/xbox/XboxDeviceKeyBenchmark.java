@@ -0,0 +1,97 @@
+package coelho.msftauth.api.xbox;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.levimc.launcher.Benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Random;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+/**
+ * Signing throughput and allocation for small and large request bodies, next to a
+ * baseline that looks up a Signature and concatenates the payload for every call as
+ * the signer used to.
+ */
+public class XboxDeviceKeyBenchmark {
+
+    private static final String PATH = "/xsts/authorize";
+    private static final String AUTH = "XBL3.0 x=1234567890;" + "t".repeat(1200);
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private KeyPair keyPair;
+    private XboxDeviceKey deviceKey;
+
+    @Before
+    public void setUp() throws Exception {
+        Benchmarks.assumeEnabled();
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        keyPair = generator.generateKeyPair();
+        deviceKey = new XboxDeviceKey(keyPair, "{bench}");
+    }
+
+    @Test
+    public void signSmallBody() throws Exception {
+        run("256 B", body(256));
+    }
+
+    @Test
+    public void signLargeBody() throws Exception {
+        run("64 KB", body(64 * 1024));
+    }
+
+    private void run(String label, byte[] body) throws Exception {
+        double baseline = Benchmarks.nanosPerOp(300, 1500, () -> signPerCall(body));
+        double array = Benchmarks.nanosPerOp(300, 1500, () -> deviceKey.sign(PATH, AUTH, "POST", body));
+        double builder = Benchmarks.nanosPerOp(300, 1500, () -> signBuilder(body));
+
+        Benchmarks.report("baseline, new Signature + concat, " + label, "%.1f us, %.1f KB/op",
+                baseline / 1000, Benchmarks.bytesPerOp(300, () -> signPerCall(body)) / 1024);
+        Benchmarks.report("sign(byte[]), " + label, "%.1f us, %.1f KB/op",
+                array / 1000, Benchmarks.bytesPerOp(300, () -> deviceKey.sign(PATH, AUTH, "POST", body)) / 1024);
+        Benchmarks.report("sign(Request.Builder), " + label, "%.1f us, %.1f KB/op",
+                builder / 1000, Benchmarks.bytesPerOp(300, () -> signBuilder(body)) / 1024);
+    }
+
+    private Request.Builder signBuilder(byte[] body) {
+        Request.Builder builder = new Request.Builder()
+                .url("https://xsts.auth.xboxlive.com" + PATH)
+                .header("Authorization", AUTH)
+                .post(RequestBody.create(body, JSON));
+        deviceKey.sign(builder);
+        return builder;
+    }
+
+    private String signPerCall(byte[] body) throws Exception {
+        long time = (System.currentTimeMillis() / 1000 + 11644473600L) * 10000000;
+        byte[] method = "POST".getBytes(StandardCharsets.US_ASCII);
+        byte[] path = PATH.getBytes(StandardCharsets.US_ASCII);
+        byte[] auth = AUTH.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer payload = ByteBuffer.allocate(14 + method.length + path.length + auth.length + body.length + 4);
+        payload.putInt(1).put((byte) 0).putLong(time).put((byte) 0)
+                .put(method).put((byte) 0).put(path).put((byte) 0).put(auth).put((byte) 0)
+                .put(body).put((byte) 0);
+        Signature signature = Signature.getInstance("SHA256withECDSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(payload.array(), 0, payload.position());
+        byte[] raw = XboxDeviceKey.decodeSignature(signature.sign());
+        ByteBuffer out = ByteBuffer.allocate(12 + raw.length).putInt(1).putLong(time).put(raw);
+        return Base64.getEncoder().encodeToString(out.array());
+    }
+
+    private static byte[] body(int size) {
+        byte[] body = new byte[size];
+        new Random(size).nextBytes(body);
+        return body;
+    }
+}
@@ -0,0 +1,228 @@
+package coelho.msftauth.api.xbox;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+public class XboxDeviceKeyTest {
+
+    private static KeyPair keyPair;
+    private static XboxDeviceKey deviceKey;
+
+    @BeforeClass
+    public static void generateKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        keyPair = generator.generateKeyPair();
+        deviceKey = new XboxDeviceKey(keyPair, "{test}");
+    }
+
+    @Test
+    public void derToRawCopiesFullWidthIntegers() throws Exception {
+        byte[] r = filled(32, 0x81);
+        byte[] s = filled(32, 0x7f);
+
+        byte[] raw = XboxDeviceKey.decodeSignature(der(signed(r), s));
+
+        assertArrayEquals(concat(r, s), raw);
+    }
+
+    @Test
+    public void derToRawLeftPadsShortIntegers() throws Exception {
+        byte[] r = filled(30, 0x11);
+        byte[] s = filled(1, 0x05);
+
+        byte[] raw = XboxDeviceKey.decodeSignature(der(r, s));
+
+        assertEquals(64, raw.length);
+        assertArrayEquals(concat(new byte[2], r, new byte[31], s), raw);
+    }
+
+    @Test
+    public void derToRawWritesAtTheRequestedOffset() throws Exception {
+        byte[] r = filled(32, 0x22);
+        byte[] s = filled(32, 0x33);
+        byte[] out = filled(80, 0xee);
+
+        XboxDeviceKey.derToRaw(der(r, s), out, 12, 32);
+
+        assertArrayEquals(filled(12, 0xee), Arrays.copyOfRange(out, 0, 12));
+        assertArrayEquals(concat(r, s), Arrays.copyOfRange(out, 12, 76));
+        assertArrayEquals(filled(4, 0xee), Arrays.copyOfRange(out, 76, 80));
+    }
+
+    @Test
+    public void derToRawRejectsMalformedInput() {
+        byte[] valid = der(filled(32, 0x01), filled(32, 0x02));
+        byte[] wrongTag = valid.clone();
+        wrongTag[0] = 0x31;
+        byte[] trailing = Arrays.copyOf(valid, valid.length + 1);
+        byte[] truncated = Arrays.copyOf(valid, valid.length - 1);
+        byte[] tooWide = der(filled(33, 0x01), filled(32, 0x02));
+        byte[] emptyInteger = {0x30, 0x06, 0x02, 0x00, 0x02, 0x02, 0x01, 0x01};
+
+        for (byte[] input : new byte[][] {wrongTag, trailing, truncated, tooWide, emptyInteger, new byte[4]}) {
+            try {
+                XboxDeviceKey.decodeSignature(input);
+                fail("accepted " + Arrays.toString(input));
+            } catch (SignatureException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void decodedProviderSignaturesVerifyAsP1363() throws Exception {
+        Random random = new Random(3);
+        Signature der = Signature.getInstance("SHA256withECDSA");
+        Signature p1363 = Signature.getInstance("SHA256withECDSAinP1363Format");
+        // Enough signatures that some r or s values come out shorter than 32 bytes.
+        for (int i = 0; i < 500; i++) {
+            byte[] message = new byte[random.nextInt(64)];
+            random.nextBytes(message);
+            der.initSign(keyPair.getPrivate());
+            der.update(message);
+
+            byte[] raw = XboxDeviceKey.decodeSignature(der.sign());
+
+            p1363.initVerify(keyPair.getPublic());
+            p1363.update(message);
+            assertTrue(p1363.verify(raw));
+        }
+    }
+
+    @Test
+    public void signCoversPolicyTimeMethodPathAuthAndBody() throws Exception {
+        byte[] body = "{\"Properties\":{}}".getBytes(StandardCharsets.UTF_8);
+        // Longer than the signer's scratch array, and with a non-ASCII character.
+        String auth = "XBL3.0 x=1;" + "a".repeat(600) + "é";
+
+        String header = deviceKey.sign("/device/authenticate", auth, "POST", body);
+
+        assertSignatureCovers(header, "POST", "/device/authenticate", auth, body);
+    }
+
+    @Test
+    public void signWithoutAuthOrBodyCoversEmptyFields() throws Exception {
+        String header = deviceKey.sign("/title/authenticate", null, "GET", null);
+
+        assertSignatureCovers(header, "GET", "/title/authenticate", "", new byte[0]);
+    }
+
+    @Test
+    public void signRequestStreamsTheBodyIntoTheSignature() throws Exception {
+        byte[] body = new byte[200_000];
+        new Random(5).nextBytes(body);
+        Request.Builder builder = new Request.Builder()
+                .url("https://xsts.auth.xboxlive.com/xsts/authorize")
+                .header("Authorization", "XBL3.0 x=2;token")
+                .post(RequestBody.create(body, MediaType.get("application/json")));
+
+        deviceKey.sign(builder);
+
+        assertSignatureCovers(builder.build().header("Signature"), "POST", "/xsts/authorize", "XBL3.0 x=2;token", body);
+    }
+
+    @Test
+    public void signerRecoversAfterAFailedBodyWrite() throws Exception {
+        RequestBody failing = new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return null;
+            }
+
+            @Override
+            public void writeTo(okio.BufferedSink sink) throws java.io.IOException {
+                sink.writeUtf8("partial");
+                sink.flush();
+                throw new java.io.IOException("stream closed");
+            }
+        };
+        try {
+            deviceKey.sign(new Request.Builder().url("https://example.com/a").post(failing));
+            fail("expected the body failure to surface");
+        } catch (IllegalStateException expected) {
+        }
+
+        String header = deviceKey.sign("/a", null, "GET", null);
+
+        assertSignatureCovers(header, "GET", "/a", "", new byte[0]);
+    }
+
+    /** Checks the header layout and that its signature verifies over the Xbox signing payload. */
+    private static void assertSignatureCovers(String header, String method, String path, String auth, byte[] body) throws Exception {
+        byte[] decoded = Base64.getDecoder().decode(header);
+        assertEquals(76, decoded.length);
+        assertArrayEquals(new byte[] {0, 0, 0, 1}, Arrays.copyOfRange(decoded, 0, 4));
+        long time = ByteBuffer.wrap(decoded, 4, 8).getLong();
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        payload.write(new byte[] {0, 0, 0, 1, 0});
+        payload.write(ByteBuffer.allocate(8).putLong(time).array());
+        payload.write(0);
+        payload.write(method.getBytes(StandardCharsets.US_ASCII));
+        payload.write(0);
+        payload.write(path.getBytes(StandardCharsets.US_ASCII));
+        payload.write(0);
+        payload.write(auth.getBytes(StandardCharsets.US_ASCII));
+        payload.write(0);
+        payload.write(body);
+        payload.write(0);
+
+        Signature verifier = Signature.getInstance("SHA256withECDSAinP1363Format");
+        verifier.initVerify(keyPair.getPublic());
+        verifier.update(payload.toByteArray());
+        assertTrue(verifier.verify(Arrays.copyOfRange(decoded, 12, 76)));
+    }
+
+    private static byte[] der(byte[] r, byte[] s) {
+        int length = 2 + r.length + 2 + s.length;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0x30);
+        if (length > 0x7f) out.write(0x81);
+        out.write(length);
+        out.write(0x02);
+        out.write(r.length);
+        out.write(r, 0, r.length);
+        out.write(0x02);
+        out.write(s.length);
+        out.write(s, 0, s.length);
+        return out.toByteArray();
+    }
+
+    /** DER integers with the top bit set carry a leading zero byte. */
+    private static byte[] signed(byte[] magnitude) {
+        return concat(new byte[1], magnitude);
+    }
+
+    private static byte[] filled(int length, int value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) out.write(part, 0, part.length);
+        return out.toByteArray();
+    }
+}
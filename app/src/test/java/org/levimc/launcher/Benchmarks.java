@@ -0,0 +1,60 @@
+package org.levimc.launcher;
+
+import org.junit.Assume;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Timing harness for the {@code *Benchmark} test classes. They are skipped unless the
+ * build runs with {@code -Pbenchmarks}; timings from a shared CI machine are noise.
+ * Results go to standard output and the test report.
+ */
+public final class Benchmarks {
+
+    public interface Op {
+        Object run() throws Exception;
+    }
+
+    // Keeps results reachable so the JIT cannot drop the measured work.
+    private static volatile int sink;
+
+    private Benchmarks() {}
+
+    public static void assumeEnabled() {
+        Assume.assumeTrue("run with -Pbenchmarks", Boolean.getBoolean("levi.benchmarks"));
+    }
+
+    /** Mean nanoseconds per call of {@code op} after {@code warmup} untimed calls. */
+    public static double nanosPerOp(int warmup, int iterations, Op op) throws Exception {
+        for (int i = 0; i < warmup; i++) consume(op.run());
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) consume(op.run());
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+
+    /** Mean bytes allocated per call on this thread, or -1 where the JVM cannot tell. */
+    public static double bytesPerOp(int iterations, Op op) throws Exception {
+        long before = allocatedBytes();
+        if (before < 0) return -1;
+        for (int i = 0; i < iterations; i++) consume(op.run());
+        return (allocatedBytes() - before) / (double) iterations;
+    }
+
+    /** Bytes allocated so far by the calling thread, or -1 where the JVM cannot tell. */
+    public static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    public static void report(String name, String format, Object... args) {
+        System.out.printf("%-48s %s%n", name, String.format(format, args));
+    }
+
+    private static void consume(Object value) {
+        sink += System.identityHashCode(value);
+    }
+}
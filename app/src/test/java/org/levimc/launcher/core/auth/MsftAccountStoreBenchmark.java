@@ -0,0 +1,102 @@
+package org.levimc.launcher.core.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.levimc.launcher.Benchmarks;
+import org.levimc.launcher.util.JsonIOUtils;
+import org.levimc.launcher.util.WriteBehindStore;
+
+import java.io.File;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Account lookups and switches with hundreds of stored accounts, against the old
+ * approach of re-reading and re-parsing the accounts file for every call.
+ */
+public class MsftAccountStoreBenchmark {
+
+    private static final int ACCOUNTS = 500;
+    private static final Type LIST_TYPE = new TypeToken<List<MsftAccountStore.MsftAccount>>(){}.getType();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Before
+    public void enabled() {
+        Benchmarks.assumeEnabled();
+    }
+
+    @Test
+    public void lookupsAndSwitchesWithHundredsOfAccounts() throws Exception {
+        Context context = new FilesDirContext(tmp.getRoot());
+        for (int i = 0; i < ACCOUNTS; i++) {
+            MsftAccountStore.addOrUpdate(context, "user-" + i, "token-" + i, "Gamer" + i);
+        }
+        WriteBehindStore.flush();
+        List<MsftAccountStore.MsftAccount> accounts = MsftAccountStore.list(context);
+        assertEquals(ACCOUNTS, accounts.size());
+        File file = new File(new File(tmp.getRoot(), "xal"), "Xal.Accounts.json");
+        Gson gson = new Gson();
+
+        String last = accounts.get(ACCOUNTS - 1).id;
+        String middleUser = "user-" + (ACCOUNTS / 2);
+        double reparse = Benchmarks.nanosPerOp(200, 2000, () -> {
+            List<MsftAccountStore.MsftAccount> parsed = gson.fromJson(JsonIOUtils.read(file), LIST_TYPE);
+            for (MsftAccountStore.MsftAccount a : parsed) {
+                if (last.equals(a.id)) return a;
+            }
+            return null;
+        });
+        double find = Benchmarks.nanosPerOp(10_000, 1_000_000, () -> MsftAccountStore.find(context, last));
+        double findByUser = Benchmarks.nanosPerOp(10_000, 1_000_000, () -> MsftAccountStore.findByMsUserId(context, middleUser));
+        double active = Benchmarks.nanosPerOp(10_000, 1_000_000, () -> MsftAccountStore.getActive(context));
+        double list = Benchmarks.nanosPerOp(10_000, 1_000_000, () -> MsftAccountStore.list(context));
+
+        int[] next = {0};
+        double setActive = Benchmarks.nanosPerOp(100, 1000, () -> {
+            MsftAccountStore.setActive(context, accounts.get(next[0]++ % ACCOUNTS).id);
+            return null;
+        });
+        WriteBehindStore.flush();
+        assertNotNull(MsftAccountStore.getActive(context));
+
+        Benchmarks.report("re-read + parse + scan (old, per call)", "%.1f us", reparse / 1000);
+        Benchmarks.report("find(id)", "%.1f ns", find);
+        Benchmarks.report("findByMsUserId", "%.1f ns", findByUser);
+        Benchmarks.report("getActive", "%.1f ns", active);
+        Benchmarks.report("list", "%.1f ns", list);
+        Benchmarks.report("setActive, copy-on-write of " + ACCOUNTS, "%.1f us", setActive / 1000);
+    }
+
+    /** Just enough of a Context for XalStorageManager to place its files. */
+    private static final class FilesDirContext extends ContextWrapper {
+        private final File filesDir;
+
+        FilesDirContext(File filesDir) {
+            super(null);
+            this.filesDir = filesDir;
+        }
+
+        @Override
+        public Context getApplicationContext() {
+            return this;
+        }
+
+        @Override
+        public File getFilesDir() {
+            return filesDir;
+        }
+    }
+}
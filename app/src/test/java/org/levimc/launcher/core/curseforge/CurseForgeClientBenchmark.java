@@ -0,0 +1,181 @@
+package org.levimc.launcher.core.curseforge;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.levimc.launcher.Benchmarks;
+import org.levimc.launcher.core.curseforge.models.ContentSearchResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Time to first row and allocation for one page of search results, streamed into the
+ * models as the client does now, against reading the body into a String and parsing
+ * that as it used to.
+ */
+public class CurseForgeClientBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private MockWebServer server;
+    private OkHttpClient http;
+    private byte[] page;
+
+    @Before
+    public void setUp() throws Exception {
+        Benchmarks.assumeEnabled();
+        page = page(PAGE_SIZE).getBytes(StandardCharsets.UTF_8);
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                // About 8 Mbit/s, so parsing competes with the transfer as on a phone.
+                return new MockResponse.Builder()
+                        .addHeader("Cache-Control", "no-store")
+                        .body(new okio.Buffer().write(page))
+                        .throttleBody(16 * 1024, 16, TimeUnit.MILLISECONDS)
+                        .build();
+            }
+        });
+        server.start();
+        http = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    HttpUrl url = chain.request().url().newBuilder()
+                            .scheme("http")
+                            .host(server.getHostName())
+                            .port(server.getPort())
+                            .build();
+                    return chain.proceed(chain.request().newBuilder().url(url).build());
+                })
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (server == null) return;
+        http.dispatcher().executorService().shutdown();
+        server.close();
+    }
+
+    @Test
+    public void parseOnePage() throws Exception {
+        Gson gson = new Gson();
+        TypeAdapter<ContentSearchResponse> adapter = gson.getAdapter(ContentSearchResponse.class);
+        Benchmarks.Op string = () -> gson.fromJson(new String(page, StandardCharsets.UTF_8), ContentSearchResponse.class);
+        Benchmarks.Op stream = () -> adapter.read(new JsonReader(
+                new InputStreamReader(new ByteArrayInputStream(page), StandardCharsets.UTF_8)));
+        assertEquals(PAGE_SIZE, ((ContentSearchResponse) stream.run()).data.size());
+
+        double stringNanos = Benchmarks.nanosPerOp(200, 1000, string);
+        double streamNanos = Benchmarks.nanosPerOp(200, 1000, stream);
+
+        Benchmarks.report("page size", "%d rows, %.1f KB", PAGE_SIZE, page.length / 1024.0);
+        Benchmarks.report("String + fromJson (old), parse", "%.1f us, %.1f KB/page",
+                stringNanos / 1000, Benchmarks.bytesPerOp(200, string) / 1024);
+        Benchmarks.report("streamed into models, parse", "%.1f us, %.1f KB/page",
+                streamNanos / 1000, Benchmarks.bytesPerOp(200, stream) / 1024);
+    }
+
+    @Test
+    public void timeToFirstRowOverAThrottledConnection() throws Exception {
+        Gson gson = new Gson();
+        CurseForgeClient client = new CurseForgeClient(http, tmp.newFolder("curseforge"));
+        Benchmarks.Op old = () -> {
+            Request request = new Request.Builder().url("https://api.curseforge.com/v1/mods/search").build();
+            try (Response response = http.newCall(request).execute()) {
+                return gson.fromJson(response.body().string(), ContentSearchResponse.class);
+            }
+        };
+        Benchmarks.Op streamed = () -> {
+            CompletableFuture<ContentSearchResponse> rows = new CompletableFuture<>();
+            client.searchContent("", 0, null, 0, PAGE_SIZE, CurseForgeClient.SORT_POPULARITY, "desc",
+                    new CurseForgeClient.CurseForgeCallback<ContentSearchResponse>() {
+                        @Override
+                        public void onSuccess(ContentSearchResponse result) {
+                            rows.complete(result);
+                        }
+
+                        @Override
+                        public void onError(Throwable t) {
+                            rows.completeExceptionally(t);
+                        }
+                    });
+            return rows.get(10, TimeUnit.SECONDS);
+        };
+        assertEquals(PAGE_SIZE, ((ContentSearchResponse) streamed.run()).data.size());
+
+        double oldNanos = Benchmarks.nanosPerOp(5, 30, old);
+        double streamedNanos = Benchmarks.nanosPerOp(5, 30, streamed);
+
+        Benchmarks.report("String + fromJson (old), first row", "%.1f ms", oldNanos / 1e6);
+        Benchmarks.report("searchContent, streamed, first row", "%.1f ms", streamedNanos / 1e6);
+    }
+
+    /** A search page shaped like the API's, including fields the models do not map. */
+    private static String page(int rows) {
+        StringBuilder json = new StringBuilder("{\"data\":[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"id\":").append(100000 + i)
+                    .append(",\"gameId\":78022,\"name\":\"Addon ").append(i)
+                    .append("\",\"slug\":\"addon-").append(i)
+                    .append("\",\"links\":{\"websiteUrl\":\"https://www.curseforge.com/minecraft-bedrock/addons/addon-").append(i)
+                    .append("\",\"wikiUrl\":\"\",\"issuesUrl\":\"\",\"sourceUrl\":\"\"}")
+                    .append(",\"summary\":\"").append("A short summary of what this addon adds to the game. ".repeat(3))
+                    .append("\",\"status\":4,\"downloadCount\":").append(1000L * i)
+                    .append(",\"isFeatured\":false,\"primaryCategoryId\":4546")
+                    .append(",\"categories\":[");
+            for (int c = 0; c < 3; c++) {
+                if (c > 0) json.append(',');
+                json.append("{\"id\":").append(4546 + c).append(",\"gameId\":78022,\"name\":\"Category ").append(c)
+                        .append("\",\"slug\":\"category-").append(c)
+                        .append("\",\"url\":\"https://www.curseforge.com/minecraft-bedrock/category-").append(c)
+                        .append("\",\"iconUrl\":\"https://media.forgecdn.net/avatars/6/").append(c).append(".png\"}");
+            }
+            json.append("],\"authors\":[{\"id\":").append(200000 + i).append(",\"name\":\"author").append(i)
+                    .append("\",\"url\":\"https://www.curseforge.com/members/author").append(i).append("\"}]")
+                    .append(",\"logo\":{\"id\":").append(300000 + i).append(",\"modId\":").append(100000 + i)
+                    .append(",\"title\":\"logo\",\"description\":\"\",\"thumbnailUrl\":\"https://media.forgecdn.net/avatars/thumbnails/")
+                    .append(i).append("/256/256/logo.png\",\"url\":\"https://media.forgecdn.net/avatars/").append(i).append("/logo.png\"}")
+                    .append(",\"screenshots\":[");
+            for (int s = 0; s < 4; s++) {
+                if (s > 0) json.append(',');
+                json.append("{\"id\":").append(s).append(",\"title\":\"screenshot\",\"url\":\"https://media.forgecdn.net/attachments/")
+                        .append(i).append('/').append(s).append(".png\"}");
+            }
+            json.append("],\"latestFiles\":[{\"id\":").append(400000 + i).append(",\"modId\":").append(100000 + i)
+                    .append(",\"displayName\":\"Addon ").append(i).append(" v1.2\",\"fileName\":\"addon-").append(i)
+                    .append(".mcaddon\",\"hashes\":[{\"value\":\"da39a3ee5e6b4b0d3255bfef95601890afd80709\",\"algo\":1}]")
+                    .append(",\"fileDate\":\"2026-10-01T12:00:00Z\",\"fileLength\":").append(1_000_000 + i)
+                    .append(",\"downloadUrl\":\"https://edge.forgecdn.net/files/").append(i).append("/addon.mcaddon\"")
+                    .append(",\"gameVersions\":[\"1.21.40\",\"1.21.50\"],\"dependencies\":[],\"modules\":[]}]")
+                    .append(",\"dateCreated\":\"2025-01-01T00:00:00Z\",\"dateModified\":\"2026-10-01T12:00:00Z\"}");
+        }
+        return json.append("],\"pagination\":{\"index\":0,\"pageSize\":").append(rows)
+                .append(",\"resultCount\":").append(rows).append(",\"totalCount\":10000}}").toString();
+    }
+}
@@ -0,0 +1,237 @@
+package org.levimc.launcher.core.curseforge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.levimc.launcher.core.curseforge.models.ModFilesResponse;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+public class CurseForgeClientTest {
+
+    private static final String DESCRIPTION = "{\"data\":\"<p>A mod</p>\"}";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private MockWebServer server;
+    private OkHttpClient http;
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        // The client always builds api.curseforge.com URLs; send them to the mock server instead.
+        http = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    HttpUrl url = chain.request().url().newBuilder()
+                            .scheme("http")
+                            .host(server.getHostName())
+                            .port(server.getPort())
+                            .build();
+                    return chain.proceed(chain.request().newBuilder().url(url).build());
+                })
+                .build();
+        cacheDir = tmp.newFolder("curseforge");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        http.dispatcher().executorService().shutdown();
+        server.close();
+    }
+
+    @Test
+    public void staleEntryIsServedAndRevalidatedWithItsEtag() throws Exception {
+        CurseForgeClient client = new CurseForgeClient(http, cacheDir);
+        server.enqueue(new MockResponse.Builder()
+                .addHeader("ETag", "\"v1\"")
+                .addHeader("Cache-Control", "max-age=0")
+                .body(DESCRIPTION)
+                .build());
+        server.enqueue(new MockResponse.Builder()
+                .code(304)
+                .addHeader("ETag", "\"v1\"")
+                .addHeader("Cache-Control", "max-age=600")
+                .build());
+
+        assertEquals("<p>A mod</p>", description(client, 1));
+        RecordedRequest first = server.takeRequest(5, TimeUnit.SECONDS);
+        assertNull(first.getHeaders().get("If-None-Match"));
+        awaitIdle();
+
+        // Stale: answered from the cache at once, then revalidated in the background.
+        assertEquals("<p>A mod</p>", description(client, 1));
+        RecordedRequest revalidation = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("\"v1\"", revalidation.getHeaders().get("If-None-Match"));
+        awaitIdle();
+        assertEquals("<p>A mod</p>", description(client, 1));
+
+        CurseForgeResponseCache.Stats stats = client.getCacheStats();
+        assertEquals(1, stats.misses);
+        assertEquals(1, stats.staleHits);
+        assertEquals(1, stats.hits);
+        assertEquals(1, stats.notModified);
+        // Every read, including the one after the 304, reused the model parsed from the 200.
+        assertEquals(3, stats.parseSkips);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void notModifiedRenewsTheEntryWithoutRefetchingTheBody() throws Exception {
+        CurseForgeClient client = new CurseForgeClient(http, cacheDir);
+        server.enqueue(new MockResponse.Builder()
+                .addHeader("ETag", "\"v1\"")
+                .addHeader("Cache-Control", "max-age=0")
+                .body(DESCRIPTION)
+                .build());
+        server.enqueue(new MockResponse.Builder()
+                .code(304)
+                .addHeader("Cache-Control", "max-age=600")
+                .build());
+
+        description(client, 2);
+        awaitIdle();
+        description(client, 2);
+        await(() -> server.getRequestCount() == 2);
+        awaitIdle();
+
+        // Fresh again after the 304, so neither call reaches the server.
+        assertEquals("<p>A mod</p>", description(client, 2));
+        assertEquals("<p>A mod</p>", description(client, 2));
+        assertEquals(2, server.getRequestCount());
+        assertEquals(2, client.getCacheStats().hits);
+    }
+
+    @Test
+    public void lastModifiedIsSentBackAsIfModifiedSince() throws Exception {
+        CurseForgeClient client = new CurseForgeClient(http, cacheDir);
+        server.enqueue(new MockResponse.Builder()
+                .addHeader("Last-Modified", "Sun, 18 Oct 2026 10:00:00 GMT")
+                .addHeader("Cache-Control", "max-age=0")
+                .body(DESCRIPTION)
+                .build());
+        server.enqueue(new MockResponse.Builder().code(304).build());
+
+        description(client, 3);
+        server.takeRequest(5, TimeUnit.SECONDS);
+        awaitIdle();
+        description(client, 3);
+
+        RecordedRequest revalidation = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("Sun, 18 Oct 2026 10:00:00 GMT", revalidation.getHeaders().get("If-Modified-Since"));
+        assertNull(revalidation.getHeaders().get("If-None-Match"));
+    }
+
+    @Test
+    public void freshEntryOnDiskServesANewClientWithoutTheNetwork() throws Exception {
+        server.enqueue(new MockResponse.Builder()
+                .addHeader("ETag", "\"v1\"")
+                .addHeader("Cache-Control", "max-age=600")
+                .body(DESCRIPTION)
+                .build());
+        description(new CurseForgeClient(http, cacheDir), 4);
+        awaitIdle();
+
+        CurseForgeClient restarted = new CurseForgeClient(http, cacheDir);
+
+        assertEquals("<p>A mod</p>", description(restarted, 4));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, restarted.getCacheStats().hits);
+    }
+
+    @Test
+    public void noStoreResponseIsNotCached() throws Exception {
+        CurseForgeClient client = new CurseForgeClient(http, cacheDir);
+        for (int i = 0; i < 2; i++) {
+            server.enqueue(new MockResponse.Builder()
+                    .addHeader("Cache-Control", "no-store")
+                    .body(DESCRIPTION)
+                    .build());
+        }
+
+        description(client, 5);
+        awaitIdle();
+        description(client, 5);
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(2, client.getCacheStats().misses);
+    }
+
+    @Test
+    public void concurrentCallersForOneUrlShareOneRequest() throws Exception {
+        CurseForgeClient client = new CurseForgeClient(http, cacheDir);
+        server.enqueue(new MockResponse.Builder()
+                .headersDelay(300, TimeUnit.MILLISECONDS)
+                .addHeader("Cache-Control", "max-age=600")
+                .body("{\"data\":[]}")
+                .build());
+
+        CompletableFuture<ModFilesResponse> first = new CompletableFuture<>();
+        CompletableFuture<ModFilesResponse> second = new CompletableFuture<>();
+        client.getModFiles(6, 0, 50, into(first));
+        client.getModFiles(6, 0, 50, into(second));
+
+        assertTrue(first.get(5, TimeUnit.SECONDS).data.isEmpty());
+        assertTrue(second.get(5, TimeUnit.SECONDS).data.isEmpty());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void keyIgnoresQueryParameterOrder() {
+        HttpUrl a = HttpUrl.parse("https://api.curseforge.com/v1/mods/search?gameId=1&index=0&pageSize=20");
+        HttpUrl b = HttpUrl.parse("https://api.curseforge.com/v1/mods/search?pageSize=20&gameId=1&index=0");
+
+        assertEquals(CurseForgeResponseCache.key(a), CurseForgeResponseCache.key(b));
+    }
+
+    private static String description(CurseForgeClient client, int id) throws Exception {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        client.getContentDescription(id, into(result));
+        return result.get(5, TimeUnit.SECONDS);
+    }
+
+    private static <T> CurseForgeClient.CurseForgeCallback<T> into(CompletableFuture<T> future) {
+        return new CurseForgeClient.CurseForgeCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                future.completeExceptionally(t);
+            }
+        };
+    }
+
+    /** Waits until no call is queued or running, so responses have reached the cache. */
+    private void awaitIdle() throws InterruptedException {
+        await(() -> http.dispatcher().runningCallsCount() == 0 && http.dispatcher().queuedCallsCount() == 0);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError("timed out");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package org.levimc.launcher.core.download;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+import mockwebserver3.SocketEffect;
+import okhttp3.OkHttpClient;
+
+public class DownloadTaskTest {
+
+    private static final int SIZE = 3 * 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final FileServer files = new FileServer();
+    private MockWebServer server;
+    private DownloadManager manager;
+    private byte[] content;
+    private File destination;
+
+    @Before
+    public void setUp() throws Exception {
+        content = new byte[SIZE];
+        new Random(11).nextBytes(content);
+        files.content = content;
+        server = new MockWebServer();
+        server.setDispatcher(files);
+        server.start();
+        manager = new DownloadManager(new OkHttpClient());
+        destination = new File(tmp.getRoot(), "pack.zip");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void rangedDownloadProbesOpenEndedAndSendsIfRangeAfterwards() throws Exception {
+        DownloadRequest request = request().hash("SHA-256", sha256(content)).build();
+
+        download(request);
+
+        assertArrayEquals(content, Files.readAllBytes(destination.toPath()));
+        assertFalse(part().exists());
+        assertFalse(state().exists());
+        List<RecordedRequest> requests = requests();
+        assertEquals("bytes=0-", requests.get(0).getHeaders().get("Range"));
+        assertNull(requests.get(0).getHeaders().get("If-Range"));
+        for (RecordedRequest later : requests.subList(1, requests.size())) {
+            assertEquals("\"v1\"", later.getHeaders().get("If-Range"));
+        }
+    }
+
+    @Test
+    public void checkpointedPartialResumesWithRangeAndIfRange() throws Exception {
+        int written = SIZE / 3;
+        writePartial(written, "\"v1\"");
+
+        download(request().maxConnections(1).build());
+
+        assertArrayEquals(content, Files.readAllBytes(destination.toPath()));
+        List<RecordedRequest> requests = requests();
+        assertEquals(1, requests.size());
+        assertEquals("bytes=" + written + "-" + (SIZE - 1), requests.get(0).getHeaders().get("Range"));
+        assertEquals("\"v1\"", requests.get(0).getHeaders().get("If-Range"));
+    }
+
+    @Test
+    public void changedRemoteIsDownloadedAgainFromTheStart() throws Exception {
+        int written = SIZE / 2;
+        writePartial(written, "\"v1\"");
+        // The server now has different content, so If-Range gets the whole new file back.
+        byte[] updated = new byte[SIZE];
+        new Random(12).nextBytes(updated);
+        files.content = updated;
+        files.etag = "\"v2\"";
+
+        download(request().maxConnections(1).build());
+
+        assertArrayEquals(updated, Files.readAllBytes(destination.toPath()));
+        List<RecordedRequest> requests = requests();
+        assertEquals(2, requests.size());
+        assertEquals("\"v1\"", requests.get(0).getHeaders().get("If-Range"));
+        assertEquals("bytes=0-", requests.get(1).getHeaders().get("Range"));
+        assertNull(requests.get(1).getHeaders().get("If-Range"));
+    }
+
+    @Test
+    public void droppedConnectionResumesWhereItStopped() throws Exception {
+        files.drops.set(1);
+
+        download(request().maxConnections(1).build());
+
+        assertArrayEquals(content, Files.readAllBytes(destination.toPath()));
+        List<RecordedRequest> requests = requests();
+        assertEquals(2, requests.size());
+        String range = requests.get(1).getHeaders().get("Range");
+        long from = Long.parseLong(range.substring("bytes=".length(), range.indexOf('-')));
+        assertTrue(range, from > 0);
+        assertEquals("bytes=" + from + "-" + (SIZE - 1), range);
+        assertEquals("\"v1\"", requests.get(1).getHeaders().get("If-Range"));
+    }
+
+    @Test
+    public void serverWithoutRangesIsDownloadedWhole() throws Exception {
+        files.ranges = false;
+
+        download(request().hash("SHA-256", sha256(content)).build());
+
+        assertArrayEquals(content, Files.readAllBytes(destination.toPath()));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void hashMismatchFailsAndDiscardsThePartial() throws Exception {
+        DownloadRequest request = request().hash("SHA-256", sha256(new byte[] {1})).build();
+
+        try {
+            download(request);
+            fail("expected a hash mismatch");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains("mismatch"));
+        }
+        assertFalse(destination.exists());
+        assertFalse(part().exists());
+        assertFalse(state().exists());
+    }
+
+    @Test
+    public void wrongReportedSizeFailsBeforeDownloading() throws Exception {
+        DownloadRequest request = request().expectedSize(SIZE + 1).build();
+
+        try {
+            download(request);
+            fail("expected a size mismatch");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains("expected " + (SIZE + 1)));
+        }
+        assertFalse(destination.exists());
+    }
+
+    private DownloadRequest.Builder request() {
+        return new DownloadRequest.Builder(server.url("/pack.zip").toString(), destination);
+    }
+
+    private void download(DownloadRequest request) throws Exception {
+        CompletableFuture<File> result = new CompletableFuture<>();
+        manager.enqueue(request, new DownloadManager.Listener() {
+            @Override
+            public void onProgress(long downloaded, long total) {
+            }
+
+            @Override
+            public void onComplete(File file) {
+                result.complete(file);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        assertEquals(destination, result.get(30, TimeUnit.SECONDS));
+    }
+
+    /** Leaves the part file and checkpoint an interrupted download would have. */
+    private void writePartial(int written, String validator) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(part(), "rw")) {
+            file.setLength(SIZE);
+            file.write(content, 0, written);
+        }
+        DownloadTask.State state = new DownloadTask.State();
+        state.url = server.url("/pack.zip").toString();
+        state.validator = validator;
+        state.total = SIZE;
+        state.ranged = true;
+        DownloadTask.Segment segment = new DownloadTask.Segment(0, SIZE);
+        segment.next = written;
+        state.segments.add(segment);
+        Files.write(state().toPath(), new Gson().toJson(state).getBytes());
+    }
+
+    private List<RecordedRequest> requests() throws InterruptedException {
+        List<RecordedRequest> requests = new ArrayList<>();
+        for (int i = server.getRequestCount(); i > 0; i--) requests.add(server.takeRequest(1, TimeUnit.SECONDS));
+        return requests;
+    }
+
+    private File part() {
+        return new File(destination.getPath() + ".part");
+    }
+
+    private File state() {
+        return new File(destination.getPath() + ".part.json");
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+
+    /** Serves one file with an ETag, honouring Range and If-Range as a CDN would. */
+    private static final class FileServer extends Dispatcher {
+        volatile byte[] content;
+        volatile String etag = "\"v1\"";
+        volatile boolean ranges = true;
+        // Responses still to be cut off partway through their body.
+        final AtomicInteger drops = new AtomicInteger();
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            byte[] body = content;
+            String range = request.getHeaders().get("Range");
+            String ifRange = request.getHeaders().get("If-Range");
+            if (!ranges || range == null || (ifRange != null && !ifRange.equals(etag))) {
+                return new MockResponse.Builder()
+                        .addHeader("ETag", etag)
+                        .body(new okio.Buffer().write(body))
+                        .build();
+            }
+            String spec = range.substring("bytes=".length());
+            int dash = spec.indexOf('-');
+            int from = Integer.parseInt(spec.substring(0, dash));
+            int to = dash == spec.length() - 1 ? body.length - 1 : Integer.parseInt(spec.substring(dash + 1));
+            if (from >= body.length) {
+                return new MockResponse.Builder().code(416).addHeader("Content-Range", "bytes */" + body.length).build();
+            }
+            MockResponse.Builder response = new MockResponse.Builder()
+                    .code(206)
+                    .addHeader("ETag", etag)
+                    .addHeader("Content-Range", "bytes " + from + "-" + to + "/" + body.length)
+                    .body(new okio.Buffer().write(body, from, to - from + 1));
+            if (drops.getAndDecrement() > 0) response.onResponseBody(SocketEffect.ShutdownConnection.INSTANCE);
+            return response.build();
+        }
+    }
+}
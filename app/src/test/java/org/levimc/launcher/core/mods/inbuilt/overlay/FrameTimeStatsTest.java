@@ -0,0 +1,105 @@
+package org.levimc.launcher.core.mods.inbuilt.overlay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class FrameTimeStatsTest {
+
+    // Percentiles report the upper edge of a 0.1 ms bucket.
+    private static final float BUCKET_MS = 0.1f;
+    private static final float EPSILON = 1e-4f;
+
+    @Test
+    public void emptyWindowReportsZero() {
+        FrameTimeStats stats = new FrameTimeStats();
+
+        assertEquals(0f, stats.percentileMs(0.5), 0f);
+        assertEquals(0f, stats.onePercentLowFps(), 0f);
+        assertEquals(0, stats.recent(new float[8]));
+    }
+
+    @Test
+    public void percentilesOfEvenlySpreadFrames() {
+        FrameTimeStats stats = new FrameTimeStats();
+        for (int ms = 1; ms <= 100; ms++) stats.add(ms * 1_000_000L);
+
+        assertEquals(50.1f, stats.percentileMs(0.50), EPSILON);
+        assertEquals(95.1f, stats.percentileMs(0.95), EPSILON);
+        assertEquals(99.1f, stats.percentileMs(0.99), EPSILON);
+    }
+
+    @Test
+    public void percentilesMatchASortedWindowWithinOneBucket() {
+        Random random = new Random(1);
+        FrameTimeStats stats = new FrameTimeStats();
+        long[] frames = new long[5000];
+        for (int i = 0; i < frames.length; i++) {
+            // Mostly ~16 ms frames with an occasional 40 ms hitch.
+            long frame = 16_000_000L + (long) (random.nextGaussian() * 3_000_000L);
+            if (random.nextInt(50) == 0) frame += 40_000_000L;
+            frames[i] = Math.max(frame, 100_000L);
+            assertTrue(stats.add(frames[i]));
+        }
+
+        long[] window = Arrays.copyOfRange(frames, frames.length - FrameTimeStats.WINDOW_FRAMES, frames.length);
+        Arrays.sort(window);
+        for (double fraction : new double[] {0.5, 0.9, 0.95, 0.99}) {
+            float expected = window[(int) Math.ceil(fraction * window.length) - 1] / 1_000_000f;
+            float actual = stats.percentileMs(fraction);
+            assertTrue(fraction + ": " + actual + " vs " + expected,
+                    actual >= expected - EPSILON && actual <= expected + BUCKET_MS + EPSILON);
+        }
+        assertEquals(FrameTimeStats.WINDOW_FRAMES, stats.size());
+    }
+
+    @Test
+    public void onePercentLowAveragesTheSlowestFrames() {
+        FrameTimeStats stats = new FrameTimeStats();
+        for (int i = 0; i < 990; i++) stats.add(10_000_000L);
+        for (int i = 0; i < 10; i++) stats.add(50_000_000L);
+
+        // The slowest 10 frames all sit in the 50.0-50.1 ms bucket.
+        assertEquals(1000f / 50.1f, stats.onePercentLowFps(), 0.01f);
+    }
+
+    @Test
+    public void pausesAreDiscardedAndSlowFramesShareTheLastBucket() {
+        FrameTimeStats stats = new FrameTimeStats();
+
+        assertFalse(stats.add(0));
+        assertFalse(stats.add(-5));
+        assertFalse(stats.add(2_000_000_000L));
+        assertEquals(0, stats.size());
+
+        assertTrue(stats.add(500_000_000L));
+        assertEquals(100.1f, stats.percentileMs(1.0), EPSILON);
+    }
+
+    @Test
+    public void evictedFramesLeaveTheHistogram() {
+        FrameTimeStats stats = new FrameTimeStats();
+        for (int i = 0; i < FrameTimeStats.WINDOW_FRAMES; i++) stats.add(80_000_000L);
+        for (int i = 0; i < FrameTimeStats.WINDOW_FRAMES; i++) stats.add(8_000_000L);
+
+        assertEquals(8.1f, stats.percentileMs(1.0), EPSILON);
+        assertEquals(1000f / 8.1f, stats.onePercentLowFps(), 0.01f);
+    }
+
+    @Test
+    public void recentReturnsTheNewestFramesOldestFirst() {
+        FrameTimeStats stats = new FrameTimeStats();
+        for (int i = 1; i <= FrameTimeStats.WINDOW_FRAMES + 3; i++) stats.add(i * 1000L);
+
+        float[] out = new float[4];
+        assertEquals(4, stats.recent(out));
+        float newest = (FrameTimeStats.WINDOW_FRAMES + 3) / 1000f;
+        assertEquals(newest - 0.003f, out[0], EPSILON);
+        assertEquals(newest, out[3], EPSILON);
+    }
+}
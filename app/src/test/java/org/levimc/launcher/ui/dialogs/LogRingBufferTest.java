@@ -0,0 +1,263 @@
+package org.levimc.launcher.ui.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class LogRingBufferTest {
+
+    @Test
+    public void lineCapacityEvictsOldestLines() {
+        LogRingBuffer buffer = new LogRingBuffer(4096, 4);
+
+        for (int i = 0; i < 6; i++) append(buffer, "line" + i);
+
+        assertEquals(2, buffer.oldestSeq());
+        assertEquals(6, buffer.nextSeq());
+        assertFalse(buffer.contains(1));
+        assertEquals("line2", text(buffer, 2));
+        assertEquals("line5", text(buffer, 5));
+    }
+
+    @Test
+    public void byteCapacityEvictsOnlyOverwrittenLines() {
+        LogRingBuffer buffer = new LogRingBuffer(40, 100);
+
+        append(buffer, "aaaaaaaaaa");
+        append(buffer, "bbbbbbbbbb");
+        append(buffer, "cccccccccc");
+        append(buffer, "dddddddddd");
+        // The ring is full, so this wraps to offset 0 and replaces "aaa…" only.
+        append(buffer, "eeeeeeeeee");
+        // Lands at offset 10, which "bbb…" occupies.
+        append(buffer, "ffffffffff");
+
+        assertEquals(2, buffer.oldestSeq());
+        assertEquals("cccccccccc", text(buffer, 2));
+        assertEquals("dddddddddd", text(buffer, 3));
+        assertEquals("eeeeeeeeee", text(buffer, 4));
+        assertEquals("ffffffffff", text(buffer, 5));
+    }
+
+    @Test
+    public void wrapDropsLinesLeftFromThePreviousPass() {
+        LogRingBuffer buffer = new LogRingBuffer(40, 100);
+
+        append(buffer, "aaaaaaaaaa");
+        append(buffer, "bbbbbbbbbb");
+        append(buffer, "cccccccccc");
+        append(buffer, "xx");
+        append(buffer, "dddddddd");
+        // Second pass: overwrites a, b, c and x but stops short of d at offset 32.
+        append(buffer, "eeeeeeeeee");
+        append(buffer, "ffffffffff");
+        append(buffer, "gggggggggg");
+        append(buffer, "h");
+        // Wraps again with d still behind the write position; d is the oldest line and must go.
+        append(buffer, "iiiiiiiiii");
+
+        assertEquals(6, buffer.oldestSeq());
+        assertEquals("ffffffffff", text(buffer, 6));
+        assertEquals("gggggggggg", text(buffer, 7));
+        assertEquals("h", text(buffer, 8));
+        assertEquals("iiiiiiiiii", text(buffer, 9));
+    }
+
+    @Test
+    public void randomAppendsKeepEveryBufferedLineIntact() {
+        Random random = new Random(42);
+        LogRingBuffer buffer = new LogRingBuffer(1024, 64);
+        List<String> appended = new ArrayList<>();
+
+        for (int n = 0; n < 20000; n++) {
+            StringBuilder line = new StringBuilder();
+            int len = random.nextInt(200);
+            for (int k = 0; k < len; k++) line.append((char) ('a' + random.nextInt(26)));
+            String s = line.toString();
+            append(buffer, s);
+            appended.add(s.substring(0, Math.min(s.length(), 1024 / 4)));
+
+            assertTrue(buffer.contains(buffer.nextSeq() - 1));
+            assertTrue(buffer.nextSeq() - buffer.oldestSeq() <= 64);
+            for (long seq = buffer.oldestSeq(); seq < buffer.nextSeq(); seq++) {
+                assertEquals(appended.get((int) seq), text(buffer, seq));
+            }
+        }
+    }
+
+    @Test
+    public void overlongLineIsTruncatedToAQuarterOfTheRing() {
+        LogRingBuffer buffer = new LogRingBuffer(64, 8);
+
+        append(buffer, "x".repeat(100));
+
+        assertEquals(16, buffer.length(0));
+    }
+
+    @Test
+    public void clearDropsAllLinesButKeepsCounting() {
+        LogRingBuffer buffer = new LogRingBuffer(256, 8);
+        append(buffer, "one");
+        append(buffer, "two");
+
+        buffer.clear();
+        append(buffer, "three");
+
+        assertEquals(2, buffer.oldestSeq());
+        assertEquals("three", text(buffer, 2));
+    }
+
+    @Test
+    public void threadtimeLineIsParsedOnAppend() {
+        LogRingBuffer buffer = new LogRingBuffer(4096, 8);
+
+        append(buffer, "10-19 12:34:56.789  1234  5678 W MinecraftPE: chunk took 12 ms");
+
+        assertEquals(LogRingBuffer.FORMAT_THREADTIME, buffer.format(0));
+        assertEquals('W', buffer.level(0));
+        assertEquals(1234, buffer.pid(0));
+        assertEquals(5678, buffer.tid(0));
+        assertEquals("MinecraftPE", buffer.text(0, buffer.tagStart(0), buffer.tagEnd(0)));
+        assertEquals("chunk took 12 ms", buffer.text(0, buffer.msgStart(0), buffer.length(0)));
+    }
+
+    @Test
+    public void bracketAndBriefLinesKeepTheirLevel() {
+        LogRingBuffer buffer = new LogRingBuffer(4096, 8);
+
+        append(buffer, "[LeviMod] E failed to hook");
+        append(buffer, "I/ActivityManager: start");
+        append(buffer, "plain text");
+
+        assertEquals(LogRingBuffer.FORMAT_BRACKET, buffer.format(0));
+        assertEquals('E', buffer.level(0));
+        assertEquals("failed to hook", buffer.text(0, buffer.msgStart(0), buffer.length(0)));
+        assertEquals('I', buffer.level(1));
+        assertEquals(LogRingBuffer.FORMAT_PLAIN, buffer.format(2));
+        assertEquals(0, buffer.level(2));
+    }
+
+    @Test
+    public void filterMatchesLevelIncludeAndExcludeIgnoringCase() {
+        LogRingBuffer buffer = new LogRingBuffer(4096, 16);
+        append(buffer, "10-19 12:00:00.000  1  1 E Render: Shader FAILED");
+        append(buffer, "10-19 12:00:00.000  1  1 W Render: shader slow");
+        append(buffer, "10-19 12:00:00.000  1  1 E Audio: device failed");
+
+        assertEquals(List.of(0L, 1L), collect(buffer, new LogRingBuffer.Filter((char) 0, "shader", List.of())));
+        assertEquals(List.of(0L), collect(buffer, new LogRingBuffer.Filter('E', "SHADER", List.of())));
+        assertEquals(List.of(1L), collect(buffer, new LogRingBuffer.Filter((char) 0, "render", List.of("Failed"))));
+        assertEquals(List.of(0L, 1L, 2L), collect(buffer, LogRingBuffer.Filter.ALL));
+    }
+
+    @Test
+    public void extendingTheIncludeTextNarrows() {
+        LogRingBuffer.Filter shorter = filter((char) 0, "sha");
+        LogRingBuffer.Filter longer = filter((char) 0, "shader");
+
+        assertTrue(longer.narrows(shorter));
+        assertFalse(shorter.narrows(longer));
+        assertTrue(filter((char) 0, "my shader").narrows(shorter));
+        assertTrue(shorter.narrows(LogRingBuffer.Filter.ALL));
+    }
+
+    @Test
+    public void settingALevelNarrowsButChangingItDoesNot() {
+        assertTrue(filter('E', "").narrows(filter((char) 0, "")));
+        assertTrue(filter('E', "").narrows(filter('E', "")));
+        assertFalse(filter('W', "").narrows(filter('E', "")));
+        assertFalse(filter((char) 0, "").narrows(filter('E', "")));
+    }
+
+    @Test
+    public void excludesNarrowOnlyWhileEveryOldOneIsCovered() {
+        LogRingBuffer.Filter none = filter((char) 0, "");
+        LogRingBuffer.Filter error = new LogRingBuffer.Filter((char) 0, "", List.of("error"));
+        LogRingBuffer.Filter err = new LogRingBuffer.Filter((char) 0, "", List.of("err"));
+        LogRingBuffer.Filter errorAndGc = new LogRingBuffer.Filter((char) 0, "", List.of("error", "gc"));
+
+        assertTrue(error.narrows(none));
+        assertFalse(none.narrows(error));
+        // "err" excludes every line "error" did.
+        assertTrue(err.narrows(error));
+        assertFalse(error.narrows(err));
+        assertTrue(errorAndGc.narrows(error));
+        assertFalse(error.narrows(errorAndGc));
+    }
+
+    @Test
+    public void refiningANarrowedFilterMatchesAFullRescan() {
+        Random random = new Random(7);
+        String[] words = {"render", "shader", "chunk", "audio", "error", "gc", "tick", "Shadow"};
+        char[] levels = {'V', 'D', 'I', 'W', 'E'};
+        LogRingBuffer buffer = new LogRingBuffer(1 << 16, 2000);
+        for (int n = 0; n < 3000; n++) {
+            StringBuilder line = new StringBuilder("10-19 12:00:00.000  1  1 ")
+                    .append(levels[random.nextInt(levels.length)]).append(" Tag: ");
+            for (int k = 0; k < 4; k++) line.append(words[random.nextInt(words.length)]).append(' ');
+            append(buffer, line.toString());
+        }
+
+        LogRingBuffer.Filter[] steps = {
+                filter((char) 0, "sha"),
+                filter((char) 0, "shad"),
+                new LogRingBuffer.Filter((char) 0, "shad", List.of("error")),
+                new LogRingBuffer.Filter('E', "shadow", List.of("err", "gc")),
+        };
+        LogRingBuffer.SeqList rows = new LogRingBuffer.SeqList();
+        buffer.collect(0, steps[0], rows);
+        for (int k = 1; k < steps.length; k++) {
+            assertTrue(steps[k].narrows(steps[k - 1]));
+            LogRingBuffer.SeqList refined = new LogRingBuffer.SeqList();
+            buffer.refine(rows, steps[k], refined);
+            assertEquals(collect(buffer, steps[k]), toList(refined));
+            rows = refined;
+        }
+    }
+
+    @Test
+    public void seqListDropsAPrefixAndSearchesTheRest() {
+        LogRingBuffer.SeqList list = new LogRingBuffer.SeqList();
+        for (long seq = 0; seq < 1000; seq += 2) list.add(seq);
+
+        assertEquals(10, list.dropBefore(20));
+        assertEquals(20, list.get(0));
+        assertEquals(490, list.size());
+        assertEquals(0, list.lowerBound(5));
+        assertEquals(5, list.lowerBound(29));
+        assertEquals(490, list.lowerBound(5000));
+        assertEquals(toList(list), toList(list.copy()));
+    }
+
+    private static LogRingBuffer.Filter filter(char level, String include) {
+        return new LogRingBuffer.Filter(level, include, List.of());
+    }
+
+    private static List<Long> collect(LogRingBuffer buffer, LogRingBuffer.Filter filter) {
+        LogRingBuffer.SeqList out = new LogRingBuffer.SeqList();
+        buffer.collect(0, filter, out);
+        return toList(out);
+    }
+
+    private static List<Long> toList(LogRingBuffer.SeqList list) {
+        List<Long> values = new ArrayList<>();
+        for (int k = 0; k < list.size(); k++) values.add(list.get(k));
+        return values;
+    }
+
+    private static void append(LogRingBuffer buffer, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        buffer.append(bytes, 0, bytes.length);
+    }
+
+    private static String text(LogRingBuffer buffer, long seq) {
+        return buffer.text(seq, 0, buffer.length(seq));
+    }
+}
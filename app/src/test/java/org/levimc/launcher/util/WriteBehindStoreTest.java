@@ -0,0 +1,105 @@
+package org.levimc.launcher.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class WriteBehindStoreTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @After
+    public void drain() {
+        WriteBehindStore.flush();
+    }
+
+    @Test
+    public void readReturnsPendingContentBeforeItReachesDisk() throws Exception {
+        File file = new File(tmp.getRoot(), "state.json");
+
+        WriteBehindStore.write(file, "{\"a\":1}");
+
+        assertEquals("{\"a\":1}", WriteBehindStore.read(file));
+        assertFalse(file.exists());
+        WriteBehindStore.flush();
+        assertEquals("{\"a\":1}", JsonIOUtils.read(file));
+    }
+
+    @Test
+    public void readPrefersPendingContentOverOlderFile() throws Exception {
+        File file = tmp.newFile("state.json");
+        assertTrue(JsonIOUtils.write(file, "old"));
+
+        WriteBehindStore.write(file, "new");
+
+        assertEquals("new", WriteBehindStore.read(file));
+        WriteBehindStore.flush();
+        assertEquals("new", WriteBehindStore.read(file));
+        assertEquals("new", JsonIOUtils.read(file));
+    }
+
+    @Test
+    public void burstOfWritesIsWrittenOnceWithTheLatestContent() {
+        File file = new File(tmp.getRoot(), "burst.json");
+        long before = WriteBehindStore.getWriteCount();
+
+        for (int i = 0; i < 100; i++) {
+            WriteBehindStore.write(file, "v" + i);
+        }
+
+        assertEquals("v99", WriteBehindStore.read(file));
+        WriteBehindStore.flush();
+        assertEquals("v99", JsonIOUtils.read(file));
+        assertEquals(before + 1, WriteBehindStore.getWriteCount());
+    }
+
+    @Test
+    public void writeAfterFlushIsNotLost() {
+        File file = new File(tmp.getRoot(), "again.json");
+
+        WriteBehindStore.write(file, "first");
+        WriteBehindStore.flush();
+        WriteBehindStore.write(file, "second");
+
+        assertEquals("second", WriteBehindStore.read(file));
+        WriteBehindStore.flush();
+        assertEquals("second", JsonIOUtils.read(file));
+    }
+
+    @Test
+    public void flushRunsKeysInFirstScheduledOrderWithTheLatestTask() {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+
+        WriteBehindStore.schedule("test-a", () -> ran.add("a1"));
+        WriteBehindStore.schedule("test-b", () -> ran.add("b"));
+        WriteBehindStore.schedule("test-a", () -> ran.add("a2"));
+        WriteBehindStore.flush();
+
+        assertEquals(Arrays.asList("a2", "b"), ran);
+    }
+
+    @Test
+    public void failingTaskDoesNotBlockLaterKeys() {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+
+        WriteBehindStore.schedule("test-fail", () -> {
+            throw new IllegalStateException("boom");
+        });
+        WriteBehindStore.schedule("test-ok", () -> ran.add("ok"));
+        WriteBehindStore.flush();
+
+        assertEquals(Collections.singletonList("ok"), ran);
+    }
+}
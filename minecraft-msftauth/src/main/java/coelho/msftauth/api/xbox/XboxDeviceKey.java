@@ -8,38 +8,40 @@ import android.util.Log;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.math.BigInteger;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.KeyFactory;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
 import java.security.Signature;
 import java.security.SignatureException;
-import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
 import java.security.spec.ECGenParameterSpec;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
-import java.time.Instant;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.UUID;
 
-import coelho.msftauth.util.der.DerInputStream;
-import coelho.msftauth.util.der.DerValue;
 import okhttp3.Request;
 import okhttp3.Request.Builder;
+import okhttp3.RequestBody;
 import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Sink;
+import okio.Timeout;
 
 @SuppressWarnings("FieldMayBeFinal")
 public class XboxDeviceKey {
     private static final KeyPairGenerator KEY_PAIR_GEN;
+    private static final int P256_FIELD_BYTES = 32;
+    private static final ThreadLocal<Signer> SIGNERS = ThreadLocal.withInitial(Signer::new);
     private final KeyPair ecKey;
     private String id;
     private final XboxProofKey proofKey;
@@ -55,7 +57,8 @@ public class XboxDeviceKey {
         }
     }
 
-    private XboxDeviceKey(KeyPair kp, String id) {
+    // Package-private so tests can sign with a known key.
+    XboxDeviceKey(KeyPair kp, String id) {
         this.ecKey = kp;
         this.id = id;
         this.proofKey = new XboxProofKey(this);
@@ -75,85 +78,204 @@ public class XboxDeviceKey {
     }
 
     public void sign(Builder requestBuilder) {
+        Request tempRequest = requestBuilder.build();
+        Signer signer = SIGNERS.get().use(this.ecKey.getPrivate());
         try {
-            Buffer buffer = new Buffer();
-            Request tempRequest = requestBuilder.build();
-            String authHeader = tempRequest.header("Authorization");
-            tempRequest.body().writeTo(buffer);
-            requestBuilder.addHeader("Signature", sign(tempRequest.url().encodedPath(), authHeader, tempRequest.method(), buffer.readByteArray()));
+            long time = signer.begin(tempRequest.url().encodedPath(), tempRequest.header("Authorization"), tempRequest.method());
+            RequestBody body = tempRequest.body();
+            if (body != null) {
+                // Stream the body into the digest instead of materialising it first.
+                BufferedSink sink = Okio.buffer(signer.bodySink);
+                body.writeTo(sink);
+                sink.flush();
+            }
+            requestBuilder.addHeader("Signature", signer.finish(time));
         } catch (Exception exception) {
+            signer.reset();
             throw new IllegalStateException(exception);
         }
     }
 
     public String sign(String path, String authHeader, String requestMethod, byte[] body) {
+        Signer signer = SIGNERS.get().use(this.ecKey.getPrivate());
         try {
-            byte[] auth;
-            byte[] uri = path.getBytes(StandardCharsets.US_ASCII);
-            if (authHeader == null) {
-                auth = new byte[0];
-            } else {
-                auth = authHeader.getBytes(StandardCharsets.US_ASCII);
-            }
-            byte[] method = requestMethod.getBytes(StandardCharsets.US_ASCII);
-            if (body == null) {
-                body = new byte[0];
+            long time = signer.begin(path, authHeader, requestMethod);
+            if (body != null) {
+                signer.signature.update(body);
             }
-            long time = (Instant.now().getEpochSecond() + 11644473600L) * 10000000;
-            ByteBuffer buffer = ByteBuffer.allocate(body.length + 256);
-            buffer.order(ByteOrder.BIG_ENDIAN);
-            buffer.put(new byte[]{(byte) 0, (byte) 0, (byte) 0, (byte) 1, (byte) 0});
-            buffer.putLong(time);
-            buffer.put((byte) 0);
-            buffer.put(method);
-            buffer.put((byte) 0);
-            buffer.put(uri);
-            buffer.put((byte) 0);
-            buffer.put(auth);
-            buffer.put((byte) 0);
-            buffer.put(body);
-            buffer.put((byte) 0);
-            buffer.flip();
-            byte[] arrSignature = ecdsaSign((ECPrivateKey) this.ecKey.getPrivate(), buffer);
-            buffer = ByteBuffer.allocate(arrSignature.length + 12);
-            buffer.putInt(1);
-            buffer.putLong(time);
-            buffer.put(arrSignature);
-            buffer.rewind();
-            byte[] arrFinal = new byte[buffer.remaining()];
-            buffer.get(arrFinal);
-            return Base64.getEncoder().encodeToString(arrFinal);
+            return signer.finish(time);
         } catch (Exception exception) {
+            signer.reset();
             throw new IllegalStateException(exception);
         }
     }
 
-    private static byte[] ecdsaSign(ECPrivateKey privateKey, ByteBuffer buffer) throws Exception {
-        Signature signature = Signature.getInstance("SHA256withECDSA");
-        signature.initSign(privateKey);
-        signature.update(buffer);
-        return decodeSignature(signature.sign());
+    /**
+     * Per-thread signing state. The {@link Signature} is looked up once per thread and
+     * stays initialised for the last key used (it resets itself after each
+     * {@code sign()}); the signed fields are fed into it piece by piece rather than
+     * concatenated first.
+     */
+    private static final class Signer {
+        final Signature signature;
+        private final byte[] scratch = new byte[256];
+        final OutputStreamSink bodySink = new OutputStreamSink();
+        private PrivateKey key;
+
+        Signer() {
+            try {
+                signature = Signature.getInstance("SHA256withECDSA");
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        Signer use(PrivateKey privateKey) {
+            if (privateKey != key) {
+                try {
+                    signature.initSign(privateKey);
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException(e);
+                }
+                key = privateKey;
+            }
+            return this;
+        }
+
+        /** Feeds the policy version, timestamp, method, path and auth header; returns the timestamp. */
+        long begin(String path, String authHeader, String method) throws SignatureException {
+            // Windows file time: 100 ns ticks since 1601-01-01.
+            long time = (System.currentTimeMillis() / 1000 + 11644473600L) * 10000000;
+            scratch[0] = 0;
+            scratch[1] = 0;
+            scratch[2] = 0;
+            scratch[3] = 1;
+            scratch[4] = 0;
+            putLong(scratch, 5, time);
+            scratch[13] = 0;
+            signature.update(scratch, 0, 14);
+            updateAscii(method);
+            signature.update((byte) 0);
+            updateAscii(path);
+            signature.update((byte) 0);
+            if (authHeader != null) updateAscii(authHeader);
+            signature.update((byte) 0);
+            return time;
+        }
+
+        String finish(long time) throws SignatureException {
+            signature.update((byte) 0);
+            byte[] der = signature.sign();
+            byte[] out = new byte[12 + 2 * P256_FIELD_BYTES];
+            out[3] = 1;
+            putLong(out, 4, time);
+            derToRaw(der, out, 12, P256_FIELD_BYTES);
+            return Base64.getEncoder().encodeToString(out);
+        }
+
+        /** Re-initialises after a failure left partial input in the digest. */
+        void reset() {
+            try {
+                if (key != null) signature.initSign(key);
+            } catch (GeneralSecurityException ignored) {
+                key = null;
+            }
+        }
+
+        // Same bytes as String.getBytes(US_ASCII), without the intermediate array.
+        private void updateAscii(String s) throws SignatureException {
+            int n = 0;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) i++;
+                    c = '?';
+                }
+                scratch[n++] = (byte) c;
+                if (n == scratch.length) {
+                    signature.update(scratch, 0, n);
+                    n = 0;
+                }
+            }
+            if (n > 0) signature.update(scratch, 0, n);
+        }
+
+        final class OutputStreamSink implements Sink {
+            @Override
+            public void write(@NotNull Buffer source, long byteCount) throws IOException {
+                while (byteCount > 0) {
+                    int n = source.read(scratch, 0, (int) Math.min(byteCount, scratch.length));
+                    if (n < 0) throw new EOFException();
+                    try {
+                        signature.update(scratch, 0, n);
+                    } catch (SignatureException e) {
+                        throw new IOException(e);
+                    }
+                    byteCount -= n;
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @NotNull
+            @Override
+            public Timeout timeout() {
+                return Timeout.NONE;
+            }
+
+            @Override
+            public void close() {
+            }
+        }
+    }
+
+    private static void putLong(byte[] b, int off, long v) {
+        for (int i = 7; i >= 0; i--) {
+            b[off + i] = (byte) v;
+            v >>>= 8;
+        }
     }
 
+    /** Converts a DER ECDSA signature to the raw r||s form of a P-256 key. */
     public static byte[] decodeSignature(byte[] sig) throws SignatureException {
-        try {
-            DerInputStream in = new DerInputStream(sig, 0, sig.length, false);
-            DerValue[] values = in.getSequence(2);
-            if (values.length == 2 && in.available() == 0) {
-                BigInteger r = values[0].getPositiveBigInteger();
-                BigInteger s = values[1].getPositiveBigInteger();
-                byte[] rBytes = trimZeroes(r.toByteArray());
-                byte[] sBytes = trimZeroes(s.toByteArray());
-                int k = Math.max(rBytes.length, sBytes.length);
-                byte[] result = new byte[(k << 1)];
-                System.arraycopy(rBytes, 0, result, k - rBytes.length, rBytes.length);
-                System.arraycopy(sBytes, 0, result, result.length - sBytes.length, sBytes.length);
-                return result;
-            }
-            throw new IOException("Invalid encoding for signature");
-        } catch (Exception e) {
-            throw new SignatureException("Invalid encoding for signature", e);
+        byte[] out = new byte[2 * P256_FIELD_BYTES];
+        derToRaw(sig, out, 0, P256_FIELD_BYTES);
+        return out;
+    }
+
+    /**
+     * Writes the r and s integers of a DER {@code SEQUENCE { INTEGER r, INTEGER s }}
+     * into {@code out} as two big-endian, zero-padded {@code size}-byte fields.
+     */
+    static void derToRaw(byte[] der, byte[] out, int off, int size) throws SignatureException {
+        if (der.length < 8 || der[0] != 0x30) throw new SignatureException("Invalid encoding for signature");
+        int p = 1;
+        int seqLen = der[p++] & 0xff;
+        if (seqLen == 0x81) {
+            seqLen = der[p++] & 0xff;
+        } else if (seqLen > 0x80) {
+            throw new SignatureException("Invalid encoding for signature");
         }
+        if (p + seqLen != der.length) throw new SignatureException("Invalid encoding for signature");
+        p = readInteger(der, p, out, off, size);
+        p = readInteger(der, p, out, off + size, size);
+        if (p != der.length) throw new SignatureException("Invalid encoding for signature");
+    }
+
+    private static int readInteger(byte[] der, int p, byte[] out, int off, int size) throws SignatureException {
+        if (p + 2 > der.length || der[p] != 0x02) throw new SignatureException("Invalid encoding for signature");
+        int len = der[p + 1] & 0xff;
+        int start = p + 2;
+        int end = start + len;
+        if (len == 0 || len > 0x7f || end > der.length) throw new SignatureException("Invalid encoding for signature");
+        while (start < end - 1 && der[start] == 0) start++;
+        int digits = end - start;
+        if (digits > size) throw new SignatureException("Invalid encoding for signature");
+        Arrays.fill(out, off, off + size - digits, (byte) 0);
+        System.arraycopy(der, start, out, off + size - digits, digits);
+        return end;
     }
 
     public static byte[] trimZeroes(byte[] b) {